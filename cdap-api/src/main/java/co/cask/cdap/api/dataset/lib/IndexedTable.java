@@ -25,6 +25,7 @@ import co.cask.cdap.api.dataset.table.Increment;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import com.google.common.base.Preconditions;
@@ -132,6 +133,11 @@ public class IndexedTable extends AbstractDataset implements Table {
     return table.get(get);
   }
 
+  @Override
+  public List<Row> get(List<Get> gets) {
+    return table.get(gets);
+  }
+
   @Override
   public Row get(byte[] row) {
     return table.get(row);
@@ -470,6 +476,11 @@ public class IndexedTable extends AbstractDataset implements Table {
     return table.scan(startRow, stopRow);
   }
 
+  @Override
+  public Scanner scan(Scan scan) {
+    return table.scan(scan);
+  }
+
   /* BatchReadable implementation */
 
   @Override
@@ -49,6 +49,18 @@ public interface OrderedTable extends Dataset {
    */
   Map<byte[], byte[]> get(byte[] row, byte[][] columns) throws Exception;
 
+  /**
+   * Reads the values of the rows and columns specified by the given list of {@link Get}s. A {@link Get} without
+   * columns reads all columns of the row.
+   * NOTE: depending on the implementation this may work faster than calling {@link #get(byte[], byte[][])}
+   *       multiple times, as it may fetch all rows from the persistent store in one round trip.
+   * <p>
+   * NOTE: objects that are passed in parameters can be re-used by underlying implementation and present
+   *       in returned data structures from this method.
+   * @return list of maps of columns to values, in the same order as the given gets, never null
+   */
+  List<Map<byte[], byte[]>> get(List<Get> gets) throws Exception;
+
   /**
    * Reads values of all columns in the specified row
    * NOTE: depending on the implementation of this interface and use-case, calling this method may be much less
@@ -204,6 +216,15 @@ public interface OrderedTable extends Dataset {
    */
   Scanner scan(byte[] startRow, byte[] stopRow) throws Exception;
 
+  /**
+   * Scans table with restrictions on the rows and columns to return.
+   * NOTE: restrictions are evaluated where the data is stored when possible, so that rows and columns that are not
+   *       needed are not read from the persistent store.
+   * @param scan defines the range of rows to scan and the restrictions
+   * @return instance of {@link co.cask.cdap.api.dataset.table.Scanner}
+   */
+  Scanner scan(Scan scan) throws Exception;
+
   /**
    * Gets splits of range of rows of the table.
    * @param numSplits number of splits to return
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.dataset.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import javax.annotation.Nullable;
+
+/**
+ * Defines a scan over a range of rows of a table. Besides the row range, a Scan can restrict the rows and columns
+ * returned:
+ * <ul>
+ *   <li>
+ *     Columns: only the given columns are returned.
+ *   </li><li>
+ *     Column range: only columns within the given range are returned.
+ *   </li><li>
+ *     Value filters: only rows where each of the given columns has the given value are returned.
+ *   </li><li>
+ *     Fuzzy keys: only rows with keys matching at least one of the given fuzzy keys are returned. A fuzzy key is a
+ *     pair of row key and mask of the same length; a mask byte of 0 means the byte at the same position of the row key
+ *     is fixed, 1 means it can have any value.
+ *   </li><li>
+ *     Limit: at most the given number of rows are returned.
+ *   </li>
+ * </ul>
+ * Restrictions are evaluated where the data is stored when possible, so that rows and columns that are not needed
+ * are not transferred.
+ * <p>
+ * NOTE: a row that has none of the requested columns is not returned.
+ */
+public class Scan {
+
+  private final byte[] startRow;
+  private final byte[] stopRow;
+  private final List<byte[]> columns;
+  private final NavigableMap<byte[], byte[]> valueFilters;
+  private final List<Map.Entry<byte[], byte[]>> fuzzyKeys;
+  private byte[] startColumn;
+  private byte[] stopColumn;
+  private int limit;
+
+  /**
+   * Scans all rows in the given range.
+   * @param startRow start row inclusive; {@code null} means start from first row of the table
+   * @param stopRow stop row exclusive; {@code null} means scan all rows to the end of the table
+   */
+  public Scan(@Nullable byte[] startRow, @Nullable byte[] stopRow) {
+    this.startRow = startRow;
+    this.stopRow = stopRow;
+    this.columns = Lists.newArrayList();
+    this.valueFilters = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    this.fuzzyKeys = Lists.newArrayList();
+    this.limit = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Restricts the columns returned to the given columns.
+   * @param columns Columns to return.
+   */
+  public Scan addColumns(byte[]... columns) {
+    Collections.addAll(this.columns, columns);
+    return this;
+  }
+
+  /**
+   * Restricts the columns returned to the given range.
+   * @param startColumn first column in a range, inclusive; {@code null} means from the first column
+   * @param stopColumn last column in a range, exclusive; {@code null} means to the last column
+   */
+  public Scan setColumnRange(@Nullable byte[] startColumn, @Nullable byte[] stopColumn) {
+    this.startColumn = startColumn;
+    this.stopColumn = stopColumn;
+    return this;
+  }
+
+  /**
+   * Only returns rows where the given column has the given value.
+   * @param column Column to check.
+   * @param value Value the column must have.
+   */
+  public Scan addValueFilter(byte[] column, byte[] value) {
+    valueFilters.put(column, value);
+    return this;
+  }
+
+  /**
+   * Only returns rows that match at least one of the fuzzy keys added.
+   * @param key Row key to match.
+   * @param mask Mask of the row key, with a 0 byte for each fixed position and 1 for each position of any value.
+   */
+  public Scan addFuzzyKey(byte[] key, byte[] mask) {
+    Preconditions.checkArgument(key.length == mask.length, "Fuzzy key and mask must be of the same length.");
+    fuzzyKeys.add(Maps.immutableEntry(key, mask));
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of rows to return.
+   * @param limit Maximum number of rows, must be positive.
+   */
+  public Scan setLimit(int limit) {
+    Preconditions.checkArgument(limit > 0, "Limit must be positive.");
+    this.limit = limit;
+    return this;
+  }
+
+  /**
+   * @return start row inclusive, or {@code null} to start from the first row of the table
+   */
+  @Nullable
+  public byte[] getStartRow() {
+    return startRow;
+  }
+
+  /**
+   * @return stop row exclusive, or {@code null} to scan to the end of the table
+   */
+  @Nullable
+  public byte[] getStopRow() {
+    return stopRow;
+  }
+
+  /**
+   * @return Columns to return, empty means all columns.
+   */
+  public List<byte[]> getColumns() {
+    return Collections.unmodifiableList(columns);
+  }
+
+  /**
+   * @return first column in a range, inclusive, or {@code null} if there is no lower bound
+   */
+  @Nullable
+  public byte[] getStartColumn() {
+    return startColumn;
+  }
+
+  /**
+   * @return last column in a range, exclusive, or {@code null} if there is no upper bound
+   */
+  @Nullable
+  public byte[] getStopColumn() {
+    return stopColumn;
+  }
+
+  /**
+   * @return Map from column to value that the column must have for a row to be returned.
+   */
+  public NavigableMap<byte[], byte[]> getValueFilters() {
+    // Using ImmutableSortedMap instead of Maps.unmodifiableNavigableMap to avoid conflicts with
+    // Hadoop, which uses an older version of guava without that method.
+    return ImmutableSortedMap.copyOfSorted(valueFilters);
+  }
+
+  /**
+   * @return List of fuzzy key and mask pairs.
+   */
+  public List<Map.Entry<byte[], byte[]>> getFuzzyKeys() {
+    return ImmutableList.copyOf(fuzzyKeys);
+  }
+
+  /**
+   * @return Maximum number of rows to return.
+   */
+  public int getLimit() {
+    return limit;
+  }
+}
@@ -87,6 +87,21 @@ public interface Table extends BatchReadable<byte[], Row>, BatchWritable<byte[],
    */
   Row get(Get get);
 
+  /**
+   * Reads values of columns as defined by a list of {@link Get}s.
+   * <p>
+   * NOTE: Depending on the implementation, this can be much more efficient than calling {@link #get(Get)}
+   * for each {@link Get}, as the rows can be fetched from the persistent store in a single round trip.
+   * <p>
+   * NOTE: objects that are passed in parameters can be re-used by underlying implementation and present
+   *       in returned data structures from this method.
+   *
+   * @param gets defines the read selections
+   * @return list of {@link Row}s in the same order as the given gets: never {@code null}; an empty Row is returned
+   *         for each {@link Get} that read nothing
+   */
+  List<Row> get(List<Get> gets);
+
   /**
    * Writes the specified value for the specified column of the specified row.
    *
@@ -232,6 +247,15 @@ public interface Table extends BatchReadable<byte[], Row>, BatchWritable<byte[],
      */
   Scanner scan(@Nullable byte[] startRow, @Nullable byte[] stopRow);
 
+  /**
+   * Scans table with restrictions on the rows and columns to return, as defined by the given {@link Scan}.
+   * The restrictions are evaluated where the data is stored when possible.
+   *
+   * @param scan defines the range of rows to scan and the restrictions
+   * @return instance of {@link Scanner}
+   */
+  Scanner scan(Scan scan);
+
   /**
    * Returns splits for a range of keys in the table.
    * 
@@ -31,12 +31,12 @@ import java.nio.ByteBuffer;
 public final class QueueReaderFactory {
 
   public <T> QueueReader<T> createQueueReader(Supplier<QueueConsumer> consumerSupplier,
-                                              int batchSize, Function<ByteBuffer, T> decoder) {
+                                              Supplier<Integer> batchSize, Function<ByteBuffer, T> decoder) {
     return new SingleQueue2Reader<T>(consumerSupplier, batchSize, decoder);
   }
 
   public <T> QueueReader<T> createStreamReader(Supplier<StreamConsumer> consumerSupplier,
-                                               int batchSize, Function<StreamEvent, T> transformer) {
+                                               Supplier<Integer> batchSize, Function<StreamEvent, T> transformer) {
     return new StreamQueueReader<T>(consumerSupplier, batchSize, transformer);
   }
 }
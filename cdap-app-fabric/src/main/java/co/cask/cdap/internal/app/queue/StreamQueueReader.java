@@ -33,10 +33,10 @@ import java.util.concurrent.TimeUnit;
 public final class StreamQueueReader<T> implements QueueReader<T> {
 
   private final Supplier<StreamConsumer> consumerSupplier;
-  private final int batchSize;
+  private final Supplier<Integer> batchSize;
   private final Function<StreamEvent, T> eventTransform;
 
-  StreamQueueReader(Supplier<StreamConsumer> consumerSupplier, int batchSize,
+  StreamQueueReader(Supplier<StreamConsumer> consumerSupplier, Supplier<Integer> batchSize,
                     Function<StreamEvent, T> eventTransform) {
     this.consumerSupplier = consumerSupplier;
     this.batchSize = batchSize;
@@ -47,6 +47,7 @@ public final class StreamQueueReader<T> implements QueueReader<T> {
   public InputDatum<T> dequeue(long timeout, TimeUnit timeoutUnit) throws IOException, InterruptedException {
     StreamConsumer consumer = consumerSupplier.get();
     return new BasicInputDatum<StreamEvent, T>(consumer.getStreamName(),
-                                               consumer.poll(batchSize, timeout, timeoutUnit), eventTransform);
+                                               consumer.poll(batchSize.get(), timeout, timeoutUnit),
+                                               eventTransform);
   }
 }
@@ -34,8 +34,10 @@ import co.cask.tephra.TransactionContext;
 import co.cask.tephra.TransactionExecutor;
 import co.cask.tephra.TransactionExecutorFactory;
 import co.cask.tephra.TransactionSystemClient;
+import com.google.common.collect.ImmutableList;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Abstract base class for implementing DataFabricFacade.
@@ -70,6 +72,12 @@ public abstract class AbstractDataFabricFacade implements DataFabricFacade {
     return new TransactionContext(txSystemClient, dataSetContext.getTransactionAware());
   }
 
+  @Override
+  public TransactionContext createTransactionManager(ExecutorService executor) {
+    TransactionAware txAware = new ParallelTransactionAware(dataSetContext.getTransactionAware(), executor);
+    return new TransactionContext(txSystemClient, ImmutableList.of(txAware));
+  }
+
   @Override
   public TransactionExecutor createTransactionExecutor() {
     return txExecutorFactory.createExecutor(dataSetContext.getTransactionAware());
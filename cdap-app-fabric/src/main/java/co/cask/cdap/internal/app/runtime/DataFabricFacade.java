@@ -25,6 +25,7 @@ import co.cask.tephra.TransactionContext;
 import co.cask.tephra.TransactionExecutor;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  *
@@ -35,6 +36,12 @@ public interface DataFabricFacade extends QueueClientFactory {
 
   TransactionContext createTransactionManager();
 
+  /**
+   * Creates a {@link TransactionContext} that persists and rolls back changes of all transaction aware datasets
+   * and queues in parallel, using the given executor.
+   */
+  TransactionContext createTransactionManager(ExecutorService executor);
+
   TransactionExecutor createTransactionExecutor();
 
   StreamConsumer createStreamConsumer(QueueName streamName, ConsumerConfig consumerConfig) throws IOException;
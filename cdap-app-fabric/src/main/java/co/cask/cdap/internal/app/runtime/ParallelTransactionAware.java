@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionAware;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link TransactionAware} that groups a set of {@link TransactionAware}, with {@link #commitTx()} and
+ * {@link #rollbackTx()} called on all of them in parallel. It is for overlapping the I/O of persisting changes to
+ * different datasets and queues when a transaction is committed. Since the transaction is only committed after
+ * all changes are persisted, and all {@link TransactionAware} are rolled back if any of them failed to persist,
+ * the transaction semantic is the same as calling them one by one.
+ */
+public final class ParallelTransactionAware implements TransactionAware {
+
+  private final Iterable<TransactionAware> txAwares;
+  private final ExecutorService executor;
+  private List<TransactionAware> currentTxAwares;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param txAwares The {@link TransactionAware} to group. It is copied when a new transaction starts,
+   *                 hence it can be modified in between transactions.
+   * @param executor The {@link ExecutorService} for calling the {@link TransactionAware} in parallel.
+   */
+  public ParallelTransactionAware(Iterable<TransactionAware> txAwares, ExecutorService executor) {
+    this.txAwares = txAwares;
+    this.executor = executor;
+    this.currentTxAwares = ImmutableList.of();
+  }
+
+  @Override
+  public void startTx(Transaction tx) {
+    currentTxAwares = ImmutableList.copyOf(txAwares);
+    for (TransactionAware txAware : currentTxAwares) {
+      txAware.startTx(tx);
+    }
+  }
+
+  @Override
+  public Collection<byte[]> getTxChanges() {
+    List<byte[]> changes = Lists.newArrayList();
+    for (TransactionAware txAware : currentTxAwares) {
+      changes.addAll(txAware.getTxChanges());
+    }
+    return changes;
+  }
+
+  @Override
+  public boolean commitTx() throws Exception {
+    return invokeAll(new TxAwareCall() {
+      @Override
+      public boolean call(TransactionAware txAware) throws Exception {
+        return txAware.commitTx();
+      }
+    });
+  }
+
+  @Override
+  public void postTxCommit() {
+    for (TransactionAware txAware : currentTxAwares) {
+      txAware.postTxCommit();
+    }
+  }
+
+  @Override
+  public boolean rollbackTx() throws Exception {
+    return invokeAll(new TxAwareCall() {
+      @Override
+      public boolean call(TransactionAware txAware) throws Exception {
+        return txAware.rollbackTx();
+      }
+    });
+  }
+
+  @Override
+  public String getTransactionAwareName() {
+    List<String> names = Lists.newArrayListWithCapacity(currentTxAwares.size());
+    for (TransactionAware txAware : currentTxAwares) {
+      names.add(txAware.getTransactionAwareName());
+    }
+    return getClass().getSimpleName() + names;
+  }
+
+  /**
+   * Calls the given {@link TxAwareCall} on all {@link TransactionAware} of the current transaction. The first one is
+   * called from the current thread while the rest are called through the executor. This method only returns after all
+   * calls completed.
+   *
+   * @return {@code true} if all calls returned {@code true}.
+   * @throws Exception the first exception raised by the calls, if any.
+   */
+  private boolean invokeAll(final TxAwareCall call) throws Exception {
+    if (currentTxAwares.isEmpty()) {
+      return true;
+    }
+
+    List<Future<Boolean>> futures = Lists.newArrayListWithCapacity(currentTxAwares.size() - 1);
+    for (final TransactionAware txAware : currentTxAwares.subList(1, currentTxAwares.size())) {
+      futures.add(executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          return call.call(txAware);
+        }
+      }));
+    }
+
+    boolean result = true;
+    Throwable failure = null;
+    try {
+      result = call.call(currentTxAwares.get(0));
+    } catch (Throwable t) {
+      failure = t;
+    }
+
+    // Always wait for all calls to complete, so that no call is still running when the transaction is finished.
+    for (Future<Boolean> future : futures) {
+      try {
+        result = Uninterruptibles.getUninterruptibly(future) && result;
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+
+    if (failure != null) {
+      Throwables.propagateIfInstanceOf(failure, Exception.class);
+      throw Throwables.propagate(failure);
+    }
+    return result;
+  }
+
+  /**
+   * A call to a {@link TransactionAware}.
+   */
+  private interface TxAwareCall {
+    boolean call(TransactionAware txAware) throws Exception;
+  }
+}
@@ -29,6 +29,8 @@ public final class ProgramOptionConstants {
 
   public static final String FLOWLET_INSTANCES = "flowletInstances";
 
+  public static final String FUSED_FLOWLETS = "fusedFlowlets";
+
   public static final String RUNNABLE_INSTANCES = "serviceRunnableInstances";
 
   public static final String LOGICAL_START_TIME = "logicalStartTime";
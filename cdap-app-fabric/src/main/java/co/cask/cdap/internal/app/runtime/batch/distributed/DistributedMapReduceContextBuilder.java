@@ -23,6 +23,8 @@ import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.guice.IOModule;
 import co.cask.cdap.common.guice.LocationRuntimeModule;
 import co.cask.cdap.common.guice.ZKClientModule;
+import co.cask.cdap.data2.datafabric.dataset.DatasetCacheCoordinator;
+import co.cask.cdap.data2.datafabric.dataset.DistributedDatasetCacheCoordinator;
 import co.cask.cdap.data2.datafabric.dataset.RemoteDatasetFramework;
 import co.cask.cdap.data2.datafabric.dataset.type.DatasetTypeClassLoaderFactory;
 import co.cask.cdap.data2.datafabric.dataset.type.DistributedDatasetTypeClassLoaderFactory;
@@ -84,6 +86,7 @@ public class DistributedMapReduceContextBuilder extends AbstractMapReduceContext
                     .build(DatasetDefinitionRegistryFactory.class));
           bind(DatasetTypeClassLoaderFactory.class).to(DistributedDatasetTypeClassLoaderFactory.class);
           bind(DatasetFramework.class).to(RemoteDatasetFramework.class);
+          bind(DatasetCacheCoordinator.class).to(DistributedDatasetCacheCoordinator.class);
 
           // For log publishing
           bind(LogAppender.class).to(KafkaLogAppender.class);
@@ -24,6 +24,8 @@ import co.cask.cdap.app.runtime.Arguments;
 import co.cask.cdap.app.runtime.ProgramController;
 import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.app.runtime.ProgramRunner;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.data2.transaction.queue.QueueAdmin;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
@@ -38,6 +40,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -53,9 +56,11 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
 
 /**
  *
@@ -68,12 +73,15 @@ public final class FlowProgramRunner implements ProgramRunner {
   private final Map<RunId, ProgramOptions> programOptions = Maps.newHashMap();
   private final StreamAdmin streamAdmin;
   private final QueueAdmin queueAdmin;
+  private final CConfiguration cConf;
 
   @Inject
-  public FlowProgramRunner(ProgramRunnerFactory programRunnerFactory, StreamAdmin streamAdmin, QueueAdmin queueAdmin) {
+  public FlowProgramRunner(ProgramRunnerFactory programRunnerFactory, StreamAdmin streamAdmin, QueueAdmin queueAdmin,
+                           CConfiguration cConf) {
     this.programRunnerFactory = programRunnerFactory;
     this.streamAdmin = streamAdmin;
     this.queueAdmin = queueAdmin;
+    this.cConf = cConf;
   }
 
   @Override
@@ -94,8 +102,14 @@ public final class FlowProgramRunner implements ProgramRunner {
       RunId runId = RunIds.generate();
       programOptions.put(runId, options);
       Multimap<String, QueueName> consumerQueues = FlowUtils.configureQueue(program, flowSpec, streamAdmin, queueAdmin);
-      final Table<String, Integer, ProgramController> flowlets = createFlowlets(program, runId, flowSpec);
-      return new FlowProgramController(flowlets, runId, program, flowSpec, consumerQueues);
+      Map<String, List<String>> fusedChains = ImmutableMap.of();
+      if (cConf.getBoolean(Constants.AppFabric.FLOWLET_FUSION_ENABLED,
+                           Constants.AppFabric.DEFAULT_FLOWLET_FUSION_ENABLED)) {
+        fusedChains = FlowletFusion.getFusedChains(program, flowSpec);
+        LOG.info("Fused flowlets of flow {}: {}", flowSpec.getName(), fusedChains);
+      }
+      final Table<String, Integer, ProgramController> flowlets = createFlowlets(program, runId, flowSpec, fusedChains);
+      return new FlowProgramController(flowlets, runId, program, flowSpec, consumerQueues, fusedChains);
     } catch (Exception e) {
       throw Throwables.propagate(e);
     }
@@ -105,19 +119,27 @@ public final class FlowProgramRunner implements ProgramRunner {
    * Starts all flowlets in the flow program.
    * @param program Program to run
    * @param flowSpec The {@link FlowSpecification}.
+   * @param fusedChains Chains of fused flowlets, keyed by the flowlet that runs the chain.
    * @return A {@link Table} with row as flowlet id, column as instance id, cell as the {@link ProgramController}
-   *         for the flowlet.
+   *         for the flowlet. Fused flowlets are not in the table, as they are run by another flowlet.
    */
   private Table<String, Integer, ProgramController> createFlowlets(Program program, RunId runId,
-                                                                   FlowSpecification flowSpec) {
+                                                                   FlowSpecification flowSpec,
+                                                                   Map<String, List<String>> fusedChains) {
     Table<String, Integer, ProgramController> flowlets = HashBasedTable.create();
+    Set<String> fusedFlowlets = ImmutableSet.copyOf(Iterables.concat(fusedChains.values()));
 
     try {
       for (Map.Entry<String, FlowletDefinition> entry : flowSpec.getFlowlets().entrySet()) {
+        if (fusedFlowlets.contains(entry.getKey())) {
+          continue;
+        }
         int instanceCount = entry.getValue().getInstances();
+        List<String> fusedChain = fusedChains.get(entry.getKey());
         for (int instanceId = 0; instanceId < instanceCount; instanceId++) {
           flowlets.put(entry.getKey(), instanceId,
-                       startFlowlet(program, createFlowletOptions(entry.getKey(), instanceId, instanceCount, runId)));
+                       startFlowlet(program, createFlowletOptions(entry.getKey(), instanceId, instanceCount,
+                                                                  runId, fusedChain)));
         }
       }
     } catch (Throwable t) {
@@ -143,7 +165,8 @@ public final class FlowProgramRunner implements ProgramRunner {
                                .run(program, options);
   }
 
-  private ProgramOptions createFlowletOptions(String name, int instanceId, int instances, RunId runId) {
+  private ProgramOptions createFlowletOptions(String name, int instanceId, int instances, RunId runId,
+                                              @Nullable List<String> fusedChain) {
 
     // Get the right user arguments.
     Arguments userArguments = new BasicArguments();
@@ -151,13 +174,14 @@ public final class FlowProgramRunner implements ProgramRunner {
       userArguments = programOptions.get(runId).getUserArguments();
     }
 
-    return new SimpleProgramOptions(name, new BasicArguments(
-      ImmutableMap.of(
-        ProgramOptionConstants.INSTANCE_ID, Integer.toString(instanceId),
-        ProgramOptionConstants.INSTANCES, Integer.toString(instances),
-        ProgramOptionConstants.RUN_ID, runId.getId()
-      )), userArguments
-    );
+    ImmutableMap.Builder<String, String> arguments = ImmutableMap.<String, String>builder()
+      .put(ProgramOptionConstants.INSTANCE_ID, Integer.toString(instanceId))
+      .put(ProgramOptionConstants.INSTANCES, Integer.toString(instances))
+      .put(ProgramOptionConstants.RUN_ID, runId.getId());
+    if (fusedChain != null) {
+      arguments.put(ProgramOptionConstants.FUSED_FLOWLETS, FlowletFusion.encodeFusedFlowlets(fusedChain));
+    }
+    return new SimpleProgramOptions(name, new BasicArguments(arguments.build()), userArguments);
   }
 
   private final class FlowProgramController extends AbstractProgramController {
@@ -167,14 +191,17 @@ public final class FlowProgramRunner implements ProgramRunner {
     private final FlowSpecification flowSpec;
     private final Lock lock = new ReentrantLock();
     private final Multimap<String, QueueName> consumerQueues;
+    private final Map<String, List<String>> fusedChains;
 
     FlowProgramController(Table<String, Integer, ProgramController> flowlets, RunId runId,
-                          Program program, FlowSpecification flowSpec, Multimap<String, QueueName> consumerQueues) {
+                          Program program, FlowSpecification flowSpec, Multimap<String, QueueName> consumerQueues,
+                          Map<String, List<String>> fusedChains) {
       super(program.getName(), runId);
       this.flowlets = flowlets;
       this.program = program;
       this.flowSpec = flowSpec;
       this.consumerQueues = consumerQueues;
+      this.fusedChains = fusedChains;
       started();
     }
 
@@ -261,6 +288,13 @@ public final class FlowProgramRunner implements ProgramRunner {
      * @throws InterruptedException
      */
     private synchronized void changeInstances(String flowletName, final int newInstanceCount) throws Exception {
+      // Instances of a fused flowlet follow the instances of the flowlet that runs it
+      for (Map.Entry<String, List<String>> entry : fusedChains.entrySet()) {
+        Preconditions.checkArgument(!entry.getValue().contains(flowletName),
+                                    "Cannot change instances of flowlet %s, which is fused into flowlet %s.",
+                                    flowletName, entry.getKey());
+      }
+
       Map<Integer, ProgramController> liveFlowlets = flowlets.row(flowletName);
       int liveCount = liveFlowlets.size();
       if (liveCount == newInstanceCount) {
@@ -316,7 +350,8 @@ public final class FlowProgramRunner implements ProgramRunner {
       for (int instanceId = liveCount; instanceId < newInstanceCount; instanceId++) {
         flowlets.put(flowletName, instanceId,
                      startFlowlet(program,
-                                  createFlowletOptions(flowletName, instanceId, newInstanceCount, getRunId())));
+                                  createFlowletOptions(flowletName, instanceId, newInstanceCount, getRunId(),
+                                                       fusedChains.get(flowletName))));
       }
     }
 
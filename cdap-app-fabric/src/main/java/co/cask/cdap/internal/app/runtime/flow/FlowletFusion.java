@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.annotation.DisableTransaction;
+import co.cask.cdap.api.annotation.HashPartition;
+import co.cask.cdap.api.annotation.ProcessInput;
+import co.cask.cdap.api.annotation.Tick;
+import co.cask.cdap.api.flow.FlowSpecification;
+import co.cask.cdap.api.flow.FlowletConnection;
+import co.cask.cdap.api.flow.FlowletDefinition;
+import co.cask.cdap.api.flow.flowlet.AbstractFlowlet;
+import co.cask.cdap.api.flow.flowlet.Callback;
+import co.cask.cdap.api.flow.flowlet.FailurePolicy;
+import co.cask.cdap.api.flow.flowlet.FailureReason;
+import co.cask.cdap.api.flow.flowlet.InputContext;
+import co.cask.cdap.api.flow.flowlet.OutputEmitter;
+import co.cask.cdap.app.program.Program;
+import co.cask.cdap.app.runtime.Arguments;
+import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
+import co.cask.cdap.internal.specification.FlowletMethod;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Helper for running flowlets fused into the process driver of their upstream flowlet. Objects emitted by the
+ * upstream flowlet are passed directly to the process method of the fused flowlet, inside the transaction of the
+ * upstream flowlet, without going through a queue.
+ * <p>
+ * A flowlet is fused into its upstream flowlet only if the fused flowlet consumes nothing but the single output of
+ * the upstream flowlet, both have the same number of instances and run with transaction, and the fused flowlet has a
+ * single non-partitioned process method, no tick method, no {@link Callback} and retries on failure. Failures of the
+ * fused flowlet are failures of the upstream flowlet, hence its input is retried as a whole.
+ * </p>
+ */
+final class FlowletFusion {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FlowletFusion.class);
+
+  /**
+   * Returns the chains of fused flowlets of the given flow. The key of the map is the flowlet that runs the chain,
+   * and the value is the list of flowlets fused into it, in the order of the connections.
+   */
+  static Map<String, List<String>> getFusedChains(Program program, FlowSpecification flowSpec) {
+    Multimap<String, FlowletConnection> outgoing = ArrayListMultimap.create();
+    Multimap<String, FlowletConnection> incoming = ArrayListMultimap.create();
+    for (FlowletConnection connection : flowSpec.getConnections()) {
+      if (connection.getSourceType() == FlowletConnection.Type.FLOWLET) {
+        outgoing.put(connection.getSourceName(), connection);
+      }
+      incoming.put(connection.getTargetName(), connection);
+    }
+
+    Map<String, String> fused = Maps.newHashMap();
+    for (Map.Entry<String, FlowletConnection> entry : outgoing.entries()) {
+      String source = entry.getKey();
+      String target = entry.getValue().getTargetName();
+      if (outgoing.get(source).size() == 1 && incoming.get(target).size() == 1
+        && canFuse(program, flowSpec.getFlowlets().get(source), flowSpec.getFlowlets().get(target))) {
+        fused.put(source, target);
+      }
+    }
+
+    // Each chain is run by a flowlet that is not fused into another one
+    Set<String> targets = ImmutableSet.copyOf(fused.values());
+    Map<String, List<String>> chains = Maps.newHashMap();
+    for (String source : fused.keySet()) {
+      if (targets.contains(source)) {
+        continue;
+      }
+      ImmutableList.Builder<String> chain = ImmutableList.builder();
+      for (String target = fused.get(source); target != null; target = fused.get(target)) {
+        chain.add(target);
+      }
+      chains.put(source, chain.build());
+    }
+    return chains;
+  }
+
+  /**
+   * Returns the program option value for the given chain of fused flowlets.
+   */
+  static String encodeFusedFlowlets(List<String> chain) {
+    return Joiner.on(',').join(chain);
+  }
+
+  /**
+   * Returns the chain of flowlets to be fused into the flowlet run with the given arguments.
+   */
+  static List<String> getFusedFlowlets(Arguments arguments) {
+    String fusedFlowlets = arguments.getOption(ProgramOptionConstants.FUSED_FLOWLETS, "");
+    return ImmutableList.copyOf(Splitter.on(',').omitEmptyStrings().split(fusedFlowlets));
+  }
+
+  /**
+   * Returns the only process method of the given flowlet class or {@code null} if the class has tick methods or
+   * more than one process method.
+   */
+  @Nullable
+  static Method getProcessMethod(TypeToken<?> flowletType) {
+    Set<FlowletMethod> seenMethods = Sets.newHashSet();
+    Method processMethod = null;
+
+    for (TypeToken<?> type : flowletType.getTypes().classes()) {
+      if (type.getRawType().equals(Object.class)) {
+        break;
+      }
+      for (Method method : type.getRawType().getDeclaredMethods()) {
+        if (!seenMethods.add(new FlowletMethod(method, flowletType))) {
+          continue;
+        }
+        if (method.isAnnotationPresent(Tick.class)) {
+          return null;
+        }
+        if (method.isAnnotationPresent(ProcessInput.class)) {
+          if (processMethod != null) {
+            return null;
+          }
+          processMethod = method;
+        }
+      }
+    }
+    return processMethod;
+  }
+
+  private static boolean canFuse(Program program, FlowletDefinition source, FlowletDefinition target) {
+    if (source.getInstances() != target.getInstances()
+      || source.getOutputs().size() != 1 || Iterables.getOnlyElement(source.getOutputs().values()).size() != 1
+      || target.getFlowletSpec().getFailurePolicy() != FailurePolicy.RETRY) {
+      return false;
+    }
+
+    try {
+      Class<?> sourceClass = program.getClassLoader().loadClass(source.getFlowletSpec().getClassName());
+      Class<?> targetClass = program.getClassLoader().loadClass(target.getFlowletSpec().getClassName());
+      if (sourceClass.isAnnotationPresent(DisableTransaction.class)
+        || targetClass.isAnnotationPresent(DisableTransaction.class)
+        || hasCallback(targetClass)) {
+        return false;
+      }
+
+      TypeToken<?> outputType = getOutputType(TypeToken.of(sourceClass));
+      TypeToken<?> targetType = TypeToken.of(targetClass);
+      Method method = getProcessMethod(targetType);
+      if (outputType == null || method == null || method.getParameterTypes().length == 0
+        || method.isAnnotationPresent(HashPartition.class)) {
+        return false;
+      }
+
+      TypeToken<?> inputType = targetType.resolveType(method.getGenericParameterTypes()[0]);
+      if (inputType.getRawType().equals(Iterator.class)) {
+        if (!(inputType.getType() instanceof ParameterizedType)) {
+          return false;
+        }
+        inputType = targetType.resolveType(((ParameterizedType) inputType.getType()).getActualTypeArguments()[0]);
+      }
+      return inputType.isAssignableFrom(outputType);
+    } catch (ClassNotFoundException e) {
+      LOG.warn("Failed to load flowlet class. Not fusing flowlets {} and {}.",
+               source.getFlowletSpec().getName(), target.getFlowletSpec().getName(), e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the given flowlet class implements {@link Callback}, other than the default implementation
+   * of {@link AbstractFlowlet}.
+   */
+  private static boolean hasCallback(Class<?> flowletClass) {
+    if (!Callback.class.isAssignableFrom(flowletClass)) {
+      return false;
+    }
+    try {
+      Method onSuccess = flowletClass.getMethod("onSuccess", Object.class, InputContext.class);
+      Method onFailure = flowletClass.getMethod("onFailure", Object.class, InputContext.class, FailureReason.class);
+      return !onSuccess.getDeclaringClass().equals(AbstractFlowlet.class)
+        || !onFailure.getDeclaringClass().equals(AbstractFlowlet.class);
+    } catch (NoSuchMethodException e) {
+      return true;
+    }
+  }
+
+  /**
+   * Returns the type emitted by the only {@link OutputEmitter} of the given flowlet class or {@code null} if the
+   * class does not have exactly one emitter.
+   */
+  @Nullable
+  private static TypeToken<?> getOutputType(TypeToken<?> flowletType) {
+    TypeToken<?> outputType = null;
+    for (TypeToken<?> type : flowletType.getTypes().classes()) {
+      for (Field field : type.getRawType().getDeclaredFields()) {
+        if (!OutputEmitter.class.equals(field.getType())) {
+          continue;
+        }
+        TypeToken<?> emitterType = flowletType.resolveType(field.getGenericType());
+        if (outputType != null || !(emitterType.getType() instanceof ParameterizedType)) {
+          return null;
+        }
+        outputType = flowletType.resolveType(((ParameterizedType) emitterType.getType()).getActualTypeArguments()[0]);
+      }
+    }
+    return outputType;
+  }
+
+  private FlowletFusion() {
+  }
+}
@@ -24,6 +24,7 @@ import co.cask.cdap.api.flow.flowlet.InputContext;
 import co.cask.cdap.app.queue.InputDatum;
 import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.common.logging.LoggingContextAccessor;
+import co.cask.cdap.common.metrics.MetricsCounter;
 import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.internal.app.queue.SingleItemQueueReader;
 import co.cask.cdap.internal.app.runtime.DataFabricFacade;
@@ -72,14 +73,17 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
   private final AtomicInteger inflight;
   private final DataFabricFacade dataFabricFacade;
   private final Service serviceHook;
+  private final boolean parallelCommit;
 
   private Thread runnerThread;
   private ExecutorService processExecutor;
+  private ExecutorService commitExecutor;
+  private MetricsCounter attemptReadCounter;
 
   FlowletProcessDriver(Flowlet flowlet, BasicFlowletContext flowletContext,
                        Collection<ProcessSpecification> processSpecs,
                        Callback txCallback, DataFabricFacade dataFabricFacade,
-                       Service serviceHook) {
+                       Service serviceHook, boolean parallelCommit) {
     this.flowlet = flowlet;
     this.flowletContext = flowletContext;
     this.loggingContext = flowletContext.getLoggingContext();
@@ -87,6 +91,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     this.txCallback = txCallback;
     this.dataFabricFacade = dataFabricFacade;
     this.serviceHook = serviceHook;
+    this.parallelCommit = parallelCommit;
     this.inflight = new AtomicInteger(0);
 
     this.suspension = new AtomicReference<CountDownLatch>();
@@ -97,13 +102,21 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
   protected void startUp() throws Exception {
     runnerThread = Thread.currentThread();
     flowletContext.getProgramMetrics().increment("process.instance", 1);
+    attemptReadCounter = flowletContext.getProgramMetrics().counter("process.tuples.attempt.read");
     processExecutor = Executors.newSingleThreadExecutor(
       Threads.createDaemonThreadFactory(getServiceName() + "-executor"));
+    if (parallelCommit) {
+      commitExecutor = Executors.newCachedThreadPool(
+        Threads.createDaemonThreadFactory(getServiceName() + "-commit-%d"));
+    }
   }
 
   @Override
   protected void shutDown() throws Exception {
     processExecutor.shutdown();
+    if (commitExecutor != null) {
+      commitExecutor.shutdown();
+    }
   }
 
   @Override
@@ -253,11 +266,12 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
     ProcessMethod<T> processMethod = entry.getProcessSpec().getProcessMethod();
     if (processMethod.needsInput()) {
-      flowletContext.getProgramMetrics().increment("process.tuples.attempt.read", 1);
+      attemptReadCounter.increment(1);
     }
 
     // Begin transaction and dequeue
-    TransactionContext txContext = dataFabricFacade.createTransactionManager();
+    long startTime = System.nanoTime();
+    TransactionContext txContext = createTransactionContext();
     try {
       txContext.start();
 
@@ -284,7 +298,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
           // Call the process method and commit the transaction. The current process entry will put
           // back to queue in the postProcess method (either a retry copy or itself).
           ProcessMethod.ProcessResult<?> result = processMethod.invoke(input);
-          postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result);
+          postProcess(processMethodCallback(processQueue, entry, input, startTime), txContext, input, result);
           return true;
         } catch (Throwable t) {
           // If exception thrown from invoke or postProcess, the inflight count would not be touched.
@@ -361,7 +375,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     return new InputAcknowledger() {
       @Override
       public void ack() throws TransactionFailureException {
-        TransactionContext txContext = dataFabricFacade.createTransactionManager();
+        TransactionContext txContext = createTransactionContext();
         txContext.start();
         input.reclaim();
         txContext.finish();
@@ -369,6 +383,16 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     };
   }
 
+  /**
+   * Creates a {@link TransactionContext} for processing inputs.
+   */
+  private TransactionContext createTransactionContext() {
+    if (commitExecutor == null) {
+      return dataFabricFacade.createTransactionManager();
+    }
+    return dataFabricFacade.createTransactionManager(commitExecutor);
+  }
+
   private void initFlowlet() throws InterruptedException {
     try {
       dataFabricFacade.createTransactionExecutor().execute(new TransactionExecutor.Subroutine() {
@@ -407,7 +431,8 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
   private <T> ProcessMethodCallback processMethodCallback(final BlockingQueue<FlowletProcessEntry<?>> processQueue,
                                                           final FlowletProcessEntry<T> processEntry,
-                                                          final InputDatum<T> input) {
+                                                          final InputDatum<T> input,
+                                                          final long startTime) {
     // If it is generator flowlet, processCount is 1.
     final int processedCount = processEntry.getProcessSpec().getProcessMethod().needsInput() ? input.size() : 1;
 
@@ -415,6 +440,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
       @Override
       public void onSuccess(Object object, InputContext inputContext) {
         try {
+          long elapsed = System.nanoTime() - startTime;
+          processEntry.getProcessSpec().getBatchSize().committed(input.size(), elapsed);
+          flowletContext.getProgramMetrics().histogram("process.latency.us", TimeUnit.NANOSECONDS.toMicros(elapsed));
           gaugeEventProcessed(input.getQueueName());
           txCallback.onSuccess(object, inputContext);
         } catch (Throwable t) {
@@ -429,6 +457,18 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
       public void onFailure(Object inputObject, InputContext inputContext, FailureReason reason,
                             InputAcknowledger inputAcknowledger) {
 
+        // For user failure, the transaction is already aborted, hence the dequeued entries are available for dequeue
+        // again. If the batch was enlarged by adaptive batching, process the entries again with the base batch size
+        // so that the failure is isolated to the inputs that caused it.
+        if (reason.getType() == FailureReason.Type.USER && !processEntry.isRetry()
+          && processEntry.getProcessSpec().getBatchSize().failed(input.size())) {
+          LOG.info("Process failure with {} inputs, reprocess them in smaller transactions: {}, {}",
+                   input.size(), flowletContext, reason.getMessage());
+          enqueueEntry();
+          inflight.decrementAndGet();
+          return;
+        }
+
         LOG.warn("Process failure: {}, {}, input: {}", flowletContext, reason.getMessage(), input, reason.getCause());
         FailurePolicy failurePolicy;
         try {
@@ -37,17 +37,22 @@ final class FlowletProgramController extends AbstractProgramController {
   private final BasicFlowletContext flowletContext;
   private final FlowletProcessDriver driver;
   private final Collection<ConsumerSupplier<?>> consumerSuppliers;
+  private final Collection<BasicFlowletContext> fusedContexts;
 
   /**
    * Constructs an instance. The instance must be constructed before the flowlet driver starts.
+   *
+   * @param fusedContexts Contexts of the flowlets fused into the flowlet, which are run by the same driver.
    */
   FlowletProgramController(String programName, String flowletName,
                            BasicFlowletContext flowletContext, FlowletProcessDriver driver,
-                           Collection<ConsumerSupplier<?>> consumerSuppliers) {
+                           Collection<ConsumerSupplier<?>> consumerSuppliers,
+                           Collection<BasicFlowletContext> fusedContexts) {
     super(programName + ":" + flowletName, flowletContext.getRunId());
     this.flowletContext = flowletContext;
     this.driver = driver;
     this.consumerSuppliers = consumerSuppliers;
+    this.fusedContexts = fusedContexts;
     listenDriveState(driver);
   }
 
@@ -84,6 +89,9 @@ final class FlowletProgramController extends AbstractProgramController {
         Closeables.closeQuietly(consumerSupplier);
       }
       flowletContext.close();
+      for (BasicFlowletContext fusedContext : fusedContexts) {
+        fusedContext.close();
+      }
     }
     LOG.info("Flowlet stopped: " + flowletContext);
   }
@@ -105,6 +113,9 @@ final class FlowletProgramController extends AbstractProgramController {
     Preconditions.checkState(getState() == State.SUSPENDED,
                              "Cannot change instance count of a flowlet without suspension.");
     flowletContext.setInstanceCount(instanceCount);
+    for (BasicFlowletContext fusedContext : fusedContexts) {
+      fusedContext.setInstanceCount(instanceCount);
+    }
   }
 
   private void listenDriveState(FlowletProcessDriver driver) {
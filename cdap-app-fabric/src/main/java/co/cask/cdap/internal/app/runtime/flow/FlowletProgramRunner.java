@@ -44,6 +44,7 @@ import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.common.async.ExecutorUtils;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.lang.InstantiatorFactory;
 import co.cask.cdap.common.lang.PropertyFieldSetter;
@@ -70,8 +71,9 @@ import co.cask.cdap.internal.app.runtime.DataSetFieldSetter;
 import co.cask.cdap.internal.app.runtime.MetricsFieldSetter;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.io.ByteBufferInputStream;
+import co.cask.cdap.internal.io.DatumReader;
+import co.cask.cdap.internal.io.DatumReaderFactory;
 import co.cask.cdap.internal.io.DatumWriterFactory;
-import co.cask.cdap.internal.io.ReflectionDatumReader;
 import co.cask.cdap.internal.io.Schema;
 import co.cask.cdap.internal.io.SchemaGenerator;
 import co.cask.cdap.internal.io.UnsupportedTypeException;
@@ -79,6 +81,7 @@ import co.cask.cdap.internal.lang.Reflections;
 import co.cask.cdap.internal.specification.FlowletMethod;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.ProgramType;
+import co.cask.tephra.TransactionAware;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
@@ -87,6 +90,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.reflect.TypeToken;
@@ -111,6 +115,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -125,6 +130,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
 
   private final SchemaGenerator schemaGenerator;
   private final DatumWriterFactory datumWriterFactory;
+  private final DatumReaderFactory datumReaderFactory;
   private final DataFabricFacadeFactory dataFabricFacadeFactory;
   private final StreamCoordinator streamCoordinator;
   private final QueueReaderFactory queueReaderFactory;
@@ -136,6 +142,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
   @Inject
   public FlowletProgramRunner(SchemaGenerator schemaGenerator,
                               DatumWriterFactory datumWriterFactory,
+                              DatumReaderFactory datumReaderFactory,
                               DataFabricFacadeFactory dataFabricFacadeFactory, StreamCoordinator streamCoordinator,
                               QueueReaderFactory queueReaderFactory,
                               MetricsCollectionService metricsCollectionService,
@@ -144,6 +151,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                               CConfiguration configuration) {
     this.schemaGenerator = schemaGenerator;
     this.datumWriterFactory = datumWriterFactory;
+    this.datumReaderFactory = datumReaderFactory;
     this.dataFabricFacadeFactory = dataFabricFacadeFactory;
     this.streamCoordinator = streamCoordinator;
     this.queueReaderFactory = queueReaderFactory;
@@ -163,6 +171,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
   @Override
   public ProgramController run(Program program, ProgramOptions options) {
     BasicFlowletContext flowletContext = null;
+    Map<Flowlet, BasicFlowletContext> fusedFlowlets = Maps.newLinkedHashMap();
     try {
       // Extract and verify parameters
       String flowletName = options.getName();
@@ -228,13 +237,19 @@ public final class FlowletProgramRunner implements ProgramRunner {
       // to load cdap classes
       Thread.currentThread().setContextClassLoader(FlowletProgramRunner.class.getClassLoader());
 
+      // Flowlets fused into this flowlet get the output of this flowlet directly
+      List<String> fusedFlowletNames = FlowletFusion.getFusedFlowlets(options.getArguments());
+      OutputEmitterFactory emitterFactory = fusedFlowletNames.isEmpty()
+        ? outputEmitterFactory(flowletContext, flowletName, dataFabricFacade, queueSpecs)
+        : createFusedFlowlets(program, options, flowSpec, flowletContext, fusedFlowletNames,
+                              dataFabricFacade, queueSpecs, fusedFlowlets);
+
       // Inject DataSet, OutputEmitter, Metric fields
       Reflections.visit(flowlet, TypeToken.of(flowlet.getClass()),
                         new PropertyFieldSetter(flowletDef.getFlowletSpec().getProperties()),
                         new DataSetFieldSetter(flowletContext),
                         new MetricsFieldSetter(flowletContext.getMetrics()),
-                        new OutputEmitterFieldSetter(outputEmitterFactory(flowletContext, flowletName,
-                                                                          dataFabricFacade, queueSpecs)));
+                        new OutputEmitterFieldSetter(emitterFactory));
 
       ImmutableList.Builder<ConsumerSupplier<?>> queueConsumerSupplierBuilder = ImmutableList.builder();
       Collection<ProcessSpecification> processSpecs =
@@ -249,16 +264,23 @@ public final class FlowletProgramRunner implements ProgramRunner {
       // Create the flowlet driver
       AtomicReference<FlowletProgramController> controllerRef = new AtomicReference<FlowletProgramController>();
       Service serviceHook = createServiceHook(flowletName, consumerSuppliers, controllerRef);
-      FlowletProcessDriver driver = new FlowletProcessDriver(flowlet, flowletContext, processSpecs,
+      boolean parallelCommit = configuration.getBoolean(Constants.AppFabric.FLOWLET_PARALLEL_COMMIT_ENABLED,
+                                                        Constants.AppFabric.DEFAULT_FLOWLET_PARALLEL_COMMIT_ENABLED);
+      if (!fusedFlowlets.isEmpty()) {
+        LOG.info("Flowlets {} fused into flowlet {}", fusedFlowletNames, flowletContext);
+      }
+      Flowlet driverFlowlet = fusedFlowlets.isEmpty() ? flowlet : new FusedFlowlet(flowlet, fusedFlowlets);
+      FlowletProcessDriver driver = new FlowletProcessDriver(driverFlowlet, flowletContext, processSpecs,
                                                              createCallback(flowlet, flowletDef.getFlowletSpec()),
-                                                             dataFabricFacade, serviceHook);
+                                                             dataFabricFacade, serviceHook, parallelCommit);
 
       if (disableTransaction) {
         LOG.info("Transaction disabled for flowlet {}", flowletContext);
       }
 
       FlowletProgramController controller = new FlowletProgramController(program.getName(), flowletName,
-                                                                         flowletContext, driver, consumerSuppliers);
+                                                                         flowletContext, driver, consumerSuppliers,
+                                                                         fusedFlowlets.values());
       controllerRef.set(controller);
 
       LOG.info("Starting flowlet: {}", flowletContext);
@@ -273,6 +295,9 @@ public final class FlowletProgramRunner implements ProgramRunner {
       if (flowletContext != null) {
         flowletContext.close();
       }
+      for (BasicFlowletContext fusedContext : fusedFlowlets.values()) {
+        fusedContext.close();
+      }
       throw Throwables.propagate(e);
     }
   }
@@ -483,6 +508,104 @@ public final class FlowletProgramRunner implements ProgramRunner {
     };
   }
 
+  /**
+   * Creates the flowlets fused into the given flowlet and returns the {@link OutputEmitterFactory} for the given
+   * flowlet. Datasets and queue producers of the fused flowlets are transaction aware objects of the given flowlet,
+   * hence the whole chain runs in the transaction of the given flowlet.
+   *
+   * @param fusedFlowletNames Names of the fused flowlets, in the order of the chain.
+   * @param fusedFlowlets A {@link Map} for storing the fused flowlets and their contexts, in the order of the chain.
+   */
+  @SuppressWarnings("unchecked")
+  private OutputEmitterFactory createFusedFlowlets(Program program, ProgramOptions options,
+                                                   FlowSpecification flowSpec, BasicFlowletContext flowletContext,
+                                                   List<String> fusedFlowletNames, DataFabricFacade dataFabricFacade,
+                                                   Table<Node, String, Set<QueueSpecification>> queueSpecs,
+                                                   Map<Flowlet, BasicFlowletContext> fusedFlowlets) throws Exception {
+    List<Flowlet> flowlets = Lists.newArrayList();
+    List<BasicFlowletContext> contexts = Lists.newArrayList();
+    List<ProcessMethod<?>> processMethods = Lists.newArrayList();
+
+    for (String name : fusedFlowletNames) {
+      FlowletDefinition flowletDef = flowSpec.getFlowlets().get(name);
+      Preconditions.checkNotNull(flowletDef, "Definition missing for flowlet \"%s\"", name);
+
+      Class<?> clz = Class.forName(flowletDef.getFlowletSpec().getClassName(), true, program.getClassLoader());
+      Preconditions.checkArgument(Flowlet.class.isAssignableFrom(clz), "%s is not a Flowlet.", clz);
+      Flowlet flowlet = new InstantiatorFactory(false).get(TypeToken.of((Class<? extends Flowlet>) clz)).create();
+      Method method = FlowletFusion.getProcessMethod(TypeToken.of(clz));
+      Preconditions.checkArgument(method != null, "No single process method found for fused flowlet %s", name);
+
+      BasicFlowletContext context = new BasicFlowletContext(program, name, flowletContext.getInstanceId(),
+                                                            flowletContext.getRunId(),
+                                                            flowletContext.getInstanceCount(),
+                                                            flowletDef.getDatasets(),
+                                                            options.getUserArguments(), flowletDef.getFlowletSpec(),
+                                                            metricsCollectionService, discoveryServiceClient,
+                                                            dsFramework, configuration);
+      fusedFlowlets.put(flowlet, context);
+      flowlets.add(flowlet);
+      contexts.add(context);
+      processMethods.add(ReflectionProcessMethod.create(flowlet, method,
+                                                        method.getAnnotation(ProcessInput.class).maxRetries()));
+    }
+
+    // Each fused flowlet emits to the next one in the chain, and the last one emits to its output queues
+    for (int i = 0; i < flowlets.size(); i++) {
+      Flowlet flowlet = flowlets.get(i);
+      BasicFlowletContext context = contexts.get(i);
+      String name = fusedFlowletNames.get(i);
+      OutputEmitterFactory emitterFactory = i + 1 < flowlets.size()
+        ? fusedOutputEmitterFactory(context, name, contexts.get(i + 1), processMethods.get(i + 1), queueSpecs)
+        : outputEmitterFactory(context, name, dataFabricFacade, queueSpecs);
+
+      Reflections.visit(flowlet, TypeToken.of(flowlet.getClass()),
+                        new PropertyFieldSetter(context.getSpecification().getProperties()),
+                        new DataSetFieldSetter(context),
+                        new MetricsFieldSetter(context.getMetrics()),
+                        new OutputEmitterFieldSetter(emitterFactory));
+
+      for (TransactionAware txAware : context.getDatasetInstantiator().getTransactionAware()) {
+        flowletContext.getDatasetInstantiator().addTransactionAware(txAware);
+      }
+    }
+
+    return fusedOutputEmitterFactory(flowletContext, flowletContext.getFlowletId(),
+                                     contexts.get(0), processMethods.get(0), queueSpecs);
+  }
+
+  /**
+   * Creates an {@link OutputEmitterFactory} for emitting to the process method of a fused flowlet.
+   */
+  private OutputEmitterFactory fusedOutputEmitterFactory(
+    final BasicFlowletContext flowletContext, final String flowletName,
+    final BasicFlowletContext fusedContext, final ProcessMethod<?> processMethod,
+    final Table<Node, String, Set<QueueSpecification>> queueSpecs) {
+    return new OutputEmitterFactory() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <T> OutputEmitter<T> create(String outputName, TypeToken<T> type) {
+        try {
+          Schema schema = schemaGenerator.generate(type.getType());
+          Node flowlet = Node.flowlet(flowletName);
+          for (QueueSpecification queueSpec : Iterables.concat(queueSpecs.row(flowlet).values())) {
+            if (queueSpec.getQueueName().getSimpleName().equals(outputName)
+                && queueSpec.getOutputSchema().equals(schema)) {
+              return new FusedOutputEmitter<T>(queueSpec.getQueueName(), (ProcessMethod<T>) processMethod,
+                                               flowletContext.getProgramMetrics(), fusedContext.getProgramMetrics());
+            }
+          }
+
+          throw new IllegalArgumentException(String.format("No queue specification found for %s, %s",
+                                                           flowletName, type));
+
+        } catch (Exception e) {
+          throw Throwables.propagate(e);
+        }
+      }
+    };
+  }
+
   private ProcessMethodFactory processMethodFactory(final Flowlet flowlet) {
     return new ProcessMethodFactory() {
       @Override
@@ -505,6 +628,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                                              ProcessMethod<T> method, ConsumerConfig consumerConfig, int batchSize,
                                              Tick tickAnnotation) {
         List<QueueReader<T>> queueReaders = Lists.newLinkedList();
+        ProcessBatchSize processBatchSize = createBatchSize(batchSize, tickAnnotation);
 
         for (Map.Entry<Node, Set<QueueSpecification>> entry : queueSpecs.column(flowletName).entrySet()) {
           for (QueueSpecification queueSpec : entry.getValue()) {
@@ -528,7 +652,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                   }
                 });
 
-                queueReaders.add(queueReaderFactory.createStreamReader(consumerSupplier, batchSize, decoder));
+                queueReaders.add(queueReaderFactory.createStreamReader(consumerSupplier, processBatchSize, decoder));
 
               } else {
                 int numGroups = getNumGroups(Iterables.concat(queueSpecs.row(entry.getKey()).values()), queueName);
@@ -538,7 +662,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                 ConsumerSupplier<QueueConsumer> consumerSupplier = ConsumerSupplier.create(dataFabricFacade, queueName,
                                                                                             consumerConfig, numGroups);
                 queueConsumerSupplierBuilder.add(consumerSupplier);
-                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSize, decoder));
+                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, processBatchSize, decoder));
               }
             }
           }
@@ -548,14 +672,34 @@ public final class FlowletProgramRunner implements ProgramRunner {
         if (!inputNames.isEmpty() && queueReaders.isEmpty()) {
           return null;
         }
-        return new ProcessSpecification<T>(new RoundRobinQueueReader<T>(queueReaders), method, tickAnnotation);
+        return new ProcessSpecification<T>(new RoundRobinQueueReader<T>(queueReaders), method,
+                                           processBatchSize, tickAnnotation);
       }
     };
   }
 
+  /**
+   * Creates the {@link ProcessBatchSize} for a process method, which is adaptive if enabled in the configuration.
+   *
+   * @param batchSize Number of entries to dequeue as declared by the process method.
+   * @param tickAnnotation The {@link Tick} annotation of the method or {@code null} if it is not a tick method.
+   */
+  private ProcessBatchSize createBatchSize(int batchSize, Tick tickAnnotation) {
+    boolean adaptive = configuration.getBoolean(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_ENABLED,
+                                                Constants.AppFabric.DEFAULT_FLOWLET_ADAPTIVE_BATCH_ENABLED);
+    if (tickAnnotation != null || !adaptive) {
+      return ProcessBatchSize.fixed(batchSize);
+    }
+    int maxSize = configuration.getInt(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_MAX_SIZE,
+                                       Constants.AppFabric.DEFAULT_FLOWLET_ADAPTIVE_BATCH_MAX_SIZE);
+    long latency = configuration.getLong(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_LATENCY_MS,
+                                         Constants.AppFabric.DEFAULT_FLOWLET_ADAPTIVE_BATCH_LATENCY_MS);
+    return ProcessBatchSize.adaptive(batchSize, maxSize, latency, TimeUnit.MILLISECONDS);
+  }
+
   private <T> Function<ByteBuffer, T> createInputDatumDecoder(final TypeToken<T> dataType, final Schema schema,
                                                               final SchemaCache schemaCache) {
-    final ReflectionDatumReader<T> datumReader = new ReflectionDatumReader<T>(schema, dataType);
+    final DatumReader<T> datumReader = datumReaderFactory.create(dataType, schema);
     final ByteBufferInputStream byteBufferInput = new ByteBufferInputStream(null);
     final BinaryDecoder decoder = new BinaryDecoder(byteBufferInput);
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.flow.flowlet.Flowlet;
+import co.cask.cdap.api.flow.flowlet.FlowletContext;
+import co.cask.cdap.api.flow.flowlet.FlowletSpecification;
+
+import java.util.Map;
+
+/**
+ * A {@link Flowlet} that initializes and destroys a flowlet together with the flowlets fused into it, so that the
+ * {@link FlowletProcessDriver} of the flowlet manages the lifecycle of the whole chain.
+ */
+final class FusedFlowlet implements Flowlet {
+
+  private final Flowlet flowlet;
+  private final Map<Flowlet, BasicFlowletContext> fusedFlowlets;
+
+  /**
+   * @param flowlet The flowlet that runs the chain.
+   * @param fusedFlowlets The fused flowlets and their contexts, in the order of the chain.
+   */
+  FusedFlowlet(Flowlet flowlet, Map<Flowlet, BasicFlowletContext> fusedFlowlets) {
+    this.flowlet = flowlet;
+    this.fusedFlowlets = fusedFlowlets;
+  }
+
+  @Override
+  public FlowletSpecification configure() {
+    return flowlet.configure();
+  }
+
+  @Override
+  public void initialize(FlowletContext context) throws Exception {
+    flowlet.initialize(context);
+    for (Map.Entry<Flowlet, BasicFlowletContext> entry : fusedFlowlets.entrySet()) {
+      entry.getKey().initialize(entry.getValue());
+    }
+  }
+
+  @Override
+  public void destroy() {
+    try {
+      flowlet.destroy();
+    } finally {
+      for (Flowlet fusedFlowlet : fusedFlowlets.keySet()) {
+        fusedFlowlet.destroy();
+      }
+    }
+  }
+}
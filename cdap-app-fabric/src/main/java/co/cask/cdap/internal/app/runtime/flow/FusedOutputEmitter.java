@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.flow.flowlet.InputContext;
+import co.cask.cdap.api.flow.flowlet.OutputEmitter;
+import co.cask.cdap.app.queue.InputDatum;
+import co.cask.cdap.common.metrics.MetricsCollector;
+import co.cask.cdap.common.queue.QueueName;
+import com.google.common.base.Objects;
+import com.google.common.collect.Iterators;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An {@link OutputEmitter} that invokes the process method of a fused flowlet with each emitted object, in the
+ * transaction of the emitting flowlet. Partitions are ignored, as a fused flowlet is never hash partitioned.
+ *
+ * @param <T> Type of the emitted objects.
+ */
+final class FusedOutputEmitter<T> implements OutputEmitter<T> {
+
+  private final QueueName queueName;
+  private final ProcessMethod<T> processMethod;
+  private final MetricsCollector outputMetrics;
+  private final MetricsCollector inputMetrics;
+  private final InputContext inputContext;
+
+  FusedOutputEmitter(final QueueName queueName, ProcessMethod<T> processMethod,
+                     MetricsCollector outputMetrics, MetricsCollector inputMetrics) {
+    this.queueName = queueName;
+    this.processMethod = processMethod;
+    this.outputMetrics = outputMetrics;
+    this.inputMetrics = inputMetrics;
+    this.inputContext = new InputContext() {
+      @Override
+      public String getOrigin() {
+        return queueName.getSimpleName();
+      }
+
+      @Override
+      public int getRetryCount() {
+        return 0;
+      }
+
+      @Override
+      public String toString() {
+        return Objects.toStringHelper(InputContext.class)
+          .add("queue", queueName)
+          .toString();
+      }
+    };
+  }
+
+  @Override
+  public void emit(T data) {
+    String tag = queueName.getSimpleName();
+    outputMetrics.increment("process.events.out", 1, tag);
+    inputMetrics.increment("process.events.in", 1, tag);
+    inputMetrics.increment("process.tuples.read", 1, tag);
+
+    ProcessMethod.ProcessResult<T> result = processMethod.invoke(new FusedInputDatum(data));
+    if (!result.isSuccess()) {
+      throw new RuntimeException("Failed to process event in fused flowlet: " + processMethod, result.getCause());
+    }
+  }
+
+  @Override
+  public void emit(T data, String partitionKey, Object partitionValue) {
+    emit(data);
+  }
+
+  @Override
+  public void emit(T data, Map<String, Object> partitions) {
+    emit(data);
+  }
+
+  /**
+   * An {@link InputDatum} of a single emitted object.
+   */
+  private final class FusedInputDatum implements InputDatum<T> {
+
+    private final T data;
+
+    private FusedInputDatum(T data) {
+      this.data = data;
+    }
+
+    @Override
+    public boolean needProcess() {
+      return true;
+    }
+
+    @Override
+    public void incrementRetry() {
+      // No-op, retry happens on the input of the emitting flowlet
+    }
+
+    @Override
+    public int getRetry() {
+      return 0;
+    }
+
+    @Override
+    public InputContext getInputContext() {
+      return inputContext;
+    }
+
+    @Override
+    public QueueName getQueueName() {
+      return queueName;
+    }
+
+    @Override
+    public void reclaim() {
+      // No-op
+    }
+
+    @Override
+    public int size() {
+      return 1;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return Iterators.singletonIterator(data);
+    }
+  }
+}
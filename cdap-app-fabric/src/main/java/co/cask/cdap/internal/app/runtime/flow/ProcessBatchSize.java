@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Provides the number of entries to dequeue for each transaction of a process method.
+ * <p/>
+ * For an adaptive batch size, the size doubles after each transaction that committed a full batch within the latency
+ * budget and halves after each transaction that exceeded the budget, always staying between the base size and the
+ * maximum size. When a transaction with more entries than the base size fails, the size falls back to the base size
+ * until all entries of the failed batch are processed again, so that a bad input ends up in a transaction of its own.
+ */
+@NotThreadSafe
+final class ProcessBatchSize implements Supplier<Integer> {
+
+  private final int baseSize;
+  private final int maxSize;
+  private final long latencyBudget;
+
+  private int size;
+  private int isolating;
+
+  /**
+   * Creates a {@link ProcessBatchSize} that always gives the same size.
+   */
+  static ProcessBatchSize fixed(int size) {
+    return new ProcessBatchSize(size, size, 0L);
+  }
+
+  /**
+   * Creates an adaptive {@link ProcessBatchSize}.
+   *
+   * @param baseSize The minimum size, which is also the initial size.
+   * @param maxSize The maximum size. If it is not larger than the base size, the size is fixed to the base size.
+   * @param latencyBudget Maximum time a transaction should take before the size is reduced.
+   * @param unit Unit of the latency budget.
+   */
+  static ProcessBatchSize adaptive(int baseSize, int maxSize, long latencyBudget, TimeUnit unit) {
+    return new ProcessBatchSize(baseSize, Math.max(baseSize, maxSize), unit.toNanos(latencyBudget));
+  }
+
+  private ProcessBatchSize(int baseSize, int maxSize, long latencyBudget) {
+    Preconditions.checkArgument(baseSize > 0, "Batch size should be > 0.");
+    this.baseSize = baseSize;
+    this.maxSize = maxSize;
+    this.latencyBudget = latencyBudget;
+    this.size = baseSize;
+  }
+
+  @Override
+  public Integer get() {
+    return size;
+  }
+
+  /**
+   * Updates the size after a transaction committed successfully.
+   *
+   * @param processed Number of entries processed in the transaction.
+   * @param elapsed Time in nanoseconds taken by the transaction.
+   */
+  void committed(int processed, long elapsed) {
+    if (maxSize == baseSize) {
+      return;
+    }
+    if (isolating > 0) {
+      isolating -= processed;
+      return;
+    }
+    if (elapsed > latencyBudget) {
+      size = Math.max(baseSize, size / 2);
+    } else if (processed >= size) {
+      // Only grow if the last batch is full, otherwise there is not enough input to fill a larger batch.
+      size = (int) Math.min((long) maxSize, size * 2L);
+    }
+  }
+
+  /**
+   * Updates the size after a transaction failed.
+   *
+   * @param failed Number of entries in the failed transaction.
+   * @return {@code true} if the failed entries should be processed again with the base size, instead of
+   *         being handled as a failure of the whole batch.
+   */
+  boolean failed(int failed) {
+    if (failed <= baseSize) {
+      return false;
+    }
+    size = baseSize;
+    isolating = failed;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("size", size)
+      .add("base", baseSize)
+      .add("max", maxSize)
+      .toString();
+  }
+}
@@ -29,12 +29,19 @@ final class ProcessSpecification<T> {
 
   private final QueueReader<T> queueReader;
   private final ProcessMethod<T> processMethod;
+  private final ProcessBatchSize batchSize;
   private final Tick tickAnnotation;
   private final boolean isTick;
 
   ProcessSpecification(QueueReader<T> queueReader, ProcessMethod<T> processMethod, Tick tickAnnotation) {
+    this(queueReader, processMethod, ProcessBatchSize.fixed(1), tickAnnotation);
+  }
+
+  ProcessSpecification(QueueReader<T> queueReader, ProcessMethod<T> processMethod,
+                       ProcessBatchSize batchSize, Tick tickAnnotation) {
     this.queueReader = queueReader;
     this.processMethod = processMethod;
+    this.batchSize = batchSize;
     this.tickAnnotation = tickAnnotation;
     this.isTick = tickAnnotation != null;
   }
@@ -47,6 +54,13 @@ final class ProcessSpecification<T> {
     return processMethod;
   }
 
+  /**
+   * Returns the {@link ProcessBatchSize} that the queue reader uses for deciding how many entries to dequeue.
+   */
+  ProcessBatchSize getBatchSize() {
+    return batchSize;
+  }
+
   long getInitialCallDelay() {
     return isTick ? convertToNano(tickAnnotation.initialDelay(), tickAnnotation.unit()) : 0L;
   }
@@ -72,6 +86,7 @@ final class ProcessSpecification<T> {
     return Objects.toStringHelper(this)
       .add("queue", queueReader)
       .add("method", processMethod)
+      .add("batchSize", batchSize)
       .toString();
   }
 }
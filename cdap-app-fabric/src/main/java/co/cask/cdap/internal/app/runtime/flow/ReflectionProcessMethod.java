@@ -22,12 +22,14 @@ import co.cask.cdap.api.flow.flowlet.InputContext;
 import co.cask.cdap.app.queue.InputDatum;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
 import com.google.common.reflect.TypeToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
 import java.util.Iterator;
+import java.util.List;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
@@ -43,6 +45,7 @@ public final class ReflectionProcessMethod<T> implements ProcessMethod<T> {
   private final Method method;
   private final boolean hasParam;
   private final boolean batch;
+  private final int batchSize;
   private final boolean needsIterator;
   private final boolean needContext;
   private final int maxRetries;
@@ -58,6 +61,7 @@ public final class ReflectionProcessMethod<T> implements ProcessMethod<T> {
 
     this.hasParam = method.getGenericParameterTypes().length > 0;
     this.batch = method.isAnnotationPresent(Batch.class);
+    this.batchSize = batch ? method.getAnnotation(Batch.class).value() : Integer.MAX_VALUE;
     this.needsIterator = hasParam &&
       TypeToken.of(method.getGenericParameterTypes()[0]).getRawType().equals(Iterator.class);
     this.needContext = method.getGenericParameterTypes().length == 2;
@@ -87,8 +91,14 @@ public final class ReflectionProcessMethod<T> implements ProcessMethod<T> {
 
       try {
         if (hasParam) {
-          if (needsIterator) {
+          if (needsIterator && input.size() <= batchSize) {
             invoke(method, input.iterator(), inputContext);
+          } else if (needsIterator) {
+            // Input could be larger than the batch size of the method with adaptive batching,
+            // hence call the method with iterators of at most the batch size.
+            for (List<T> events : Iterables.partition(input, batchSize)) {
+              invoke(method, events.iterator(), inputContext);
+            }
           } else {
             for (T event : input) {
               invoke(method, event, inputContext);
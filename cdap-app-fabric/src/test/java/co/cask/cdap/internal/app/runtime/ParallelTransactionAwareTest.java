@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionAware;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ParallelTransactionAware}.
+ */
+public class ParallelTransactionAwareTest {
+
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void init() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterClass
+  public static void finish() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testParallelCommit() throws Exception {
+    // All commits block until all of them are called, which can only complete if they are called in parallel.
+    CountDownLatch latch = new CountDownLatch(3);
+    List<TestTxAware> txAwares = Lists.newArrayList();
+    for (int i = 0; i < 3; i++) {
+      txAwares.add(new TestTxAware("tx" + i, latch, true, false));
+    }
+
+    ParallelTransactionAware txAware =
+      new ParallelTransactionAware(ImmutableList.<TransactionAware>copyOf(txAwares), executor);
+    txAware.startTx(null);
+    Assert.assertEquals(3, txAware.getTxChanges().size());
+    Assert.assertTrue(txAware.commitTx());
+    txAware.postTxCommit();
+
+    for (TestTxAware testTxAware : txAwares) {
+      Assert.assertTrue(testTxAware.committed);
+      Assert.assertTrue(testTxAware.postCommitted);
+    }
+  }
+
+  @Test
+  public void testFailedCommit() throws Exception {
+    TestTxAware success = new TestTxAware("success", null, true, false);
+    TestTxAware failure = new TestTxAware("failure", null, false, false);
+    ParallelTransactionAware txAware =
+      new ParallelTransactionAware(ImmutableList.<TransactionAware>of(success, failure), executor);
+    txAware.startTx(null);
+    Assert.assertFalse(txAware.commitTx());
+    Assert.assertTrue(success.committed);
+    Assert.assertTrue(txAware.rollbackTx());
+    Assert.assertTrue(success.rolledBack);
+    Assert.assertTrue(failure.rolledBack);
+  }
+
+  @Test
+  public void testCommitException() throws Exception {
+    TestTxAware success = new TestTxAware("success", null, true, false);
+    TestTxAware failure = new TestTxAware("failure", null, true, true);
+    ParallelTransactionAware txAware =
+      new ParallelTransactionAware(ImmutableList.<TransactionAware>of(success, failure), executor);
+    txAware.startTx(null);
+    try {
+      txAware.commitTx();
+      Assert.fail("Expected commit failure");
+    } catch (IOException e) {
+      // Expected, and the other commit must have been completed.
+      Assert.assertTrue(success.committed);
+    }
+  }
+
+  /**
+   * A {@link TransactionAware} for testing.
+   */
+  private static final class TestTxAware implements TransactionAware {
+
+    private final String name;
+    private final CountDownLatch latch;
+    private final boolean commitResult;
+    private final boolean commitException;
+    private volatile boolean committed;
+    private volatile boolean postCommitted;
+    private volatile boolean rolledBack;
+
+    private TestTxAware(String name, CountDownLatch latch, boolean commitResult, boolean commitException) {
+      this.name = name;
+      this.latch = latch;
+      this.commitResult = commitResult;
+      this.commitException = commitException;
+    }
+
+    @Override
+    public void startTx(Transaction tx) {
+      committed = false;
+      postCommitted = false;
+      rolledBack = false;
+    }
+
+    @Override
+    public Collection<byte[]> getTxChanges() {
+      return ImmutableList.of(name.getBytes());
+    }
+
+    @Override
+    public boolean commitTx() throws Exception {
+      if (latch != null) {
+        latch.countDown();
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+      }
+      if (commitException) {
+        throw new IOException("Commit failure");
+      }
+      committed = true;
+      return commitResult;
+    }
+
+    @Override
+    public void postTxCommit() {
+      postCommitted = true;
+    }
+
+    @Override
+    public boolean rollbackTx() throws Exception {
+      rolledBack = true;
+      return true;
+    }
+
+    @Override
+    public String getTransactionAwareName() {
+      return name;
+    }
+  }
+}
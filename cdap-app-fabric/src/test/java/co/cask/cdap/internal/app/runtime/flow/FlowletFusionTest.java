@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.WordCountApp;
+import co.cask.cdap.api.flow.FlowSpecification;
+import co.cask.cdap.app.program.Program;
+import co.cask.cdap.internal.app.deploy.pipeline.ApplicationWithPrograms;
+import co.cask.cdap.internal.app.runtime.BasicArguments;
+import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
+import co.cask.cdap.proto.ProgramType;
+import co.cask.cdap.test.internal.AppFabricTestHelper;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tests for {@link FlowletFusion}.
+ */
+public class FlowletFusionTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Supplier<File> TEMP_FOLDER_SUPPLIER = new Supplier<File>() {
+    @Override
+    public File get() {
+      try {
+        return TEMP_FOLDER.newFolder();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  };
+
+  @Test
+  public void testFusedChains() throws Exception {
+    ApplicationWithPrograms app = AppFabricTestHelper.deployApplicationWithManager(WordCountApp.class,
+                                                                                   TEMP_FOLDER_SUPPLIER);
+    for (Program program : app.getPrograms()) {
+      if (program.getType() != ProgramType.FLOW) {
+        continue;
+      }
+      FlowSpecification flowSpec = program.getSpecification().getFlows().get(program.getName());
+
+      // CountByField is not fused, as it implements Callback
+      Assert.assertEquals(ImmutableMap.of("StreamSource", ImmutableList.of("Tokenizer")),
+                          FlowletFusion.getFusedChains(program, flowSpec));
+    }
+  }
+
+  @Test
+  public void testFusedFlowletsOption() {
+    List<String> chain = ImmutableList.of("enrich", "count");
+    BasicArguments arguments = new BasicArguments(
+      ImmutableMap.of(ProgramOptionConstants.FUSED_FLOWLETS, FlowletFusion.encodeFusedFlowlets(chain)));
+    Assert.assertEquals(chain, FlowletFusion.getFusedFlowlets(arguments));
+    Assert.assertTrue(FlowletFusion.getFusedFlowlets(new BasicArguments()).isEmpty());
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests ProcessBatchSize.
+ */
+public class ProcessBatchSizeTest {
+
+  private static final long WITHIN_BUDGET = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long OVER_BUDGET = TimeUnit.MILLISECONDS.toNanos(200);
+
+  @Test
+  public void testFixed() {
+    ProcessBatchSize batchSize = ProcessBatchSize.fixed(10);
+    batchSize.committed(10, WITHIN_BUDGET);
+    Assert.assertEquals(10, batchSize.get().intValue());
+    Assert.assertFalse(batchSize.failed(10));
+    Assert.assertEquals(10, batchSize.get().intValue());
+  }
+
+  @Test
+  public void testAdaptive() {
+    ProcessBatchSize batchSize = ProcessBatchSize.adaptive(10, 50, 100, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(10, batchSize.get().intValue());
+
+    // Grows only when the batch is full and is capped by the max size
+    batchSize.committed(5, WITHIN_BUDGET);
+    Assert.assertEquals(10, batchSize.get().intValue());
+    batchSize.committed(10, WITHIN_BUDGET);
+    Assert.assertEquals(20, batchSize.get().intValue());
+    batchSize.committed(20, WITHIN_BUDGET);
+    Assert.assertEquals(40, batchSize.get().intValue());
+    batchSize.committed(40, WITHIN_BUDGET);
+    Assert.assertEquals(50, batchSize.get().intValue());
+
+    // Shrinks when over the latency budget, but not below the base size
+    batchSize.committed(50, OVER_BUDGET);
+    Assert.assertEquals(25, batchSize.get().intValue());
+    batchSize.committed(25, OVER_BUDGET);
+    Assert.assertEquals(12, batchSize.get().intValue());
+    batchSize.committed(12, OVER_BUDGET);
+    Assert.assertEquals(10, batchSize.get().intValue());
+  }
+
+  @Test
+  public void testFailure() {
+    ProcessBatchSize batchSize = ProcessBatchSize.adaptive(1, 100, 100, TimeUnit.MILLISECONDS);
+    batchSize.committed(1, WITHIN_BUDGET);
+    batchSize.committed(2, WITHIN_BUDGET);
+    Assert.assertEquals(4, batchSize.get().intValue());
+
+    // Failure of an enlarged batch falls back to the base size
+    Assert.assertTrue(batchSize.failed(4));
+    Assert.assertEquals(1, batchSize.get().intValue());
+
+    // Failure at base size is a real failure
+    Assert.assertFalse(batchSize.failed(1));
+
+    // Stays at the base size until all inputs of the failed batch are processed
+    for (int i = 0; i < 4; i++) {
+      Assert.assertEquals(1, batchSize.get().intValue());
+      batchSize.committed(1, WITHIN_BUDGET);
+    }
+    batchSize.committed(1, WITHIN_BUDGET);
+    Assert.assertEquals(2, batchSize.get().intValue());
+  }
+}
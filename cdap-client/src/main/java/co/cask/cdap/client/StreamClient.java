@@ -17,6 +17,7 @@
 package co.cask.cdap.client;
 
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.api.stream.StreamEventData;
 import co.cask.cdap.client.config.ClientConfig;
 import co.cask.cdap.client.exception.BadRequestException;
 import co.cask.cdap.client.exception.StreamNotFoundException;
@@ -27,6 +28,10 @@ import co.cask.cdap.common.http.HttpRequest;
 import co.cask.cdap.common.http.HttpRequests;
 import co.cask.cdap.common.http.HttpResponse;
 import co.cask.cdap.common.http.ObjectResponse;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.stream.DefaultStreamEvent;
+import co.cask.cdap.common.stream.StreamEventDataCodec;
 import co.cask.cdap.common.stream.StreamEventTypeAdapter;
 import co.cask.cdap.proto.StreamProperties;
 import co.cask.cdap.proto.StreamRecord;
@@ -40,6 +45,7 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
@@ -58,6 +64,7 @@ import javax.ws.rs.core.HttpHeaders;
 public class StreamClient {
 
   private static final Gson GSON = StreamEventTypeAdapter.register(new GsonBuilder()).create();
+  private static final String AVRO_BINARY_CONTENT_TYPE = "avro/binary";
 
   private final RESTClient restClient;
   private final ClientConfig config;
@@ -221,6 +228,8 @@ public class StreamClient {
     URL url = config.resolveURL(String.format("streams/%s/events?start=%d&end=%d&limit=%d",
                                               streamId, startTime, endTime, limit));
     HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
+    // Prefer the Avro binary response, which is cheaper to produce and decode than Json.
+    urlConn.setRequestProperty(HttpHeaders.ACCEPT, AVRO_BINARY_CONTENT_TYPE + ", application/json");
     AccessToken accessToken = config.getAccessToken();
     if (accessToken != null) {
       urlConn.setRequestProperty(HttpHeaders.AUTHORIZATION, accessToken.getTokenType() + " " + accessToken.getValue());
@@ -242,6 +251,12 @@ public class StreamClient {
         return;
       }
 
+      String contentType = urlConn.getContentType();
+      if (contentType != null && contentType.startsWith(AVRO_BINARY_CONTENT_TYPE)) {
+        readAvroEvents(urlConn, callback);
+        return;
+      }
+
       // The response is an array of stream event object
       JsonReader jsonReader = new JsonReader(new InputStreamReader(urlConn.getInputStream(), Charsets.UTF_8));
       jsonReader.beginArray();
@@ -257,6 +272,26 @@ public class StreamClient {
     }
   }
 
+  /**
+   * Reads the Avro array of stream event record from the response and invokes the callback for each event.
+   */
+  private void readAvroEvents(HttpURLConnection urlConn,
+                              Function<? super StreamEvent, Boolean> callback) throws IOException {
+    Decoder decoder = new BinaryDecoder(new BufferedInputStream(urlConn.getInputStream()));
+    int len = decoder.readInt();
+    while (len != 0) {
+      for (int i = 0; i < len; i++) {
+        // Each record is the stream event data followed by the timestamp
+        StreamEventData data = StreamEventDataCodec.decode(decoder);
+        Boolean result = callback.apply(new DefaultStreamEvent(data, decoder.readLong()));
+        if (result == null || !result) {
+          return;
+        }
+      }
+      len = decoder.readInt();
+    }
+  }
+
   /**
    * Writes stream event using the given URL. The write maybe sync or async, depending on the URL.
    */
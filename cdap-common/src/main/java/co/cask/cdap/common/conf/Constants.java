@@ -87,6 +87,35 @@ public final class Constants {
     public static final String REST_PORT = "app.rest.port";
     public static final String PROGRAM_JVM_OPTS = "app.program.jvm.opts";
 
+    /**
+     * Adaptive sizing of the number of entries processed by a flowlet in one transaction.
+     */
+    public static final String FLOWLET_ADAPTIVE_BATCH_ENABLED = "app.flowlet.adaptive.batch.enabled";
+    public static final String FLOWLET_ADAPTIVE_BATCH_MAX_SIZE = "app.flowlet.adaptive.batch.max.size";
+    public static final String FLOWLET_ADAPTIVE_BATCH_LATENCY_MS = "app.flowlet.adaptive.batch.latency.ms";
+
+    public static final boolean DEFAULT_FLOWLET_ADAPTIVE_BATCH_ENABLED = false;
+    public static final int DEFAULT_FLOWLET_ADAPTIVE_BATCH_MAX_SIZE = 1000;
+    public static final long DEFAULT_FLOWLET_ADAPTIVE_BATCH_LATENCY_MS = 100;
+
+    /**
+     * Persisting changes of different datasets and queues in parallel when a flowlet transaction commits.
+     */
+    public static final String FLOWLET_PARALLEL_COMMIT_ENABLED = "app.flowlet.parallel.commit.enabled";
+    public static final boolean DEFAULT_FLOWLET_PARALLEL_COMMIT_ENABLED = false;
+
+    /**
+     * Running downstream flowlets in the process driver of their upstream flowlet when the flow runs in one JVM.
+     */
+    public static final String FLOWLET_FUSION_ENABLED = "app.flowlet.fusion.enabled";
+    public static final boolean DEFAULT_FLOWLET_FUSION_ENABLED = false;
+
+    /**
+     * Decoding data with readers that resolve schemas once, instead of the reflection based readers.
+     */
+    public static final String RESOLVED_DATUM_READER_ENABLED = "app.io.resolved.datum.reader.enabled";
+    public static final boolean DEFAULT_RESOLVED_DATUM_READER_ENABLED = false;
+
     /**
      * Query parameter to indicate start time.
      */
@@ -211,6 +240,7 @@ public final class Constants {
     public static final String TTL = "stream.event.ttl";
     public static final String PARTITION_DURATION = "stream.partition.duration";
     public static final String INDEX_INTERVAL = "stream.index.interval";
+    public static final String COMPRESSION = "stream.compression";
     public static final String FILE_PREFIX = "stream.file.prefix";
     public static final String CONSUMER_TABLE_PRESPLITS = "stream.consumer.table.presplits";
     public static final String FILE_CLEANUP_PERIOD = "stream.file.cleanup.period";
@@ -221,6 +251,7 @@ public final class Constants {
     public static final String WORKER_THREADS = "stream.worker.threads";
     public static final String ASYNC_WORKER_THREADS = "stream.async.worker.threads";
     public static final String ASYNC_QUEUE_SIZE = "stream.async.queue.size";
+    public static final String MAX_CONCURRENT_TAILS = "stream.tail.max.concurrent";
 
     // YARN container configurations.
     public static final String CONTAINER_VIRTUAL_CORES = "stream.container.num.cores";
@@ -312,6 +343,8 @@ public final class Constants {
     public static final String SERVER_WORKER_THREADS = "router.server.worker.threads";
     public static final String CLIENT_BOSS_THREADS = "router.client.boss.threads";
     public static final String CLIENT_WORKER_THREADS = "router.client.worker.threads";
+    public static final String CLIENT_MAX_CONNECTIONS_PER_ENDPOINT = "router.client.max.connections.per.endpoint";
+    public static final String CLIENT_IDLE_TIMEOUT_SECS = "router.client.idle.timeout.secs";
 
     /**
      * Defaults.
@@ -328,6 +361,8 @@ public final class Constants {
     public static final int DEFAULT_SERVER_WORKER_THREADS = 10;
     public static final int DEFAULT_CLIENT_BOSS_THREADS = 1;
     public static final int DEFAULT_CLIENT_WORKER_THREADS = 10;
+    public static final int DEFAULT_CLIENT_MAX_CONNECTIONS_PER_ENDPOINT = 64;
+    public static final int DEFAULT_CLIENT_IDLE_TIMEOUT_SECS = 60;
 
     public static final String GATEWAY_DISCOVERY_NAME = Service.GATEWAY;
     public static final String WEBAPP_DISCOVERY_NAME = "webapp/$HOST";
@@ -439,6 +474,8 @@ public final class Constants {
     public static final String TOKEN_EXPIRATION = "security.server.token.expiration.ms";
     /** Long lasting Access token expiration time in milliseconds. */
     public static final String EXTENDED_TOKEN_EXPIRATION = "security.server.extended.token.expiration.ms";
+    /** Maximum number of validated access tokens cached by the token validator. */
+    public static final String TOKEN_CACHE_SIZE = "security.token.cache.size";
     public static final String CFG_FILE_BASED_KEYFILE_PATH = "security.data.keyfile.path";
     /** Configuration for enabling the security. */
     public static final String CFG_SECURITY_ENABLED = "security.enabled";
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.discovery;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.twill.discovery.Discoverable;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link EndpointStrategy} that picks the less loaded one of two randomly chosen endpoints. The load of an
+ * endpoint is its number of requests in flight, weighted by the peak exponentially weighted moving average of
+ * its response latency. The latency average decays over time, hence an endpoint that was slow is picked again
+ * after it has not been used for a while.
+ *
+ * Callers report the requests sent by calling {@link #begin(Discoverable)} with the picked endpoint and
+ * {@link Request#complete()} once the response is received. Without any report, the strategy picks endpoints
+ * randomly as {@link RandomEndpointStrategy} does.
+ */
+public final class LoadAwareEndpointStrategy implements EndpointStrategy {
+
+  // Load of an endpoint that has requests in flight but no latency measured yet. It makes sure such endpoint is
+  // not picked over endpoints with known latency until its first response arrives.
+  private static final double PENALTY = Double.MAX_VALUE / 2;
+  private static final long DEFAULT_DECAY_TIME_SECS = 10;
+
+  private final Iterable<Discoverable> endpoints;
+  private final double decayTimeNanos;
+  private final Ticker ticker;
+  private final ConcurrentMap<InetSocketAddress, EndpointLoad> loads;
+
+  /**
+   * Constructs a load aware endpoint strategy.
+   * @param endpoints Endpoints for the strategy to use. Same as {@link RandomEndpointStrategy}, the
+   *                  {@link Iterable#iterator()} is traversed on every call to the {@link #pick()} method.
+   */
+  public LoadAwareEndpointStrategy(Iterable<Discoverable> endpoints) {
+    this(endpoints, DEFAULT_DECAY_TIME_SECS, TimeUnit.SECONDS, Ticker.systemTicker());
+  }
+
+  LoadAwareEndpointStrategy(Iterable<Discoverable> endpoints, long decayTime, TimeUnit unit, Ticker ticker) {
+    this.endpoints = endpoints;
+    this.decayTimeNanos = unit.toNanos(decayTime);
+    this.ticker = ticker;
+    this.loads = Maps.newConcurrentMap();
+  }
+
+  @Override
+  public Discoverable pick() {
+    List<Discoverable> candidates = ImmutableList.copyOf(endpoints);
+    int size = candidates.size();
+    if (size == 0) {
+      return null;
+    }
+    if (loads.size() > size) {
+      removeStaleLoads(candidates);
+    }
+    if (size == 1) {
+      return candidates.get(0);
+    }
+
+    // Power of two choices
+    Random random = new Random();
+    int first = random.nextInt(size);
+    int second = random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+
+    long now = ticker.read();
+    Discoverable firstPick = candidates.get(first);
+    Discoverable secondPick = candidates.get(second);
+    return getLoad(secondPick, now) < getLoad(firstPick, now) ? secondPick : firstPick;
+  }
+
+  /**
+   * Records the beginning of a request to the given endpoint.
+   *
+   * @param endpoint the endpoint returned by {@link #pick()}.
+   * @return a {@link Request} that must be completed when the request is done.
+   */
+  public Request begin(Discoverable endpoint) {
+    InetSocketAddress address = endpoint.getSocketAddress();
+    EndpointLoad load = loads.get(address);
+    if (load == null) {
+      EndpointLoad newLoad = new EndpointLoad();
+      load = loads.putIfAbsent(address, newLoad);
+      if (load == null) {
+        load = newLoad;
+      }
+    }
+    load.inFlight.incrementAndGet();
+    return new Request(load, ticker.read());
+  }
+
+  /**
+   * Returns the current load of the given endpoint.
+   */
+  double getLoad(Discoverable endpoint, long nowNanos) {
+    EndpointLoad load = loads.get(endpoint.getSocketAddress());
+    return load == null ? 0d : load.getLoad(nowNanos);
+  }
+
+  /**
+   * Removes loads of endpoints that are no longer available and have no request in flight.
+   */
+  private void removeStaleLoads(List<Discoverable> candidates) {
+    Set<InetSocketAddress> addresses = Sets.newHashSet();
+    for (Discoverable discoverable : candidates) {
+      addresses.add(discoverable.getSocketAddress());
+    }
+    for (Map.Entry<InetSocketAddress, EndpointLoad> entry : loads.entrySet()) {
+      if (!addresses.contains(entry.getKey()) && entry.getValue().inFlight.get() == 0) {
+        loads.remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * A request to an endpoint.
+   */
+  public final class Request {
+    private final EndpointLoad load;
+    private final long startNanos;
+    private final AtomicBoolean completed;
+
+    private Request(EndpointLoad load, long startNanos) {
+      this.load = load;
+      this.startNanos = startNanos;
+      this.completed = new AtomicBoolean();
+    }
+
+    /**
+     * Records the completion of the request. Calling it more than once has no effect.
+     */
+    public void complete() {
+      if (completed.compareAndSet(false, true)) {
+        long now = ticker.read();
+        load.inFlight.decrementAndGet();
+        load.observe(now - startNanos, now);
+      }
+    }
+  }
+
+  /**
+   * Load statistics of an endpoint.
+   */
+  private final class EndpointLoad {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Peak EWMA of the latency in nanoseconds
+    private double cost;
+    private long lastUpdateNanos;
+
+    private EndpointLoad() {
+      this.lastUpdateNanos = ticker.read();
+    }
+
+    /**
+     * Adds a latency sample. A latency higher than the average replaces the average, so that latency spikes
+     * are reflected immediately, while lower latencies are averaged in based on the time since the last update.
+     */
+    synchronized void observe(double latencyNanos, long nowNanos) {
+      double weight = Math.exp(-Math.max(nowNanos - lastUpdateNanos, 0L) / decayTimeNanos);
+      lastUpdateNanos = Math.max(nowNanos, lastUpdateNanos);
+      if (latencyNanos > cost) {
+        cost = latencyNanos;
+      } else {
+        cost = cost * weight + latencyNanos * (1d - weight);
+      }
+    }
+
+    synchronized double getLoad(long nowNanos) {
+      // Decay the latency average for the time passed since the last update
+      observe(0d, nowNanos);
+      int requests = inFlight.get();
+      if (cost == 0d && requests != 0) {
+        return PENALTY + requests;
+      }
+      return cost * (requests + 1);
+    }
+  }
+}
@@ -16,6 +16,8 @@
 
 package co.cask.cdap.common.guice;
 
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.internal.io.ASMDatumWriterFactory;
 import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
 import co.cask.cdap.internal.io.DatumReaderFactory;
@@ -23,8 +25,14 @@ import co.cask.cdap.internal.io.DatumWriterFactory;
 import co.cask.cdap.internal.io.FieldAccessorFactory;
 import co.cask.cdap.internal.io.ReflectionDatumReaderFactory;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import co.cask.cdap.internal.io.ResolvedDatumReaderFactory;
 import co.cask.cdap.internal.io.SchemaGenerator;
+import com.google.inject.Binding;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
 import com.google.inject.PrivateModule;
+import com.google.inject.Provider;
 import com.google.inject.Scopes;
 
 /**
@@ -42,8 +50,32 @@ public class IOModule extends PrivateModule {
 
     expose(DatumWriterFactory.class);
 
-    // Note: Need to add the DatumReader counter parts when those are refactored to use ASM as well.
-    bind(DatumReaderFactory.class).to(ReflectionDatumReaderFactory.class).in(Scopes.SINGLETON);
+    bind(DatumReaderFactory.class).toProvider(DatumReaderFactoryProvider.class).in(Scopes.SINGLETON);
     expose(DatumReaderFactory.class);
   }
+
+  /**
+   * Provides the {@link DatumReaderFactory} selected by {@link Constants.AppFabric#RESOLVED_DATUM_READER_ENABLED}.
+   * The reflection based factory is used if the configuration is absent from the injector.
+   */
+  private static final class DatumReaderFactoryProvider implements Provider<DatumReaderFactory> {
+
+    private final Injector injector;
+
+    @Inject
+    DatumReaderFactoryProvider(Injector injector) {
+      this.injector = injector;
+    }
+
+    @Override
+    public DatumReaderFactory get() {
+      Binding<CConfiguration> cConfBinding = injector.getExistingBinding(Key.get(CConfiguration.class));
+      if (cConfBinding != null
+        && cConfBinding.getProvider().get().getBoolean(Constants.AppFabric.RESOLVED_DATUM_READER_ENABLED,
+                                                       Constants.AppFabric.DEFAULT_RESOLVED_DATUM_READER_ENABLED)) {
+        return injector.getInstance(ResolvedDatumReaderFactory.class);
+      }
+      return new ReflectionDatumReaderFactory();
+    }
+  }
 }
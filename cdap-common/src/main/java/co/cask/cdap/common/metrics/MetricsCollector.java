@@ -16,7 +16,7 @@
 package co.cask.cdap.common.metrics;
 
 /**
- * A MetricCollector allows client publish counter metrics.
+ * A MetricCollector allows client publish counter and histogram metrics.
  */
 public interface MetricsCollector {
 
@@ -27,4 +27,20 @@ public interface MetricsCollector {
    * @param tags Tags associated with the metric.
    */
   void increment(String metricName, int value, String... tags);
+
+  /**
+   * Returns a {@link MetricsCounter} for incrementing the given metric without tags. Values incremented through
+   * the counter are the same as calling {@link #increment(String, int, String...)} with the metric name, but
+   * with less overhead per call. The counter should be kept by the caller for repeated use.
+   * @param metricName Name of the metric.
+   */
+  MetricsCounter counter(String metricName);
+
+  /**
+   * Records a value into the distribution of a metric, for example the latency of an operation. Values recorded
+   * within the same emit interval are aggregated into a histogram, from which percentiles can be queried.
+   * @param metricName Name of the metric.
+   * @param value value to record. Negative value is recorded as zero.
+   */
+  void histogram(String metricName, long value);
 }
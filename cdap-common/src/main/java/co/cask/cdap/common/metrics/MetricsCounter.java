@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.metrics;
+
+/**
+ * A counter metric bound to a metric name, obtained from {@link MetricsCollector#counter(String)}.
+ * It is for code that increments the same metric frequently, as it saves the lookup of the metric by name
+ * on every increment.
+ */
+public interface MetricsCounter {
+
+  /**
+   * Increments the counter.
+   * @param value value to add to the counter.
+   */
+  void increment(int value);
+}
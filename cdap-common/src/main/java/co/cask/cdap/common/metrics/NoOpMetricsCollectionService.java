@@ -23,6 +23,13 @@ import com.google.common.util.concurrent.AbstractIdleService;
  */
 public class NoOpMetricsCollectionService extends AbstractIdleService implements MetricsCollectionService {
 
+  private static final MetricsCounter NO_OP_COUNTER = new MetricsCounter() {
+    @Override
+    public void increment(int value) {
+      // no-op
+    }
+  };
+
   @Override
   protected void startUp() throws Exception {
     // no-op
@@ -40,6 +47,16 @@ public class NoOpMetricsCollectionService extends AbstractIdleService implements
       public void increment(String metricName, int value, String... tags) {
         // no-op
       }
+
+      @Override
+      public MetricsCounter counter(String metricName) {
+        return NO_OP_COUNTER;
+      }
+
+      @Override
+      public void histogram(String metricName, long value) {
+        // no-op
+      }
     };
   }
 }
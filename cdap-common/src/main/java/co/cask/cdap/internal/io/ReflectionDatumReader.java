@@ -257,7 +257,10 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
     }
   }
 
-  private void skip(Decoder decoder, Schema schema) throws IOException {
+  /**
+   * Skips a value of the given schema in the decoder.
+   */
+  static void skip(Decoder decoder, Schema schema) throws IOException {
     switch (schema.getType()) {
       case NULL:
         break;
@@ -300,7 +303,7 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
     }
   }
 
-  private void skipArray(Decoder decoder, Schema componentSchema) throws IOException {
+  private static void skipArray(Decoder decoder, Schema componentSchema) throws IOException {
     int len = decoder.readInt();
     while (len != 0) {
       skip(decoder, componentSchema);
@@ -308,7 +311,7 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
     }
   }
 
-  private void skipMap(Decoder decoder, Map.Entry<Schema, Schema> mapSchema) throws IOException {
+  private static void skipMap(Decoder decoder, Map.Entry<Schema, Schema> mapSchema) throws IOException {
     int len = decoder.readInt();
     while (len != 0) {
       skip(decoder, mapSchema.getKey());
@@ -317,7 +320,7 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
     }
   }
 
-  private void skipRecord(Decoder decoder, Schema recordSchema) throws IOException {
+  private static void skipRecord(Decoder decoder, Schema recordSchema) throws IOException {
     for (Schema.Field field : recordSchema.getFields()) {
       skip(decoder, field.getSchema());
     }
@@ -0,0 +1,746 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.lang.Instantiator;
+import co.cask.cdap.common.lang.InstantiatorFactory;
+import co.cask.cdap.common.stream.DefaultStreamEvent;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import com.google.common.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A {@link DatumReader} that resolves the source schema against the target schema and type once, into a tree of
+ * readers specialized for each value. Decoding a value is then only calls to the {@link Decoder}, to the cached
+ * {@link Instantiator} and to the {@link FieldAccessor} of each field, without any type resolution or reflection.
+ * Schema resolution follows the same rules as {@link ReflectionDatumReader}.
+ *
+ * @param <T> Type of object decoded by this reader.
+ */
+public final class ResolvedDatumReader<T> implements DatumReader<T> {
+
+  // Maximum number of source schemas with resolved readers kept by each instance
+  private static final int MAX_SOURCE_SCHEMAS = 100;
+
+  private final Schema schema;
+  private final TypeToken<T> type;
+  private final FieldAccessorFactory fieldAccessorFactory;
+  private final InstantiatorFactory instantiatorFactory;
+  private final Cache<Schema, ValueReader> readers;
+
+  @SuppressWarnings("unchecked")
+  public ResolvedDatumReader(Schema schema, TypeToken<T> type, FieldAccessorFactory fieldAccessorFactory) {
+    this.schema = schema;
+    this.type = type.getRawType().equals(StreamEvent.class)
+                      ? (TypeToken<T>) TypeToken.of(DefaultStreamEvent.class) : type;
+    this.fieldAccessorFactory = fieldAccessorFactory;
+    this.instantiatorFactory = new InstantiatorFactory(true);
+    this.readers = CacheBuilder.newBuilder().maximumSize(MAX_SOURCE_SCHEMAS).build();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T read(Decoder decoder, Schema sourceSchema) throws IOException {
+    ValueReader reader = readers.getIfPresent(sourceSchema);
+    if (reader == null) {
+      // Concurrent resolution of the same schema is harmless, as resolved readers are equivalent
+      reader = new Resolver().resolve(sourceSchema, schema, type);
+      readers.put(sourceSchema, reader);
+    }
+    return (T) reader.read(decoder);
+  }
+
+  /**
+   * Reads one value from a {@link Decoder}.
+   */
+  private interface ValueReader {
+    Object read(Decoder decoder) throws IOException;
+  }
+
+  /**
+   * Resolves a source schema into a tree of {@link ValueReader}.
+   */
+  private final class Resolver {
+
+    // Record readers being resolved, for resolving recursive records.
+    private final Map<RecordKey, RecordReader> recordReaders = Maps.newHashMap();
+
+    ValueReader resolve(Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) throws IOException {
+      if (sourceSchema.getType() != Schema.Type.UNION && targetSchema.getType() == Schema.Type.UNION) {
+        // Try every target schemas
+        for (Schema schema : targetSchema.getUnionSchemas()) {
+          try {
+            return doResolve(sourceSchema, schema, targetType);
+          } catch (IOException e) {
+            // Continue;
+          }
+        }
+        throw new IOException(String.format("No matching schema to resolve %s to %s", sourceSchema, targetSchema));
+      }
+      return doResolve(sourceSchema, targetSchema, targetType);
+    }
+
+    private ValueReader doResolve(Schema sourceSchema, Schema targetSchema,
+                                  TypeToken<?> targetType) throws IOException {
+      Schema.Type sourceType = sourceSchema.getType();
+      Schema.Type targetSchemaType = targetSchema.getType();
+
+      switch (sourceType) {
+        case NULL:
+          check(sourceType == targetSchemaType, "Fails to resolve %s to %s", sourceType, targetSchemaType);
+          return NULL_READER;
+        case BYTES:
+          check(sourceType == targetSchemaType, "Fails to resolve %s to %s", sourceType, targetSchemaType);
+          return resolveBytes(targetType);
+        case ENUM:
+          return resolveEnum(sourceSchema, targetSchema, targetType);
+        case ARRAY:
+          check(sourceType == targetSchemaType, "Fails to resolve %s to %s", sourceType, targetSchemaType);
+          return resolveArray(sourceSchema, targetSchema, targetType);
+        case MAP:
+          check(sourceType == targetSchemaType, "Fails to resolve %s to %s", sourceType, targetSchemaType);
+          return resolveMap(sourceSchema, targetSchema, targetType);
+        case RECORD:
+          check(sourceType == targetSchemaType, "Fails to resolve %s to %s", sourceType, targetSchemaType);
+          return resolveRecord(sourceSchema, targetSchema, targetType);
+        case UNION:
+          return resolveUnion(sourceSchema, targetSchema, targetType);
+      }
+      // For simple type other than NULL and BYTES
+      if (sourceType.isSimpleType()) {
+        return resolveSimpleType(sourceType, targetSchemaType, targetType);
+      }
+      throw new IOException(String.format("Fails to resolve %s to %s", sourceSchema, targetSchema));
+    }
+
+    private ValueReader resolveBytes(TypeToken<?> targetType) {
+      Class<?> rawType = targetType.getRawType();
+      if (rawType.equals(byte[].class)) {
+        return BYTE_ARRAY_READER;
+      }
+      if (rawType.equals(UUID.class)) {
+        return UUID_READER;
+      }
+      return BYTE_BUFFER_READER;
+    }
+
+    private ValueReader resolveEnum(Schema sourceSchema, Schema targetSchema,
+                                    TypeToken<?> targetType) throws IOException {
+      check(targetSchema.getType() == Schema.Type.ENUM, "Fails to resolve %s to %s", sourceSchema, targetSchema);
+
+      // Maps each enum index in the source schema to the target value.
+      // A null value means the source enum value is missing in the target.
+      int size = sourceSchema.getEnumValues().size();
+      final String[] names = new String[size];
+      final Object[] values = new Object[size];
+      for (int i = 0; i < size; i++) {
+        names[i] = sourceSchema.getEnumValue(i);
+        if (targetSchema.getEnumValues().contains(names[i])) {
+          try {
+            values[i] = targetType.getRawType().getMethod("valueOf", String.class).invoke(null, names[i]);
+          } catch (Exception e) {
+            throw new IOException(e);
+          }
+        }
+      }
+
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          int idx = decoder.readInt();
+          Object value = (idx >= 0 && idx < values.length) ? values[idx] : null;
+          if (value == null) {
+            throw new IOException(String.format("Enum value '%s' missing in target.",
+                                                (idx >= 0 && idx < names.length) ? names[idx] : null));
+          }
+          return value;
+        }
+      };
+    }
+
+    private ValueReader resolveArray(Schema sourceSchema, Schema targetSchema,
+                                     TypeToken<?> targetType) throws IOException {
+      TypeToken<?> componentType = null;
+      if (targetType.isArray()) {
+        componentType = targetType.getComponentType();
+      } else if (Collection.class.isAssignableFrom(targetType.getRawType())) {
+        Type type = targetType.getType();
+        check(type instanceof ParameterizedType, "Only parameterized type is supported for collection.");
+        componentType = TypeToken.of(((ParameterizedType) type).getActualTypeArguments()[0]);
+      }
+      check(componentType != null, "Only array or collection type is support for array value.");
+
+      final ValueReader componentReader = resolve(sourceSchema.getComponentSchema(),
+                                                  targetSchema.getComponentSchema(), componentType);
+      if (targetType.isArray()) {
+        final Class<?> componentClass = componentType.getRawType();
+        return new ValueReader() {
+          @Override
+          public Object read(Decoder decoder) throws IOException {
+            List<Object> list = Lists.newArrayList();
+            int len = decoder.readInt();
+            while (len != 0) {
+              for (int i = 0; i < len; i++) {
+                list.add(componentReader.read(decoder));
+              }
+              len = decoder.readInt();
+            }
+            Object array = Array.newInstance(componentClass, list.size());
+            int idx = 0;
+            for (Object obj : list) {
+              Array.set(array, idx++, obj);
+            }
+            return array;
+          }
+        };
+      }
+
+      final Instantiator<?> instantiator = instantiatorFactory.get(targetType);
+      return new ValueReader() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          Collection<Object> collection = (Collection<Object>) instantiator.create();
+          int len = decoder.readInt();
+          while (len != 0) {
+            for (int i = 0; i < len; i++) {
+              collection.add(componentReader.read(decoder));
+            }
+            len = decoder.readInt();
+          }
+          return collection;
+        }
+      };
+    }
+
+    private ValueReader resolveMap(Schema sourceSchema, Schema targetSchema,
+                                   TypeToken<?> targetType) throws IOException {
+      check(Map.class.isAssignableFrom(targetType.getRawType()), "Only map type is supported for map data.");
+      Type type = targetType.getType();
+      check(type instanceof ParameterizedType, "Only parameterized map is supported.");
+      Type[] typeArgs = ((ParameterizedType) type).getActualTypeArguments();
+
+      Map.Entry<Schema, Schema> sourceEntry = sourceSchema.getMapSchema();
+      Map.Entry<Schema, Schema> targetEntry = targetSchema.getMapSchema();
+      final ValueReader keyReader = resolve(sourceEntry.getKey(), targetEntry.getKey(), TypeToken.of(typeArgs[0]));
+      final ValueReader valueReader = resolve(sourceEntry.getValue(), targetEntry.getValue(),
+                                              TypeToken.of(typeArgs[1]));
+      final Instantiator<?> instantiator = instantiatorFactory.get(targetType);
+
+      return new ValueReader() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          Map<Object, Object> map = (Map<Object, Object>) instantiator.create();
+          int len = decoder.readInt();
+          while (len != 0) {
+            for (int i = 0; i < len; i++) {
+              map.put(keyReader.read(decoder), valueReader.read(decoder));
+            }
+            len = decoder.readInt();
+          }
+          return map;
+        }
+      };
+    }
+
+    private ValueReader resolveRecord(Schema sourceSchema, Schema targetSchema,
+                                      TypeToken<?> targetType) throws IOException {
+      RecordKey key = new RecordKey(sourceSchema, targetSchema, targetType);
+      RecordReader reader = recordReaders.get(key);
+      if (reader != null) {
+        return reader;
+      }
+
+      try {
+        reader = new RecordReader(instantiatorFactory.get(targetType));
+        recordReaders.put(key, reader);
+
+        List<Schema.Field> sourceFields = sourceSchema.getFields();
+        FieldAccessor[] fieldAccessors = new FieldAccessor[sourceFields.size()];
+        ValueReader[] fieldReaders = new ValueReader[sourceFields.size()];
+        for (int i = 0; i < fieldReaders.length; i++) {
+          Schema.Field sourceField = sourceFields.get(i);
+          Schema.Field targetField = targetSchema.getField(sourceField.getName());
+          if (targetField == null) {
+            fieldReaders[i] = createSkipper(sourceField.getSchema());
+            continue;
+          }
+          fieldAccessors[i] = fieldAccessorFactory.getFieldAccessor(targetType, sourceField.getName());
+          fieldReaders[i] = resolve(sourceField.getSchema(), targetField.getSchema(), fieldAccessors[i].getType());
+        }
+        reader.setFields(fieldAccessors, fieldReaders);
+        return reader;
+      } catch (Exception e) {
+        recordReaders.remove(key);
+        if (e instanceof IOException) {
+          throw (IOException) e;
+        }
+        throw new IOException(e);
+      }
+    }
+
+    private ValueReader resolveUnion(final Schema sourceSchema, Schema targetSchema,
+                                     TypeToken<?> targetType) throws IOException {
+      List<Schema> sourceSchemas = sourceSchema.getUnionSchemas();
+      final ValueReader[] readers = new ValueReader[sourceSchemas.size()];
+      for (int i = 0; i < readers.length; i++) {
+        readers[i] = resolveUnionValue(i, sourceSchema, targetSchema, targetType);
+      }
+
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          int idx = decoder.readInt();
+          if (idx < 0 || idx >= readers.length) {
+            throw new IOException(String.format("Invalid union index %d for %s", idx, sourceSchema));
+          }
+          return readers[idx].read(decoder);
+        }
+      };
+    }
+
+    /**
+     * Resolves the value of the given index of a source union schema. If it cannot be resolved, returns a
+     * {@link ValueReader} that fails when a value of that index is read.
+     */
+    private ValueReader resolveUnionValue(int idx, Schema sourceSchema, Schema targetSchema, TypeToken<?> targetType) {
+      Schema sourceValueSchema = sourceSchema.getUnionSchema(idx);
+
+      if (targetSchema.getType() != Schema.Type.UNION) {
+        try {
+          return resolve(sourceValueSchema, targetSchema, targetType);
+        } catch (IOException e) {
+          return createFailure(e.getMessage());
+        }
+      }
+
+      try {
+        // A simple optimization to try resolve before resorting to linearly try the union schema.
+        Schema targetValueSchema = targetSchema.getUnionSchema(idx);
+        if (targetValueSchema != null && targetValueSchema.getType() == sourceValueSchema.getType()) {
+          return resolve(sourceValueSchema, targetValueSchema, targetType);
+        }
+      } catch (IOException e) {
+        // OK to ignore it, as we'll do union schema resolution
+      }
+      for (Schema targetValueSchema : targetSchema.getUnionSchemas()) {
+        try {
+          return resolve(sourceValueSchema, targetValueSchema, targetType);
+        } catch (IOException e) {
+          // It's ok to have exception here, as we'll keep trying until exhausted the target union.
+        }
+      }
+      return createFailure(String.format("Fail to resolve %s to %s", sourceSchema, targetSchema));
+    }
+
+    private ValueReader resolveSimpleType(Schema.Type sourceType, Schema.Type targetSchemaType,
+                                          TypeToken<?> targetType) throws IOException {
+      Class<?> targetClass = targetType.getRawType();
+      switch (sourceType) {
+        case BOOLEAN:
+          switch (targetSchemaType) {
+            case BOOLEAN:
+              return BOOLEAN_READER;
+            case STRING:
+              return BOOLEAN_STRING_READER;
+          }
+          break;
+        case INT:
+          switch (targetSchemaType) {
+            case INT:
+              if (targetClass.equals(byte.class) || targetClass.equals(Byte.class)) {
+                return INT_BYTE_READER;
+              }
+              if (targetClass.equals(char.class) || targetClass.equals(Character.class)) {
+                return INT_CHAR_READER;
+              }
+              if (targetClass.equals(short.class) || targetClass.equals(Short.class)) {
+                return INT_SHORT_READER;
+              }
+              return INT_READER;
+            case LONG:
+              return INT_LONG_READER;
+            case FLOAT:
+              return INT_FLOAT_READER;
+            case DOUBLE:
+              return INT_DOUBLE_READER;
+            case STRING:
+              return INT_STRING_READER;
+          }
+          break;
+        case LONG:
+          switch (targetSchemaType) {
+            case LONG:
+              return LONG_READER;
+            case FLOAT:
+              return LONG_FLOAT_READER;
+            case DOUBLE:
+              return LONG_DOUBLE_READER;
+            case STRING:
+              return LONG_STRING_READER;
+          }
+          break;
+        case FLOAT:
+          switch (targetSchemaType) {
+            case FLOAT:
+              return FLOAT_READER;
+            case DOUBLE:
+              return FLOAT_DOUBLE_READER;
+            case STRING:
+              return FLOAT_STRING_READER;
+          }
+          break;
+        case DOUBLE:
+          switch (targetSchemaType) {
+            case DOUBLE:
+              return DOUBLE_READER;
+            case STRING:
+              return DOUBLE_STRING_READER;
+          }
+          break;
+        case STRING:
+          if (targetSchemaType == Schema.Type.STRING) {
+            if (targetClass.equals(URI.class)) {
+              return URI_READER;
+            }
+            if (targetClass.equals(URL.class)) {
+              return URL_READER;
+            }
+            return STRING_READER;
+          }
+          break;
+      }
+      throw new IOException("Fail to resolve type " + sourceType + " to type " + targetSchemaType);
+    }
+
+    private ValueReader createSkipper(final Schema schema) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          ReflectionDatumReader.skip(decoder, schema);
+          return null;
+        }
+      };
+    }
+
+    private ValueReader createFailure(final String message) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          throw new IOException(message);
+        }
+      };
+    }
+
+    private void check(boolean condition, String message, Object... objs) throws IOException {
+      if (!condition) {
+        throw new IOException(String.format(message, objs));
+      }
+    }
+  }
+
+  /**
+   * {@link ValueReader} for record. Field readers are set after creation to support recursive records.
+   */
+  private static final class RecordReader implements ValueReader {
+
+    private final Instantiator<?> instantiator;
+    private FieldAccessor[] fieldAccessors;
+    private ValueReader[] fieldReaders;
+
+    RecordReader(Instantiator<?> instantiator) {
+      this.instantiator = instantiator;
+    }
+
+    void setFields(FieldAccessor[] fieldAccessors, ValueReader[] fieldReaders) {
+      this.fieldAccessors = fieldAccessors;
+      this.fieldReaders = fieldReaders;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      try {
+        Object record = instantiator.create();
+        for (int i = 0; i < fieldReaders.length; i++) {
+          Object value = fieldReaders[i].read(decoder);
+          // A null accessor means the field is skipped.
+          if (fieldAccessors[i] != null) {
+            fieldAccessors[i].set(record, value);
+          }
+        }
+        return record;
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  /**
+   * Key for identifying a record being resolved. Schemas are compared by identity as recursive record schemas
+   * refer to themselves.
+   */
+  private static final class RecordKey {
+
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+    private final TypeToken<?> type;
+
+    RecordKey(Schema sourceSchema, Schema targetSchema, TypeToken<?> type) {
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      RecordKey other = (RecordKey) o;
+      return sourceSchema == other.sourceSchema && targetSchema == other.targetSchema && type.equals(other.type);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(sourceSchema);
+      result = 31 * result + System.identityHashCode(targetSchema);
+      result = 31 * result + type.hashCode();
+      return result;
+    }
+  }
+
+  private static final ValueReader NULL_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readNull();
+    }
+  };
+
+  private static final ValueReader BYTE_BUFFER_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readBytes();
+    }
+  };
+
+  private static final ValueReader BYTE_ARRAY_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      ByteBuffer buffer = decoder.readBytes();
+      if (buffer.hasArray()) {
+        byte[] array = buffer.array();
+        if (buffer.remaining() == array.length) {
+          return array;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        System.arraycopy(array, buffer.arrayOffset() + buffer.position(), bytes, 0, buffer.remaining());
+        return bytes;
+      }
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return bytes;
+    }
+  };
+
+  private static final ValueReader UUID_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      ByteBuffer buffer = decoder.readBytes();
+      if (buffer.remaining() == Longs.BYTES * 2) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+      }
+      return buffer;
+    }
+  };
+
+  private static final ValueReader BOOLEAN_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readBool();
+    }
+  };
+
+  private static final ValueReader BOOLEAN_STRING_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return String.valueOf(decoder.readBool());
+    }
+  };
+
+  private static final ValueReader INT_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readInt();
+    }
+  };
+
+  private static final ValueReader INT_BYTE_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (byte) decoder.readInt();
+    }
+  };
+
+  private static final ValueReader INT_CHAR_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (char) decoder.readInt();
+    }
+  };
+
+  private static final ValueReader INT_SHORT_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (short) decoder.readInt();
+    }
+  };
+
+  private static final ValueReader INT_LONG_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (long) decoder.readInt();
+    }
+  };
+
+  private static final ValueReader INT_FLOAT_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (float) decoder.readInt();
+    }
+  };
+
+  private static final ValueReader INT_DOUBLE_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (double) decoder.readInt();
+    }
+  };
+
+  private static final ValueReader INT_STRING_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return String.valueOf(decoder.readInt());
+    }
+  };
+
+  private static final ValueReader LONG_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readLong();
+    }
+  };
+
+  private static final ValueReader LONG_FLOAT_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (float) decoder.readLong();
+    }
+  };
+
+  private static final ValueReader LONG_DOUBLE_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (double) decoder.readLong();
+    }
+  };
+
+  private static final ValueReader LONG_STRING_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return String.valueOf(decoder.readLong());
+    }
+  };
+
+  private static final ValueReader FLOAT_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readFloat();
+    }
+  };
+
+  private static final ValueReader FLOAT_DOUBLE_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return (double) decoder.readFloat();
+    }
+  };
+
+  private static final ValueReader FLOAT_STRING_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return String.valueOf(decoder.readFloat());
+    }
+  };
+
+  private static final ValueReader DOUBLE_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readDouble();
+    }
+  };
+
+  private static final ValueReader DOUBLE_STRING_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return String.valueOf(decoder.readDouble());
+    }
+  };
+
+  private static final ValueReader STRING_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return decoder.readString();
+    }
+  };
+
+  private static final ValueReader URI_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return URI.create(decoder.readString());
+    }
+  };
+
+  private static final ValueReader URL_READER = new ValueReader() {
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return new URL(decoder.readString());
+    }
+  };
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.io;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.reflect.TypeToken;
+
+import javax.inject.Inject;
+
+/**
+ * A {@link DatumReaderFactory} that creates {@link ResolvedDatumReader}. Readers are cached by schema and type,
+ * so that schema resolution is shared by all readers of the same data type.
+ *
+ * Both the key and the reader reference the type, hence the class loader that loaded it. Readers are therefore
+ * weakly held, so that a reader and its class loader can be collected once no one uses the reader anymore, and the
+ * number of readers kept is bounded.
+ */
+public final class ResolvedDatumReaderFactory implements DatumReaderFactory {
+
+  private static final int MAX_CACHED_READERS = 1000;
+
+  private final LoadingCache<CacheKey, DatumReader<?>> datumReaders;
+
+  @Inject
+  public ResolvedDatumReaderFactory(final FieldAccessorFactory fieldAccessorFactory) {
+    this.datumReaders = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_READERS)
+      .weakValues()
+      .build(new CacheLoader<CacheKey, DatumReader<?>>() {
+        @Override
+        public DatumReader<?> load(CacheKey key) throws Exception {
+          return new ResolvedDatumReader<Object>(key.schema, key.type, fieldAccessorFactory);
+        }
+      });
+  }
+
+  /**
+   * Creates a {@link DatumReader} that decodes data of the given type and {@link Schema}.
+   * The instance created is thread safe and reusable.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> DatumReader<T> create(TypeToken<T> type, Schema schema) {
+    return (DatumReader<T>) datumReaders.getUnchecked(new CacheKey(schema, type));
+  }
+
+  private static final class CacheKey {
+    private final Schema schema;
+    private final TypeToken<Object> type;
+
+    @SuppressWarnings("unchecked")
+    private CacheKey(Schema schema, TypeToken<?> type) {
+      this.schema = schema;
+      this.type = (TypeToken<Object>) type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      CacheKey cacheKey = (CacheKey) o;
+      return schema.equals(cacheKey.schema) && type.equals(cacheKey.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(schema, type);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.discovery;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.twill.discovery.Discoverable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link LoadAwareEndpointStrategy}.
+ */
+public class LoadAwareEndpointStrategyTest {
+
+  @Test
+  public void testEmptyAndSingle() {
+    List<Discoverable> endpoints = Lists.newArrayList();
+    LoadAwareEndpointStrategy strategy = new LoadAwareEndpointStrategy(endpoints);
+    Assert.assertNull(strategy.pick());
+
+    Discoverable endpoint = createDiscoverable(1000);
+    endpoints.add(endpoint);
+    Assert.assertSame(endpoint, strategy.pick());
+  }
+
+  @Test
+  public void testSlowEndpoint() {
+    FakeTicker ticker = new FakeTicker();
+    Discoverable fast = createDiscoverable(1000);
+    Discoverable slow = createDiscoverable(1001);
+    LoadAwareEndpointStrategy strategy = new LoadAwareEndpointStrategy(ImmutableList.of(fast, slow),
+                                                                       10, TimeUnit.SECONDS, ticker);
+
+    // Without any request, endpoints are picked randomly
+    int fastPicks = 0;
+    for (int i = 0; i < 1000; i++) {
+      fastPicks += strategy.pick() == fast ? 1 : 0;
+    }
+    Assert.assertTrue(fastPicks > 0 && fastPicks < 1000);
+
+    complete(strategy, ticker, fast, 1);
+    complete(strategy, ticker, slow, 100);
+
+    // With only two endpoints, the faster one is always picked
+    for (int i = 0; i < 100; i++) {
+      Assert.assertSame(fast, strategy.pick());
+    }
+
+    // Requests in flight add load to the fast endpoint
+    List<LoadAwareEndpointStrategy.Request> requests = Lists.newArrayList();
+    for (int i = 0; i < 200; i++) {
+      requests.add(strategy.begin(fast));
+    }
+    Assert.assertSame(slow, strategy.pick());
+    for (LoadAwareEndpointStrategy.Request request : requests) {
+      request.complete();
+    }
+    Assert.assertSame(fast, strategy.pick());
+
+    // The latency of the slow endpoint decays over time
+    double load = strategy.getLoad(slow, ticker.read());
+    ticker.advance(10, TimeUnit.SECONDS);
+    Assert.assertTrue(strategy.getLoad(slow, ticker.read()) < load / 2);
+  }
+
+  @Test
+  public void testNewEndpoint() {
+    FakeTicker ticker = new FakeTicker();
+    Discoverable first = createDiscoverable(1000);
+    Discoverable second = createDiscoverable(1001);
+    LoadAwareEndpointStrategy strategy = new LoadAwareEndpointStrategy(ImmutableList.of(first, second),
+                                                                       10, TimeUnit.SECONDS, ticker);
+
+    complete(strategy, ticker, first, 10);
+
+    // The endpoint without latency measured is preferred, until it has a request in flight
+    Assert.assertSame(second, strategy.pick());
+    LoadAwareEndpointStrategy.Request request = strategy.begin(second);
+    Assert.assertSame(first, strategy.pick());
+
+    ticker.advance(1, TimeUnit.MILLISECONDS);
+    request.complete();
+    Assert.assertSame(second, strategy.pick());
+
+    // Completing twice has no effect
+    request.complete();
+    Assert.assertSame(second, strategy.pick());
+  }
+
+  private void complete(LoadAwareEndpointStrategy strategy, FakeTicker ticker,
+                        Discoverable endpoint, long latencyMillis) {
+    LoadAwareEndpointStrategy.Request request = strategy.begin(endpoint);
+    ticker.advance(latencyMillis, TimeUnit.MILLISECONDS);
+    request.complete();
+  }
+
+  private Discoverable createDiscoverable(final int port) {
+    return new Discoverable() {
+      @Override
+      public String getName() {
+        return "service";
+      }
+
+      @Override
+      public InetSocketAddress getSocketAddress() {
+        return new InetSocketAddress("localhost", port);
+      }
+    };
+  }
+
+  private static final class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long time, TimeUnit unit) {
+      nanos += unit.toNanos(time);
+    }
+  }
+}
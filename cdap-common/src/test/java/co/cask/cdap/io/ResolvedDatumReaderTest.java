@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.io;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.guice.ConfigModule;
+import co.cask.cdap.common.guice.IOModule;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumReader;
+import co.cask.cdap.internal.io.DatumReaderFactory;
+import co.cask.cdap.internal.io.ReflectionDatumReaderFactory;
+import co.cask.cdap.internal.io.ReflectionDatumWriter;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import co.cask.cdap.internal.io.ResolvedDatumReaderFactory;
+import co.cask.cdap.internal.io.Schema;
+import co.cask.cdap.internal.io.UnsupportedTypeException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+import com.google.inject.Guice;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for {@link co.cask.cdap.internal.io.ResolvedDatumReader}.
+ */
+public class ResolvedDatumReaderTest {
+
+  private final DatumReaderFactory readerFactory = new ResolvedDatumReaderFactory(new ASMFieldAccessorFactory());
+
+  @Test
+  public void testFactorySelection() {
+    // Reflection based reader is used by default, or without configuration
+    Assert.assertTrue(Guice.createInjector(new IOModule()).getInstance(DatumReaderFactory.class)
+                        instanceof ReflectionDatumReaderFactory);
+    Assert.assertTrue(Guice.createInjector(new ConfigModule(), new IOModule()).getInstance(DatumReaderFactory.class)
+                        instanceof ReflectionDatumReaderFactory);
+
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(Constants.AppFabric.RESOLVED_DATUM_READER_ENABLED, true);
+    Assert.assertTrue(Guice.createInjector(new ConfigModule(cConf), new IOModule())
+                        .getInstance(DatumReaderFactory.class) instanceof ResolvedDatumReaderFactory);
+  }
+
+  @Test
+  public void testTypeProject() throws IOException, UnsupportedTypeException {
+    DatumCodecTest.Record1 r1 = new DatumCodecTest.Record1(10, Maps.<Integer, DatumCodecTest.Value>newHashMap(),
+                                                           new URL("http://www.yahoo.com"));
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.Record1.class);
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.Record2.class);
+    DatumReader<DatumCodecTest.Record2> reader =
+      readerFactory.create(TypeToken.of(DatumCodecTest.Record2.class), targetSchema);
+
+    // Read multiple times to use the resolved reader again
+    for (int i = 0; i < 3; i++) {
+      byte[] bytes = encode(r1, sourceSchema);
+      DatumCodecTest.Record2 r2 = reader.read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+      Assert.assertNotNull(r2);
+    }
+  }
+
+  @Test
+  public void testReduceProjection() throws IOException, UnsupportedTypeException {
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.MoreFields.class);
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(DatumCodecTest.LessFields.class);
+
+    DatumCodecTest.MoreFields moreFields = new DatumCodecTest.MoreFields(10, 20.2, "30", ImmutableList.of("1", "2"));
+    byte[] bytes = encode(moreFields, sourceSchema);
+    DatumCodecTest.LessFields lessFields = readerFactory.create(TypeToken.of(DatumCodecTest.LessFields.class),
+                                                                targetSchema)
+      .read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+
+    Assert.assertEquals("30", lessFields.k);
+    Assert.assertEquals("inner", lessFields.inner.b);
+  }
+
+  @Test
+  public void testCollection() throws UnsupportedTypeException, IOException {
+    List<String> list = Lists.newArrayList("1", "2", "3");
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(new TypeToken<List<String>>() { }.getType());
+    byte[] bytes = encode(list, sourceSchema);
+
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(new TypeToken<Set<String>>() { }.getType());
+    Set<String> set = readerFactory.create(new TypeToken<Set<String>>() { }, targetSchema)
+      .read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+    Assert.assertEquals(Sets.newHashSet("1", "2", "3"), set);
+
+    targetSchema = new ReflectionSchemaGenerator().generate(String[].class);
+    String[] array = readerFactory.create(TypeToken.of(String[].class), targetSchema)
+      .read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+    Assert.assertArrayEquals(new String[]{"1", "2", "3"}, array);
+  }
+
+  @Test
+  public void testPrimitiveConversion() throws UnsupportedTypeException, IOException {
+    Schema sourceSchema = new ReflectionSchemaGenerator().generate(int[].class);
+    byte[] bytes = encode(new int[] {1, 2, 3}, sourceSchema);
+
+    Schema targetSchema = new ReflectionSchemaGenerator().generate(long[].class);
+    long[] longs = readerFactory.create(TypeToken.of(long[].class), targetSchema)
+      .read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+    Assert.assertArrayEquals(new long[] {1L, 2L, 3L}, longs);
+
+    targetSchema = new ReflectionSchemaGenerator().generate(String[].class);
+    String[] strings = readerFactory.create(TypeToken.of(String[].class), targetSchema)
+      .read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+    Assert.assertArrayEquals(new String[] {"1", "2", "3"}, strings);
+  }
+
+  @Test
+  public void testEnum() throws IOException, UnsupportedTypeException {
+    Schema schema = new ReflectionSchemaGenerator().generate(DatumCodecTest.TestEnum.class);
+    ReflectionDatumWriter<DatumCodecTest.TestEnum> writer = new ReflectionDatumWriter<DatumCodecTest.TestEnum>(schema);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(output);
+    writer.encode(DatumCodecTest.TestEnum.VALUE1, encoder);
+    writer.encode(DatumCodecTest.TestEnum.VALUE3, encoder);
+    writer.encode(DatumCodecTest.TestEnum.VALUE2, encoder);
+
+    BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(output.toByteArray()));
+    DatumReader<DatumCodecTest.TestEnum> reader = readerFactory.create(TypeToken.of(DatumCodecTest.TestEnum.class),
+                                                                       schema);
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE1, reader.read(decoder, schema));
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE3, reader.read(decoder, schema));
+    Assert.assertEquals(DatumCodecTest.TestEnum.VALUE2, reader.read(decoder, schema));
+
+    // Source enum value missing in target should fail
+    Schema sourceSchema = Schema.enumWith("VALUE1", "VALUE4");
+    output.reset();
+    encoder.writeInt(1);
+    decoder = new BinaryDecoder(new ByteArrayInputStream(output.toByteArray()));
+    try {
+      reader.read(decoder, sourceSchema);
+      Assert.fail("Expected failure for missing enum value");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testRecursiveRecord() throws IOException, UnsupportedTypeException {
+    Schema schema = new ReflectionSchemaGenerator().generate(DatumCodecTest.Node.class);
+
+    DatumCodecTest.Node head = new DatumCodecTest.Node();
+    head.d = 1;
+    head.next = new DatumCodecTest.Node();
+    head.next.d = 2;
+    head.next.next = new DatumCodecTest.Node();
+    head.next.next.d = 3;
+
+    byte[] bytes = encode(head, schema);
+    DatumCodecTest.Node node = readerFactory.create(TypeToken.of(DatumCodecTest.Node.class), schema)
+      .read(new BinaryDecoder(new ByteArrayInputStream(bytes)), schema);
+
+    for (int i = 1; i <= 3; i++) {
+      Assert.assertEquals(i, node.d);
+      node = node.next;
+    }
+    Assert.assertNull(node);
+  }
+
+  @Test
+  public void testStringConversion() throws IOException, UnsupportedTypeException {
+    Schema sourceSchema = Schema.of(Schema.Type.STRING);
+    byte[] bytes = encode("http://www.example.com", sourceSchema);
+    URI uri = readerFactory.create(TypeToken.of(URI.class), new ReflectionSchemaGenerator().generate(URI.class))
+      .read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+    Assert.assertEquals(URI.create("http://www.example.com"), uri);
+  }
+
+  private <T> byte[] encode(T value, Schema schema) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new ReflectionDatumWriter<T>(schema).encode(value, new BinaryEncoder(output));
+    return output.toByteArray();
+  }
+}
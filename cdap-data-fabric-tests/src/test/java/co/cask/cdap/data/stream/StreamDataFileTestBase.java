@@ -25,9 +25,11 @@ import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.test.SlowTests;
 import com.google.common.base.Charsets;
+import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -116,6 +118,108 @@ public abstract class StreamDataFileTestBase {
     }
   }
 
+  @Test
+  public void testCompressedReadWrite() throws Exception {
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Location eventFile = dir.getTempFile(".dat");
+    Location indexFile = dir.getTempFile(".idx");
+
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                           Locations.newOutputSupplier(indexFile),
+                                                           10L, StreamFileCompression.DEFLATE);
+
+    // Write 1000 highly compressible events, with 100 events per timestamp
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 100; j++) {
+        writer.append(StreamFileTestUtils.createEvent(i, "Compressed " + i));
+      }
+    }
+    writer.close();
+
+    // Read 250 events, which ends in the middle of a compressed block.
+    StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+    List<PositionStreamEvent> events = Lists.newArrayList();
+    Assert.assertEquals(250, reader.read(events, 250, 0, TimeUnit.SECONDS));
+
+    // Event positions should be strictly increasing
+    long lastPosition = -1L;
+    for (PositionStreamEvent event : events) {
+      Assert.assertTrue(event.getStart() > lastPosition);
+      Assert.assertEquals("Compressed " + event.getTimestamp(), Charsets.UTF_8.decode(event.getBody()).toString());
+      lastPosition = event.getStart();
+    }
+    long position = reader.getPosition();
+    reader.close();
+
+    // Open a new reader, read from the last position.
+    reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                   Locations.newInputSupplier(indexFile),
+                                                   position);
+    events.clear();
+    Assert.assertEquals(750, reader.read(events, 1000, 0, TimeUnit.SECONDS));
+    Assert.assertEquals(2L, events.get(0).getTimestamp());
+    Assert.assertEquals(50, Iterables.size(Iterables.filter(events, new Predicate<PositionStreamEvent>() {
+      @Override
+      public boolean apply(PositionStreamEvent event) {
+        return event.getTimestamp() == 2L;
+      }
+    })));
+    Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+    reader.close();
+
+    // Read by start time
+    reader = StreamDataFileReader.createByStartTime(Locations.newInputSupplier(eventFile),
+                                                    Locations.newInputSupplier(indexFile), 5L);
+    events.clear();
+    Assert.assertEquals(500, reader.read(events, 1000, 0, TimeUnit.SECONDS));
+    Assert.assertEquals(5L, events.get(0).getTimestamp());
+    reader.close();
+  }
+
+  @Test
+  public void testCompressedBlockEvents() throws Exception {
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Location eventFile = dir.getTempFile(".dat");
+    Location indexFile = dir.getTempFile(".idx");
+
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                           Locations.newOutputSupplier(indexFile),
+                                                           10L, StreamFileCompression.DEFLATE);
+
+    // Write 3 compressed blocks, with 5 events in each of them
+    for (int i = 0; i < 15; i++) {
+      writer.append(StreamFileTestUtils.createEvent(i / 5, "Event " + i));
+    }
+    writer.close();
+
+    // Read events one by one and remember the position after each read, which is inside a compressed block
+    // except at block boundaries.
+    StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+    List<PositionStreamEvent> events = Lists.newArrayList();
+    List<Long> positions = Lists.newArrayList();
+    for (int i = 0; i < 15; i++) {
+      Assert.assertEquals(1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+      Assert.assertEquals("Event " + i, Charsets.UTF_8.decode(events.get(i).getBody()).toString());
+      Assert.assertEquals(i / 5, events.get(i).getTimestamp());
+      positions.add(reader.getPosition());
+    }
+    Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+    reader.close();
+
+    // Reopen from each saved position, it should continue with the next event.
+    for (int i = 0; i < 15; i++) {
+      reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                     Locations.newInputSupplier(indexFile), positions.get(i));
+      events.clear();
+      Assert.assertEquals(14 - i, Math.max(0, reader.read(events, 100, 0, TimeUnit.SECONDS)));
+      for (int j = 0; j < events.size(); j++) {
+        Assert.assertEquals("Event " + (i + j + 1), Charsets.UTF_8.decode(events.get(j).getBody()).toString());
+      }
+      Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+      reader.close();
+    }
+  }
+
   @Test
   public void testTail() throws Exception {
     Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
@@ -200,6 +304,87 @@ public abstract class StreamDataFileTestBase {
     }
   }
 
+  @Test
+  public void testIndexCache() throws Exception {
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Location eventFile = dir.getTempFile(".dat");
+    Location indexFile = dir.getTempFile(".idx");
+
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                           Locations.newOutputSupplier(indexFile),
+                                                           100L);
+    StreamDataFileIndexCache cache = new StreamDataFileIndexCache(10, 1, TimeUnit.MINUTES);
+
+    // Write 500 events, with an index entry for every 100 timestamps.
+    for (int i = 0; i < 500; i++) {
+      writer.append(StreamFileTestUtils.createEvent(1000 + i, "Testing " + i));
+    }
+    writer.flush();
+
+    StreamDataFileIndex index = cache.getIndex(indexFile);
+    Assert.assertEquals(5, countIndexEntries(index));
+    // Nothing changed, should get the same index instance
+    Assert.assertSame(index, cache.getIndex(indexFile));
+
+    // Write 500 more events, the cached index should get updated
+    for (int i = 500; i < 1000; i++) {
+      writer.append(StreamFileTestUtils.createEvent(1000 + i, "Testing " + i));
+    }
+    writer.close();
+
+    index = cache.getIndex(indexFile);
+    Assert.assertEquals(10, countIndexEntries(index));
+    Assert.assertEquals(indexFile.length(), index.getSize());
+
+    // The updated index should be the same as a freshly loaded one.
+    StreamDataFileIndexIterator expected = new StreamDataFileIndex(Locations.newInputSupplier(indexFile))
+      .indexIterator();
+    StreamDataFileIndexIterator actual = index.indexIterator();
+    while (expected.nextIndexEntry()) {
+      Assert.assertTrue(actual.nextIndexEntry());
+      Assert.assertEquals(expected.currentTimestamp(), actual.currentTimestamp());
+      Assert.assertEquals(expected.currentPosition(), actual.currentPosition());
+    }
+    Assert.assertFalse(actual.nextIndexEntry());
+  }
+
+  @Test
+  public void testIndexCeilingPosition() throws Exception {
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Location eventFile = dir.getTempFile(".dat");
+    Location indexFile = dir.getTempFile(".idx");
+
+    // Write 1000 events with different timestamps, and create index for every 100 timestamps.
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                           Locations.newOutputSupplier(indexFile),
+                                                           100L);
+    for (int i = 0; i < 1000; i++) {
+      writer.append(StreamFileTestUtils.createEvent(1000 + i, "Testing " + i));
+    }
+    writer.close();
+
+    StreamDataFileIndex index = new StreamDataFileIndex(Locations.newInputSupplier(indexFile));
+
+    // Reading from the ceiling position should give the first indexed event at or after the given time.
+    for (long ts : new long[] {1000, 1050, 1100, 1299, 1900}) {
+      long position = index.ceilingPositionByTime(ts);
+      Assert.assertTrue(position > 0);
+
+      StreamDataFileReader reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                                          Locations.newInputSupplier(indexFile),
+                                                                          position);
+      Queue<StreamEvent> events = Lists.newLinkedList();
+      Assert.assertEquals(1, reader.read(events, 1, 1L, TimeUnit.MILLISECONDS));
+      long eventTime = events.poll().getTimestamp();
+      Assert.assertTrue(eventTime >= ts);
+      Assert.assertTrue(eventTime - ts < 100);
+      reader.close();
+    }
+
+    // No index entry after the last event
+    Assert.assertEquals(-1L, index.ceilingPositionByTime(2000));
+  }
+
   @Test
   public void testPosition() throws Exception {
     Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
@@ -663,6 +848,15 @@ public abstract class StreamDataFileTestBase {
   }
 
 
+  private int countIndexEntries(StreamDataFileIndex index) {
+    int count = 0;
+    StreamDataFileIndexIterator iterator = index.indexIterator();
+    while (iterator.nextIndexEntry()) {
+      count++;
+    }
+    return count;
+  }
+
   private FileWriter<StreamEvent> createWriter(StreamConfig config, String prefix) {
     return new TimePartitionedStreamFileWriter(config.getLocation(), config.getPartitionDuration(),
                                                prefix, config.getIndexInterval());
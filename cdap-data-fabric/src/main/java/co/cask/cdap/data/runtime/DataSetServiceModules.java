@@ -19,6 +19,8 @@ package co.cask.cdap.data.runtime;
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
 import co.cask.cdap.api.dataset.module.DatasetModule;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.data2.datafabric.dataset.DatasetCacheCoordinator;
+import co.cask.cdap.data2.datafabric.dataset.DistributedDatasetCacheCoordinator;
 import co.cask.cdap.data2.datafabric.dataset.service.DatasetService;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetAdminOpHTTPHandler;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetOpExecutor;
@@ -176,6 +178,8 @@ public class DataSetServiceModules {
         //       as long as the data is durably persisted
         bind(DatasetFramework.class).annotatedWith(Names.named("datasetMDS")).to(InMemoryDatasetFramework.class);
         bind(MDSDatasetsRegistry.class).in(Singleton.class);
+        // Notifies processes that cache dataset metadata about changes of dataset instances and modules
+        bind(DatasetCacheCoordinator.class).to(DistributedDatasetCacheCoordinator.class);
 
         Multibinder.newSetBinder(binder(), DatasetMetricsReporter.class)
           .addBinding().to(HBaseDatasetMetricsReporter.class);
@@ -17,6 +17,8 @@
 package co.cask.cdap.data.runtime;
 
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
+import co.cask.cdap.data2.datafabric.dataset.DatasetCacheCoordinator;
+import co.cask.cdap.data2.datafabric.dataset.DistributedDatasetCacheCoordinator;
 import co.cask.cdap.data2.datafabric.dataset.RemoteDatasetFramework;
 import co.cask.cdap.data2.datafabric.dataset.type.DatasetTypeClassLoaderFactory;
 import co.cask.cdap.data2.datafabric.dataset.type.DistributedDatasetTypeClassLoaderFactory;
@@ -58,6 +60,7 @@ public class DataSetsModules {
                   .build(DatasetDefinitionRegistryFactory.class));
         bind(DatasetTypeClassLoaderFactory.class).to(DistributedDatasetTypeClassLoaderFactory.class);
         expose(DatasetTypeClassLoaderFactory.class);
+        bind(DatasetCacheCoordinator.class).to(DistributedDatasetCacheCoordinator.class);
         bind(DatasetFramework.class).to(RemoteDatasetFramework.class);
         expose(DatasetFramework.class);
       }
@@ -130,7 +130,7 @@ public abstract class AbstractStreamCoordinator implements StreamCoordinator {
 
               StreamConfig newConfig = new StreamConfig(streamConfig.getName(), streamConfig.getPartitionDuration(),
                                                         streamConfig.getIndexInterval(), newTTL,
-                                                        streamConfig.getLocation());
+                                                        streamConfig.getLocation(), streamConfig.getCompression());
               saveConfig(newConfig);
               resultFuture.set(new StreamProperty(currentGeneration, newTTL));
             } catch (IOException e) {
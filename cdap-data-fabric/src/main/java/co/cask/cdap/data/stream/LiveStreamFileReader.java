@@ -141,8 +141,7 @@ public final class LiveStreamFileReader extends LiveFileReader<PositionStreamEve
 
     private StreamPositionTransformFileReader(StreamFileOffset offset) throws IOException {
       this.reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(offset.getEventLocation()),
-                                                          Locations.newInputSupplier(offset.getIndexLocation()),
-                                                          offset.getOffset());
+                                                          offset.getIndexLocation(), offset.getOffset());
       this.offset = new StreamFileOffset(offset);
       this.partitionLocation = Locations.getParent(offset.getEventLocation());
 
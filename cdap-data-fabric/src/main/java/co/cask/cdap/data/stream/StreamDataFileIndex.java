@@ -17,9 +17,9 @@ package co.cask.cdap.data.stream;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.io.BinaryDecoder;
-import com.google.common.collect.Maps;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
+import com.google.common.io.CountingInputStream;
 import com.google.common.io.InputSupplier;
 import com.google.common.primitives.Longs;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
@@ -33,7 +33,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * This class is for loading stream index file and lookup of the index.
@@ -47,6 +47,8 @@ final class StreamDataFileIndex {
   // Parallel array list for holding timestamps and corresponding positions in the index.
   private final LongList timestamps;
   private final LongList positions;
+  // Number of bytes in the index file that were loaded into this instance.
+  private final long size;
 
   /**
    * Constructs with the given input.
@@ -54,27 +56,33 @@ final class StreamDataFileIndex {
    * @param indexInputSupplier Provides {@link InputStream} for reading the index.
    */
   StreamDataFileIndex(InputSupplier<? extends InputStream> indexInputSupplier) {
-    LongList timestamps;
-    LongList positions;
+    this(load(indexInputSupplier, null));
+  }
 
-    // Load the whole index into memory.
-    try {
-      Map.Entry<LongList, LongList> index;
-      InputStream indexInput = indexInputSupplier.getInput();
-      try {
-        index = loadIndex(indexInput);
-      } finally {
-        Closeables.closeQuietly(indexInput);
-      }
-      timestamps = LongLists.unmodifiable(index.getKey());
-      positions = LongLists.unmodifiable(index.getValue());
-    } catch (IOException e) {
-      LOG.error("Failed to load stream index. Default to empty index.", e);
-      timestamps = LongLists.EMPTY_LIST;
-      positions = LongLists.EMPTY_LIST;
-    }
-    this.timestamps = timestamps;
-    this.positions = positions;
+  private StreamDataFileIndex(IndexData indexData) {
+    this.timestamps = LongLists.unmodifiable(indexData.timestamps);
+    this.positions = LongLists.unmodifiable(indexData.positions);
+    this.size = indexData.size;
+  }
+
+  /**
+   * Returns a {@link StreamDataFileIndex} that contains all entries in this index, plus the entries appended
+   * to the index file after this index was loaded. Only the newly appended part of the index file is read.
+   *
+   * @param indexInputSupplier Provides {@link InputStream} for reading the same index file as this instance.
+   * @return A new {@link StreamDataFileIndex} or this instance if there is no new entry.
+   */
+  StreamDataFileIndex update(InputSupplier<? extends InputStream> indexInputSupplier) {
+    // If nothing was loaded before, the header needs to be loaded as well
+    IndexData indexData = load(indexInputSupplier, size == 0 ? null : this);
+    return indexData.size == size ? this : new StreamDataFileIndex(indexData);
+  }
+
+  /**
+   * Returns the number of bytes in the index file that were loaded into this instance.
+   */
+  long getSize() {
+    return size;
   }
 
   /**
@@ -100,6 +108,33 @@ final class StreamDataFileIndex {
     return idx == -1 ? -1 : positions.getLong(-idx - 2);
   }
 
+  /**
+   * Finds the smallest event file position recorded in the index that has timestamp larger than or equal to the given
+   * timestamp.
+   *
+   * @param timestamp Stream event timestamp to search for.
+   * @return The file position or {@code -1} if no record satisfied the requirement can be found.
+   */
+  long ceilingPositionByTime(long timestamp) {
+    if (timestamps.isEmpty()) {
+      return -1;
+    }
+
+    int idx = binarySearch(timestamps, timestamp);
+    if (idx >= 0) {
+      // There could be multiple entries with the same timestamp, find the first one
+      while (idx > 0 && timestamps.getLong(idx - 1) == timestamp) {
+        idx--;
+      }
+      return positions.getLong(idx);
+    }
+
+    // Return the position that has larger timestamp than the one to search for.
+    // If every timestamp in the index is smaller than the given one, return -1.
+    int insertionPoint = -idx - 1;
+    return insertionPoint >= timestamps.size() ? -1 : positions.getLong(insertionPoint);
+  }
+
   /**
    * Finds the largest event file position recorded in the index that is smaller than or equal to a given offset.
    *
@@ -179,27 +214,78 @@ final class StreamDataFileIndex {
     return -(low + 1);
   }
 
-  private Map.Entry<LongList, LongList> loadIndex(InputStream input) throws IOException {
-    byte[] magic = new byte[INDEX_MAGIC_HEADER.length];
-    ByteStreams.readFully(input, magic);
-
-    if (!Arrays.equals(magic, INDEX_MAGIC_HEADER)) {
-      throw new IOException("Unsupported index file format. Expected magic bytes as 'I' '1'");
+  /**
+   * Loads the index file. If a base index is provided, only entries after the base index are loaded.
+   */
+  private static IndexData load(InputSupplier<? extends InputStream> indexInputSupplier,
+                                @Nullable StreamDataFileIndex base) {
+    try {
+      InputStream indexInput = indexInputSupplier.getInput();
+      try {
+        return loadIndex(indexInput, base);
+      } finally {
+        Closeables.closeQuietly(indexInput);
+      }
+    } catch (IOException e) {
+      if (base != null) {
+        LOG.error("Failed to update stream index. Default to the loaded index.", e);
+        return new IndexData(base.timestamps, base.positions, base.size);
+      }
+      LOG.error("Failed to load stream index. Default to empty index.", e);
+      return new IndexData(LongLists.EMPTY_LIST, LongLists.EMPTY_LIST, 0L);
     }
+  }
+
+  private static IndexData loadIndex(InputStream input, @Nullable StreamDataFileIndex base) throws IOException {
+    CountingInputStream countingInput = new CountingInputStream(input);
+    LongList timestamps;
+    LongList positions;
+
+    if (base == null) {
+      byte[] magic = new byte[INDEX_MAGIC_HEADER.length];
+      ByteStreams.readFully(countingInput, magic);
+
+      if (!Arrays.equals(magic, INDEX_MAGIC_HEADER)) {
+        throw new IOException("Unsupported index file format. Expected magic bytes as 'I' '1'");
+      }
 
-    // Decode the properties map. In current version, it is not used.
-    StreamUtils.decodeMap(new BinaryDecoder(input));
+      // Decode the properties map. In current version, it is not used.
+      StreamUtils.decodeMap(new BinaryDecoder(countingInput));
+
+      timestamps = new LongArrayList(1000);
+      positions = new LongArrayList(1000);
+    } else {
+      // Index file is append only, hence skip the part that is already loaded.
+      ByteStreams.skipFully(countingInput, base.size);
+      timestamps = new LongArrayList(base.timestamps);
+      positions = new LongArrayList(base.positions);
+    }
 
     // Read in all index (timestamp, position pairs).
-    LongList timestamps = new LongArrayList(1000);
-    LongList positions = new LongArrayList(1000);
+    long size = countingInput.getCount();
     byte[] buf = new byte[Longs.BYTES * 2];
 
-    while (ByteStreams.read(input, buf, 0, buf.length) == buf.length) {
+    while (ByteStreams.read(countingInput, buf, 0, buf.length) == buf.length) {
       timestamps.add(Bytes.toLong(buf, 0));
       positions.add(Bytes.toLong(buf, Longs.BYTES));
+      size += buf.length;
     }
 
-    return Maps.immutableEntry(timestamps, positions);
+    return new IndexData(timestamps, positions, size);
+  }
+
+  /**
+   * Holder for the loaded index entries.
+   */
+  private static final class IndexData {
+    private final LongList timestamps;
+    private final LongList positions;
+    private final long size;
+
+    private IndexData(LongList timestamps, LongList positions, long size) {
+      this.timestamps = timestamps;
+      this.positions = positions;
+      this.size = size;
+    }
   }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.data.stream;
+
+import co.cask.cdap.common.io.Locations;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.twill.filesystem.Location;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A process wide cache of {@link StreamDataFileIndex}, so that readers opened on the same stream file don't need to
+ * load the whole index again. Since stream files are never rewritten and index file is append only, a cached index is
+ * refreshed by only loading entries appended after it was cached.
+ */
+@ThreadSafe
+final class StreamDataFileIndexCache {
+
+  private static final StreamDataFileIndexCache INSTANCE = new StreamDataFileIndexCache(1000, 10, TimeUnit.MINUTES);
+
+  private final Cache<URI, StreamDataFileIndex> cache;
+
+  /**
+   * Returns the process wide {@link StreamDataFileIndexCache}.
+   */
+  static StreamDataFileIndexCache getInstance() {
+    return INSTANCE;
+  }
+
+  StreamDataFileIndexCache(int maxSize, long expireAfterAccess, TimeUnit unit) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterAccess(expireAfterAccess, unit)
+      .build();
+  }
+
+  /**
+   * Returns a {@link Supplier} that provides an up to date {@link StreamDataFileIndex} of the given index file
+   * when it is called.
+   */
+  Supplier<StreamDataFileIndex> getIndexSupplier(final Location indexLocation) {
+    return new Supplier<StreamDataFileIndex>() {
+      @Override
+      public StreamDataFileIndex get() {
+        return getIndex(indexLocation);
+      }
+    };
+  }
+
+  /**
+   * Returns an up to date {@link StreamDataFileIndex} of the given index file.
+   */
+  StreamDataFileIndex getIndex(Location indexLocation) {
+    URI uri = indexLocation.toURI();
+    StreamDataFileIndex index = cache.getIfPresent(uri);
+
+    if (index == null) {
+      index = new StreamDataFileIndex(Locations.newInputSupplier(indexLocation));
+    } else {
+      // The file length reported by the file system could lag behind for file that is still being written,
+      // hence always try to read new entries after the cached part.
+      StreamDataFileIndex updated = index.update(Locations.newInputSupplier(indexLocation));
+      if (updated == index) {
+        return index;
+      }
+      index = updated;
+    }
+
+    // It's ok to have race in updating the cache, as index loaded by any thread is valid.
+    cache.put(uri, index);
+    return index;
+  }
+
+  /**
+   * Removes all cached index.
+   */
+  void invalidateAll() {
+    cache.invalidateAll();
+  }
+}
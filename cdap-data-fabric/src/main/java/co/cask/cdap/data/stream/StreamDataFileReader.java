@@ -27,11 +27,15 @@ import co.cask.cdap.data.file.ReadFilter;
 import co.cask.cdap.internal.io.Schema;
 import co.cask.cdap.internal.io.SchemaTypeAdapter;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.InputSupplier;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.stream.JsonReader;
+import org.apache.twill.filesystem.Location;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -42,6 +46,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
@@ -55,7 +60,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   private static final byte[] MAGIC_HEADER = {'E', '1'};
 
   private final InputSupplier<? extends SeekableInputStream> eventInputSupplier;
-  private final InputSupplier<? extends InputStream> indexInputSupplier;
+  private final Supplier<StreamDataFileIndex> indexSupplier;
   private final long startTime;
   private final long offset;
   private StreamDataFileIndex index;
@@ -67,6 +72,15 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   private boolean closed;
   private boolean eof;
   private Decoder decoder;
+  private StreamFileCompression compression;
+
+  // States for the compressed data block being read
+  private long blockStart;
+  private long blockEnd;
+  private InputStream blockInput;
+  private Decoder blockDecoder;
+  private int blockEventCount;
+  private int blockEventIndex;
 
   /**
    * Opens a new {@link StreamDataFileReader} with the given inputs.
@@ -90,7 +104,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   public static StreamDataFileReader createByStartTime(InputSupplier<? extends SeekableInputStream> eventInputSupplier,
                                                        InputSupplier<? extends InputStream> indexInputSupplier,
                                                        long startTime) {
-    return new StreamDataFileReader(eventInputSupplier, indexInputSupplier, startTime, 0L);
+    return new StreamDataFileReader(eventInputSupplier, createIndexSupplier(indexInputSupplier), startTime, 0L);
   }
 
   /**
@@ -105,14 +119,30 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   public static StreamDataFileReader createWithOffset(InputSupplier<? extends SeekableInputStream> eventInputSupplier,
                                                       InputSupplier<? extends InputStream> indexInputSupplier,
                                                       long offset) {
-    return new StreamDataFileReader(eventInputSupplier, indexInputSupplier, 0L, offset);
+    return new StreamDataFileReader(eventInputSupplier, createIndexSupplier(indexInputSupplier), 0L, offset);
+  }
+
+  /**
+   * Opens a new {@link StreamDataFileReader} with the given inputs, which starts reading events at a the smallest
+   * event position that is larger than or equal to the given offset. The event index is looked up from
+   * the process wide index cache, which only loads the part of the index file that is not yet cached.
+   *
+   * @param eventInputSupplier An {@link InputSupplier} for providing the stream to read events.
+   * @param indexLocation Location of the event index file.
+   * @param offset An arbitrary event file offset.
+   * @return A new instance of {@link StreamDataFileReader}.
+   */
+  public static StreamDataFileReader createWithOffset(InputSupplier<? extends SeekableInputStream> eventInputSupplier,
+                                                      Location indexLocation, long offset) {
+    return new StreamDataFileReader(eventInputSupplier,
+                                    StreamDataFileIndexCache.getInstance().getIndexSupplier(indexLocation), 0L, offset);
   }
 
   private StreamDataFileReader(InputSupplier<? extends SeekableInputStream> eventInputSupplier,
-                               InputSupplier<? extends InputStream> indexInputSupplier,
+                               @Nullable Supplier<StreamDataFileIndex> indexSupplier,
                                long startTime, long offset) {
     this.eventInputSupplier = eventInputSupplier;
-    this.indexInputSupplier = indexInputSupplier;
+    this.indexSupplier = indexSupplier;
     this.startTime = startTime;
     this.offset = offset;
     this.timestampBuffer = new byte[8];
@@ -152,6 +182,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
       return;
     }
     try {
+      closeCompressedBlock();
       if (eventInput != null) {
         eventInput.close();
       }
@@ -194,7 +225,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
             break;
           }
 
-          position = eventInput.getPos();
+          position = getCurrentPosition();
 
         } catch (IOException e) {
           if (eventInput != null) {
@@ -235,8 +266,8 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
    * Returns the index for the stream data or {@code null} if index is absent.
    */
   StreamDataFileIndex getIndex() {
-    if (index == null && indexInputSupplier != null) {
-      index = new StreamDataFileIndex(indexInputSupplier);
+    if (index == null && indexSupplier != null) {
+      index = indexSupplier.get();
     }
     return index;
   }
@@ -252,7 +283,9 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
       if (position <= 0) {
         init();
       }
-      eventInput.seek(position);
+      // Inside a compressed block, the position is not a file offset. The rest of the block is already decompressed
+      // in memory, hence the file input continues from the end of the block.
+      eventInput.seek(blockDecoder == null ? position : blockEnd);
     } catch (IOException e) {
       position = 0;
       if (eventInput != null) {
@@ -263,6 +296,20 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     }
   }
 
+  @Nullable
+  private static Supplier<StreamDataFileIndex> createIndexSupplier(
+    @Nullable final InputSupplier<? extends InputStream> indexInputSupplier) {
+    if (indexInputSupplier == null) {
+      return null;
+    }
+    return new Supplier<StreamDataFileIndex>() {
+      @Override
+      public StreamDataFileIndex get() {
+        return new StreamDataFileIndex(indexInputSupplier);
+      }
+    };
+  }
+
   private long computeSleepNano(long timeout, TimeUnit unit) {
     long sleepNano = TimeUnit.NANOSECONDS.convert(timeout, unit) / 10;
     return sleepNano <= 0 ? 1 : sleepNano;
@@ -292,6 +339,11 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     // Read the properties map.
     Map<String, String> properties = StreamUtils.decodeMap(new BinaryDecoder(eventInput));
     verifySchema(properties.get("stream.schema"));
+    try {
+      compression = StreamFileCompression.fromName(properties.get(StreamFileCompression.PROPERTY_KEY));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unsupported stream file compression.", e);
+    }
 
     position = eventInput.getPos();
   }
@@ -333,6 +385,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
    * Skips events until the given condition is true.
    */
   private void skipUntil(SkipCondition condition) throws IOException {
+    closeCompressedBlock();
     long positionBound = position = eventInput.getPos();
 
     try {
@@ -347,7 +400,8 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
           break;
         }
 
-        int len = readLength();
+        // Negative length is for compressed block
+        int len = Math.abs(readLength());
         position = positionBound;
 
         // Jump to next timestamp
@@ -360,6 +414,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
       }
 
       // search for the exact StreamData position within the bound.
+      // For a compressed block, it reopens the block from its start and skips events until the position matches.
       eventInput.seek(position);
       while (position < positionBound) {
         if (timestamp < 0) {
@@ -369,7 +424,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
           break;
         }
         nextStreamEvent(ReadFilter.ALWAYS_REJECT_OFFSET);
-        position = eventInput.getPos();
+        position = getCurrentPosition();
       }
     } catch (IOException e) {
       // It's ok if hitting EOF, meaning it's could be a live stream file or closed by a dead stream handler.
@@ -395,7 +450,16 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     }
   }
 
+  /**
+   * Returns the position of the next event. For event inside a compressed block, it is the block start
+   * position plus the index of the event in the block.
+   */
+  private long getCurrentPosition() throws IOException {
+    return blockDecoder == null ? eventInput.getPos() : blockStart + blockEventIndex;
+  }
+
   private long readTimestamp() throws IOException {
+    blockStart = eventInput.getPos();
     ByteStreams.readFully(eventInput, timestampBuffer);
     return Bytes.toLong(timestampBuffer);
   }
@@ -419,6 +483,55 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     StreamEventDataCodec.skip(decoder);
   }
 
+  /**
+   * Reads a compressed data block of the given size and prepares for decoding events from it.
+   */
+  private void openCompressedBlock(int size) throws IOException {
+    byte[] block = new byte[size];
+    ByteStreams.readFully(eventInput, block);
+    blockEnd = eventInput.getPos();
+
+    InputStream input = new ByteArrayInputStream(block);
+    blockEventCount = new BinaryDecoder(input).readInt();
+    blockEventIndex = 0;
+    blockInput = compression.decompress(input);
+    blockDecoder = new BinaryDecoder(new BufferedInputStream(blockInput));
+  }
+
+  /**
+   * Releases resources of the current compressed data block, if there is one.
+   */
+  private void closeCompressedBlock() throws IOException {
+    blockDecoder = null;
+    if (blockInput != null) {
+      InputStream input = blockInput;
+      blockInput = null;
+      input.close();
+    }
+  }
+
+  /**
+   * Reads or skips the next event from the current compressed data block.
+   *
+   * @return The next StreamEvent or {@code null} if the event is rejected by the filter.
+   */
+  private PositionStreamEvent nextCompressedStreamEvent(ReadFilter filter) throws IOException {
+    PositionStreamEvent event = null;
+    long eventPos = blockStart + blockEventIndex;
+    if (filter.acceptOffset(eventPos)) {
+      event = new DefaultPositionStreamEvent(StreamEventDataCodec.decode(blockDecoder), timestamp, eventPos);
+    } else {
+      StreamEventDataCodec.skip(blockDecoder);
+    }
+
+    if (++blockEventIndex >= blockEventCount) {
+      closeCompressedBlock();
+      timestamp = -1L;
+      length = -1;
+    }
+    return event;
+  }
+
   /**
    * Reads or skips a {@link StreamEvent}.
    *
@@ -432,6 +545,12 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     boolean done = false;
 
     while (!done) {
+      // Keep reading from the compressed data block that is already opened.
+      if (blockDecoder != null) {
+        event = nextCompressedStreamEvent(filter);
+        break;
+      }
+
       boolean acceptTimestamp = true;
       if (timestamp < 0) {
         timestamp = readTimestamp();
@@ -467,9 +586,10 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
 
       if (isReadBlockLength && !acceptTimestamp) {
         // If able to read block length, but the timestamp filter return false without providing hint,
-        // just skip this timestamp block.
-        long bytesSkipped = eventInput.skip(length);
-        boolean skippedExpected = (bytesSkipped == length);
+        // just skip this timestamp block. Negative length is for compressed block.
+        int blockLength = Math.abs(length);
+        long bytesSkipped = eventInput.skip(blockLength);
+        boolean skippedExpected = (bytesSkipped == blockLength);
         timestamp = -1L;
         length = -1;
 
@@ -480,6 +600,20 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
         }
       }
 
+      if (length < 0) {
+        try {
+          openCompressedBlock(-length);
+        } catch (IOException e) {
+          // Failed to read the whole block, retry will start from the timestamp position.
+          closeCompressedBlock();
+          timestamp = -1L;
+          length = -1;
+          throw e;
+        }
+        event = nextCompressedStreamEvent(filter);
+        break;
+      }
+
       if (length > 0) {
         long startPos = eventInput.getPos();
 
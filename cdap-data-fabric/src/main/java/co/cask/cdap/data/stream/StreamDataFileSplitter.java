@@ -15,6 +15,7 @@
  */
 package co.cask.cdap.data.stream;
 
+import co.cask.cdap.common.io.Locations;
 import org.apache.hadoop.fs.BlockLocation;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -35,7 +36,8 @@ import java.util.List;
  * <br/><br/>
  *
  * Each split produced will also carries {@code startTime} and {@code endTime} so that only stream events within
- * the given time range will get processed.
+ * the given time range will get processed. If the time range doesn't cover the whole file, the stream index is used
+ * to exclude the parts of the file that can only contain events outside of the time range.
  */
 final class StreamDataFileSplitter {
 
@@ -60,6 +62,23 @@ final class StreamDataFileSplitter {
     long length = eventFileStatus.getLen();
     long offset = 0;
     int blockIndex = 0;
+    boolean hasTail = true;
+
+    // Use the index to narrow down the file range that contains events in the time range.
+    if ((startTime > 0 || endTime < Long.MAX_VALUE) && fs.exists(indexFile)) {
+      StreamDataFileIndex index = new StreamDataFileIndex(Locations.newInputSupplier(fs, indexFile));
+      if (startTime > 0) {
+        offset = Math.max(0L, index.floorPositionByTime(startTime));
+      }
+      if (endTime < Long.MAX_VALUE) {
+        // Data blocks are written in timestamp order, hence nothing after this position is in the time range.
+        long endPosition = index.ceilingPositionByTime(endTime);
+        if (endPosition >= 0) {
+          length = Math.min(length, endPosition);
+          hasTail = false;
+        }
+      }
+    }
 
     while (offset < length) {
       blockIndex = getBlockIndex(blockLocations, offset, blockIndex);
@@ -70,13 +89,15 @@ final class StreamDataFileSplitter {
         blockIndex = 0;
       }
 
-      long splitSize = computeSplitSize(eventFileStatus, offset, minSplitSize, maxSplitSize);
+      long splitSize = computeSplitSize(eventFileStatus, offset, length, minSplitSize, maxSplitSize);
       splits.add(new StreamInputSplit(eventFile, indexFile, startTime, endTime, offset, splitSize, hosts));
       offset += splitSize;
     }
 
     // One extra split for the tail of the file.
-    splits.add(new StreamInputSplit(eventFile, indexFile, startTime, endTime, offset, Long.MAX_VALUE, null));
+    if (hasTail) {
+      splits.add(new StreamInputSplit(eventFile, indexFile, startTime, endTime, offset, Long.MAX_VALUE, null));
+    }
   }
 
   /**
@@ -109,14 +130,16 @@ final class StreamDataFileSplitter {
    *
    * @param fileStatus The FileStatus of the file to split on.
    * @param offset Starting offset for the split.
+   * @param length End offset of the range being split.
    * @param minSplitSize Minimum size for the split.
    * @param maxSplitSize Maximum size for the split.
    * @return
    */
-  private long computeSplitSize(FileStatus fileStatus, long offset, long minSplitSize, long maxSplitSize) {
+  private long computeSplitSize(FileStatus fileStatus, long offset, long length,
+                                long minSplitSize, long maxSplitSize) {
     long blockSize = fileStatus.getBlockSize();
     long splitSize = Math.max(minSplitSize, Math.min(maxSplitSize, blockSize));
-    return Math.min(splitSize, fileStatus.getLen() - offset);
+    return Math.min(splitSize, length - offset);
   }
 
   private Path getIndexFile(Path eventFile) {
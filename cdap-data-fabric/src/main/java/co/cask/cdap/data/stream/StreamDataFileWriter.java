@@ -30,6 +30,7 @@ import com.google.common.io.OutputSupplier;
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.fs.Syncable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
@@ -47,15 +48,24 @@ import javax.annotation.concurrent.NotThreadSafe;
  * event_file = <header> <data>* <end_marker>
  * header = "E" "1" <properties>
  * properties = Avro encoded with the properties schema
- * data = <timestamp> <length> <stream_event>+
+ * data = <timestamp> <length> <stream_event>+ | <timestamp> <compressed_length> <compressed_block>
  * timestamp = 8 bytes int64 for timestamp in milliseconds
  * length = Avro encoded int32 for size in bytes for all <stream_event>s
  * stream_event = Avro encoded bytes according to the StreamData schema
+ * compressed_length = Avro encoded negative int32, with absolute value as the size in bytes of <compressed_block>
+ * compressed_block = <event_count> <compressed_stream_events> <padding>
+ * event_count = Avro encoded int32 for number of <stream_event>s in the block
+ * compressed_stream_events = <stream_event>+ compressed with the codec in the "stream.compression" property
+ * padding = zero bytes to make the size of <compressed_block> at least <event_count> - 8
  * end_marker = 8 bytes int64 with value == -1
  *
  * }
  * </pre>
  *
+ * Events inside a compressed block don't have their own file offsets. The i-th event (zero based) in a compressed
+ * block is assigned the position {@code block_start + i}, where {@code block_start} is the file offset of the
+ * block timestamp. The padding guarantees these positions never overlap with the next block.
+ *
  * Stream index file:
  *
  * <pre>
@@ -70,6 +80,9 @@ import javax.annotation.concurrent.NotThreadSafe;
  *
  * }
  * </pre>
+ *
+ * A new index entry is written when the index interval has passed since the last entry, or when the data written
+ * since the last entry exceeds a fixed size, whichever comes first.
  */
 @NotThreadSafe
 public final class StreamDataFileWriter implements Closeable, Flushable, FileWriter<StreamEvent> {
@@ -77,17 +90,26 @@ public final class StreamDataFileWriter implements Closeable, Flushable, FileWri
   private static final byte[] MAGIC_HEADER = {'E', '1'};
   private static final byte[] INDEX_MAGIC_HEADER = {'I', '1'};
   private static final int BUFFER_SIZE = 256 * 1024;    // 256K
+  // Maximum number of bytes between two index entries. It makes the index denser on high event rate,
+  // so that seeking by time or offset has a bounded number of bytes to skip through after the index lookup.
+  private static final long MAX_INDEX_GAP = 4 * BUFFER_SIZE;  // 1M
 
   private final OutputStream eventOutput;
   private final OutputStream indexOutput;
   private final long indexInterval;
   private final BufferedEncoder encoder;
   private final BufferedEncoder lengthEncoder;
+  private final StreamFileCompression compression;
+  private final ByteArrayOutputStream compressedOutput;
+  private final Encoder compressedEncoder;
 
   // Timestamp for the current block
   private long currentTimestamp;
   private long position;
   private long nextIndexTime;
+  private long lastIndexOffset;
+  private long lastBlockTimestamp = -1L;
+  private int blockEventCount;
   private boolean synced;
   private boolean closed;
 
@@ -102,6 +124,21 @@ public final class StreamDataFileWriter implements Closeable, Flushable, FileWri
   public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
                               OutputSupplier<? extends OutputStream> indexOutputSupplier,
                               long indexInterval) throws IOException {
+    this(eventOutputSupplier, indexOutputSupplier, indexInterval, StreamFileCompression.NONE);
+  }
+
+  /**
+   * Constructs a new instance that writes to given outputs, with data blocks compressed by the given codec.
+   *
+   * @param eventOutputSupplier Provides {@link OutputStream} for writing events.
+   * @param indexOutputSupplier Provides {@link OutputStream} for writing index.
+   * @param indexInterval Time interval in milliseconds for emitting new index entry.
+   * @param compression Compression codec for data blocks.
+   * @throws IOException If there is error in preparing the output streams.
+   */
+  public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
+                              OutputSupplier<? extends OutputStream> indexOutputSupplier,
+                              long indexInterval, StreamFileCompression compression) throws IOException {
 
     this.eventOutput = eventOutputSupplier.getOutput();
     try {
@@ -116,6 +153,9 @@ public final class StreamDataFileWriter implements Closeable, Flushable, FileWri
     Function<OutputStream, Encoder> encoderFactory = createEncoderFactory();
     this.encoder = new BufferedEncoder(BUFFER_SIZE, encoderFactory);
     this.lengthEncoder = new BufferedEncoder(5, encoderFactory);
+    this.compression = compression;
+    this.compressedOutput = new ByteArrayOutputStream(compression == StreamFileCompression.NONE ? 0 : BUFFER_SIZE);
+    this.compressedEncoder = new BinaryEncoder(compressedOutput);
 
     try {
       init();
@@ -152,6 +192,7 @@ public final class StreamDataFileWriter implements Closeable, Flushable, FileWri
 
       // Encodes the event data into buffer.
       StreamEventDataCodec.encode(event, encoder);
+      blockEventCount++;
 
       // Optionally flush if already filled up the buffer.
       if (encoder.size() >= BUFFER_SIZE) {
@@ -196,8 +237,8 @@ public final class StreamDataFileWriter implements Closeable, Flushable, FileWri
     // Writes the header for event file
     encoder.writeRaw(MAGIC_HEADER);
 
-    StreamUtils.encodeMap(ImmutableMap.of("stream.schema",
-                                          StreamEventDataCodec.STREAM_DATA_SCHEMA.toString()), encoder);
+    StreamUtils.encodeMap(ImmutableMap.of("stream.schema", StreamEventDataCodec.STREAM_DATA_SCHEMA.toString(),
+                                          StreamFileCompression.PROPERTY_KEY, compression.name()), encoder);
     long headerSize = encoder.size();
     encoder.writeTo(eventOutput);
     sync(eventOutput);
@@ -230,21 +271,31 @@ public final class StreamDataFileWriter implements Closeable, Flushable, FileWri
 
     // Record the current event output position if needs to update index
     long indexOffset = -1L;
-    if (currentTimestamp >= nextIndexTime) {
+    long blockOffset = position - Bytes.SIZEOF_LONG;
+    // Only the first block of a timestamp can be indexed, as a data block with the same timestamp
+    // is written when the buffer is full.
+    boolean firstBlock = currentTimestamp != lastBlockTimestamp;
+    if (currentTimestamp >= nextIndexTime || (firstBlock && blockOffset - lastIndexOffset >= MAX_INDEX_GAP)) {
       // Index offset is the current block start, hence is current position - 8 bytes timestamp already written.
-      indexOffset = position - Bytes.SIZEOF_LONG;
+      indexOffset = blockOffset;
     }
 
-    // Writes the size of the encoded event
-    lengthEncoder.writeInt(encoder.size());
-    int size = lengthEncoder.size();
-    lengthEncoder.writeTo(eventOutput);
-    position += size;
+    if (compression == StreamFileCompression.NONE) {
+      // Writes the size of the encoded event
+      lengthEncoder.writeInt(encoder.size());
+      int size = lengthEncoder.size();
+      lengthEncoder.writeTo(eventOutput);
+      position += size;
+
+      // Writes all encoded data from the buffer to the output.
+      size = encoder.size();
+      encoder.writeTo(eventOutput);
+      position += size;
+    } else {
+      position += writeCompressedBlock();
+    }
+    blockEventCount = 0;
 
-    // Writes all encoded data from the buffer to the output.
-    size = encoder.size();
-    encoder.writeTo(eventOutput);
-    position += size;
     if (sync) {
       sync(eventOutput);
     }
@@ -258,15 +309,44 @@ public final class StreamDataFileWriter implements Closeable, Flushable, FileWri
       }
 
       nextIndexTime = currentTimestamp + indexInterval;
+      lastIndexOffset = indexOffset;
     } else if (sync) {
       sync(indexOutput);
     }
 
     // Reset the current timestamp so that a data block will start.
+    lastBlockTimestamp = currentTimestamp;
     currentTimestamp = -1L;
     synced = sync;
   }
 
+  /**
+   * Compresses the buffered data and writes it as a compressed block to the event output.
+   *
+   * @return number of bytes written to the event output.
+   */
+  private int writeCompressedBlock() throws IOException {
+    compressedOutput.reset();
+    compressedEncoder.writeInt(blockEventCount);
+
+    OutputStream compressor = compression.compress(compressedOutput);
+    encoder.writeTo(compressor);
+    compressor.close();
+
+    // Pads the block so that the positions assigned to events in this block stay within the block
+    int padding = blockEventCount - Bytes.SIZEOF_LONG - compressedOutput.size();
+    if (padding > 0) {
+      compressedOutput.write(new byte[padding]);
+    }
+
+    // Negative length to indicate a compressed block
+    lengthEncoder.writeInt(-compressedOutput.size());
+    int size = lengthEncoder.size() + compressedOutput.size();
+    lengthEncoder.writeTo(eventOutput);
+    compressedOutput.writeTo(eventOutput);
+    return size;
+  }
+
   private void sync(OutputStream output) throws IOException {
     if (output instanceof Syncable) {
       ((Syncable) output).hsync();
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.data.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Compression codecs supported for data blocks in stream event file.
+ *
+ * @see StreamDataFileWriter
+ */
+public enum StreamFileCompression {
+
+  NONE,
+  DEFLATE {
+    @Override
+    public OutputStream compress(OutputStream output) {
+      return new DeflaterOutputStream(output, new Deflater(Deflater.BEST_SPEED)) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            def.end();
+          }
+        }
+      };
+    }
+
+    @Override
+    public InputStream decompress(InputStream input) {
+      return new InflaterInputStream(input, new Inflater()) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            inf.end();
+          }
+        }
+      };
+    }
+  };
+
+  /**
+   * Name of the property in the event file header that records the compression codec used.
+   */
+  public static final String PROPERTY_KEY = "stream.compression";
+
+  /**
+   * Wraps the given {@link OutputStream} so that bytes written to the returned stream get compressed.
+   * Closing the returned stream finishes the compression and closes the given stream.
+   */
+  public OutputStream compress(OutputStream output) {
+    return output;
+  }
+
+  /**
+   * Wraps the given {@link InputStream} to decompress bytes compressed by the {@link #compress(OutputStream)} method.
+   */
+  public InputStream decompress(InputStream input) {
+    return input;
+  }
+
+  /**
+   * Returns the {@link StreamFileCompression} of the given name.
+   *
+   * @param name Name of the compression codec, case insensitive. {@code null} is treated as {@link #NONE}.
+   * @throws IllegalArgumentException if the codec name is not supported.
+   */
+  public static StreamFileCompression fromName(@Nullable String name) {
+    return name == null ? NONE : valueOf(name.toUpperCase());
+  }
+}
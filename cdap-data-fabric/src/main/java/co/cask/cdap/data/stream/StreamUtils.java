@@ -227,6 +227,21 @@ public final class StreamUtils {
     return timestamp / partitionDuration * partitionDuration;
   }
 
+  /**
+   * Returns the largest event file position recorded in the given event index that has timestamp smaller than or
+   * equal to the given timestamp. The index is looked up from the process wide index cache.
+   *
+   * @param indexLocation Location of the event index file.
+   * @param timestamp Timestamp in milliseconds.
+   * @return The event file position, or {@code 0} if the index file doesn't exist or has no such position.
+   */
+  public static long getIndexedPosition(Location indexLocation, long timestamp) throws IOException {
+    if (!indexLocation.exists()) {
+      return 0L;
+    }
+    return Math.max(StreamDataFileIndexCache.getInstance().getIndex(indexLocation).floorPositionByTime(timestamp), 0L);
+  }
+
   /**
    * Encode a {@link StreamFileOffset} instance.
    *
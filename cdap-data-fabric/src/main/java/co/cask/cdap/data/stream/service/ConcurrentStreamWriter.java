@@ -121,12 +121,38 @@ public final class ConcurrentStreamWriter implements Closeable {
   public void enqueue(String accountId, String stream,
                          Map<String, String> headers, ByteBuffer body) throws IOException {
     EventQueue eventQueue = getEventQueue(accountId, stream);
-    HandlerStreamEventData event = eventQueue.add(headers, body);
-    persistUntilCompleted(eventQueue, event);
+    PendingWrite write = eventQueue.add(headers, body);
+    persistUntilCompleted(eventQueue, write);
 
-    if (!event.isSuccess()) {
-      Throwables.propagateIfInstanceOf(event.getFailure(), IOException.class);
-      throw new IOException("Unable to write stream event to " + stream, event.getFailure());
+    if (!write.isSuccess()) {
+      Throwables.propagateIfInstanceOf(write.getFailure(), IOException.class);
+      throw new IOException("Unable to write stream event to " + stream, write.getFailure());
+    }
+  }
+
+  /**
+   * Writes a batch of events to the given stream. All events in the batch are appended to the stream file
+   * by the same writer pass, with the same timestamp, and are persisted with a single flush.
+   *
+   * @param accountId The account id for the requester
+   * @param stream name of the stream
+   * @param events list of events to write
+   *
+   * @throws IOException if failed to write to stream
+   * @throws java.lang.IllegalArgumentException If the stream doesn't exists
+   */
+  public void enqueue(String accountId, String stream, List<? extends StreamEventData> events) throws IOException {
+    // Lookup the stream first, so that an empty batch to a missing stream fails as well
+    EventQueue eventQueue = getEventQueue(accountId, stream);
+    if (events.isEmpty()) {
+      return;
+    }
+    PendingWrite write = eventQueue.add(events);
+    persistUntilCompleted(eventQueue, write);
+
+    if (!write.isSuccess()) {
+      Throwables.propagateIfInstanceOf(write.getFailure(), IOException.class);
+      throw new IOException("Unable to write stream events to " + stream, write.getFailure());
     }
   }
 
@@ -146,11 +172,11 @@ public final class ConcurrentStreamWriter implements Closeable {
                            Map<String, String> headers, ByteBuffer body, Executor executor) throws IOException {
     // Put the event to the queue first and then execute the write asynchronously
     final EventQueue eventQueue = getEventQueue(accountId, stream);
-    final HandlerStreamEventData event = eventQueue.add(headers, body);
+    final PendingWrite write = eventQueue.add(headers, body);
     executor.execute(new Runnable() {
       @Override
       public void run() {
-        persistUntilCompleted(eventQueue, event);
+        persistUntilCompleted(eventQueue, write);
       }
     });
   }
@@ -207,13 +233,13 @@ public final class ConcurrentStreamWriter implements Closeable {
   }
 
   /**
-   * Persists events in the given eventQueue until the given event is persisted.
+   * Persists events in the given eventQueue until the given write is persisted.
    *
    * @param eventQueue The queue containing events that needs to be persisted
-   * @param event The event that must be persisted
+   * @param write The pending write that must be persisted
    */
-  private void persistUntilCompleted(EventQueue eventQueue, HandlerStreamEventData event) {
-    while (!event.isCompleted()) {
+  private void persistUntilCompleted(EventQueue eventQueue, PendingWrite write) {
+    while (!write.isCompleted()) {
       if (!eventQueue.tryWrite()) {
         Thread.yield();
       }
@@ -285,22 +311,31 @@ public final class ConcurrentStreamWriter implements Closeable {
 
     private final String streamName;
     private final Supplier<FileWriter<StreamEvent>> writerSupplier;
-    private final Queue<HandlerStreamEventData> queue;
+    private final Queue<PendingWrite> queue;
     private final AtomicBoolean writerFlag;
     private final SettableStreamEvent streamEvent;
 
     EventQueue(String streamName, Supplier<FileWriter<StreamEvent>> writerSupplier) {
       this.streamName = streamName;
       this.writerSupplier = Suppliers.memoize(writerSupplier);
-      this.queue = new ConcurrentLinkedQueue<HandlerStreamEventData>();
+      this.queue = new ConcurrentLinkedQueue<PendingWrite>();
       this.writerFlag = new AtomicBoolean(false);
       this.streamEvent = new SettableStreamEvent();
     }
 
-    HandlerStreamEventData add(Map<String, String> headers, ByteBuffer body) {
-      HandlerStreamEventData eventData = new HandlerStreamEventData(headers, body);
-      queue.add(eventData);
-      return eventData;
+    PendingWrite add(Map<String, String> headers, ByteBuffer body) {
+      PendingWrite write = new PendingWrite(Collections.singletonList(new DefaultStreamEventData(headers, body)));
+      queue.add(write);
+      return write;
+    }
+
+    /**
+     * Adds a batch of events as a single queue entry, so that they always get written by the same writer pass.
+     */
+    PendingWrite add(List<? extends StreamEventData> events) {
+      PendingWrite write = new PendingWrite(events);
+      queue.add(write);
+      return write;
     }
 
     /**
@@ -318,29 +353,33 @@ public final class ConcurrentStreamWriter implements Closeable {
       // hence all states mutated will be visible to all threads after that.
       int bytesWritten = 0;
       int eventsWritten = 0;
-      List<HandlerStreamEventData> processQueue = Lists.newArrayListWithExpectedSize(workerThreads);
+      List<PendingWrite> processQueue = Lists.newArrayListWithExpectedSize(workerThreads);
       try {
         FileWriter<StreamEvent> writer = writerSupplier.get();
-        HandlerStreamEventData data = queue.poll();
+        PendingWrite write = queue.poll();
         long timestamp = System.currentTimeMillis();
-        while (data != null) {
-          processQueue.add(data);
-          writer.append(streamEvent.set(data, timestamp));
-          data = queue.poll();
+        while (write != null) {
+          processQueue.add(write);
+          for (StreamEventData data : write.getEvents()) {
+            writer.append(streamEvent.set(data, timestamp));
+          }
+          write = queue.poll();
         }
         writer.flush();
-        for (HandlerStreamEventData processed : processQueue) {
+        for (PendingWrite processed : processQueue) {
           processed.completed(null);
-          bytesWritten += processed.getBody().remaining();
+          for (StreamEventData data : processed.getEvents()) {
+            bytesWritten += data.getBody().remaining();
+          }
+          eventsWritten += processed.getEvents().size();
         }
-        eventsWritten = processQueue.size();
       } catch (Throwable t) {
         LOG.error("Failed to write to file for stream {}.", streamName, t);
         // On exception, remove this EventQueue from the map and close the writer associated with this instance
         eventQueues.remove(streamName, this);
         Closeables.closeQuietly(writerSupplier.get());
 
-        for (HandlerStreamEventData processed : processQueue) {
+        for (PendingWrite processed : processQueue) {
           processed.completed(t);
         }
       } finally {
@@ -369,11 +408,11 @@ public final class ConcurrentStreamWriter implements Closeable {
           // Drain the queue with failure. This could happen when
           // 1. Shutting down of http service, which is fine to set to failure as all connections are closed already.
           // 2. When stream generation change. In this case, the client would received failure.
-          HandlerStreamEventData data = queue.poll();
+          PendingWrite write = queue.poll();
           Throwable writerClosedException = new IOException("Stream writer closed").fillInStackTrace();
-          while (data != null) {
-            data.completed(writerClosedException);
-            data = queue.poll();
+          while (write != null) {
+            write.completed(writerClosedException);
+            write = queue.poll();
           }
         } finally {
           done = true;
@@ -384,40 +423,46 @@ public final class ConcurrentStreamWriter implements Closeable {
   }
 
   /**
-   * A {@link StreamEventData} that carry state on whether it's been written to the underlying stream file or not.
+   * One or more {@link StreamEventData} that carry state on whether they've been written to the underlying
+   * stream file or not. Events in the same instance are always written and flushed together.
    */
-  private static final class HandlerStreamEventData extends DefaultStreamEventData {
+  private static final class PendingWrite {
 
     /**
-     * The possible state of the event data.
+     * The possible state of the pending write.
      */
     enum State {
       PENDING,
       COMPLETED
     }
 
+    private final List<? extends StreamEventData> events;
     private State state;
     private Throwable failure;
 
-    public HandlerStreamEventData(Map<String, String> headers, ByteBuffer body) {
-      super(headers, body);
+    PendingWrite(List<? extends StreamEventData> events) {
+      this.events = events;
       this.state = State.PENDING;
     }
 
-    public boolean isCompleted() {
+    List<? extends StreamEventData> getEvents() {
+      return events;
+    }
+
+    boolean isCompleted() {
       return state != State.PENDING;
     }
 
-    public boolean isSuccess() {
+    boolean isSuccess() {
       return isCompleted() && (failure == null);
     }
 
-    public void completed(Throwable failure) {
+    void completed(Throwable failure) {
       this.state = State.COMPLETED;
       this.failure = failure;
     }
 
-    public Throwable getFailure() {
+    Throwable getFailure() {
       return failure;
     }
   }
@@ -19,6 +19,9 @@ package co.cask.cdap.data.stream.service;
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.Encoder;
+import co.cask.cdap.common.stream.StreamEventDataCodec;
 import co.cask.cdap.common.stream.StreamEventTypeAdapter;
 import co.cask.cdap.data.file.FileReader;
 import co.cask.cdap.data.file.ReadFilter;
@@ -31,14 +34,19 @@ import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.gateway.auth.Authenticator;
 import co.cask.cdap.gateway.handlers.AuthenticatedHttpHandler;
+import co.cask.http.HandlerContext;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 import org.apache.twill.filesystem.Location;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
@@ -47,12 +55,17 @@ import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.jboss.netty.handler.codec.http.QueryStringDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -64,14 +77,27 @@ import javax.ws.rs.PathParam;
 @Path(Constants.Gateway.GATEWAY_VERSION + "/streams")
 public final class StreamFetchHandler extends AuthenticatedHttpHandler {
 
+  private static final Logger LOG = LoggerFactory.getLogger(StreamFetchHandler.class);
+
   private static final Gson GSON = StreamEventTypeAdapter.register(new GsonBuilder()).create();
   private static final int MAX_EVENTS_PER_READ = 100;
   private static final int CHUNK_SIZE = 20;
+  private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+  private static final String AVRO_BINARY_CONTENT_TYPE = "avro/binary";
+
+  private static final int TAIL_THREADS = 2;
+  private static final long TAIL_POLL_INTERVAL_MS = 100;
+  private static final int DEFAULT_TAIL_TIMEOUT_SECS = 30;
+  private static final int MAX_TAIL_TIMEOUT_SECS = 300;
 
   private final CConfiguration cConf;
   private final StreamAdmin streamAdmin;
   private final StreamMetaStore streamMetaStore;
 
+  // Executor for reading and sending events to tail requests
+  private ScheduledExecutorService tailExecutor;
+  private Semaphore tailPermits;
+
   @Inject
   public StreamFetchHandler(CConfiguration cConf, Authenticator authenticator,
                             StreamAdmin streamAdmin, StreamMetaStore streamMetaStore) {
@@ -82,6 +108,18 @@ public final class StreamFetchHandler extends AuthenticatedHttpHandler {
     this.streamMetaStore = streamMetaStore;
   }
 
+  @Override
+  public void init(HandlerContext context) {
+    super.init(context);
+    tailExecutor = Executors.newScheduledThreadPool(TAIL_THREADS, Threads.createDaemonThreadFactory("stream-tail-%d"));
+    tailPermits = new Semaphore(cConf.getInt(Constants.Stream.MAX_CONCURRENT_TAILS));
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    tailExecutor.shutdown();
+  }
+
   /**
    * Handler for the HTTP API {@code /streams/[stream_name]/events?start=[start_ts]&end=[end_ts]&limit=[event_limit]}
    *
@@ -90,7 +128,9 @@ public final class StreamFetchHandler extends AuthenticatedHttpHandler {
    *   204 if no event in the given start/end time range
    *   200 if there is event
    *
-   * Response body is an Json array of StreamEvent object
+   * Response body is an Json array of StreamEvent object, or, if the request accepts {@code avro/binary}, an Avro
+   * array of StreamEvent record, with each record being the event encoded by {@link StreamEventDataCodec} followed by
+   * the Avro long timestamp.
    *
    * @see StreamEventTypeAdapter for the format of StreamEvent object.
    */
@@ -127,35 +167,30 @@ public final class StreamFetchHandler extends AuthenticatedHttpHandler {
       }
 
       // Send with chunk response, as we don't want to buffer all events in memory to determine the content-length.
+      boolean avro = isAvroAccepted(request);
       responder.sendChunkStart(HttpResponseStatus.OK,
-                               ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, "application/json; charset=utf-8"));
+                               ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, getContentType(avro)));
       ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
-      JsonWriter jsonWriter = new JsonWriter(new OutputStreamWriter(new ChannelBufferOutputStream(buffer),
-                                                                    Charsets.UTF_8));
-      // Response is an array of stream event
-      jsonWriter.beginArray();
+      StreamEventsWriter eventsWriter = createEventsWriter(avro, buffer);
+
       while (limit > 0 && eventsRead > 0) {
         limit -= eventsRead;
 
-        for (StreamEvent event : events) {
-          GSON.toJson(event, StreamEvent.class, jsonWriter);
-          jsonWriter.flush();
+        eventsWriter.write(events);
+        events.clear();
 
-          // If exceeded chunk size limit, send a new chunk.
-          if (buffer.readableBytes() >= CHUNK_SIZE) {
-            // No way to know if it is ok to send chunk or not. See ENG-4168
-            responder.sendChunk(buffer);
-            buffer.clear();
-          }
+        // If exceeded chunk size limit, send a new chunk.
+        if (buffer.readableBytes() >= CHUNK_SIZE) {
+          // No way to know if it is ok to send chunk or not. See ENG-4168
+          responder.sendChunk(buffer);
+          buffer.clear();
         }
-        events.clear();
 
         if (limit > 0) {
           eventsRead = reader.read(events, getReadLimit(limit), 0, TimeUnit.SECONDS, readFilter);
         }
       }
-      jsonWriter.endArray();
-      jsonWriter.close();
+      eventsWriter.close();
 
       // Send the last chunk that still has data
       if (buffer.readable()) {
@@ -167,6 +202,96 @@ public final class StreamFetchHandler extends AuthenticatedHttpHandler {
     }
   }
 
+  /**
+   * Handler for the HTTP API {@code /streams/[stream_name]/events/tail?limit=[event_limit]&timeout=[timeout_secs]}
+   *
+   * Keeps the connection open and sends events written to the stream after the request is received, until
+   * the given number of events is sent or the timeout in seconds passes. The timeout defaults to 30 seconds and is
+   * capped at 300 seconds.
+   *
+   * Response with
+   *   404 if stream not exists.
+   *   503 if there are too many concurrent tail requests.
+   *   200 with a chunked Json array of StreamEvent object, which is empty if no event is written before timeout.
+   *
+   * The response body is in the same format as the one of {@link #fetch(HttpRequest, HttpResponder, String)}.
+   *
+   * @see StreamEventTypeAdapter for the format of StreamEvent object.
+   */
+  @GET
+  @Path("/{stream}/events/tail")
+  public void tail(HttpRequest request, HttpResponder responder,
+                   @PathParam("stream") String stream) throws Exception {
+
+    String accountID = getAuthenticatedAccountId(request);
+
+    Map<String, List<String>> parameters = new QueryStringDecoder(request.getUri()).getParameters();
+    int limit = getLimit("limit", parameters, Integer.MAX_VALUE);
+    int timeout = getLimit("timeout", parameters, DEFAULT_TAIL_TIMEOUT_SECS);
+
+    if (limit <= 0) {
+      responder.sendError(HttpResponseStatus.BAD_REQUEST, "Cannot request for <=0 events");
+      return;
+    }
+    if (timeout <= 0) {
+      responder.sendError(HttpResponseStatus.BAD_REQUEST, "Timeout must be > 0");
+      return;
+    }
+    if (!streamMetaStore.streamExists(accountID, stream)) {
+      responder.sendStatus(HttpResponseStatus.NOT_FOUND);
+      return;
+    }
+    if (!tailPermits.tryAcquire()) {
+      responder.sendError(HttpResponseStatus.SERVICE_UNAVAILABLE, "Too many concurrent stream tail requests");
+      return;
+    }
+
+    FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader = null;
+    try {
+      long startTime = System.currentTimeMillis();
+      StreamConfig streamConfig = streamAdmin.getConfig(stream);
+      reader = createTailReader(streamConfig, startTime);
+
+      boolean avro = isAvroAccepted(request);
+      ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+      StreamEventsWriter eventsWriter = createEventsWriter(avro, buffer);
+      responder.sendChunkStart(HttpResponseStatus.OK,
+                               ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, getContentType(avro)));
+
+      // Events are read and sent by the tail executor, as the handler is called from the IO thread.
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.min(timeout, MAX_TAIL_TIMEOUT_SECS));
+      // The responder doesn't report a client disconnect, hence a tail holds its permit until the deadline, which is
+      // capped by MAX_TAIL_TIMEOUT_SECS, or until sending a chunk fails.
+      tailExecutor.execute(new StreamTail(responder, reader, createReadFilter(startTime, Long.MAX_VALUE),
+                                          eventsWriter, buffer, limit, deadline));
+    } catch (Throwable t) {
+      if (reader != null) {
+        Closeables.closeQuietly(reader);
+      }
+      tailPermits.release();
+      throw Throwables.propagate(t);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the request accepts response in {@code avro/binary}.
+   */
+  private boolean isAvroAccepted(HttpRequest request) {
+    String accept = request.getHeader(HttpHeaders.Names.ACCEPT);
+    return accept != null && accept.contains(AVRO_BINARY_CONTENT_TYPE);
+  }
+
+  private String getContentType(boolean avro) {
+    return avro ? AVRO_BINARY_CONTENT_TYPE : JSON_CONTENT_TYPE;
+  }
+
+  /**
+   * Creates a {@link StreamEventsWriter} that writes to the given buffer in the response format.
+   */
+  private StreamEventsWriter createEventsWriter(boolean avro, ChannelBuffer buffer) throws IOException {
+    return avro ? new AvroStreamEventsWriter(buffer) : new JsonStreamEventsWriter(buffer);
+  }
+
   /**
    * Parses and returns a timestamp from the query string.
    *
@@ -284,7 +409,69 @@ public final class StreamFetchHandler extends AuthenticatedHttpHandler {
     if (startPartition == null) {
       return createEmptyReader();
     }
+    return createReader(streamConfig, startPartition, generation);
+  }
+
+  /**
+   * Creates a {@link FileReader} that starts reading stream event from the partition of the given time, which may not
+   * exist yet. The reader follows the stream files as new events and partitions are written.
+   *
+   * For each stream writer, the reader starts from the latest event file in the partition, at the last indexed
+   * position before the given time, so that events written before the time are mostly not read.
+   */
+  private FileReader<StreamEventOffset, Iterable<StreamFileOffset>> createTailReader(
+    StreamConfig streamConfig, long startTime) throws IOException {
+    int generation = StreamUtils.getGeneration(streamConfig);
+    long partitionDuration = streamConfig.getPartitionDuration();
+    Location startPartition = StreamUtils.createPartitionLocation(
+      StreamUtils.createGenerationLocation(streamConfig.getLocation(), generation),
+      StreamUtils.getPartitionStartTime(startTime, partitionDuration), partitionDuration);
+
+    // Find the latest event file of each writer in the partition
+    Map<String, Integer> sequenceIds = Maps.newHashMap();
+    List<Location> locations = startPartition.exists() ? startPartition.list() : null;
+    if (locations != null) {
+      for (Location location : locations) {
+        String name = location.getName();
+        if (!StreamFileType.EVENT.isMatched(name)) {
+          continue;
+        }
+        String prefix = StreamUtils.getNamePrefix(name);
+        int sequenceId = StreamUtils.getSequenceId(name);
+        Integer latest = sequenceIds.get(prefix);
+        if (latest == null || latest < sequenceId) {
+          sequenceIds.put(prefix, sequenceId);
+        }
+      }
+    }
 
+    List<StreamFileOffset> fileOffsets = Lists.newArrayList();
+    int instances = cConf.getInt(Constants.Stream.CONTAINER_INSTANCES);
+    String filePrefix = cConf.get(Constants.Stream.FILE_PREFIX);
+    for (int i = 0; i < instances; i++) {
+      // The actual file prefix is formed by file prefix in cConf + writer instance id
+      String streamFilePrefix = filePrefix + '.' + i;
+      Integer sequenceId = sequenceIds.get(streamFilePrefix);
+      Location eventLocation = StreamUtils.createStreamLocation(startPartition, streamFilePrefix,
+                                                                sequenceId == null ? 0 : sequenceId,
+                                                                StreamFileType.EVENT);
+      StreamFileOffset fileOffset = new StreamFileOffset(eventLocation, 0, generation);
+      long position = StreamUtils.getIndexedPosition(fileOffset.getIndexLocation(), startTime);
+      fileOffsets.add(new StreamFileOffset(fileOffset, position));
+    }
+
+    MultiLiveStreamFileReader reader = new MultiLiveStreamFileReader(streamConfig, fileOffsets);
+    reader.initialize();
+    return reader;
+  }
+
+  /**
+   * Creates a {@link MultiLiveStreamFileReader} that starts reading from the beginning of the event files of all
+   * stream writers in the given partition.
+   */
+  private FileReader<StreamEventOffset, Iterable<StreamFileOffset>> createReader(StreamConfig streamConfig,
+                                                                                 Location startPartition,
+                                                                                 int generation) throws IOException {
     List<StreamFileOffset> fileOffsets = Lists.newArrayList();
     int instances = cConf.getInt(Constants.Stream.CONTAINER_INSTANCES);
     String filePrefix = cConf.get(Constants.Stream.FILE_PREFIX);
@@ -381,4 +568,146 @@ public final class StreamFetchHandler extends AuthenticatedHttpHandler {
   private int getReadLimit(int count) {
     return (count > MAX_EVENTS_PER_READ) ? MAX_EVENTS_PER_READ : count;
   }
+
+  /**
+   * A {@link Runnable} that reads new events of a tail request and sends them as chunks. It reschedules itself
+   * with the tail executor until the request is completed, hence the reader is only used by one thread at a time.
+   */
+  private final class StreamTail implements Runnable {
+
+    private final HttpResponder responder;
+    private final FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader;
+    private final ReadFilter readFilter;
+    private final StreamEventsWriter eventsWriter;
+    private final ChannelBuffer buffer;
+    private final long deadline;
+    private final List<StreamEvent> events;
+    private int limit;
+
+    private StreamTail(HttpResponder responder, FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader,
+                       ReadFilter readFilter, StreamEventsWriter eventsWriter, ChannelBuffer buffer,
+                       int limit, long deadline) {
+      this.responder = responder;
+      this.reader = reader;
+      this.readFilter = readFilter;
+      this.eventsWriter = eventsWriter;
+      this.buffer = buffer;
+      this.limit = limit;
+      this.deadline = deadline;
+      this.events = Lists.newArrayListWithCapacity(MAX_EVENTS_PER_READ);
+    }
+
+    @Override
+    public void run() {
+      boolean completed = true;
+      try {
+        int eventsRead = reader.read(events, getReadLimit(limit), 0, TimeUnit.NANOSECONDS, readFilter);
+        eventsWriter.write(events);
+        limit -= Math.max(eventsRead, 0);
+        events.clear();
+        sendBuffer();
+
+        if (eventsRead >= 0 && limit > 0 && System.nanoTime() < deadline) {
+          // Read again right away if there were events, otherwise wait for new events to be written
+          tailExecutor.schedule(this, eventsRead > 0 ? 0 : TAIL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+          completed = false;
+          return;
+        }
+
+        eventsWriter.close();
+        sendBuffer();
+        responder.sendChunkEnd();
+      } catch (Throwable t) {
+        // The response status is already sent, hence can only end the response
+        LOG.warn("Failed to send stream events to tail request", t);
+        responder.sendChunkEnd();
+      } finally {
+        if (completed) {
+          Closeables.closeQuietly(reader);
+          tailPermits.release();
+        }
+      }
+    }
+
+    private void sendBuffer() {
+      if (buffer.readable()) {
+        // Send a copy, as the buffer is reused while the chunk is written by the IO thread
+        responder.sendChunk(buffer.copy());
+        buffer.clear();
+      }
+    }
+  }
+
+  /**
+   * Writes stream events in the format of a response body into a {@link ChannelBuffer}.
+   */
+  private interface StreamEventsWriter {
+
+    /**
+     * Writes the given events. All written data is in the buffer when this method returns.
+     */
+    void write(List<StreamEvent> events) throws IOException;
+
+    /**
+     * Writes the end of the response body.
+     */
+    void close() throws IOException;
+  }
+
+  /**
+   * A {@link StreamEventsWriter} that writes a Json array of StreamEvent object.
+   */
+  private static final class JsonStreamEventsWriter implements StreamEventsWriter {
+
+    private final JsonWriter jsonWriter;
+
+    private JsonStreamEventsWriter(ChannelBuffer buffer) throws IOException {
+      this.jsonWriter = new JsonWriter(new OutputStreamWriter(new ChannelBufferOutputStream(buffer), Charsets.UTF_8));
+      jsonWriter.beginArray();
+    }
+
+    @Override
+    public void write(List<StreamEvent> events) throws IOException {
+      for (StreamEvent event : events) {
+        GSON.toJson(event, StreamEvent.class, jsonWriter);
+      }
+      jsonWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      jsonWriter.endArray();
+      jsonWriter.close();
+    }
+  }
+
+  /**
+   * A {@link StreamEventsWriter} that writes an Avro array of StreamEvent record, one array block for each write.
+   */
+  private static final class AvroStreamEventsWriter implements StreamEventsWriter {
+
+    private final Encoder encoder;
+
+    private AvroStreamEventsWriter(ChannelBuffer buffer) {
+      this.encoder = new BinaryEncoder(new ChannelBufferOutputStream(buffer));
+    }
+
+    @Override
+    public void write(List<StreamEvent> events) throws IOException {
+      if (events.isEmpty()) {
+        return;
+      }
+      encoder.writeInt(events.size());
+      for (StreamEvent event : events) {
+        // Same encoding as the stream event schema, which is sorted by name, hence is {body, headers, timestamp}.
+        StreamEventDataCodec.encode(event, encoder);
+        encoder.writeLong(event.getTimestamp());
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      encoder.writeInt(0);
+    }
+  }
 }
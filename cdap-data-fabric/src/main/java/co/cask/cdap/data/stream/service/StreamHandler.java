@@ -15,11 +15,16 @@
  */
 package co.cask.cdap.data.stream.service;
 
+import co.cask.cdap.api.stream.StreamEventData;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.Decoder;
 import co.cask.cdap.common.metrics.MetricsCollectionService;
 import co.cask.cdap.common.metrics.MetricsCollector;
 import co.cask.cdap.common.metrics.MetricsScope;
+import co.cask.cdap.common.stream.DefaultStreamEventData;
+import co.cask.cdap.common.stream.StreamEventDataCodec;
 import co.cask.cdap.data.stream.StreamCoordinator;
 import co.cask.cdap.data.stream.StreamFileWriterFactory;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
@@ -33,6 +38,7 @@ import co.cask.http.HttpResponder;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -42,6 +48,9 @@ import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import com.google.inject.Inject;
 import org.apache.twill.common.Threads;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
@@ -49,6 +58,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -71,6 +81,8 @@ public final class StreamHandler extends AuthenticatedHttpHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(StreamHandler.class);
 
+  private static final String AVRO_BINARY_CONTENT_TYPE = "avro/binary";
+
   private static final Gson GSON = new GsonBuilder()
     .registerTypeAdapter(StreamProperties.class, new StreamPropertiesAdapter())
     .create();
@@ -195,6 +207,36 @@ public final class StreamHandler extends AuthenticatedHttpHandler {
     responder.sendStatus(HttpResponseStatus.ACCEPTED);
   }
 
+  /**
+   * Writes a batch of events to the stream with a single durable write. The request body is either
+   * newline delimited text, with each non-empty line becoming one event that carries the request headers,
+   * or, with content type {@code avro/binary}, an Avro array of {@link StreamEventData}.
+   */
+  @POST
+  @Path("/{stream}/batch")
+  public void batchEnqueue(HttpRequest request, HttpResponder responder,
+                           @PathParam("stream") String stream) throws Exception {
+    String accountId = getAuthenticatedAccountId(request);
+
+    List<StreamEventData> events;
+    try {
+      events = decodeBatch(request, stream);
+    } catch (IOException e) {
+      responder.sendString(HttpResponseStatus.BAD_REQUEST, "Invalid batch request body");
+      return;
+    }
+
+    try {
+      streamWriter.enqueue(accountId, stream, events);
+      responder.sendStatus(HttpResponseStatus.OK);
+    } catch (IllegalArgumentException e) {
+      responder.sendString(HttpResponseStatus.NOT_FOUND, "Stream does not exists");
+    } catch (IOException e) {
+      LOG.error("Failed to write to stream {}", stream, e);
+      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+    }
+  }
+
   @POST
   @Path("/{stream}/truncate")
   public void truncate(HttpRequest request, HttpResponder responder,
@@ -261,7 +303,8 @@ public final class StreamHandler extends AuthenticatedHttpHandler {
       if (ttl.isJsonPrimitive()) {
         // TTL in the REST API is in seconds. Convert it to ms for the config.
         return new StreamConfig(config.getName(), config.getPartitionDuration(), config.getIndexInterval(),
-                                TimeUnit.SECONDS.toMillis(ttl.getAsLong()), config.getLocation());
+                                TimeUnit.SECONDS.toMillis(ttl.getAsLong()), config.getLocation(),
+                                config.getCompression());
       }
     }
     return config;
@@ -302,6 +345,48 @@ public final class StreamHandler extends AuthenticatedHttpHandler {
     return headers.build();
   }
 
+  /**
+   * Decodes the events carried in a batch enqueue request.
+   */
+  private List<StreamEventData> decodeBatch(HttpRequest request, String stream) throws IOException {
+    ChannelBuffer content = request.getContent();
+    List<StreamEventData> events = Lists.newArrayList();
+
+    String contentType = request.getHeader(HttpHeaders.Names.CONTENT_TYPE);
+    if (contentType != null && contentType.startsWith(AVRO_BINARY_CONTENT_TYPE)) {
+      Decoder decoder = new BinaryDecoder(new ChannelBufferInputStream(content));
+      int len = decoder.readInt();
+      while (len != 0) {
+        // A negative count means the block is prefixed with its size in bytes, which is not needed here
+        if (len < 0) {
+          len = -len;
+          decoder.readLong();
+        }
+        for (int i = 0; i < len; i++) {
+          events.add(StreamEventDataCodec.decode(decoder));
+        }
+        len = decoder.readInt();
+      }
+      return events;
+    }
+
+    // Newline delimited events. Each event body is a slice of the request content, hence no copying is needed.
+    Map<String, String> headers = getHeaders(request, stream);
+    int start = content.readerIndex();
+    int end = content.writerIndex();
+    while (start < end) {
+      int idx = content.indexOf(start, end, (byte) '\n');
+      int lineEnd = idx < 0 ? end : idx;
+      // Strips the trailing carriage return
+      int bodyEnd = (lineEnd > start && content.getByte(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+      if (bodyEnd > start) {
+        events.add(new DefaultStreamEventData(headers, content.toByteBuffer(start, bodyEnd - start)));
+      }
+      start = lineEnd + 1;
+    }
+    return events;
+  }
+
   /**
    *  Adapter class for {@link co.cask.cdap.proto.StreamProperties}
    */
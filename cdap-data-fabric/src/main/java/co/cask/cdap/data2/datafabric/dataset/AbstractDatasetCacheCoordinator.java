@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.common.conf.PropertyChangeListener;
+import co.cask.cdap.common.conf.PropertyStore;
+import co.cask.cdap.common.conf.PropertyUpdater;
+import co.cask.cdap.common.io.Codec;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.twill.common.Cancellable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Base implementation for {@link DatasetCacheCoordinator}. It keeps a generation number of the dataset metadata
+ * in a {@link PropertyStore}, which is incremented on every change.
+ */
+public abstract class AbstractDatasetCacheCoordinator implements DatasetCacheCoordinator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractDatasetCacheCoordinator.class);
+  private static final String GENERATION = "generation";
+
+  private final Supplier<PropertyStore<Long>> propertyStore;
+
+  protected AbstractDatasetCacheCoordinator() {
+    propertyStore = Suppliers.memoize(new Supplier<PropertyStore<Long>>() {
+      @Override
+      public PropertyStore<Long> get() {
+        return createPropertyStore(new GenerationCodec());
+      }
+    });
+  }
+
+  /**
+   * Creates a {@link PropertyStore}.
+   *
+   * @param codec Codec for the property stored in the property store
+   * @param <T> Type of the property
+   * @return A new {@link PropertyStore}.
+   */
+  protected abstract <T> PropertyStore<T> createPropertyStore(Codec<T> codec);
+
+  @Override
+  public ListenableFuture<Long> invalidate() {
+    return propertyStore.get().update(GENERATION, new PropertyUpdater<Long>() {
+      @Override
+      public ListenableFuture<Long> apply(@Nullable Long generation) {
+        return Futures.immediateFuture(generation == null ? 1L : generation + 1);
+      }
+    });
+  }
+
+  @Override
+  public Cancellable addListener(final Runnable listener) {
+    return propertyStore.get().addChangeListener(GENERATION, new PropertyChangeListener<Long>() {
+      @Override
+      public void onChange(String name, Long generation) {
+        listener.run();
+      }
+
+      @Override
+      public void onError(String name, Throwable failureCause) {
+        // Changes may be missed, hence treat it as a change
+        LOG.warn("Failed to watch for dataset changes.", failureCause);
+        listener.run();
+      }
+    });
+  }
+
+  @Override
+  public void close() throws IOException {
+    propertyStore.get().close();
+  }
+
+  /**
+   * Codec for the generation number.
+   */
+  private static final class GenerationCodec implements Codec<Long> {
+
+    @Override
+    public byte[] encode(Long generation) throws IOException {
+      return Bytes.toBytes(generation);
+    }
+
+    @Override
+    public Long decode(byte[] data) throws IOException {
+      return Bytes.toLong(data);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.twill.common.Cancellable;
+
+import java.io.Closeable;
+
+/**
+ * This class is responsible for notifying processes that cache dataset metadata about changes of dataset
+ * instances and modules.
+ */
+public interface DatasetCacheCoordinator extends Closeable {
+
+  /**
+   * Notifies all listeners that dataset instances or modules have changed.
+   *
+   * @return A future that will be completed when the notification is published. The future result will carry
+   *         the new generation of the dataset metadata.
+   */
+  ListenableFuture<Long> invalidate();
+
+  /**
+   * Receives event for changes in dataset instances or modules.
+   *
+   * @param listener listener to get called when dataset metadata cached before the call is no longer valid.
+   * @return A {@link Cancellable} to cancel the watch
+   */
+  Cancellable addListener(Runnable listener);
+}
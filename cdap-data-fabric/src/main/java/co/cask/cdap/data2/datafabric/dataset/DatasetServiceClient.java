@@ -19,8 +19,7 @@ package co.cask.cdap.data2.datafabric.dataset;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.common.conf.Constants;
-import co.cask.cdap.common.discovery.EndpointStrategy;
-import co.cask.cdap.common.discovery.RandomEndpointStrategy;
+import co.cask.cdap.common.discovery.LoadAwareEndpointStrategy;
 import co.cask.cdap.common.discovery.TimeLimitEndpointStrategy;
 import co.cask.cdap.common.http.HttpMethod;
 import co.cask.cdap.common.http.HttpRequest;
@@ -64,15 +63,13 @@ import javax.annotation.Nullable;
 class DatasetServiceClient {
   private static final Gson GSON = new Gson();
 
-  private final Supplier<EndpointStrategy> endpointStrategySupplier;
+  private final Supplier<LoadAwareEndpointStrategy> endpointStrategySupplier;
 
   public DatasetServiceClient(final DiscoveryServiceClient discoveryClient) {
-    this.endpointStrategySupplier = Suppliers.memoize(new Supplier<EndpointStrategy>() {
+    this.endpointStrategySupplier = Suppliers.memoize(new Supplier<LoadAwareEndpointStrategy>() {
       @Override
-      public EndpointStrategy get() {
-        return new TimeLimitEndpointStrategy(
-          new RandomEndpointStrategy(discoveryClient.discover(Constants.Service.DATASET_MANAGER)),
-          1L, TimeUnit.SECONDS);
+      public LoadAwareEndpointStrategy get() {
+        return new LoadAwareEndpointStrategy(discoveryClient.discover(Constants.Service.DATASET_MANAGER));
       }
     });
   }
@@ -244,7 +241,10 @@ class DatasetServiceClient {
                                  @Nullable Map<String, String> headers,
                                  @Nullable String body) throws DatasetManagementException {
 
-    String url = resolve(resource);
+    LoadAwareEndpointStrategy endpointStrategy = endpointStrategySupplier.get();
+    Discoverable discoverable = pickEndpoint(endpointStrategy);
+    String url = resolve(discoverable, resource);
+    LoadAwareEndpointStrategy.Request endpointRequest = endpointStrategy.begin(discoverable);
     try {
       return HttpRequests.execute(HttpRequest.builder(method, new URL(url)).addHeaders(headers).withBody(body).build());
     } catch (IOException e) {
@@ -252,6 +252,8 @@ class DatasetServiceClient {
         String.format("Error during talking to Dataset Service at %s while doing %s with headers %s and body %s",
                       url, method, headers == null ? "null" : Joiner.on(",").withKeyValueSeparator("=").join(headers),
                       body == null ? "null" : body), e);
+    } finally {
+      endpointRequest.complete();
     }
   }
 
@@ -260,7 +262,10 @@ class DatasetServiceClient {
                                  @Nullable InputSupplier<? extends InputStream> body)
     throws DatasetManagementException {
 
-    String url = resolve(resource);
+    LoadAwareEndpointStrategy endpointStrategy = endpointStrategySupplier.get();
+    Discoverable discoverable = pickEndpoint(endpointStrategy);
+    String url = resolve(discoverable, resource);
+    LoadAwareEndpointStrategy.Request endpointRequest = endpointStrategy.begin(discoverable);
     try {
       return HttpRequests.execute(HttpRequest.builder(method, new URL(url)).addHeaders(headers).withBody(body).build());
     } catch (IOException e) {
@@ -268,6 +273,8 @@ class DatasetServiceClient {
         String.format("Error during talking to Dataset Service at %s while doing %s with headers %s and body %s",
                       url, method, headers == null ? "null" : Joiner.on(",").withKeyValueSeparator("=").join(headers),
                       body == null ? "null" : body), e);
+    } finally {
+      endpointRequest.complete();
     }
   }
 
@@ -283,11 +290,15 @@ class DatasetServiceClient {
 
   }
 
-  private String resolve(String resource) throws DatasetManagementException {
-    Discoverable discoverable = endpointStrategySupplier.get().pick();
+  private Discoverable pickEndpoint(LoadAwareEndpointStrategy endpointStrategy) throws DatasetManagementException {
+    Discoverable discoverable = new TimeLimitEndpointStrategy(endpointStrategy, 1L, TimeUnit.SECONDS).pick();
     if (discoverable == null) {
       throw new DatasetManagementException("Cannot discover dataset service");
     }
+    return discoverable;
+  }
+
+  private String resolve(Discoverable discoverable, String resource) {
     InetSocketAddress addr = discoverable.getSocketAddress();
     return String.format("http://%s:%s%s/data/%s", addr.getHostName(), addr.getPort(),
                          Constants.Gateway.GATEWAY_VERSION, resource);
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.conf.PropertyStore;
+import co.cask.cdap.common.io.Codec;
+import co.cask.cdap.common.zookeeper.store.ZKPropertyStore;
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.twill.zookeeper.ZKClient;
+
+/**
+ * A {@link DatasetCacheCoordinator} that uses ZooKeeper to notify all processes about dataset changes.
+ */
+@Singleton
+public final class DistributedDatasetCacheCoordinator extends AbstractDatasetCacheCoordinator {
+
+  private ZKClient zkClient;
+
+  @Inject(optional = true)
+  void setZkClient(ZKClient zkClient) {
+    // Use optional injection for zk client to make testing easier in case this class is not used.
+    this.zkClient = zkClient;
+  }
+
+  @Override
+  protected <T> PropertyStore<T> createPropertyStore(Codec<T> codec) {
+    Preconditions.checkState(zkClient != null, "Missing ZKClient. Check Guice binding.");
+    return ZKPropertyStore.create(zkClient, "/" + Constants.Service.DATASET_MANAGER + "/cache", codec);
+  }
+}
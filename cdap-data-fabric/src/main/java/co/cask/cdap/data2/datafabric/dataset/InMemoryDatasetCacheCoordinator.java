@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import co.cask.cdap.common.conf.InMemoryPropertyStore;
+import co.cask.cdap.common.conf.PropertyStore;
+import co.cask.cdap.common.io.Codec;
+import com.google.inject.Singleton;
+
+/**
+ * In memory implementation for {@link DatasetCacheCoordinator}.
+ */
+@Singleton
+public final class InMemoryDatasetCacheCoordinator extends AbstractDatasetCacheCoordinator {
+
+  @Override
+  protected <T> PropertyStore<T> createPropertyStore(Codec<T> codec) {
+    return new InMemoryPropertyStore<T>();
+  }
+}
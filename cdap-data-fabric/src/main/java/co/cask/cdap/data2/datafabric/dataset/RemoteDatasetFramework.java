@@ -33,8 +33,13 @@ import co.cask.cdap.proto.DatasetMeta;
 import co.cask.cdap.proto.DatasetModuleMeta;
 import co.cask.cdap.proto.DatasetTypeMeta;
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
@@ -51,6 +56,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
@@ -58,14 +65,31 @@ import javax.annotation.Nullable;
 
 /**
  * {@link co.cask.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service
+ *
+ * When a {@link DatasetCacheCoordinator} is available, dataset instance metadata, dataset types and the classloaders
+ * of dataset modules are cached, and the caches are cleared whenever the coordinator signals a change of dataset
+ * instances or modules.
  */
 public class RemoteDatasetFramework implements DatasetFramework {
   private static final Logger LOG = LoggerFactory.getLogger(RemoteDatasetFramework.class);
 
+  private static final int MAX_CACHED_INSTANCES = 1000;
+  private static final long CACHE_EXPIRE_MINS = 10;
+
   private final DatasetServiceClient client;
   private final DatasetDefinitionRegistryFactory registryFactory;
   private final DatasetTypeClassLoaderFactory typeLoader;
 
+  private final Cache<String, DatasetMeta> instanceCache;
+  // Types and module classloaders are cached per parent classloader, which is usually the program classloader.
+  // The cached types and module classloaders reference their parent classloader, so a weak key alone would never be
+  // cleared. The values are held softly, which lets the parent classloader be collected once the values are cleared.
+  private final Cache<ClassLoader, ConcurrentMap<String, DatasetType>> typeCache;
+  private final Cache<ClassLoader, ConcurrentMap<String, ClassLoader>> moduleClassLoaderCache;
+  private Supplier<Boolean> cacheEnabled;
+  // Incremented on every invalidation to avoid caching results fetched before the invalidation. Guarded by this.
+  private long cacheGeneration;
+
   @Inject
   public RemoteDatasetFramework(DiscoveryServiceClient discoveryClient,
                                 DatasetDefinitionRegistryFactory registryFactory,
@@ -74,6 +98,42 @@ public class RemoteDatasetFramework implements DatasetFramework {
     this.client = new DatasetServiceClient(discoveryClient);
     this.registryFactory = registryFactory;
     this.typeLoader = typeLoader;
+    this.instanceCache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_INSTANCES)
+      .expireAfterWrite(CACHE_EXPIRE_MINS, TimeUnit.MINUTES)
+      .build();
+    this.typeCache = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .expireAfterAccess(CACHE_EXPIRE_MINS, TimeUnit.MINUTES)
+      .build();
+    this.moduleClassLoaderCache = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .expireAfterAccess(CACHE_EXPIRE_MINS, TimeUnit.MINUTES)
+      .build();
+  }
+
+  @Inject(optional = true)
+  void setCacheCoordinator(final DatasetCacheCoordinator cacheCoordinator) {
+    // The listener is added on first use, as the coordinator may not be ready to use at injection time.
+    cacheEnabled = Suppliers.memoize(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        try {
+          cacheCoordinator.addListener(new Runnable() {
+            @Override
+            public void run() {
+              invalidateCache();
+            }
+          });
+          return true;
+        } catch (Exception e) {
+          LOG.warn("Failed to watch for dataset changes. Dataset metadata will not be cached.", e);
+          return false;
+        }
+      }
+    });
   }
 
   @Override
@@ -101,11 +161,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Override
   public void deleteModule(String moduleName) throws DatasetManagementException {
     client.deleteModule(moduleName);
+    invalidateCache();
   }
 
   @Override
   public void deleteAllModules() throws DatasetManagementException {
     client.deleteModules();
+    invalidateCache();
   }
 
   @Override
@@ -113,12 +175,14 @@ public class RemoteDatasetFramework implements DatasetFramework {
     throws DatasetManagementException {
 
     client.addInstance(datasetInstanceName, datasetType, props);
+    invalidateCache();
   }
 
   @Override
   public void updateInstance(String datasetInstanceName, DatasetProperties props)
     throws DatasetManagementException {
     client.updateInstance(datasetInstanceName, props);
+    invalidateCache();
   }
 
   @Override
@@ -129,13 +193,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Nullable
   @Override
   public DatasetSpecification getDatasetSpec(String name) throws DatasetManagementException {
-    DatasetMeta meta = client.getInstance(name);
+    DatasetMeta meta = getInstanceMeta(name);
     return meta == null ? null : meta.getSpec();
   }
 
   @Override
   public boolean hasInstance(String instanceName) throws DatasetManagementException {
-    return client.getInstance(instanceName) != null;
+    return getInstanceMeta(instanceName) != null;
   }
 
   @Override
@@ -146,23 +210,27 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Override
   public void deleteInstance(String datasetInstanceName) throws DatasetManagementException {
     client.deleteInstance(datasetInstanceName);
+    invalidateCache();
   }
 
   @Override
   public void deleteAllInstances() throws DatasetManagementException, IOException {
     client.deleteInstances();
+    invalidateCache();
   }
 
   @Override
   public <T extends DatasetAdmin> T getAdmin(String datasetInstanceName, ClassLoader classLoader)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta instanceInfo = client.getInstance(datasetInstanceName);
+    // Types created from metadata fetched before an invalidation must not be cached
+    long generation = getCacheGeneration();
+    DatasetMeta instanceInfo = getInstanceMeta(datasetInstanceName);
     if (instanceInfo == null) {
       return null;
     }
 
-    DatasetType type = getDatasetType(instanceInfo.getType(), classLoader);
+    DatasetType type = getDatasetType(instanceInfo.getType(), classLoader, generation);
     return (T) type.getAdmin(instanceInfo.getSpec());
   }
 
@@ -170,21 +238,88 @@ public class RemoteDatasetFramework implements DatasetFramework {
   public <T extends Dataset> T getDataset(String datasetInstanceName, Map<String, String> arguments,
                                           ClassLoader classLoader) throws DatasetManagementException, IOException {
 
-    DatasetMeta instanceInfo = client.getInstance(datasetInstanceName);
+    // Types created from metadata fetched before an invalidation must not be cached
+    long generation = getCacheGeneration();
+    DatasetMeta instanceInfo = getInstanceMeta(datasetInstanceName);
     if (instanceInfo == null) {
       return null;
     }
 
-    DatasetType type = getDatasetType(instanceInfo.getType(), classLoader);
+    DatasetType type = getDatasetType(instanceInfo.getType(), classLoader, generation);
     return (T) type.getDataset(instanceInfo.getSpec(), arguments);
   }
 
+  @Nullable
+  private DatasetMeta getInstanceMeta(String name) throws DatasetManagementException {
+    if (!isCacheEnabled()) {
+      return client.getInstance(name);
+    }
+    DatasetMeta meta = instanceCache.getIfPresent(name);
+    if (meta != null) {
+      return meta;
+    }
+    long generation = getCacheGeneration();
+    meta = client.getInstance(name);
+    // Non-existing instances are not cached, as they are usually about to be created
+    if (meta != null) {
+      synchronized (this) {
+        if (generation == cacheGeneration) {
+          instanceCache.put(name, meta);
+        }
+      }
+    }
+    return meta;
+  }
+
+  private boolean isCacheEnabled() {
+    return cacheEnabled != null && cacheEnabled.get();
+  }
+
+  private synchronized long getCacheGeneration() {
+    return cacheGeneration;
+  }
+
+  private synchronized void invalidateCache() {
+    cacheGeneration++;
+    instanceCache.invalidateAll();
+    typeCache.invalidateAll();
+    moduleClassLoaderCache.invalidateAll();
+  }
+
+  /**
+   * Adds a value to a map in the given cache, unless the cache was invalidated since the given generation.
+   *
+   * @return the value in the map, which is the given value unless another one was added concurrently
+   */
+  private <V> V cache(Cache<ClassLoader, ConcurrentMap<String, V>> cache, ClassLoader classLoader,
+                      String key, V value, long generation) {
+    synchronized (this) {
+      if (generation != cacheGeneration) {
+        return value;
+      }
+      ConcurrentMap<String, V> values = cache.getIfPresent(classLoader);
+      if (values == null) {
+        values = Maps.newConcurrentMap();
+        cache.put(classLoader, values);
+      }
+      V existing = values.putIfAbsent(key, value);
+      return existing == null ? value : existing;
+    }
+  }
+
+  @Nullable
+  private <V> V getCached(Cache<ClassLoader, ConcurrentMap<String, V>> cache, ClassLoader classLoader, String key) {
+    ConcurrentMap<String, V> values = cache.getIfPresent(classLoader);
+    return values == null ? null : values.get(key);
+  }
+
   private void addModule(String moduleName, Class<?> typeClass) throws DatasetManagementException {
     try {
       File tempFile = File.createTempFile(typeClass.getName(), ".jar");
       try {
         Location tempJarPath = createDeploymentJar(typeClass, new LocalLocationFactory().create(tempFile.toURI()));
         client.addModule(moduleName, typeClass.getName(), tempJarPath);
+        invalidateCache();
       } finally {
         tempFile.delete();
       }
@@ -257,18 +392,40 @@ public class RemoteDatasetFramework implements DatasetFramework {
   public <T extends DatasetType> T getDatasetType(DatasetTypeMeta implementationInfo,
                                                   ClassLoader classLoader)
     throws DatasetManagementException {
+    return getDatasetType(implementationInfo, classLoader, getCacheGeneration());
+  }
 
-
+  private <T extends DatasetType> T getDatasetType(DatasetTypeMeta implementationInfo,
+                                                   @Nullable ClassLoader classLoader, long generation) {
     if (classLoader == null) {
       classLoader = Objects.firstNonNull(Thread.currentThread().getContextClassLoader(), getClass().getClassLoader());
     }
 
+    if (!isCacheEnabled()) {
+      return (T) createDatasetType(implementationInfo, classLoader, -1L);
+    }
+    DatasetType type = getCached(typeCache, classLoader, implementationInfo.getName());
+    if (type == null) {
+      type = cache(typeCache, classLoader, implementationInfo.getName(),
+                   createDatasetType(implementationInfo, classLoader, generation), generation);
+    }
+    return (T) type;
+  }
+
+  /**
+   * Creates a {@link DatasetType} by loading all modules of the type.
+   *
+   * @param generation cache generation before the type metadata was fetched, or {@code -1} to not use the cache of
+   *                   module classloaders
+   */
+  private DatasetType createDatasetType(DatasetTypeMeta implementationInfo, ClassLoader classLoader,
+                                        long generation) {
     DatasetDefinitionRegistry registry = registryFactory.create();
     List<DatasetModuleMeta> modulesToLoad = implementationInfo.getModules();
     for (DatasetModuleMeta moduleMeta : modulesToLoad) {
       // adding dataset module jar to classloader
       try {
-        classLoader = typeLoader.create(moduleMeta, classLoader);
+        classLoader = getModuleClassLoader(moduleMeta, classLoader, generation);
       } catch (IOException e) {
         LOG.error("Was not able to init classloader for module {} while trying to load type {}",
                   moduleMeta, implementationInfo, e);
@@ -300,6 +457,19 @@ public class RemoteDatasetFramework implements DatasetFramework {
       }
     }
 
-    return (T) new DatasetType(registry.get(implementationInfo.getName()), classLoader);
+    return new DatasetType(registry.get(implementationInfo.getName()), classLoader);
+  }
+
+  private ClassLoader getModuleClassLoader(DatasetModuleMeta moduleMeta, ClassLoader parent,
+                                           long generation) throws IOException {
+    if (generation < 0) {
+      return typeLoader.create(moduleMeta, parent);
+    }
+    ClassLoader classLoader = getCached(moduleClassLoaderCache, parent, moduleMeta.getName());
+    if (classLoader == null) {
+      classLoader = cache(moduleClassLoaderCache, parent, moduleMeta.getName(),
+                          typeLoader.create(moduleMeta, parent), generation);
+    }
+    return classLoader;
   }
 }
@@ -17,10 +17,15 @@
 package co.cask.cdap.data2.datafabric.dataset.instance;
 
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.data2.datafabric.dataset.DatasetCacheCoordinator;
 import co.cask.cdap.data2.datafabric.dataset.service.mds.MDSDatasets;
 import co.cask.cdap.data2.datafabric.dataset.service.mds.MDSDatasetsRegistry;
 import co.cask.cdap.data2.dataset2.tx.TxCallable;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 
@@ -28,14 +33,24 @@ import java.util.Collection;
  * Manages dataset instances metadata
  */
 public class DatasetInstanceManager {
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetInstanceManager.class);
 
   private final MDSDatasetsRegistry mdsDatasets;
+  private DatasetCacheCoordinator cacheCoordinator;
 
   @Inject
   public DatasetInstanceManager(MDSDatasetsRegistry mdsDatasets) {
     this.mdsDatasets = mdsDatasets;
   }
 
+  /**
+   * Sets the {@link DatasetCacheCoordinator} for notifying processes that cache dataset metadata about changes.
+   */
+  @Inject(optional = true)
+  public void setCacheCoordinator(DatasetCacheCoordinator cacheCoordinator) {
+    this.cacheCoordinator = cacheCoordinator;
+  }
+
   /**
    * Adds dataset instance metadata
    * @param spec {@link co.cask.cdap.api.dataset.DatasetSpecification} of the dataset instance to be added
@@ -48,6 +63,7 @@ public class DatasetInstanceManager {
         return null;
       }
     });
+    notifyChange();
   }
 
   /**
@@ -81,11 +97,35 @@ public class DatasetInstanceManager {
    * @return true if deletion succeeded, false otherwise
    */
   public boolean delete(final String instanceName) {
-    return mdsDatasets.executeUnchecked(new TxCallable<MDSDatasets, Boolean>() {
+    boolean deleted = mdsDatasets.executeUnchecked(new TxCallable<MDSDatasets, Boolean>() {
       @Override
       public Boolean call(MDSDatasets datasets) throws Exception {
         return datasets.getInstanceMDS().delete(instanceName);
       }
     });
+    if (deleted) {
+      notifyChange();
+    }
+    return deleted;
+  }
+
+  /**
+   * Notifies processes that cache dataset metadata about a change of dataset instances.
+   */
+  private void notifyChange() {
+    if (cacheCoordinator == null) {
+      return;
+    }
+    Futures.addCallback(cacheCoordinator.invalidate(), new FutureCallback<Long>() {
+      @Override
+      public void onSuccess(Long generation) {
+        // no-op
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        LOG.warn("Failed to notify dataset instance change", t);
+      }
+    });
   }
 }
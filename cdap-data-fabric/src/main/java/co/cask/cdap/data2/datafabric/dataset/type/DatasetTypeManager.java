@@ -24,6 +24,7 @@ import co.cask.cdap.common.lang.ApiResourceListHolder;
 import co.cask.cdap.common.lang.ClassLoaders;
 import co.cask.cdap.common.lang.jar.BundleJarUtil;
 import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.data2.datafabric.dataset.DatasetCacheCoordinator;
 import co.cask.cdap.data2.datafabric.dataset.service.mds.MDSDatasets;
 import co.cask.cdap.data2.datafabric.dataset.service.mds.MDSDatasetsRegistry;
 import co.cask.cdap.data2.dataset2.InMemoryDatasetDefinitionRegistry;
@@ -41,6 +42,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import org.apache.twill.filesystem.Location;
@@ -67,6 +70,7 @@ public class DatasetTypeManager extends AbstractIdleService {
   private final LocationFactory locationFactory;
 
   private final Map<String, DatasetModule> defaultModules;
+  private DatasetCacheCoordinator cacheCoordinator;
 
   @Inject
   public DatasetTypeManager(MDSDatasetsRegistry mdsDatasets,
@@ -78,6 +82,14 @@ public class DatasetTypeManager extends AbstractIdleService {
     this.defaultModules = Maps.newLinkedHashMap(defaultModules);
   }
 
+  /**
+   * Sets the {@link DatasetCacheCoordinator} for notifying processes that cache dataset metadata about changes.
+   */
+  @Inject(optional = true)
+  public void setCacheCoordinator(DatasetCacheCoordinator cacheCoordinator) {
+    this.cacheCoordinator = cacheCoordinator;
+  }
+
   @Override
   protected void startUp() throws Exception {
     deployDefaultModules();
@@ -164,6 +176,7 @@ public class DatasetTypeManager extends AbstractIdleService {
           return null;
         }
       });
+      notifyChange();
 
     } catch (TransactionFailureException e) {
       Throwable cause = e.getCause();
@@ -245,7 +258,7 @@ public class DatasetTypeManager extends AbstractIdleService {
   public boolean deleteModule(final String name) throws DatasetModuleConflictException {
     LOG.info("Deleting module {}", name);
     try {
-      return mdsDatasets.execute(new TxCallable<MDSDatasets, Boolean>() {
+      boolean deleted = mdsDatasets.execute(new TxCallable<MDSDatasets, Boolean>() {
         @Override
         public Boolean call(MDSDatasets datasets) throws DatasetModuleConflictException {
           DatasetModuleMeta module = datasets.getTypeMDS().getModule(name);
@@ -282,6 +295,10 @@ public class DatasetTypeManager extends AbstractIdleService {
           return true;
         }
       });
+      if (deleted) {
+        notifyChange();
+      }
+      return deleted;
     } catch (TransactionFailureException e) {
       if (e.getCause() != null && e.getCause() instanceof DatasetModuleConflictException) {
         throw (DatasetModuleConflictException) e.getCause();
@@ -327,6 +344,7 @@ public class DatasetTypeManager extends AbstractIdleService {
           return null;
         }
       });
+      notifyChange();
     } catch (TransactionFailureException e) {
       if (e.getCause() != null && e.getCause() instanceof DatasetModuleConflictException) {
         throw (DatasetModuleConflictException) e.getCause();
@@ -412,4 +430,24 @@ public class DatasetTypeManager extends AbstractIdleService {
       return datasets.getTypeMDS().getType(datasetTypeName) != null;
     }
   }
+
+  /**
+   * Notifies processes that cache dataset metadata about a change of dataset modules.
+   */
+  private void notifyChange() {
+    if (cacheCoordinator == null) {
+      return;
+    }
+    Futures.addCallback(cacheCoordinator.invalidate(), new FutureCallback<Long>() {
+      @Override
+      public void onSuccess(Long generation) {
+        // no-op
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        LOG.warn("Failed to notify dataset module change", t);
+      }
+    });
+  }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Scan;
+import co.cask.cdap.common.utils.ImmutablePair;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import javax.annotation.Nullable;
+
+/**
+ * Evaluates the restrictions of a {@link Scan} on rows read from a table. Table implementations use it to apply
+ * whatever part of the {@link Scan} cannot be pushed down to the underlying storage.
+ */
+public final class ScanFilter {
+
+  private final NavigableSet<byte[]> columns;
+  private final byte[] startColumn;
+  private final byte[] stopColumn;
+  private final NavigableMap<byte[], byte[]> valueFilters;
+  private final FuzzyRowFilter fuzzyRowFilter;
+  private final int limit;
+
+  public ScanFilter(Scan scan) {
+    if (scan.getColumns().isEmpty()) {
+      this.columns = null;
+    } else {
+      this.columns = Sets.newTreeSet(Bytes.BYTES_COMPARATOR);
+      this.columns.addAll(scan.getColumns());
+    }
+    this.startColumn = scan.getStartColumn();
+    this.stopColumn = scan.getStopColumn();
+    this.valueFilters = scan.getValueFilters();
+
+    List<Map.Entry<byte[], byte[]>> fuzzyKeys = scan.getFuzzyKeys();
+    if (fuzzyKeys.isEmpty()) {
+      this.fuzzyRowFilter = null;
+    } else {
+      List<ImmutablePair<byte[], byte[]>> fuzzyKeysData = Lists.newArrayListWithCapacity(fuzzyKeys.size());
+      for (Map.Entry<byte[], byte[]> fuzzyKey : fuzzyKeys) {
+        fuzzyKeysData.add(ImmutablePair.of(fuzzyKey.getKey(), fuzzyKey.getValue()));
+      }
+      this.fuzzyRowFilter = new FuzzyRowFilter(fuzzyKeysData);
+    }
+    this.limit = scan.getLimit();
+  }
+
+  /**
+   * Returns the {@link FuzzyRowFilter} for the fuzzy keys of the scan, or {@code null} if there is none.
+   */
+  @Nullable
+  public FuzzyRowFilter getFuzzyRowFilter() {
+    return fuzzyRowFilter;
+  }
+
+  /**
+   * Returns the columns that need to be read to evaluate this filter, which includes the columns checked by value
+   * filters, or {@code null} if all columns are needed. Columns are sorted.
+   */
+  @Nullable
+  public byte[][] getColumnsToFetch() {
+    if (columns == null) {
+      return null;
+    }
+    NavigableSet<byte[]> toFetch = Sets.newTreeSet(Bytes.BYTES_COMPARATOR);
+    toFetch.addAll(columns);
+    toFetch.addAll(valueFilters.keySet());
+    return toFetch.toArray(new byte[toFetch.size()][]);
+  }
+
+  /**
+   * Returns the lower bound of the column range, or {@code null} if there is none.
+   */
+  @Nullable
+  public byte[] getStartColumn() {
+    return startColumn;
+  }
+
+  /**
+   * Returns the upper bound of the column range, or {@code null} if there is none.
+   */
+  @Nullable
+  public byte[] getStopColumn() {
+    return stopColumn;
+  }
+
+  public boolean hasColumnRange() {
+    return startColumn != null || stopColumn != null;
+  }
+
+  public boolean hasValueFilters() {
+    return !valueFilters.isEmpty();
+  }
+
+  /**
+   * Returns the maximum number of rows to return.
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Applies this filter to the given row.
+   *
+   * @param row the row key
+   * @param columns all columns read for the row, which has to include the columns returned by
+   *                {@link #getColumnsToFetch()}
+   * @return the columns to return for the row, or {@code null} if the row should not be returned
+   */
+  @Nullable
+  public NavigableMap<byte[], byte[]> apply(byte[] row, NavigableMap<byte[], byte[]> columns) {
+    if (fuzzyRowFilter != null && fuzzyRowFilter.filterRow(row) != FuzzyRowFilter.ReturnCode.INCLUDE) {
+      return null;
+    }
+    for (Map.Entry<byte[], byte[]> valueFilter : valueFilters.entrySet()) {
+      if (!Bytes.equals(valueFilter.getValue(), columns.get(valueFilter.getKey()))) {
+        return null;
+      }
+    }
+
+    NavigableMap<byte[], byte[]> result = columns;
+    if (hasColumnRange()) {
+      if (startColumn == null) {
+        result = result.headMap(stopColumn, false);
+      } else if (stopColumn == null) {
+        result = result.tailMap(startColumn, true);
+      } else {
+        result = result.subMap(startColumn, true, stopColumn, false);
+      }
+    }
+    if (this.columns != null) {
+      NavigableMap<byte[], byte[]> selected = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], byte[]> entry : result.entrySet()) {
+        if (this.columns.contains(entry.getKey())) {
+          selected.put(entry.getKey(), entry.getValue());
+        }
+      }
+      result = selected;
+    }
+    return result.isEmpty() ? null : result;
+  }
+}
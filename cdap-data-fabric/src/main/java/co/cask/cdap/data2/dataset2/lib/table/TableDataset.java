@@ -29,11 +29,13 @@ import co.cask.cdap.api.dataset.table.OrderedTable;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.dataset.table.TableSplit;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,6 +105,21 @@ class TableDataset extends AbstractDataset implements Table {
       get(get.getRow(), get.getColumns().toArray(new byte[get.getColumns().size()][]));
   }
 
+  @Override
+  public List<Row> get(List<Get> gets) {
+    try {
+      List<Map<byte[], byte[]>> results = table.get(gets);
+      List<Row> rows = Lists.newArrayListWithCapacity(results.size());
+      for (int i = 0; i < results.size(); i++) {
+        rows.add(new Result(gets.get(i).getRow(), results.get(i)));
+      }
+      return rows;
+    } catch (Exception e) {
+      LOG.debug("get failed for table: " + getTransactionAwareName() + ", number of gets: " + gets.size(), e);
+      throw new DataSetException("get failed", e);
+    }
+  }
+
   @Override
   public void put(byte[] row, byte[][] columns, byte[][] values) {
     try {
@@ -282,6 +299,16 @@ class TableDataset extends AbstractDataset implements Table {
     }
   }
 
+  @Override
+  public Scanner scan(Scan scan) {
+    try {
+      return table.scan(scan);
+    } catch (Exception e) {
+      LOG.debug("scan failed for table: " + getTransactionAwareName(), e);
+      throw new DataSetException("scan failed", e);
+    }
+  }
+
   @Override
   public void write(byte[] key, Put put) {
     put(put);
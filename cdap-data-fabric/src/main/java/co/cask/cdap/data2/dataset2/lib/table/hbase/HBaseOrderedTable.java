@@ -19,6 +19,7 @@ package co.cask.cdap.data2.dataset2.lib.table.hbase;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilter;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.BufferingOrderedTable;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.IncrementValue;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.PutValue;
@@ -37,6 +38,11 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FuzzyRowFilter;
+import org.apache.hadoop.hbase.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -178,6 +184,24 @@ public class HBaseOrderedTable extends BufferingOrderedTable {
     return getInternal(row, columns);
   }
 
+  @Override
+  protected List<NavigableMap<byte[], byte[]>> getPersisted(List<co.cask.cdap.api.dataset.table.Get> gets)
+    throws Exception {
+
+    // fetching all rows in one batch to save round trips to region servers
+    List<Get> hGets = Lists.newArrayListWithCapacity(gets.size());
+    for (co.cask.cdap.api.dataset.table.Get get : gets) {
+      hGets.add(createGet(get.getRow(), getColumns(get)));
+    }
+
+    Result[] results = hTable.get(hGets);
+    List<NavigableMap<byte[], byte[]>> rows = Lists.newArrayListWithCapacity(results.length);
+    for (Result result : results) {
+      rows.add(toRowMap(result));
+    }
+    return rows;
+  }
+
   @Override
   protected Scanner scanPersisted(byte[] startRow, byte[] stopRow) throws Exception {
     Scan scan = new Scan();
@@ -200,7 +224,63 @@ public class HBaseOrderedTable extends BufferingOrderedTable {
     return new HBaseScanner(resultScanner);
   }
 
+  @Override
+  protected Scanner scanPersisted(co.cask.cdap.api.dataset.table.Scan scan) throws Exception {
+    ScanFilter scanFilter = new ScanFilter(scan);
+
+    Scan hScan = new Scan();
+    // todo: should be configurable
+    // NOTE: by default we assume scanner is used in mapreduce job, hence no cache blocks
+    hScan.setCacheBlocks(false);
+    hScan.setCaching(Math.min(1000, scanFilter.getLimit()));
+
+    if (scan.getStartRow() != null) {
+      hScan.setStartRow(scan.getStartRow());
+    }
+    if (scan.getStopRow() != null) {
+      hScan.setStopRow(scan.getStopRow());
+    }
+
+    // only columns needed are fetched from region servers
+    byte[][] columns = scanFilter.getColumnsToFetch();
+    if (columns == null) {
+      hScan.addFamily(HBaseOrderedTableAdmin.DATA_COLUMN_FAMILY);
+    } else {
+      for (byte[] column : columns) {
+        hScan.addColumn(HBaseOrderedTableAdmin.DATA_COLUMN_FAMILY, column);
+      }
+    }
+
+    // Column range and row key filters are evaluated by region servers. Value filters are evaluated by the scanner,
+    // since only the client can tell the latest visible value of a column within the transaction.
+    List<Filter> filters = Lists.newArrayList();
+    if (scanFilter.hasColumnRange() && !scanFilter.hasValueFilters()) {
+      filters.add(new ColumnRangeFilter(scanFilter.getStartColumn(), true, scanFilter.getStopColumn(), false));
+    }
+    if (!scan.getFuzzyKeys().isEmpty()) {
+      List<Pair<byte[], byte[]>> fuzzyPairs = Lists.newArrayListWithCapacity(scan.getFuzzyKeys().size());
+      for (Map.Entry<byte[], byte[]> fuzzyKey : scan.getFuzzyKeys()) {
+        fuzzyPairs.add(Pair.newPair(fuzzyKey.getKey(), fuzzyKey.getValue()));
+      }
+      filters.add(new FuzzyRowFilter(fuzzyPairs));
+    }
+    if (filters.size() == 1) {
+      hScan.setFilter(filters.get(0));
+    } else if (filters.size() > 1) {
+      hScan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, filters));
+    }
+
+    txCodec.addToOperation(hScan, tx);
+
+    ResultScanner resultScanner = hTable.getScanner(hScan);
+    return new HBaseScanner(resultScanner, scanFilter);
+  }
+
   private NavigableMap<byte[], byte[]> getInternal(byte[] row, @Nullable byte[][] columns) throws IOException {
+    return toRowMap(hTable.get(createGet(row, columns)));
+  }
+
+  private Get createGet(byte[] row, @Nullable byte[][] columns) throws IOException {
     Get get = new Get(row);
     // todo: uncomment when doing caching fetching data in-memory
     // get.setCacheBlocks(false);
@@ -214,13 +294,17 @@ public class HBaseOrderedTable extends BufferingOrderedTable {
     // no tx logic needed
     if (tx == null) {
       get.setMaxVersions(1);
-      Result result = hTable.get(get);
-      return result.isEmpty() ? EMPTY_ROW_MAP : result.getFamilyMap(HBaseOrderedTableAdmin.DATA_COLUMN_FAMILY);
+    } else {
+      txCodec.addToOperation(get, tx);
     }
+    return get;
+  }
 
-    txCodec.addToOperation(get, tx);
-
-    Result result = hTable.get(get);
+  private NavigableMap<byte[], byte[]> toRowMap(Result result) {
+    // no tx logic needed
+    if (tx == null) {
+      return result.isEmpty() ? EMPTY_ROW_MAP : result.getFamilyMap(HBaseOrderedTableAdmin.DATA_COLUMN_FAMILY);
+    }
     return getRowMap(result);
   }
 
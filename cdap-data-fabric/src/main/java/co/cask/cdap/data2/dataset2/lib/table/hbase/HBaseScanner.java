@@ -18,12 +18,13 @@ package co.cask.cdap.data2.dataset2.lib.table.hbase;
 
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilter;
 import com.google.common.base.Throwables;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 
 import java.io.IOException;
-import java.util.Map;
+import java.util.NavigableMap;
 
 /**
  * Implements Scanner on top of HBase resultSetScanner.
@@ -31,14 +32,27 @@ import java.util.Map;
 public class HBaseScanner implements Scanner {
 
   private final ResultScanner scanner;
+  private final ScanFilter scanFilter;
+  private int rowsLeft;
 
   public HBaseScanner(ResultScanner scanner) {
     this.scanner = scanner;
+    this.scanFilter = null;
+    this.rowsLeft = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Creates a scanner that applies the given {@link ScanFilter} to the rows returned by region servers.
+   */
+  public HBaseScanner(ResultScanner scanner, ScanFilter scanFilter) {
+    this.scanner = scanner;
+    this.scanFilter = scanFilter;
+    this.rowsLeft = scanFilter.getLimit();
   }
 
   @Override
   public Row next() {
-    if (scanner == null) {
+    if (scanner == null || rowsLeft <= 0) {
       return null;
     }
 
@@ -51,8 +65,15 @@ public class HBaseScanner implements Scanner {
           break;
         }
 
-        Map<byte[], byte[]> rowMap = HBaseOrderedTable.getRowMap(result);
+        NavigableMap<byte[], byte[]> rowMap = HBaseOrderedTable.getRowMap(result);
+        if (scanFilter != null && rowMap.size() > 0) {
+          rowMap = scanFilter.apply(result.getRow(), rowMap);
+          if (rowMap == null) {
+            continue;
+          }
+        }
         if (rowMap.size() > 0) {
+          rowsLeft--;
           return new co.cask.cdap.api.dataset.table.Result(result.getRow(), rowMap);
         }
       }
@@ -18,7 +18,9 @@ package co.cask.cdap.data2.dataset2.lib.table.inmemory;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilter;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.BufferingOrderedTable;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.Update;
 import co.cask.tephra.Transaction;
@@ -97,6 +99,17 @@ public class InMemoryOrderedTable extends BufferingOrderedTable {
     return new InMemoryScanner(rows.entrySet().iterator());
   }
 
+  @Override
+  protected Scanner scanPersisted(Scan scan) {
+    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rowRange =
+      InMemoryOrderedTableService.getRowRange(getTableName(), scan.getStartRow(), scan.getStopRow(),
+                                              tx == null ? null : tx.getReadPointer());
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> visibleRowRange = getLatestNotExcludedRows(rowRange, tx);
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> rows = unwrapDeletesForRows(visibleRowRange);
+
+    return new InMemoryScanner(rows.entrySet().iterator(), new ScanFilter(scan));
+  }
+
   private NavigableMap<byte[], byte[]> getInternal(byte[] row, @Nullable byte[][] columns) throws IOException {
     // no tx logic needed
     if (tx == null) {
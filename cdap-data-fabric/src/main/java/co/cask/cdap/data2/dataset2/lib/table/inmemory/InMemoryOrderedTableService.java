@@ -32,70 +32,78 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nullable;
 
 /**
  * Holds all in-memory tables for {@link InMemoryOrderedTable}.
+ * <p>
+ * Tables are independent of each other. Within a table, rows, columns and versions are kept in concurrent sorted maps,
+ * so reads never block. Modifications of a row are serialized with a striped lock on the row, hence modifications
+ * of different rows proceed in parallel.
  */
-// todo: use locks instead of synchronize
 // todo: consider using SortedMap instead of NavigableMap in APIs
 public class InMemoryOrderedTableService {
-  private static Map<String, ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>>> tables =
-    Maps.newHashMap();
 
-  public static synchronized boolean exists(String tableName) {
+  // number of locks used for modifications of rows, has to be power of 2
+  private static final int ROW_LOCKS = 1024;
+
+  private static final ConcurrentMap<String, ConcurrentNavigableMap<byte[], NavigableMap<byte[],
+    NavigableMap<Long, Update>>>> tables = Maps.newConcurrentMap();
+
+  private static final Lock[] rowLocks = createRowLocks(ROW_LOCKS);
+
+  public static boolean exists(String tableName) {
     return tables.containsKey(tableName);
   }
 
-  public static synchronized void create(String tableName) {
-    if (!tables.containsKey(tableName)) {
-      tables.put(tableName, new ConcurrentSkipListMap<byte[],
-        NavigableMap<byte[], NavigableMap<Long, Update>>>(Bytes.BYTES_COMPARATOR));
-    }
+  public static void create(String tableName) {
+    tables.putIfAbsent(tableName, new ConcurrentSkipListMap<byte[],
+      NavigableMap<byte[], NavigableMap<Long, Update>>>(Bytes.BYTES_COMPARATOR));
   }
 
-  public static synchronized void truncate(String tableName) {
+  public static void truncate(String tableName) {
     tables.get(tableName).clear();
   }
 
-  public static synchronized void drop(String tableName) {
+  public static void drop(String tableName) {
     tables.remove(tableName);
   }
 
-  public static synchronized void reset() {
+  public static void reset() {
     tables.clear();
   }
 
   // no nulls
-  public static synchronized void merge(String tableName,
-                                        NavigableMap<byte[], ? extends NavigableMap<byte[], ? extends Update>> changes,
-                                        long version) {
+  public static void merge(String tableName,
+                           NavigableMap<byte[], ? extends NavigableMap<byte[], ? extends Update>> changes,
+                           long version) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     NavigableMap<byte[], NavigableMap<byte[], Update>> changesCopy = deepCopyUpdates(changes);
     for (Map.Entry<byte[], NavigableMap<byte[], Update>> change : changesCopy.entrySet()) {
-      merge(table, change.getKey(), change.getValue(), version);
+      Lock lock = getRowLock(tableName, change.getKey());
+      lock.lock();
+      try {
+        merge(table, change.getKey(), change.getValue(), version);
+      } finally {
+        lock.unlock();
+      }
     }
   }
 
   private static void merge(ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table,
                             byte[] row, Map<byte[], Update> changes, long version) {
     // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    if (rowMap == null) {
-      rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      table.put(row, rowMap);
-    }
+    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = getOrCreateRow(table, row);
     // now merge the changes into the row, one by one
     for (Map.Entry<byte[], Update> keyVal : changes.entrySet()) {
       // create the column in the row if it does not exist
-      NavigableMap<Long, Update> colMap = rowMap.get(keyVal.getKey());
-      if (colMap == null) {
-        colMap = Maps.newTreeMap();
-        rowMap.put(keyVal.getKey(), colMap);
-      }
+      NavigableMap<Long, Update> colMap = getOrCreateColumn(rowMap, keyVal.getKey());
       // put into the column with given version
       Update merged = Updates.mergeUpdates(colMap.get(version), keyVal.getValue());
       colMap.put(version, merged);
@@ -104,108 +112,121 @@ public class InMemoryOrderedTableService {
 
   // todo: remove it from here: only used by "system" metrics table, which should be revised
   @Deprecated
-  public static synchronized Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
+  public static Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
     Map<byte[], Long> resultMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    if (rowMap == null) {
-      rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      table.put(row, rowMap);
-    }
-    // now increment each column, one by one
-    long versionForWrite = System.currentTimeMillis();
-    for (Map.Entry<byte[], Long> inc : increments.entrySet()) {
-      IncrementValue increment = new IncrementValue(inc.getValue());
-      // create the column in the row if it does not exist
-      NavigableMap<Long, Update> colMap = rowMap.get(inc.getKey());
-      Update last = null;
-      if (colMap == null) {
-        colMap = Maps.newTreeMap();
-        rowMap.put(inc.getKey(), colMap);
-      } else {
-        last = colMap.lastEntry().getValue();
+    Lock lock = getRowLock(tableName, row);
+    lock.lock();
+    try {
+      // get the correct row from the table, create it if it doesn't exist
+      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = getOrCreateRow(table, row);
+      // now increment each column, one by one
+      long versionForWrite = System.currentTimeMillis();
+      for (Map.Entry<byte[], Long> inc : increments.entrySet()) {
+        IncrementValue increment = new IncrementValue(inc.getValue());
+        // create the column in the row if it does not exist
+        NavigableMap<Long, Update> colMap = getOrCreateColumn(rowMap, inc.getKey());
+        Map.Entry<Long, Update> lastEntry = colMap.lastEntry();
+        Update last = lastEntry == null ? null : lastEntry.getValue();
+        Update merged = Updates.mergeUpdates(last, increment);
+        // put into the column with given version
+        long newValue = Bytes.toLong(merged.getBytes());
+        resultMap.put(inc.getKey(), newValue);
+        colMap.put(versionForWrite, merged);
       }
-      Update merged = Updates.mergeUpdates(last, increment);
-      // put into the column with given version
-      long newValue = Bytes.toLong(merged.getBytes());
-      resultMap.put(inc.getKey(), newValue);
-      colMap.put(versionForWrite, merged);
+    } finally {
+      lock.unlock();
     }
     return resultMap;
   }
 
-  public static synchronized boolean swap(String tableName, byte[] row, byte[] column,
-                                          byte[] oldValue, byte[] newValue) {
+  public static boolean swap(String tableName, byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    Update existingValue = null;
-    if (rowMap != null) {
-      NavigableMap<Long, Update> columnMap = rowMap.get(column);
-      if (columnMap != null) {
-        existingValue = columnMap.lastEntry().getValue();
-      }
-    }
-    // verify existing value matches
-    if (oldValue == null && existingValue != null) {
-      return false;
-    }
-    if (oldValue != null && (existingValue == null || !Bytes.equals(oldValue, existingValue.getBytes()))) {
-      return false;
-    }
-    // write new value
-    if (newValue == null) {
+    Lock lock = getRowLock(tableName, row);
+    lock.lock();
+    try {
+      // get the correct row from the table, create it if it doesn't exist
+      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
+      Update existingValue = null;
       if (rowMap != null) {
-        rowMap.remove(column);
+        NavigableMap<Long, Update> columnMap = rowMap.get(column);
+        if (columnMap != null && !columnMap.isEmpty()) {
+          existingValue = columnMap.lastEntry().getValue();
+        }
       }
-    } else {
-      if (rowMap == null) {
-        rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        table.put(row, rowMap);
+      // verify existing value matches
+      if (oldValue == null && existingValue != null) {
+        return false;
+      }
+      if (oldValue != null && (existingValue == null || !Bytes.equals(oldValue, existingValue.getBytes()))) {
+        return false;
       }
-      NavigableMap<Long, Update> columnMap = rowMap.get(column);
-      if (columnMap == null) {
-        columnMap = Maps.newTreeMap();
-        rowMap.put(column, columnMap);
+      // write new value
+      if (newValue == null) {
+        if (rowMap != null) {
+          rowMap.remove(column);
+        }
+      } else {
+        rowMap = getOrCreateRow(table, row);
+        NavigableMap<Long, Update> columnMap = getOrCreateColumn(rowMap, column);
+        PutValue newPut = new PutValue(newValue);
+        columnMap.put(System.currentTimeMillis(), newPut);
       }
-      PutValue newPut = new PutValue(newValue);
-      columnMap.put(System.currentTimeMillis(), newPut);
+      return true;
+    } finally {
+      lock.unlock();
     }
-    return true;
   }
 
-  public static synchronized void undo(String tableName,
-                                       NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
-                                       long version) {
+  public static void undo(String tableName, NavigableMap<byte[], NavigableMap<byte[], Update>> changes, long version) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     for (Map.Entry<byte[], NavigableMap<byte[], Update>> change : changes.entrySet()) {
       byte[] row = change.getKey();
-      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-      if (rowMap != null) {
-        for (byte[] column : change.getValue().keySet()) {
-          NavigableMap<Long, Update> values = rowMap.get(column);
-          values.remove(version);
+      Lock lock = getRowLock(tableName, row);
+      lock.lock();
+      try {
+        NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
+        if (rowMap != null) {
+          for (byte[] column : change.getValue().keySet()) {
+            NavigableMap<Long, Update> values = rowMap.get(column);
+            if (values != null) {
+              values.remove(version);
+            }
+          }
         }
+      } finally {
+        lock.unlock();
       }
     }
   }
 
-  public static synchronized void delete(String tableName, Iterable<byte[]> rows) {
+  public static void delete(String tableName, Iterable<byte[]> rows) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     for (byte[] row : rows) {
-      table.remove(row);
+      Lock lock = getRowLock(tableName, row);
+      lock.lock();
+      try {
+        table.remove(row);
+      } finally {
+        lock.unlock();
+      }
     }
   }
 
-  public static synchronized void deleteColumns(String tableName, byte[] row, byte[] column) {
+  public static void deleteColumns(String tableName, byte[] row, byte[] column) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    NavigableMap<byte[], NavigableMap<Long, Update>> columnValues = table.get(row);
-    columnValues.remove(column);
+    Lock lock = getRowLock(tableName, row);
+    lock.lock();
+    try {
+      NavigableMap<byte[], NavigableMap<Long, Update>> columnValues = table.get(row);
+      columnValues.remove(column);
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public static synchronized void delete(String tableName, byte[] rowPrefix) {
+  public static void delete(String tableName, byte[] rowPrefix) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     if (rowPrefix.length == 0) {
       table.clear();
@@ -236,22 +257,29 @@ public class InMemoryOrderedTableService {
     return null;
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName,
-                                                                                  byte[] row,
-                                                                                  Long version) {
+  public static NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName, byte[] row, Long version) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     Preconditions.checkArgument(table != null, "table not found: " + tableName);
     assert table != null;
     NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    return deepCopy(Updates.rowToBytes(getVisible(rowMap, version)));
+    if (rowMap == null) {
+      return null;
+    }
+    // reading the row under the lock, so that modifications of the row are seen atomically
+    Lock lock = getRowLock(tableName, row);
+    lock.lock();
+    try {
+      return deepCopy(Updates.rowToBytes(getVisible(rowMap, version)));
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
-                             getRowRange(String tableName,
-                                         byte[] startRow,
-                                         byte[] stopRow,
-                                         Long version) {
+  public static NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getRowRange(String tableName,
+                                                                                                   byte[] startRow,
+                                                                                                   byte[] stopRow,
+                                                                                                   Long version) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> tableData = tables.get(tableName);
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rows;
@@ -268,18 +296,66 @@ public class InMemoryOrderedTableService {
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> result =
       Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     for (Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rowMap : rows.entrySet()) {
-      NavigableMap<byte[], NavigableMap<Long, Update>> columns =
-        version == null ? rowMap.getValue() : getVisible(rowMap.getValue(), version);
-      result.put(copy(rowMap.getKey()), deepCopy(Updates.rowToBytes(columns)));
+      // each row is read under its lock, so that modifications of a row are seen atomically
+      Lock lock = getRowLock(tableName, rowMap.getKey());
+      lock.lock();
+      try {
+        NavigableMap<byte[], NavigableMap<Long, Update>> columns =
+          version == null ? rowMap.getValue() : getVisible(rowMap.getValue(), version);
+        result.put(copy(rowMap.getKey()), deepCopy(Updates.rowToBytes(columns)));
+      } finally {
+        lock.unlock();
+      }
     }
 
     return result;
   }
 
-  public static synchronized Collection<String> list() {
+  public static Collection<String> list() {
     return ImmutableList.copyOf(tables.keySet());
   }
 
+  private static NavigableMap<byte[], NavigableMap<Long, Update>> getOrCreateRow(
+    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table, byte[] row) {
+
+    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
+    if (rowMap == null) {
+      rowMap = new ConcurrentSkipListMap<byte[], NavigableMap<Long, Update>>(Bytes.BYTES_COMPARATOR);
+      NavigableMap<byte[], NavigableMap<Long, Update>> existing = table.putIfAbsent(row, rowMap);
+      if (existing != null) {
+        rowMap = existing;
+      }
+    }
+    return rowMap;
+  }
+
+  private static NavigableMap<Long, Update> getOrCreateColumn(NavigableMap<byte[], NavigableMap<Long, Update>> rowMap,
+                                                             byte[] column) {
+    // only called with the row lock held, hence no need for atomic creation
+    NavigableMap<Long, Update> colMap = rowMap.get(column);
+    if (colMap == null) {
+      colMap = new ConcurrentSkipListMap<Long, Update>();
+      rowMap.put(column, colMap);
+    }
+    return colMap;
+  }
+
+  private static Lock getRowLock(String tableName, byte[] row) {
+    int hash = 31 * tableName.hashCode() + Bytes.hashCode(row);
+    // spread the higher bits, as only the lower bits are used to pick the lock
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return rowLocks[hash & (rowLocks.length - 1)];
+  }
+
+  private static Lock[] createRowLocks(int size) {
+    Lock[] locks = new Lock[size];
+    for (int i = 0; i < size; i++) {
+      locks[i] = new ReentrantLock();
+    }
+    return locks;
+  }
+
   private static NavigableMap<byte[], NavigableMap<Long, Update>> getVisible(
     NavigableMap<byte[], NavigableMap<Long, Update>> rowMap, Long version) {
 
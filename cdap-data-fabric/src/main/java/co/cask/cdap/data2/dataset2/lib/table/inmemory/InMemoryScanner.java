@@ -21,6 +21,7 @@ import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilter;
 import com.google.common.collect.Sets;
 
 import java.util.Collections;
@@ -38,15 +39,27 @@ public class InMemoryScanner implements Scanner {
   private final Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows;
   private final Set<byte[]> columnsToInclude;
   private final FuzzyRowFilter filter;
+  private final ScanFilter scanFilter;
+  private int rowsLeft;
 
   public InMemoryScanner(Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows) {
     this(rows, null, null);
   }
 
+  public InMemoryScanner(Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows, ScanFilter scanFilter) {
+    this.rows = rows;
+    this.filter = scanFilter.getFuzzyRowFilter();
+    this.columnsToInclude = null;
+    this.scanFilter = scanFilter;
+    this.rowsLeft = scanFilter.getLimit();
+  }
+
   public InMemoryScanner(Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows, FuzzyRowFilter filter,
                          byte[][] columnsToInclude) {
     this.rows = rows;
     this.filter = filter;
+    this.scanFilter = null;
+    this.rowsLeft = Integer.MAX_VALUE;
     if (columnsToInclude != null) {
       this.columnsToInclude = Sets.newTreeSet(Bytes.BYTES_COMPARATOR);
       Collections.addAll(this.columnsToInclude, columnsToInclude);
@@ -57,6 +70,9 @@ public class InMemoryScanner implements Scanner {
 
   @Override
   public Row next() {
+    if (rowsLeft <= 0) {
+      return null;
+    }
     Map<byte[], byte[]> columns = new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR);
     Map.Entry<byte[], NavigableMap<byte[], byte[]>> rowEntry = null;
 
@@ -70,6 +86,13 @@ public class InMemoryScanner implements Scanner {
           continue; // this row does not match filter, move to next row
         }
       }
+      if (scanFilter != null) {
+        NavigableMap<byte[], byte[]> filtered = scanFilter.apply(rowEntry.getKey(), rowEntry.getValue());
+        if (filtered != null) {
+          columns.putAll(filtered);
+        }
+        continue;
+      }
       //Try to read all columns for this row
       for (Map.Entry<byte[], byte[]> colEntry : rowEntry.getValue().entrySet()) {
         if (columnsToInclude == null || columnsToInclude.contains(colEntry.getKey())) {
@@ -79,6 +102,7 @@ public class InMemoryScanner implements Scanner {
     }
     if (columns.size() > 0) {
       assert rowEntry != null;
+      rowsLeft--;
       return new Result(rowEntry.getKey(), columns);
     } else {
       return null;
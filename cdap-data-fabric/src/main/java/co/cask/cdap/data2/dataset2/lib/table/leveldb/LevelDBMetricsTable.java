@@ -53,7 +53,8 @@ public class LevelDBMetricsTable implements MetricsTable {
   }
 
   @Override
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws Exception {
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws Exception {
+    // The core locks the row, hence swaps on different rows are not serialized
     return core.swap(row, column, oldValue, newValue);
   }
 
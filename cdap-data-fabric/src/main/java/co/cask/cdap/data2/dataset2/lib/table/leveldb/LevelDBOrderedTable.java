@@ -18,6 +18,8 @@ package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Get;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.BufferingOrderedTable;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.IncrementValue;
@@ -27,6 +29,7 @@ import co.cask.tephra.Transaction;
 import com.google.common.collect.Maps;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import javax.annotation.Nullable;
@@ -101,6 +104,11 @@ public class LevelDBOrderedTable extends BufferingOrderedTable {
     return core.getRow(row, columns, null, null, columns == null ? Integer.MAX_VALUE : columns.length, tx);
   }
 
+  @Override
+  protected List<NavigableMap<byte[], byte[]>> getPersisted(List<Get> gets) throws Exception {
+    return core.getRows(gets, tx);
+  }
+
   @Override
   protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[] startColumn, byte[] stopColumn, int limit)
     throws Exception {
@@ -111,4 +119,9 @@ public class LevelDBOrderedTable extends BufferingOrderedTable {
   protected Scanner scanPersisted(byte[] startRow, byte[] stopRow) throws Exception {
     return core.scan(startRow, stopRow, null, null, tx);
   }
+
+  @Override
+  protected Scanner scanPersisted(Scan scan) throws Exception {
+    return core.scan(scan, tx);
+  }
 }
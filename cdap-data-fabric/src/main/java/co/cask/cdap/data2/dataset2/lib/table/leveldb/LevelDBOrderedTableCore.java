@@ -17,16 +17,20 @@
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilter;
 import co.cask.tephra.Transaction;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
@@ -40,8 +44,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 
 /**
@@ -92,47 +98,62 @@ public class LevelDBOrderedTableCore {
   }
 
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
-    byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
-    // verify
-    if (oldValue == null && existing != null) {
-      return false;
-    }
-    if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
-      return false;
-    }
-    // write
-    if (newValue == null) {
-      // to-do
-      deleteColumn(row, column);
-    } else {
-      persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), System.currentTimeMillis());
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+    Lock lock = service.getRowLock(tableName, row);
+    lock.lock();
+    try {
+      byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
+      // verify
+      if (oldValue == null && existing != null) {
+        return false;
+      }
+      if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
+        return false;
+      }
+      // write
+      if (newValue == null) {
+        // to-do
+        deleteColumn(row, column);
+      } else {
+        persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)),
+                System.currentTimeMillis());
+      }
+      return true;
+    } finally {
+      lock.unlock();
     }
-    return true;
   }
 
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws Exception {
-    NavigableMap<byte[], byte[]> existing =
-      getRow(row, increments.keySet().toArray(new byte[increments.size()][]), null, null, -1, null);
-    Map<byte[], Long> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    for (Map.Entry<byte[], Long> increment : increments.entrySet()) {
-      long existingValue = 0L;
-      byte[] existingBytes = existing.get(increment.getKey());
-      if (existingBytes != null) {
-        if (existingBytes.length != Bytes.SIZEOF_LONG) {
-          throw new NumberFormatException("Attempted to increment a value that is not convertible to long," +
-                                            " row: " + Bytes.toStringBinary(row) +
-                                            " column: " + Bytes.toStringBinary(increment.getKey()));
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws Exception {
+    // Only increments and swaps on the same row need to be serialized. Rows are locked with striped locks shared by
+    // all instances of the table, so that increments on different rows are done in parallel.
+    Lock lock = service.getRowLock(tableName, row);
+    lock.lock();
+    try {
+      NavigableMap<byte[], byte[]> existing =
+        getRow(row, increments.keySet().toArray(new byte[increments.size()][]), null, null, -1, null);
+      Map<byte[], Long> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], Long> increment : increments.entrySet()) {
+        long existingValue = 0L;
+        byte[] existingBytes = existing.get(increment.getKey());
+        if (existingBytes != null) {
+          if (existingBytes.length != Bytes.SIZEOF_LONG) {
+            throw new NumberFormatException("Attempted to increment a value that is not convertible to long," +
+                                              " row: " + Bytes.toStringBinary(row) +
+                                              " column: " + Bytes.toStringBinary(increment.getKey()));
+          }
+          existingValue = Bytes.toLong(existingBytes);
         }
-        existingValue = Bytes.toLong(existingBytes);
+        long newValue = existingValue + increment.getValue();
+        result.put(increment.getKey(), newValue);
+        replacing.put(increment.getKey(), Bytes.toBytes(newValue));
       }
-      long newValue = existingValue + increment.getValue();
-      result.put(increment.getKey(), newValue);
-      replacing.put(increment.getKey(), Bytes.toBytes(newValue));
+      persist(ImmutableMap.of(row, replacing), System.currentTimeMillis());
+      return result;
+    } finally {
+      lock.unlock();
     }
-    persist(ImmutableMap.of(row, replacing), System.currentTimeMillis());
-    return result;
   }
 
   public void persist(Map<byte[], ? extends Map<byte[], byte[]>> changes, long version) throws IOException {
@@ -184,9 +205,59 @@ public class LevelDBOrderedTableCore {
     return new LevelDBScanner(iterator, endKey, filter, columns, tx);
   }
 
+  /**
+   * Scans the table with the restrictions of the given {@link Scan} evaluated while iterating over the database.
+   */
+  public Scanner scan(Scan scan, @Nullable Transaction tx) throws IOException {
+    ScanFilter scanFilter = new ScanFilter(scan);
+    // columns to fetch are sorted already
+    byte[][] columns = scanFilter.getColumnsToFetch();
+
+    DBIterator iterator = getDB().iterator();
+    seekToStart(iterator, scan.getStartRow());
+    byte[] endKey = scan.getStopRow() == null ? null : createEndKey(scan.getStopRow());
+    return new LevelDBScanner(iterator, endKey, scanFilter, columns, tx);
+  }
+
   public NavigableMap<byte[], byte[]> getRow(byte[] row, @Nullable byte[][] columns,
                                              byte[] startCol, byte[] stopCol,
                                              int limit, Transaction tx) throws IOException {
+    DBIterator iterator = getDB().iterator();
+    try {
+      return getRow(iterator, row, columns, startCol, stopCol, limit, tx);
+    } finally {
+      iterator.close();
+    }
+  }
+
+  /**
+   * Reads multiple rows using a single iterator over the database.
+   * @param gets defines the rows and columns to read, a {@link Get} without columns reads all columns of the row
+   * @param tx The transaction to use for visibility.
+   * @return list of column maps in the same order as the given gets
+   */
+  public List<NavigableMap<byte[], byte[]>> getRows(List<Get> gets, Transaction tx) throws IOException {
+    List<NavigableMap<byte[], byte[]>> rows = Lists.newArrayListWithCapacity(gets.size());
+    DBIterator iterator = getDB().iterator();
+    try {
+      for (Get get : gets) {
+        List<byte[]> columns = get.getColumns();
+        if (columns.isEmpty()) {
+          rows.add(getRow(iterator, get.getRow(), null, null, null, Integer.MAX_VALUE, tx));
+        } else {
+          rows.add(getRow(iterator, get.getRow(), columns.toArray(new byte[columns.size()][]),
+                          null, null, columns.size(), tx));
+        }
+      }
+    } finally {
+      iterator.close();
+    }
+    return rows;
+  }
+
+  private static NavigableMap<byte[], byte[]> getRow(DBIterator iterator, byte[] row, @Nullable byte[][] columns,
+                                                     byte[] startCol, byte[] stopCol,
+                                                     int limit, Transaction tx) throws IOException {
     if (columns != null) {
       if (columns.length == 0) {
         return EMPTY_ROW_MAP;
@@ -197,13 +268,8 @@ public class LevelDBOrderedTableCore {
 
     byte[] startKey = createStartKey(row, columns == null ? startCol : columns[0]);
     byte[] endKey = createEndKey(row, columns == null ? stopCol : upperBound(columns[columns.length - 1]));
-    DBIterator iterator = getDB().iterator();
-    try {
-      iterator.seek(startKey);
-      return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
-    } finally {
-      iterator.close();
-    }
+    iterator.seek(startKey);
+    return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
   }
 
   private static Scanner createEmptyScanner() {
@@ -478,6 +544,8 @@ public class LevelDBOrderedTableCore {
     private final DBIterator iterator;
     private final byte[][] columns;
     private final FuzzyRowFilter filter;
+    private final ScanFilter scanFilter;
+    private int rowsLeft;
 
     public LevelDBScanner(DBIterator iterator, byte[] endKey,
                           @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns, @Nullable Transaction tx) {
@@ -486,10 +554,26 @@ public class LevelDBOrderedTableCore {
       this.iterator = iterator;
       this.filter = filter;
       this.columns = columns;
+      this.scanFilter = null;
+      this.rowsLeft = Integer.MAX_VALUE;
+    }
+
+    public LevelDBScanner(DBIterator iterator, byte[] endKey,
+                          ScanFilter scanFilter, @Nullable byte[][] columns, @Nullable Transaction tx) {
+      this.tx = tx;
+      this.endKey = endKey;
+      this.iterator = iterator;
+      this.filter = scanFilter.getFuzzyRowFilter();
+      this.columns = columns;
+      this.scanFilter = scanFilter;
+      this.rowsLeft = scanFilter.getLimit();
     }
 
     @Override
     public Row next() {
+      if (rowsLeft <= 0) {
+        return null;
+      }
       try {
         while (true) {
           ImmutablePair<byte[], NavigableMap<byte[], byte[]>> result = getRow(iterator, endKey, tx, true, columns, -1);
@@ -514,7 +598,15 @@ public class LevelDBOrderedTableCore {
               }
             }
           }
-          return new Result(result.getFirst(), result.getSecond());
+          NavigableMap<byte[], byte[]> rowMap = result.getSecond();
+          if (scanFilter != null) {
+            rowMap = scanFilter.apply(result.getFirst(), rowMap);
+            if (rowMap == null) {
+              continue;
+            }
+          }
+          rowsLeft--;
+          return new Result(result.getFirst(), rowMap);
         }
       } catch (Exception e) {
         throw Throwables.propagate(e);
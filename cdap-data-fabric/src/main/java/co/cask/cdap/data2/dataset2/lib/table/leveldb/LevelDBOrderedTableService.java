@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import com.google.common.annotations.VisibleForTesting;
@@ -41,6 +42,8 @@ import java.net.URLEncoder;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 
@@ -52,12 +55,16 @@ public class LevelDBOrderedTableService {
 
   private static final Logger LOG = LoggerFactory.getLogger(LevelDBOrderedTableService.class);
 
+  // number of locks used for read-modify-write operations on rows, has to be power of 2
+  private static final int ROW_LOCKS = 1024;
+
   private int blockSize;
   private long cacheSize;
   private String basePath;
   private WriteOptions writeOptions;
 
   private final ConcurrentMap<String, DB> tables = Maps.newConcurrentMap();
+  private final Lock[] rowLocks = createRowLocks(ROW_LOCKS);
 
   private static final LevelDBOrderedTableService SINGLETON = new LevelDBOrderedTableService();
 
@@ -151,6 +158,27 @@ public class LevelDBOrderedTableService {
     return writeOptions;
   }
 
+  /**
+   * Returns the lock that guards read-modify-write operations, such as increment and compare-and-swap, on the given
+   * row of the given table. Locks are striped by row, so that operations on different rows can mostly proceed in
+   * parallel, while all table instances operating on the same row share the same lock.
+   */
+  public Lock getRowLock(String tableName, byte[] row) {
+    int hash = 31 * tableName.hashCode() + Bytes.hashCode(row);
+    // spread the higher bits, as only the lower bits are used to pick the lock
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return rowLocks[hash & (rowLocks.length - 1)];
+  }
+
+  private static Lock[] createRowLocks(int size) {
+    Lock[] locks = new Lock[size];
+    for (int i = 0; i < size; i++) {
+      locks[i] = new ReentrantLock();
+    }
+    return locks;
+  }
+
   public DB getTable(String tableName) throws IOException {
     DB db = tables.get(tableName);
     if (db == null) {
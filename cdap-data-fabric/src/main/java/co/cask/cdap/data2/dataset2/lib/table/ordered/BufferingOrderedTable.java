@@ -20,10 +20,13 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.TableSplit;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilter;
 import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionAware;
 import com.google.common.base.Function;
@@ -170,6 +173,23 @@ public abstract class BufferingOrderedTable extends AbstractOrderedTable impleme
   protected abstract NavigableMap<byte[], byte[]> getPersisted(byte[] row, @Nullable byte[][] columns)
     throws Exception;
 
+  /**
+   * Fetches column->value pairs for a list of rows from persistent store.
+   * NOTE: persisted store can also be in-memory, it is called "persisted" to distinguish from in-memory buffer.
+   * NOTE: default implementation fetches the rows one by one, implementations should override it if the persistent
+   *       store supports fetching multiple rows in one round trip.
+   * @param gets defines the rows and columns to fetch, a {@link Get} without columns means fetch everything
+   * @return list of maps of column->value pairs in the same order as given gets, never null.
+   * @throws Exception
+   */
+  protected List<NavigableMap<byte[], byte[]>> getPersisted(List<Get> gets) throws Exception {
+    List<NavigableMap<byte[], byte[]>> result = Lists.newArrayListWithCapacity(gets.size());
+    for (Get get : gets) {
+      result.add(getPersisted(get.getRow(), getColumns(get)));
+    }
+    return result;
+  }
+
   /**
    * Fetches column->value pairs for range of columns from persistent store.
    * NOTE: persisted store can also be in-memory, it is called "persisted" to distinguish from in-memory buffer.
@@ -198,6 +218,17 @@ public abstract class BufferingOrderedTable extends AbstractOrderedTable impleme
    */
   protected abstract  Scanner scanPersisted(byte[] startRow, byte[] stopRow) throws Exception;
 
+  /**
+   * Scans rows from persistent store with restrictions defined by the given {@link Scan}.
+   * NOTE: persisted store can also be in-memory, it is called "persisted" to distinguish from in-memory buffer.
+   * NOTE: implementations should evaluate the restrictions where the data is stored when possible, e.g. by using
+   *       {@link ScanFilter}.
+   * @param scan defines the range of rows and the restrictions on the rows and columns to return
+   * @return instance of {@link Scanner}, never null
+   * @throws Exception
+   */
+  protected abstract Scanner scanPersisted(Scan scan) throws Exception;
+
   @Override
   public void setMetricsCollector(MetricsCollector metricsCollector) {
     this.metricsCollector = metricsCollector;
@@ -317,6 +348,61 @@ public abstract class BufferingOrderedTable extends AbstractOrderedTable impleme
     return getRowMap(row, columns);
   }
 
+  @Override
+  public List<Map<byte[], byte[]>> get(List<Get> gets) throws Exception {
+    reportRead(gets.size());
+
+    // Figure out what is needed from persistent store for each get, so that all of them are fetched together
+    List<Get> persistedGets = Lists.newArrayListWithCapacity(gets.size());
+    // index of the get in persistedGets for each of the given gets, -1 if nothing to fetch
+    int[] persistedIdx = new int[gets.size()];
+    for (int i = 0; i < gets.size(); i++) {
+      Get get = gets.get(i);
+      byte[] row = get.getRow();
+      NavigableMap<byte[], Update> buffCols = buff.get(row);
+      persistedIdx[i] = -1;
+      if (buffCols == null && buff.containsKey(row)) {
+        // row was deleted inside this tx
+        continue;
+      }
+      byte[][] columns = getColumns(get);
+      if (buffCols == null || columns == null) {
+        persistedIdx[i] = persistedGets.size();
+        persistedGets.add(get);
+        continue;
+      }
+      List<byte[]> colsToFetchFromPersisted = getColumnsToFetch(buffCols, columns);
+      if (colsToFetchFromPersisted.size() > 0) {
+        persistedIdx[i] = persistedGets.size();
+        persistedGets.add(new Get(row, colsToFetchFromPersisted));
+      }
+    }
+
+    List<NavigableMap<byte[], byte[]>> persisted = persistedGets.isEmpty() ?
+      Collections.<NavigableMap<byte[], byte[]>>emptyList() : getPersisted(persistedGets);
+
+    List<Map<byte[], byte[]>> results = Lists.newArrayListWithCapacity(gets.size());
+    for (int i = 0; i < gets.size(); i++) {
+      Get get = gets.get(i);
+      NavigableMap<byte[], Update> buffCols = buff.get(get.getRow());
+      NavigableMap<byte[], byte[]> persistedCols = persistedIdx[i] < 0 ? null : persisted.get(persistedIdx[i]);
+      if (buffCols == null) {
+        // either row was deleted inside this tx or nothing is buffered for it
+        results.add(persistedCols == null ? Collections.<byte[], byte[]>emptyMap() : persistedCols);
+        continue;
+      }
+
+      NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      if (persistedCols != null) {
+        result.putAll(persistedCols);
+      }
+      // overlay buffered values on persisted, applying increments where necessary
+      mergeToPersisted(result, buffCols, getColumns(get));
+      results.add(unwrapDeletes(result));
+    }
+    return results;
+  }
+
   @Override
   public Map<byte[], byte[]> get(byte[] row, byte[] startColumn, byte[] stopColumn, int limit)
     throws Exception {
@@ -493,17 +579,45 @@ public abstract class BufferingOrderedTable extends AbstractOrderedTable impleme
 
   @Override
   public Scanner scan(byte[] startRow, byte[] stopRow) throws Exception {
-    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap;
+    return new BufferingScanner(getBufferedRows(startRow, stopRow), scanPersisted(startRow, stopRow));
+  }
+
+  @Override
+  public Scanner scan(Scan scan) throws Exception {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap = getBufferedRows(scan.getStartRow(),
+                                                                                     scan.getStopRow());
+    if (bufferMap.isEmpty()) {
+      // nothing changed in the range within this tx, the whole scan can be evaluated by the persistent store
+      return scanPersisted(scan);
+    }
+
+    // Buffered changes can affect the result of value filters and the rows counted towards the limit, hence those
+    // are evaluated after merging. The persistent store only applies the restrictions on row keys and columns.
+    ScanFilter scanFilter = new ScanFilter(scan);
+    Scan persistedScan = new Scan(scan.getStartRow(), scan.getStopRow());
+    byte[][] columns = scanFilter.getColumnsToFetch();
+    if (columns != null) {
+      persistedScan.addColumns(columns);
+    }
+    if (!scanFilter.hasValueFilters()) {
+      persistedScan.setColumnRange(scan.getStartColumn(), scan.getStopColumn());
+    }
+    for (Map.Entry<byte[], byte[]> fuzzyKey : scan.getFuzzyKeys()) {
+      persistedScan.addFuzzyKey(fuzzyKey.getKey(), fuzzyKey.getValue());
+    }
+    return new FilteredScanner(new BufferingScanner(bufferMap, scanPersisted(persistedScan)), scanFilter);
+  }
+
+  private NavigableMap<byte[], NavigableMap<byte[], Update>> getBufferedRows(@Nullable byte[] startRow,
+                                                                           @Nullable byte[] stopRow) {
     if (startRow == null && stopRow == null) {
-      bufferMap = buff;
+      return buff;
     } else if (startRow == null) {
-      bufferMap = buff.headMap(stopRow, false);
+      return buff.headMap(stopRow, false);
     } else if (stopRow == null) {
-      bufferMap = buff.tailMap(startRow, true);
-    } else {
-      bufferMap = buff.subMap(startRow, true, stopRow, false);
+      return buff.tailMap(startRow, true);
     }
-    return new BufferingScanner(bufferMap, scanPersisted(startRow, stopRow));
+    return buff.subMap(startRow, true, stopRow, false);
   }
 
   private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
@@ -542,6 +656,28 @@ public abstract class BufferingOrderedTable extends AbstractOrderedTable impleme
     }
 
     // otherwise try to fetch data from in-memory buffer. If not all present - fetch leftover from persisted
+    List<byte[]> colsToFetchFromPersisted = getColumnsToFetch(buffCols, columns);
+
+    // fetching from server those that were not found in in-mem buffer
+    if (colsToFetchFromPersisted.size() > 0) {
+      Map<byte[], byte[]> persistedCols =
+        getPersisted(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
+      if (persistedCols != null) {
+        result.putAll(persistedCols);
+      }
+    }
+
+    // overlay buffered values on persisted, applying increments where necessary
+    mergeToPersisted(result, buffCols, columns);
+
+    return unwrapDeletes(result);
+  }
+
+  /**
+   * Returns the columns that has to be fetched from persistent store, i.e. those that are not in the in-memory buffer
+   * or are buffered as increments that need to be applied on top of the persisted values.
+   */
+  private static List<byte[]> getColumnsToFetch(NavigableMap<byte[], Update> buffCols, byte[][] columns) {
     List<byte[]> colsToFetchFromPersisted = Lists.newArrayList();
     // try to fetch from local buffer first and then from server if it is not in buffer
     for (byte[] column : columns) {
@@ -556,20 +692,16 @@ public abstract class BufferingOrderedTable extends AbstractOrderedTable impleme
         colsToFetchFromPersisted.add(column);
       }
     }
+    return colsToFetchFromPersisted;
+  }
 
-    // fetching from server those that were not found in in-mem buffer
-    if (colsToFetchFromPersisted.size() > 0) {
-      Map<byte[], byte[]> persistedCols =
-        getPersisted(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
-      if (persistedCols != null) {
-        result.putAll(persistedCols);
-      }
-    }
-
-    // overlay buffered values on persisted, applying increments where necessary
-    mergeToPersisted(result, buffCols, columns);
-
-    return unwrapDeletes(result);
+  /**
+   * Returns the columns of the given {@link Get} as array, or {@code null} if it has no columns, which means all columns.
+   */
+  @Nullable
+  protected static byte[][] getColumns(Get get) {
+    List<byte[]> columns = get.getColumns();
+    return columns.isEmpty() ? null : columns.toArray(new byte[columns.size()][]);
   }
 
   /**
@@ -722,6 +854,46 @@ public abstract class BufferingOrderedTable extends AbstractOrderedTable impleme
     return bytes == null ? null : Arrays.copyOf(bytes, bytes.length);
   }
 
+  /**
+   * Applies a {@link ScanFilter} on rows returned by another {@link Scanner}.
+   */
+  private static final class FilteredScanner implements Scanner {
+    private final Scanner scanner;
+    private final ScanFilter scanFilter;
+    private int rowsLeft;
+
+    private FilteredScanner(Scanner scanner, ScanFilter scanFilter) {
+      this.scanner = scanner;
+      this.scanFilter = scanFilter;
+      this.rowsLeft = scanFilter.getLimit();
+    }
+
+    @Nullable
+    @Override
+    public Row next() {
+      if (rowsLeft <= 0) {
+        return null;
+      }
+      Row row = scanner.next();
+      while (row != null) {
+        NavigableMap<byte[], byte[]> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        columns.putAll(row.getColumns());
+        columns = scanFilter.apply(row.getRow(), columns);
+        if (columns != null) {
+          rowsLeft--;
+          return new Result(row.getRow(), columns);
+        }
+        row = scanner.next();
+      }
+      return null;
+    }
+
+    @Override
+    public void close() {
+      scanner.close();
+    }
+  }
+
   /**
    * Scanner implementation that overlays buffered data on top of already persisted data.
    */
@@ -46,6 +46,11 @@ import java.util.SortedMap;
 
 /**
  * Common queue consumer for persisting engines such as HBase and LevelDB.
+ *
+ * Unlike the in-memory queue, the entries of these engines are not sharded per consumer instance. With
+ * {@link DequeueStrategy#HASH} or {@link DequeueStrategy#ROUND_ROBIN} strategy, each consumer scans the entries of
+ * all instances in the group and skips the ones it cannot consume. For HBase, the entries of other instances are
+ * skipped on the region server by the dequeue filter of the coprocessor.
  */
 public abstract class AbstractQueueConsumer implements QueueConsumer, TransactionAware, Closeable {
 
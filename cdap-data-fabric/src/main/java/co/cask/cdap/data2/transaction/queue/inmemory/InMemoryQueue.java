@@ -28,7 +28,9 @@ import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
@@ -37,15 +39,23 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of an in-memory queue.
+ *
+ * For consumer groups with {@link DequeueStrategy#HASH} or {@link DequeueStrategy#ROUND_ROBIN} strategy and more
+ * than one instance, the entries are also kept in one shard per consumer instance, so that each consumer only scans
+ * the entries it can consume. The shards of a group are created on the first dequeue of the group, and are created
+ * again when the size of the group changes.
  */
 public class InMemoryQueue {
 
   private static final Logger LOG = LoggerFactory.getLogger(InMemoryQueue.class);
 
   private final ConcurrentNavigableMap<Key, Item> entries = new ConcurrentSkipListMap<Key, Item>();
+  // Shards of the entries by consumer group id
+  private final ConcurrentMap<Long, Shards> groupShards = Maps.newConcurrentMap();
 
   public void clear() {
     entries.clear();
+    groupShards.clear();
   }
 
   public int getSize() {
@@ -53,11 +63,42 @@ public class InMemoryQueue {
   }
 
   public void enqueue(long txId, int seqId, QueueEntry entry) {
-    entries.put(new Key(txId, seqId), new Item(entry));
+    Key key = new Key(txId, seqId);
+    Item item = new Item(entry);
+    entries.put(key, item);
+    for (Shards shards : groupShards.values()) {
+      shards.add(key, item);
+    }
   }
 
   public void undoEnqueue(long txId, int seqId) {
-    entries.remove(new Key(txId, seqId));
+    remove(new Key(txId, seqId));
+  }
+
+  /**
+   * Updates the number of instances of a consumer group. The shards of the group are dropped if the number changed.
+   */
+  public void configureInstances(long groupId, int instances) {
+    Shards shards = groupShards.get(groupId);
+    if (shards != null && shards.groupSize != instances) {
+      groupShards.remove(groupId, shards);
+    }
+  }
+
+  /**
+   * Updates the consumer groups. The shards of groups that are removed or changed in size are dropped.
+   *
+   * @param groupInfo map from group id to number of instances of the group
+   */
+  public void configureGroups(Map<Long, Integer> groupInfo) {
+    Iterator<Map.Entry<Long, Shards>> iterator = groupShards.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Long, Shards> entry = iterator.next();
+      Integer instances = groupInfo.get(entry.getKey());
+      if (instances == null || instances != entry.getValue().groupSize) {
+        iterator.remove();
+      }
+    }
   }
 
   public ImmutablePair<List<Key>, List<byte[]>> dequeue(Transaction tx, ConsumerConfig config,
@@ -65,8 +106,11 @@ public class InMemoryQueue {
 
     List<Key> keys = Lists.newArrayListWithCapacity(maxBatchSize);
     List<byte[]> datas = Lists.newArrayListWithCapacity(maxBatchSize);
-    NavigableSet<Key> keysToScan = consumerState.startKey == null ? entries.navigableKeySet() :
-      entries.tailMap(consumerState.startKey).navigableKeySet();
+    // for hash/round robin with more than one instance, only scan the shard of this consumer
+    boolean sharded = !config.getDequeueStrategy().equals(DequeueStrategy.FIFO) && config.getGroupSize() > 1;
+    ConcurrentNavigableMap<Key, Item> scanEntries = sharded ? getShard(config) : entries;
+    NavigableSet<Key> keysToScan = consumerState.startKey == null ? scanEntries.navigableKeySet() :
+      scanEntries.tailMap(consumerState.startKey).navigableKeySet();
     boolean updateStartKey = true;
 
     // navigableKeySet is immune to concurrent modification
@@ -89,6 +133,10 @@ public class InMemoryQueue {
       Item item = entries.get(key);
       if (item == null) {
         // entry was deleted (evicted or undone) after we started iterating
+        if (sharded) {
+          // the shard may have been populated with the entry concurrently with the deletion
+          scanEntries.remove(key);
+        }
         continue;
       }
       // check whether this is processed already
@@ -107,31 +155,43 @@ public class InMemoryQueue {
         updateStartKey = false;
         continue;
       }
-      // for hash/round robin, if group size is 1, just take it
-      if (config.getGroupSize() == 1) {
-        keys.add(key);
-        datas.add(item.entry.getData());
-        updateStartKey = false;
-        continue;
-      }
-      // hash by entry hash key or entry id
-      int hash;
-      if (config.getDequeueStrategy().equals(DequeueStrategy.ROUND_ROBIN)) {
-        hash = key.hashCode();
-      } else {
-        Integer hashFoundInEntry = item.entry.getHashKey(config.getHashKey());
-        hash = hashFoundInEntry == null ? 0 : hashFoundInEntry;
-      }
-      // modulo of a negative is negative, make sure we're positive or 0.
-      if (Math.abs(hash) % config.getGroupSize() == config.getInstanceId()) {
-        keys.add(key);
-        datas.add(item.entry.getData());
-        updateStartKey = false;
-      }
+      // for hash/round robin, the shard or the queue of a single instance group only contains entries to take
+      keys.add(key);
+      datas.add(item.entry.getData());
+      updateStartKey = false;
     }
     return keys.isEmpty() ? null : ImmutablePair.of(keys, datas);
   }
 
+  /**
+   * Returns the shard of the given consumer, creating the shards of its group if needed.
+   */
+  private ConcurrentNavigableMap<Key, Item> getShard(ConsumerConfig config) {
+    Shards shards = groupShards.get(config.getGroupId());
+    if (shards == null || !shards.isFor(config) || !shards.populated) {
+      synchronized (groupShards) {
+        shards = groupShards.get(config.getGroupId());
+        if (shards == null || !shards.isFor(config)) {
+          shards = new Shards(config);
+          groupShards.put(config.getGroupId(), shards);
+          // Populate after the shards are visible to enqueue, so that no entry is missed
+          for (Map.Entry<Key, Item> entry : entries.entrySet()) {
+            shards.add(entry.getKey(), entry.getValue());
+          }
+          shards.populated = true;
+        }
+      }
+    }
+    return shards.get(config.getInstanceId());
+  }
+
+  private void remove(Key key) {
+    entries.remove(key);
+    for (Shards shards : groupShards.values()) {
+      shards.remove(key);
+    }
+  }
+
   public void ack(List<Key> dequeuedKeys, ConsumerConfig config) {
     if (dequeuedKeys == null) {
       return;
@@ -175,7 +235,7 @@ public class InMemoryQueue {
       }
       if (item.incrementProcessed() >= numGroups) {
         // all consumer groups have processed _and_ reached the post-commit hook: safe to evict
-        entries.remove(key);
+        remove(key);
       }
     }
   }
@@ -297,6 +357,60 @@ public class InMemoryQueue {
     }
   }
 
+  /**
+   * The entries of a queue split into one shard per instance of a consumer group.
+   */
+  private static final class Shards {
+    final DequeueStrategy strategy;
+    final String hashKey;
+    final int groupSize;
+    final List<ConcurrentNavigableMap<Key, Item>> shards;
+    // Set once all entries that were in the queue when the shards were created are added
+    volatile boolean populated;
+
+    Shards(ConsumerConfig config) {
+      this.strategy = config.getDequeueStrategy();
+      this.hashKey = config.getHashKey();
+      this.groupSize = config.getGroupSize();
+      this.shards = Lists.newArrayListWithCapacity(groupSize);
+      for (int i = 0; i < groupSize; i++) {
+        shards.add(new ConcurrentSkipListMap<Key, Item>());
+      }
+    }
+
+    boolean isFor(ConsumerConfig config) {
+      return strategy == config.getDequeueStrategy() && groupSize == config.getGroupSize()
+        && Objects.equal(hashKey, config.getHashKey());
+    }
+
+    ConcurrentNavigableMap<Key, Item> get(int instanceId) {
+      return shards.get(instanceId);
+    }
+
+    void add(Key key, Item item) {
+      // hash by entry hash key or entry id
+      int hash;
+      if (strategy == DequeueStrategy.ROUND_ROBIN) {
+        hash = key.hashCode();
+      } else {
+        Integer hashFoundInEntry = item.entry.getHashKey(hashKey);
+        hash = hashFoundInEntry == null ? 0 : hashFoundInEntry;
+      }
+      // modulo of a negative is negative, make sure we're positive or 0.
+      int shard = Math.abs(hash) % groupSize;
+      // Math.abs(Integer.MIN_VALUE) is negative, no consumer takes such an entry
+      if (shard >= 0) {
+        shards.get(shard).put(key, item);
+      }
+    }
+
+    void remove(Key key) {
+      for (ConcurrentNavigableMap<Key, Item> shard : shards) {
+        shard.remove(key);
+      }
+    }
+  }
+
   /**
    * The state of a single consumer, gets modified.
    */
@@ -85,14 +85,17 @@ public class InMemoryQueueAdmin implements QueueAdmin {
 
   @Override
   public void configureInstances(QueueName queueName, long groupId, int instances) {
-    // No-op for InMemoryQueueAdmin
-    // Potentially refactor QueueClientFactory to have better way to handle instances and group info.
+    // Only the sharding of entries depends on the number of instances
+    if (queueService.exists(queueName.toString())) {
+      queueService.getQueue(queueName).configureInstances(groupId, instances);
+    }
   }
 
   @Override
   public void configureGroups(QueueName queueName, Map<Long, Integer> groupInfo) {
-    // No-op for InMemoryQueueAdmin
-    // Potentially refactor QueueClientFactory to have better way to handle instances and group info.
+    if (queueService.exists(queueName.toString())) {
+      queueService.getQueue(queueName).configureGroups(groupInfo);
+    }
   }
 
   @Override
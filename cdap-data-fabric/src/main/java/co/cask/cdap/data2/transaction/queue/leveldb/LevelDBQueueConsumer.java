@@ -24,6 +24,7 @@ import co.cask.cdap.data2.dataset2.lib.table.leveldb.KeyValue;
 import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBOrderedTableCore;
 import co.cask.cdap.data2.queue.ConsumerConfig;
 import co.cask.cdap.data2.transaction.queue.AbstractQueueConsumer;
+import co.cask.cdap.data2.transaction.queue.QueueEntryRow;
 import co.cask.cdap.data2.transaction.queue.QueueEvictor;
 import co.cask.cdap.data2.transaction.queue.QueueScanner;
 import co.cask.tephra.Transaction;
@@ -58,6 +59,7 @@ public final class LevelDBQueueConsumer extends AbstractQueueConsumer {
   private final QueueEvictor queueEvictor;
   private final LevelDBOrderedTableCore core;
   private final Object lock;
+  private final byte[][] columns;
   private final NavigableMap<byte[], NavigableMap<byte[], byte[]>>
     rowMapForClaim = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
   private final NavigableMap<byte[], byte[]>
@@ -69,6 +71,7 @@ public final class LevelDBQueueConsumer extends AbstractQueueConsumer {
     this.queueEvictor = queueEvictor;
     core = tableCore;
     lock = queueLock;
+    columns = new byte[][] { QueueEntryRow.DATA_COLUMN, QueueEntryRow.META_COLUMN, stateColumnName };
   }
 
   @Override
@@ -145,7 +148,11 @@ public final class LevelDBQueueConsumer extends AbstractQueueConsumer {
 
   @Override
   protected QueueScanner getScanner(byte[] startRow, byte[] stopRow, int numRows) throws IOException {
-    final Scanner scanner = core.scan(startRow, stopRow, null, null, Transaction.ALL_VISIBLE_LATEST);
+    // Entries are not sharded per consumer instance as in InMemoryQueue: LevelDB queues live in a single standalone
+    // process and are bounded by eviction, and sharding would need per-group index rows that are kept consistent
+    // through eviction, undo, reconfiguration and restarts. Only fetch the columns needed to decide whether this
+    // consumer can take an entry, so that the state columns of other consumer groups are not copied for every row.
+    final Scanner scanner = core.scan(startRow, stopRow, null, columns, Transaction.ALL_VISIBLE_LATEST);
     return new QueueScanner() {
       @Override
       public ImmutablePair<byte[], Map<byte[], byte[]>> next() throws IOException {
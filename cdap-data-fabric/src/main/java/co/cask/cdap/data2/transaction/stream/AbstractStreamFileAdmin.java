@@ -21,6 +21,7 @@ import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.common.utils.OSDetector;
 import co.cask.cdap.data.stream.StreamCoordinator;
+import co.cask.cdap.data.stream.StreamFileCompression;
 import co.cask.cdap.data.stream.StreamFileOffset;
 import co.cask.cdap.data.stream.StreamUtils;
 import com.google.common.base.Charsets;
@@ -259,9 +260,11 @@ public abstract class AbstractStreamFileAdmin implements StreamAdmin {
                                                                cConf.get(Constants.Stream.INDEX_INTERVAL)));
     long ttl = Long.parseLong(properties.getProperty(Constants.Stream.TTL,
                                                      cConf.get(Constants.Stream.TTL)));
+    StreamFileCompression compression = StreamFileCompression.fromName(
+      properties.getProperty(Constants.Stream.COMPRESSION, cConf.get(Constants.Stream.COMPRESSION)));
 
     Location tmpConfigLocation = configLocation.getTempFile(null);
-    StreamConfig config = new StreamConfig(name, partitionDuration, indexInterval, ttl, streamLocation);
+    StreamConfig config = new StreamConfig(name, partitionDuration, indexInterval, ttl, streamLocation, compression);
     CharStreams.write(GSON.toJson(config), CharStreams.newWriterSupplier(
       Locations.newOutputSupplier(tmpConfigLocation), Charsets.UTF_8));
 
@@ -311,7 +314,7 @@ public abstract class AbstractStreamFileAdmin implements StreamAdmin {
       StreamConfig.class);
 
     return new StreamConfig(streamLocation.getName(), config.getPartitionDuration(), config.getIndexInterval(),
-                            config.getTTL(), streamLocation);
+                            config.getTTL(), streamLocation, config.getCompression());
   }
 
   private boolean isValidConfigUpdate(StreamConfig originalConfig, StreamConfig newConfig) {
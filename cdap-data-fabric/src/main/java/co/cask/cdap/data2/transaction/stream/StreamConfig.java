@@ -15,6 +15,7 @@
  */
 package co.cask.cdap.data2.transaction.stream;
 
+import co.cask.cdap.data.stream.StreamFileCompression;
 import com.google.common.base.Objects;
 import org.apache.twill.filesystem.Location;
 
@@ -29,15 +30,22 @@ public final class StreamConfig {
   private final long partitionDuration;
   private final long indexInterval;
   private final long ttl;
+  private final StreamFileCompression compression;
 
   private final transient Location location;
 
   public StreamConfig(String name, long partitionDuration, long indexInterval, long ttl, Location location) {
+    this(name, partitionDuration, indexInterval, ttl, location, StreamFileCompression.NONE);
+  }
+
+  public StreamConfig(String name, long partitionDuration, long indexInterval, long ttl,
+                      Location location, StreamFileCompression compression) {
     this.name = name;
     this.partitionDuration = partitionDuration;
     this.indexInterval = indexInterval;
     this.ttl = ttl;
     this.location = location;
+    this.compression = compression;
   }
 
   public StreamConfig() {
@@ -46,6 +54,7 @@ public final class StreamConfig {
     this.indexInterval = 0;
     this.ttl = Long.MAX_VALUE;
     this.location = null;
+    this.compression = StreamFileCompression.NONE;
   }
 
   /**
@@ -76,6 +85,14 @@ public final class StreamConfig {
     return ttl;
   }
 
+  /**
+   * @return The compression codec for data blocks written to the stream files.
+   */
+  public StreamFileCompression getCompression() {
+    // Config saved by older version doesn't have compression
+    return compression == null ? StreamFileCompression.NONE : compression;
+  }
+
   /**
    * @return The location of the stream if it is file base stream, or {@code null} otherwise.
    */
@@ -91,6 +108,7 @@ public final class StreamConfig {
       .add("duration", partitionDuration)
       .add("indexInterval", indexInterval)
       .add("ttl", ttl)
+      .add("compression", getCompression())
       .add("location", location.toURI())
       .toString();
   }
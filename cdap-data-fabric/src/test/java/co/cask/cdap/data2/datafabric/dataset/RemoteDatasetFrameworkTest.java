@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.datafabric.dataset;
 
+import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.module.DatasetModule;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -51,11 +52,14 @@ import org.apache.twill.discovery.InMemoryDiscoveryService;
 import org.apache.twill.discovery.ServiceDiscovered;
 import org.apache.twill.filesystem.LocalLocationFactory;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.ClassRule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.concurrent.CountDownLatch;
@@ -69,6 +73,8 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
   private DatasetOpExecutorService opExecutorService;
   private DatasetService service;
   private RemoteDatasetFramework framework;
+  private InMemoryDiscoveryService discoveryService;
+  private DatasetCacheCoordinator cacheCoordinator;
 
   @ClassRule
   public static TemporaryFolder tmpFolder = new TemporaryFolder();
@@ -83,7 +89,7 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     cConf.setBoolean(Constants.Dangerous.UNRECOVERABLE_RESET, true);
 
     // Starting DatasetService service
-    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    discoveryService = new InMemoryDiscoveryService();
     MetricsCollectionService metricsCollectionService = new NoOpMetricsCollectionService();
 
     // Tx Manager to support working with datasets
@@ -94,8 +100,8 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     InMemoryTxSystemClient txSystemClient = new InMemoryTxSystemClient(txManager);
 
     LocalLocationFactory locationFactory = new LocalLocationFactory();
-    framework = new RemoteDatasetFramework(discoveryService, new InMemoryDefinitionRegistryFactory(),
-                                           new LocalDatasetTypeClassLoaderFactory());
+    cacheCoordinator = new InMemoryDatasetCacheCoordinator();
+    framework = createFramework();
 
     ImmutableSet<HttpHandler> handlers =
       ImmutableSet.<HttpHandler>of(new DatasetAdminOpHTTPHandler(new NoAuthenticator(), framework));
@@ -108,14 +114,19 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
                                    ImmutableMap.of("memoryTable", new InMemoryOrderedTableModule()));
     MDSDatasetsRegistry mdsDatasetsRegistry = new MDSDatasetsRegistry(txSystemClient, mdsFramework, cConf);
 
+    DatasetTypeManager typeManager = new DatasetTypeManager(mdsDatasetsRegistry, locationFactory,
+                                                            // note: in this test we start with empty modules
+                                                            Collections.<String, DatasetModule>emptyMap());
+    typeManager.setCacheCoordinator(cacheCoordinator);
+    DatasetInstanceManager instanceManager = new DatasetInstanceManager(mdsDatasetsRegistry);
+    instanceManager.setCacheCoordinator(cacheCoordinator);
+
     service = new DatasetService(cConf,
                                  locationFactory,
                                  discoveryService,
                                  discoveryService,
-                                 new DatasetTypeManager(mdsDatasetsRegistry, locationFactory,
-                                                        // note: in this test we start with empty modules
-                                                        Collections.<String, DatasetModule>emptyMap()),
-                                 new DatasetInstanceManager(mdsDatasetsRegistry),
+                                 typeManager,
+                                 instanceManager,
                                  metricsCollectionService,
                                  new InMemoryDatasetOpExecutor(framework),
                                  mdsDatasetsRegistry,
@@ -137,12 +148,41 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
   }
 
   @After
-  public void after() {
+  public void after() throws IOException {
     Services.chainStop(service, opExecutorService, txManager);
+    cacheCoordinator.close();
   }
 
   @Override
   protected DatasetFramework getFramework() {
     return framework;
   }
+
+  @Test
+  public void testCacheInvalidation() throws Exception {
+    // Another framework, as used in a different process, caches the dataset metadata
+    RemoteDatasetFramework otherFramework = createFramework();
+
+    framework.addModule("inMemory", new InMemoryOrderedTableModule());
+    framework.addInstance("orderedTable", "my_table", DatasetProperties.EMPTY);
+    Assert.assertTrue(otherFramework.hasInstance("my_table"));
+
+    // Changes made through one framework are notified to the other one
+    framework.deleteInstance("my_table");
+    int retries = 50;
+    while (otherFramework.hasInstance("my_table") && --retries > 0) {
+      TimeUnit.MILLISECONDS.sleep(100);
+    }
+    Assert.assertFalse(otherFramework.hasInstance("my_table"));
+
+    framework.deleteModule("inMemory");
+  }
+
+  private RemoteDatasetFramework createFramework() {
+    RemoteDatasetFramework datasetFramework = new RemoteDatasetFramework(discoveryService,
+                                                                         new InMemoryDefinitionRegistryFactory(),
+                                                                         new LocalDatasetTypeClassLoaderFactory());
+    datasetFramework.setCacheCoordinator(cacheCoordinator);
+    return datasetFramework;
+  }
 }
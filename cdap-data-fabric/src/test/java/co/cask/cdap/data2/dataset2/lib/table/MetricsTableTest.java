@@ -168,6 +168,35 @@ public abstract class MetricsTableTest {
     Assert.assertEquals(9 * rounds, table.incrementAndGet(A, Z, 0L));
   }
 
+  @Test
+  public void testConcurrentIncrementMultiRows() throws Exception {
+    // increments on different rows from different instances of the same table
+    final MetricsTable table1 = getTable("testConcurrentIncrementMultiRows");
+    final MetricsTable table2 = getTable("testConcurrentIncrementMultiRows");
+    final int rounds = 500;
+    Map<byte[], Long> inc1 = ImmutableMap.of(X, 1L, Y, 2L);
+    Map<byte[], Long> inc2 = ImmutableMap.of(Y, 1L, Z, 2L);
+    Collection<Thread> threads = ImmutableList.of(new IncThread(table1, A, inc1, rounds),
+                                                  new IncThread(table2, A, inc2, rounds),
+                                                  new IncThread(table1, B, inc1, rounds),
+                                                  new IncThread(table2, B, inc1, rounds),
+                                                  new IncThread(table1, C, inc2, rounds),
+                                                  new IncThread(table2, C, inc2, rounds));
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    Assert.assertEquals(rounds, table1.incrementAndGet(A, X, 0L));
+    Assert.assertEquals(3 * rounds, table2.incrementAndGet(A, Y, 0L));
+    Assert.assertEquals(2 * rounds, table1.incrementAndGet(A, Z, 0L));
+    Assert.assertEquals(2 * rounds, table2.incrementAndGet(B, X, 0L));
+    Assert.assertEquals(4 * rounds, table1.incrementAndGet(B, Y, 0L));
+    Assert.assertEquals(2 * rounds, table2.incrementAndGet(C, Y, 0L));
+    Assert.assertEquals(4 * rounds, table1.incrementAndGet(C, Z, 0L));
+  }
+
   class SwapThread extends Thread {
     private final MetricsTable table;
     private final byte[] row;
@@ -19,11 +19,16 @@ package co.cask.cdap.data2.dataset2.lib.table.inmemory;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.PutValue;
 import co.cask.cdap.data2.dataset2.lib.table.ordered.Update;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.NavigableMap;
+import java.util.concurrent.CyclicBarrier;
 
 /**
  *
@@ -96,6 +101,63 @@ public class InMemoryOrderedTableServiceTest {
     verify123();
   }
 
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    final String[] tables = { "concurrent1", "concurrent2" };
+    for (String table : tables) {
+      InMemoryOrderedTableService.create(table);
+    }
+    final byte[] column = { 1 };
+    final int rounds = 1000;
+    final int threadCount = 8;
+
+    // each thread increments a row shared by all threads and merges changes to its own row in both tables
+    final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+    List<Thread> threads = Lists.newArrayList();
+    for (int i = 0; i < threadCount; i++) {
+      final byte[] row = { (byte) i };
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            barrier.await();
+            for (int j = 1; j <= rounds; j++) {
+              for (String table : tables) {
+                InMemoryOrderedTableService.increment(table, new byte[] { 'x' }, ImmutableMap.of(column, 1L));
+                NavigableMap<byte[], NavigableMap<byte[], Update>> updates = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+                NavigableMap<byte[], Update> rowUpdate = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+                rowUpdate.put(column, new PutValue(Bytes.toBytes(j)));
+                updates.put(row, rowUpdate);
+                InMemoryOrderedTableService.merge(table, updates, j);
+              }
+            }
+          } catch (Exception e) {
+            throw Throwables.propagate(e);
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    for (String table : tables) {
+      Assert.assertEquals((long) threadCount * rounds,
+                          (long) InMemoryOrderedTableService.increment(table, new byte[] { 'x' },
+                                                                       ImmutableMap.of(column, 0L)).get(column));
+      for (int i = 0; i < threadCount; i++) {
+        NavigableMap<Long, byte[]> versions =
+          InMemoryOrderedTableService.get(table, new byte[] { (byte) i }, null).get(column);
+        Assert.assertEquals(rounds, versions.size());
+        Assert.assertArrayEquals(Bytes.toBytes(rounds), versions.get((long) rounds));
+      }
+      InMemoryOrderedTableService.drop(table);
+    }
+  }
+
   private void verify123() {
     NavigableMap<byte[], NavigableMap<Long, byte[]>> rowFromGet =
       InMemoryOrderedTableService.get("table", new byte[] {1}, 1L);
@@ -20,6 +20,7 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.table.OrderedTable;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionAware;
@@ -453,6 +454,11 @@ public abstract class BufferingOrderedTableTest<T extends BufferingOrderedTable>
       return delegate.scanPersisted(startRow, stopRow);
     }
 
+    @Override
+    protected Scanner scanPersisted(Scan scan) throws Exception {
+      return delegate.scanPersisted(scan);
+    }
+
     // propagating tx to delegate
 
     @Override
@@ -20,8 +20,10 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.OrderedTable;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionAware;
@@ -37,6 +39,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -225,6 +228,68 @@ public abstract class OrderedTableTest<T extends OrderedTable> {
     }
   }
 
+  @Test
+  public void testMultiGetWithTx() throws Exception {
+    DatasetAdmin admin = getTableAdmin("myTable");
+    admin.create();
+    try {
+      Transaction tx1 = txClient.startShort();
+      OrderedTable myTable1 = getTable("myTable");
+      ((TransactionAware) myTable1).startTx(tx1);
+      myTable1.put(R1, a(C1, C2), a(V1, V2));
+      myTable1.put(R2, a(C1), a(V1));
+      myTable1.put(R3, a(C3), a(L3));
+      // verify multi-get sees changes inside tx
+      List<Map<byte[], byte[]>> result =
+        myTable1.get(ImmutableList.of(new Get(R1, C1, C2), new Get(R2), new Get(R4), new Get(R3, C3)));
+      Assert.assertEquals(4, result.size());
+      verify(a(C1, V1, C2, V2), result.get(0));
+      verify(a(C1, V1), result.get(1));
+      verify(a(), result.get(2));
+      verify(a(C3, L3), result.get(3));
+      Assert.assertTrue(txClient.canCommit(tx1, ((TransactionAware) myTable1).getTxChanges()));
+      Assert.assertTrue(((TransactionAware) myTable1).commitTx());
+      Assert.assertTrue(txClient.commit(tx1));
+
+      // buffered changes are merged with persisted ones
+      Transaction tx2 = txClient.startShort();
+      OrderedTable myTable2 = getTable("myTable");
+      ((TransactionAware) myTable2).startTx(tx2);
+      myTable2.put(R1, a(C3), a(V3));
+      myTable2.delete(R1, a(C2));
+      myTable2.delete(R2);
+      myTable2.increment(R3, a(C3), la(2L));
+      myTable2.put(R4, a(C4), a(V4));
+      result = myTable2.get(ImmutableList.of(new Get(R1), new Get(R1, C1, C2, C3), new Get(R2, C1),
+                                             new Get(R3, C3), new Get(R4, C1, C4), new Get(R5)));
+      Assert.assertEquals(6, result.size());
+      verify(a(C1, V1, C3, V3), result.get(0));
+      verify(a(C1, V1, C3, V3), result.get(1));
+      verify(a(), result.get(2));
+      verify(a(C3, L5), result.get(3));
+      verify(a(C4, V4), result.get(4));
+      verify(a(), result.get(5));
+      Assert.assertTrue(txClient.canCommit(tx2, ((TransactionAware) myTable2).getTxChanges()));
+      Assert.assertTrue(((TransactionAware) myTable2).commitTx());
+      Assert.assertTrue(txClient.commit(tx2));
+
+      // verify committed changes are visible to new tx
+      Transaction tx3 = txClient.startShort();
+      ((TransactionAware) myTable1).startTx(tx3);
+      result = myTable1.get(ImmutableList.of(new Get(R4), new Get(R3), new Get(R2), new Get(R1, C2, C3)));
+      Assert.assertEquals(4, result.size());
+      verify(a(C4, V4), result.get(0));
+      verify(a(C3, L5), result.get(1));
+      verify(a(), result.get(2));
+      verify(a(C3, V3), result.get(3));
+      Assert.assertTrue(txClient.canCommit(tx3, ((TransactionAware) myTable1).getTxChanges()));
+      Assert.assertTrue(((TransactionAware) myTable1).commitTx());
+      Assert.assertTrue(txClient.commit(tx3));
+    } finally {
+      admin.drop();
+    }
+  }
+
   @Test
   public void testBasicCompareAndSwapWithTx() throws Exception {
     DatasetAdmin admin = getTableAdmin("myTable");
@@ -795,6 +860,76 @@ public abstract class OrderedTableTest<T extends OrderedTable> {
     }
   }
 
+  @Test
+  public void testScanWithRestrictions() throws Exception {
+    DatasetAdmin admin = getTableAdmin("myTable");
+    admin.create();
+    try {
+      Transaction tx1 = txClient.startShort();
+      OrderedTable myTable1 = getTable("myTable");
+      ((TransactionAware) myTable1).startTx(tx1);
+      myTable1.put(R1, a(C1, C2), a(V1, V2));
+      myTable1.put(R2, a(C1, C2, C3), a(V2, V2, V3));
+      myTable1.put(R3, a(C1, C3, C4), a(V1, V3, V4));
+      myTable1.put(R4, a(C4), a(V4));
+      myTable1.put(R5, a(C1, C5), a(V1, V5));
+      Assert.assertTrue(txClient.canCommit(tx1, ((TransactionAware) myTable1).getTxChanges()));
+      Assert.assertTrue(((TransactionAware) myTable1).commitTx());
+      Assert.assertTrue(txClient.commit(tx1));
+
+      Transaction tx2 = txClient.startShort();
+      OrderedTable myTable2 = getTable("myTable");
+      ((TransactionAware) myTable2).startTx(tx2);
+
+      // columns
+      verify(a(R1, R2, R3, R5),
+             aa(a(C1, V1), a(C1, V2), a(C1, V1), a(C1, V1)),
+             myTable2.scan(new Scan(null, null).addColumns(C1)));
+      // column range
+      verify(a(R1, R2, R3),
+             aa(a(C2, V2), a(C2, V2, C3, V3), a(C3, V3)),
+             myTable2.scan(new Scan(R1, null).setColumnRange(C2, C4)));
+      // value filter
+      verify(a(R1, R3, R5),
+             aa(a(C1, V1, C2, V2), a(C1, V1, C3, V3, C4, V4), a(C1, V1, C5, V5)),
+             myTable2.scan(new Scan(null, null).addValueFilter(C1, V1)));
+      // value filter on a column that is not returned
+      verify(a(R3),
+             aa(a(C3, V3)),
+             myTable2.scan(new Scan(null, null).addColumns(C3).addValueFilter(C1, V1)));
+      verify(a(R3),
+             aa(a(C3, V3, C4, V4)),
+             myTable2.scan(new Scan(null, null).setColumnRange(C3, C5).addValueFilter(C1, V1)));
+      // fuzzy key
+      verify(a(R3),
+             aa(a(C1, V1, C3, V3, C4, V4)),
+             myTable2.scan(new Scan(null, null).addFuzzyKey(Bytes.toBytes("x3"), new byte[] {1, 0})));
+      // limit
+      verify(a(R1, R2),
+             aa(a(C1, V1), a(C1, V2)),
+             myTable2.scan(new Scan(null, null).addColumns(C1).setLimit(2)));
+
+      // restrictions are applied on top of the changes made within the tx
+      myTable2.put(R4, a(C1), a(V1));
+      myTable2.delete(R3, a(C1));
+      verify(a(R1, R4, R5),
+             aa(a(C1, V1, C2, V2), a(C1, V1, C4, V4), a(C1, V1, C5, V5)),
+             myTable2.scan(new Scan(null, null).addValueFilter(C1, V1)));
+      verify(a(R1, R4),
+             aa(a(C1, V1), a(C1, V1)),
+             myTable2.scan(new Scan(null, null).addColumns(C1).addValueFilter(C1, V1).setLimit(2)));
+      verify(a(R2, R3, R4),
+             aa(a(C3, V3), a(C3, V3, C4, V4), a(C4, V4)),
+             myTable2.scan(new Scan(R2, R5).setColumnRange(C3, null)));
+
+      Assert.assertTrue(txClient.canCommit(tx2, ((TransactionAware) myTable2).getTxChanges()));
+      Assert.assertTrue(((TransactionAware) myTable2).commitTx());
+      Assert.assertTrue(txClient.commit(tx2));
+    } finally {
+      admin.drop();
+    }
+  }
+
   @Test
   public void testBasicScanWithTx() throws Exception {
     // todo: make work with tx well (merge with buffer, conflicts) and add tests for that
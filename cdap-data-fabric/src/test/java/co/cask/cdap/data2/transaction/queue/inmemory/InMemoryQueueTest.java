@@ -15,6 +15,7 @@
  */
 package co.cask.cdap.data2.transaction.queue.inmemory;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.guice.LocationRuntimeModule;
@@ -24,16 +25,26 @@ import co.cask.cdap.data.runtime.DataSetsModules;
 import co.cask.cdap.data.runtime.TransactionMetricsModule;
 import co.cask.cdap.data2.datafabric.dataset.service.DatasetService;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetOpExecutor;
+import co.cask.cdap.common.utils.ImmutablePair;
+import co.cask.cdap.data2.queue.ConsumerConfig;
+import co.cask.cdap.data2.queue.DequeueStrategy;
 import co.cask.cdap.data2.queue.QueueClientFactory;
+import co.cask.cdap.data2.queue.QueueEntry;
 import co.cask.cdap.data2.transaction.queue.QueueAdmin;
 import co.cask.cdap.data2.transaction.queue.QueueTest;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
+import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionExecutorFactory;
 import co.cask.tephra.TransactionManager;
 import co.cask.tephra.TransactionSystemClient;
 import com.google.inject.Guice;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Injector;
+import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
 
 /**
  * In-memory queue tests.
@@ -60,4 +71,40 @@ public class InMemoryQueueTest extends QueueTest {
     streamAdmin = injector.getInstance(StreamAdmin.class);
     executorFactory = injector.getInstance(TransactionExecutorFactory.class);
   }
+
+  @Test
+  public void testResharding() {
+    InMemoryQueue queue = new InMemoryQueue();
+    for (int i = 0; i < 12; i++) {
+      queue.enqueue(1L, i, new QueueEntry("key", i, Bytes.toBytes(i)));
+    }
+    Transaction tx = new Transaction(1L, 2L, new long[0], new long[0], Long.MAX_VALUE);
+
+    // Each instance of a group of two only sees the entries of its shard
+    ConsumerConfig config = new ConsumerConfig(0L, 1, 2, DequeueStrategy.HASH, "key");
+    ImmutablePair<List<InMemoryQueue.Key>, List<byte[]>> result =
+      queue.dequeue(tx, config, new InMemoryQueue.ConsumerState(), 100);
+    assertEntries(result.getSecond(), 1, 3, 5, 7, 9, 11);
+    queue.ack(result.getFirst(), config);
+
+    // Entries enqueued after the shards are created go to the shards as well
+    queue.enqueue(1L, 12, new QueueEntry("key", 12, Bytes.toBytes(12)));
+    queue.enqueue(1L, 13, new QueueEntry("key", 13, Bytes.toBytes(13)));
+    config = new ConsumerConfig(0L, 0, 2, DequeueStrategy.HASH, "key");
+    result = queue.dequeue(tx, config, new InMemoryQueue.ConsumerState(), 100);
+    assertEntries(result.getSecond(), 0, 2, 4, 6, 8, 10, 12);
+
+    // Changing the group size shards the entries again. Processed entries are still skipped.
+    queue.configureGroups(ImmutableMap.of(0L, 3));
+    config = new ConsumerConfig(0L, 1, 3, DequeueStrategy.HASH, "key");
+    result = queue.dequeue(tx, config, new InMemoryQueue.ConsumerState(), 100);
+    assertEntries(result.getSecond(), 4, 10, 13);
+  }
+
+  private void assertEntries(List<byte[]> entries, int... expected) {
+    Assert.assertEquals(expected.length, entries.size());
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i], Bytes.toInt(entries.get(i)));
+    }
+  }
 }
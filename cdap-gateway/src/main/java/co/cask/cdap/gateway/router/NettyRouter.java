@@ -20,6 +20,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
 import co.cask.cdap.gateway.router.handlers.HttpRequestHandler;
+import co.cask.cdap.gateway.router.handlers.OutboundChannelPool;
 import co.cask.cdap.gateway.router.handlers.SecurityAuthenticationHttpHandler;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 import co.cask.cdap.security.auth.TokenValidator;
@@ -52,8 +53,8 @@ import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioWorker;
 import org.jboss.netty.channel.socket.nio.NioWorkerPool;
 import org.jboss.netty.channel.socket.nio.ShareableWorkerPool;
+import org.jboss.netty.handler.codec.http.HttpClientCodec;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
-import org.jboss.netty.handler.codec.http.HttpRequestEncoder;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,6 +81,8 @@ public class NettyRouter extends AbstractIdleService {
 
   private final int clientBossThreadPoolSize;
   private final int clientWorkerThreadPoolSize;
+  private final int clientMaxConnectionsPerEndpoint;
+  private final long clientIdleTimeoutMs;
   private final InetAddress hostname;
   private final Map<String, Integer> serviceToPortMap;
 
@@ -95,6 +98,7 @@ public class NettyRouter extends AbstractIdleService {
 
   private ServerBootstrap serverBootstrap;
   private ClientBootstrap clientBootstrap;
+  private OutboundChannelPool channelPool;
 
   private DiscoveryServiceClient discoveryServiceClient;
 
@@ -119,6 +123,10 @@ public class NettyRouter extends AbstractIdleService {
                                                  Constants.Router.DEFAULT_CLIENT_BOSS_THREADS);
     this.clientWorkerThreadPoolSize = cConf.getInt(Constants.Router.CLIENT_WORKER_THREADS,
                                                    Constants.Router.DEFAULT_CLIENT_WORKER_THREADS);
+    this.clientMaxConnectionsPerEndpoint = cConf.getInt(Constants.Router.CLIENT_MAX_CONNECTIONS_PER_ENDPOINT,
+                                                        Constants.Router.DEFAULT_CLIENT_MAX_CONNECTIONS_PER_ENDPOINT);
+    this.clientIdleTimeoutMs = TimeUnit.SECONDS.toMillis(
+      cConf.getInt(Constants.Router.CLIENT_IDLE_TIMEOUT_SECS, Constants.Router.DEFAULT_CLIENT_IDLE_TIMEOUT_SECS));
 
     this.hostname = hostname;
     this.serviceToPortMap = Maps.newHashMap();
@@ -197,6 +205,7 @@ public class NettyRouter extends AbstractIdleService {
       }
     } finally {
       serverBootstrap.shutdown();
+      channelPool.close();
       clientBootstrap.shutdown();
       clientBootstrap.releaseExternalResources();
       serverBootstrap.releaseExternalResources();
@@ -247,7 +256,7 @@ public class NettyRouter extends AbstractIdleService {
           }
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
           pipeline.addLast("http-request-handler",
-                           new HttpRequestHandler(clientBootstrap, serviceLookup,
+                           new HttpRequestHandler(channelPool, serviceLookup,
                                                   ImmutableList.<ProxyRule>of(new DatasetsProxyRule(configuration))));
           return pipeline;
         }
@@ -306,12 +315,15 @@ public class NettyRouter extends AbstractIdleService {
       public ChannelPipeline getPipeline() throws Exception {
         ChannelPipeline pipeline = Channels.pipeline();
         pipeline.addLast("tracker", connectionTracker);
-        pipeline.addLast("request-encoder", new HttpRequestEncoder());
+        pipeline.addLast("codec", new HttpClientCodec());
         return pipeline;
       }
     });
 
     clientBootstrap.setOption("bufferFactory", new DirectChannelBufferFactory());
+    clientBootstrap.setOption("keepAlive", true);
+
+    channelPool = new OutboundChannelPool(clientBootstrap, clientMaxConnectionsPerEndpoint, clientIdleTimeoutMs);
   }
 
   private boolean isSSLEnabled() {
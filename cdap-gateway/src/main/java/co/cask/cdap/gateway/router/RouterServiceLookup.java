@@ -16,8 +16,7 @@
 
 package co.cask.cdap.gateway.router;
 
-import co.cask.cdap.common.discovery.EndpointStrategy;
-import co.cask.cdap.common.discovery.RandomEndpointStrategy;
+import co.cask.cdap.common.discovery.LoadAwareEndpointStrategy;
 import co.cask.cdap.common.discovery.TimeLimitEndpointStrategy;
 import co.cask.cdap.common.utils.Networks;
 import com.google.common.base.Objects;
@@ -50,7 +49,9 @@ public class RouterServiceLookup {
     new AtomicReference<Map<Integer, String>>(ImmutableMap.<Integer, String>of());
 
   private final DiscoveryServiceClient discoveryServiceClient;
-  private final LoadingCache<CacheKey, EndpointStrategy> discoverableCache;
+  private final LoadingCache<CacheKey, LoadAwareEndpointStrategy> discoverableCache;
+  // Endpoint strategies by discovery name, so that the endpoint load is shared by all requests to the same service.
+  private final LoadingCache<String, LoadAwareEndpointStrategy> endpointStrategies;
   private final RouterPathLookup routerPathLookup;
 
   @Inject
@@ -59,12 +60,20 @@ public class RouterServiceLookup {
     this.routerPathLookup = routerPathLookup;
     this.discoverableCache = CacheBuilder.newBuilder()
       .expireAfterAccess(1, TimeUnit.HOURS)
-      .build(new CacheLoader<CacheKey, EndpointStrategy>() {
+      .build(new CacheLoader<CacheKey, LoadAwareEndpointStrategy>() {
         @Override
-        public EndpointStrategy load(CacheKey key) throws Exception {
+        public LoadAwareEndpointStrategy load(CacheKey key) throws Exception {
           return loadCache(key);
         }
       });
+    this.endpointStrategies = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(new CacheLoader<String, LoadAwareEndpointStrategy>() {
+        @Override
+        public LoadAwareEndpointStrategy load(String discoverName) throws Exception {
+          return new LoadAwareEndpointStrategy(discoveryServiceClient.discover(discoverName));
+        }
+      });
   }
 
   /**
@@ -89,9 +98,9 @@ public class RouterServiceLookup {
    *
    * @param port port to lookup.
    * @param httpRequest supplies the header information for the lookup.
-   * @return instance of EndpointStrategy if available null otherwise.
+   * @return instance of LoadAwareEndpointStrategy if available null otherwise.
    */
-  public EndpointStrategy getDiscoverable(int port, HttpRequest httpRequest) {
+  public LoadAwareEndpointStrategy getDiscoverable(int port, HttpRequest httpRequest) {
     //Get the service based on Port.
     final String service = serviceMapRef.get().get(port);
     if (service == null) {
@@ -126,8 +135,8 @@ public class RouterServiceLookup {
     serviceMapRef.set(serviceMap);
   }
 
-  private EndpointStrategy loadCache(CacheKey cacheKey) throws Exception {
-    EndpointStrategy endpointStrategy;
+  private LoadAwareEndpointStrategy loadCache(CacheKey cacheKey) throws Exception {
+    LoadAwareEndpointStrategy endpointStrategy;
     String service = cacheKey.getService();
     if (service.contains("$HOST")) {
       // Route URLs to host in the header.
@@ -150,11 +159,11 @@ public class RouterServiceLookup {
     return endpointStrategy;
   }
 
-  private EndpointStrategy discoverService(CacheKey key)
+  private LoadAwareEndpointStrategy discoverService(CacheKey key)
     throws UnsupportedEncodingException, ExecutionException {
     // First try with path routing
     String lookupService = genLookupName(key.getService(), key.getHost(), key.getFirstPathPart());
-    EndpointStrategy endpointStrategy = discover(lookupService);
+    LoadAwareEndpointStrategy endpointStrategy = discover(lookupService);
 
     if (endpointStrategy.pick() == null) {
       // Try without path routing
@@ -165,17 +174,17 @@ public class RouterServiceLookup {
     return endpointStrategy;
   }
 
-  private EndpointStrategy discoverDefaultService(CacheKey key)
+  private LoadAwareEndpointStrategy discoverDefaultService(CacheKey key)
     throws UnsupportedEncodingException, ExecutionException {
     // Try only path routing
     String lookupService = genLookupName(key.getService(), DEFAULT_SERVICE_NAME, key.getFirstPathPart());
     return discover(lookupService);
   }
 
-  private EndpointStrategy discover(String discoverName) throws ExecutionException {
+  private LoadAwareEndpointStrategy discover(String discoverName) throws ExecutionException {
     LOG.debug("Looking up service name {}", discoverName);
 
-    EndpointStrategy endpointStrategy = new RandomEndpointStrategy(discoveryServiceClient.discover(discoverName));
+    LoadAwareEndpointStrategy endpointStrategy = endpointStrategies.get(discoverName);
     if (new TimeLimitEndpointStrategy(endpointStrategy, 300L, TimeUnit.MILLISECONDS).pick() == null) {
       LOG.debug("Discoverable endpoint {} not found", discoverName);
     }
@@ -16,18 +16,13 @@
 
 package co.cask.cdap.gateway.router.handlers;
 
-import co.cask.cdap.common.discovery.EndpointStrategy;
+import co.cask.cdap.common.discovery.LoadAwareEndpointStrategy;
 import co.cask.cdap.common.exception.HandlerException;
 import co.cask.cdap.gateway.router.ProxyRule;
 import co.cask.cdap.gateway.router.RouterServiceLookup;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Queues;
-import com.google.common.io.Closeables;
 import org.apache.twill.discovery.Discoverable;
-import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
@@ -44,12 +39,8 @@ import org.jboss.netty.handler.codec.http.HttpVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Closeable;
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
-import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -60,21 +51,21 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestHandler.class);
 
-  private final ClientBootstrap clientBootstrap;
+  private final OutboundChannelPool channelPool;
   private final RouterServiceLookup serviceLookup;
-  // Data structure is used to clean up the channel futures on connection close.
-  private final Map<WrappedDiscoverable, MessageSender> discoveryLookup;
   private final List<ProxyRule> proxyRules;
 
-  private MessageSender chunkSender;
+  // Pooled channel that the last request was sent on.
+  private OutboundChannelPool.PooledChannel lastChannel;
+  // Pooled channel for sending the chunks of the current request.
+  private OutboundChannelPool.PooledChannel chunkChannel;
   private AtomicBoolean channelClosed = new AtomicBoolean(false);
 
-  public HttpRequestHandler(ClientBootstrap clientBootstrap,
+  public HttpRequestHandler(OutboundChannelPool channelPool,
                             RouterServiceLookup serviceLookup,
                             List<ProxyRule> proxyRules) {
-    this.clientBootstrap = clientBootstrap;
+    this.channelPool = channelPool;
     this.serviceLookup = serviceLookup;
-    this.discoveryLookup = Maps.newHashMap();
     this.proxyRules = proxyRules;
   }
 
@@ -90,11 +81,15 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
     if (msg instanceof HttpChunk) {
       // This case below should never happen this would mean we get Chunks before HTTPMessage.
-      if (chunkSender == null) {
+      if (chunkChannel == null) {
         throw new HandlerException(HttpResponseStatus.INTERNAL_SERVER_ERROR,
                                    "Chunk received and event sender is null");
       }
-      chunkSender.send(msg);
+      HttpChunk chunk = (HttpChunk) msg;
+      channelPool.sendChunk(chunkChannel, chunk);
+      if (chunk.isLast()) {
+        chunkChannel = null;
+      }
 
     } else if (msg instanceof HttpRequest) {
       // Discover and forward event.
@@ -103,29 +98,19 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
       // Suspend incoming traffic until connected to the outbound service.
       inboundChannel.setReadable(false);
-      WrappedDiscoverable discoverable = getDiscoverable(request,
-                                                         (InetSocketAddress) inboundChannel.getLocalAddress());
-
-      // If no event sender, make new connection, otherwise reuse existing one.
-      MessageSender sender =  discoveryLookup.get(discoverable);
-      if (sender == null) {
-        InetSocketAddress address = discoverable.getSocketAddress();
-
-        ChannelFuture future = clientBootstrap.connect(address);
-        Channel outboundChannel = future.getChannel();
-        outboundChannel.getPipeline().addAfter("request-encoder",
-                                               "outbound-handler", new OutboundHandler(inboundChannel));
-        sender = new MessageSender(inboundChannel, future);
-        discoveryLookup.put(discoverable, sender);
-      }
-
-      // Send the message.
-      sender.send(request);
+      LoadAwareEndpointStrategy strategy = getEndpointStrategy(request,
+                                                               (InetSocketAddress) inboundChannel.getLocalAddress());
+      Discoverable discoverable = pickDiscoverable(strategy, request);
+
+      // Send the message through a pooled channel to the endpoint. The request is completed in the strategy
+      // when the response is received.
+      lastChannel = channelPool.send(new WrappedDiscoverable(discoverable), inboundChannel, request,
+                                     strategy.begin(discoverable), lastChannel);
       inboundChannel.setReadable(true);
 
-      //Save the channelFuture for subsequent chunks
+      // Save the pooled channel for subsequent chunks
       if (request.isChunked()) {
-        chunkSender = sender;
+        chunkChannel = lastChannel;
       }
 
     } else {
@@ -158,10 +143,14 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   @Override
   public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-    // Close all event sender
+    // A request that is partially sent cannot be completed, hence the pooled channel cannot be reused.
+    // A pooled channel that only has responses for this channel pending is closed too, so that the endpoint does not
+    // keep producing them. Otherwise responses to this channel are discarded when they arrive.
     LOG.trace("Channel closed {}", ctx.getChannel().getId());
-    for (Closeable c : discoveryLookup.values()) {
-      Closeables.closeQuietly(c);
+    if (chunkChannel != null) {
+      channelPool.close(chunkChannel);
+    } else if (lastChannel != null) {
+      channelPool.inboundClosed(lastChannel, ctx.getChannel());
     }
     channelClosed.compareAndSet(false, true);
     super.channelClosed(ctx, e);
@@ -176,117 +165,24 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
     }
   }
 
-  private WrappedDiscoverable getDiscoverable(final HttpRequest httpRequest,
-                                              final InetSocketAddress address) {
-    EndpointStrategy strategy = serviceLookup.getDiscoverable(address.getPort(), httpRequest);
+  private LoadAwareEndpointStrategy getEndpointStrategy(final HttpRequest httpRequest,
+                                                        final InetSocketAddress address) {
+    LoadAwareEndpointStrategy strategy = serviceLookup.getDiscoverable(address.getPort(), httpRequest);
     if (strategy == null) {
       throw  new HandlerException(HttpResponseStatus.SERVICE_UNAVAILABLE,
                                   String.format("No endpoint strategy found for request : %s",
                                   httpRequest.getUri()));
     }
+    return strategy;
+  }
+
+  private Discoverable pickDiscoverable(LoadAwareEndpointStrategy strategy, HttpRequest httpRequest) {
     Discoverable discoverable = strategy.pick();
     if (discoverable == null) {
       throw  new HandlerException(HttpResponseStatus.SERVICE_UNAVAILABLE,
                                   String.format("No discoverable found for request : %s",
                                                 httpRequest.getUri()));
     }
-    return new WrappedDiscoverable(discoverable);
-  }
-
-  /**
-   * For sending messages to outbound channel while maintaining the order of messages according to
-   * the order that {@link #send(Object)} method is called.
-   *
-   * It uses a lock-free algorithm similar to the one
-   * in {@link co.cask.cdap.data.stream.service.ConcurrentStreamWriter} to do the write through the
-   * channel callback.
-   */
-  private static final class MessageSender implements Closeable {
-    private final Channel inBoundChannel;
-    private final ChannelFuture channelFuture;
-    private final Queue<OutboundMessage> messages;
-    private final AtomicBoolean writer;
-
-    private MessageSender(Channel inBoundChannel, ChannelFuture channelFuture) {
-      this.inBoundChannel = inBoundChannel;
-      this.channelFuture = channelFuture;
-      this.messages = Queues.newConcurrentLinkedQueue();
-      this.writer = new AtomicBoolean(false);
-    }
-
-    private void send(Object msg) {
-      final OutboundMessage message = new OutboundMessage(msg);
-      messages.add(message);
-      if (channelFuture.isSuccess()) {
-        flushUntilCompleted(channelFuture.getChannel(), message);
-      } else {
-        channelFuture.addListener(new ChannelFutureListener() {
-          @Override
-          public void operationComplete(ChannelFuture future) throws Exception {
-            if (!future.isSuccess()) {
-              closeOnFlush(inBoundChannel);
-              return;
-            }
-
-            flushUntilCompleted(future.getChannel(), message);
-          }
-        });
-      }
-    }
-
-    /**
-     * Writes queued messages to the given channel and keep doing it until the given message is written.
-     */
-    private void flushUntilCompleted(Channel channel, OutboundMessage message) {
-      // Retry until the message is sent.
-      while (!message.isCompleted()) {
-        // If lose to be write, just yield for other threads and recheck if the message is sent.
-        if (!writer.compareAndSet(false, true)) {
-          Thread.yield();
-          continue;
-        }
-
-        // Otherwise, send every messages in the queue and notify others by setting the completed flag
-        // The visibility of the flag is guaranteed by the setting of the atomic boolean.
-        try {
-          OutboundMessage m = messages.poll();
-          while (m != null) {
-            m.write(channel);
-            m.completed();
-            m = messages.poll();
-          }
-        } finally {
-          writer.set(false);
-        }
-      }
-    }
-
-    @Override
-    public void close() throws IOException {
-      closeOnFlush(channelFuture.getChannel());
-    }
-  }
-
-
-  private static final class OutboundMessage {
-    private final Object message;
-    private boolean completed;
-
-    private OutboundMessage(Object message) {
-      this.message = message;
-    }
-
-    private boolean isCompleted() {
-      return completed;
-    }
-
-    private void completed() {
-      completed = true;
-    }
-
-    private void write(Channel channel) {
-      channel.write(message);
-    }
+    return discoverable;
   }
 }
-
@@ -0,0 +1,636 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.common.discovery.LoadAwareEndpointStrategy;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of keep-alive channels to discoverable endpoints, shared by all inbound channels of the router.
+ * <p>
+ * A request is sent on an idle channel to the endpoint if there is one, otherwise on a new channel. Once the number
+ * of channels to an endpoint reaches the limit, requests are pipelined onto the channel with the fewest requests in
+ * flight instead. Responses are forwarded to the inbound channels in the order the requests were sent, and channels
+ * that stay idle longer than the idle timeout are closed.
+ * </p>
+ * <p>
+ * Requests are not pipelined behind a request that does not keep the connection alive. If an endpoint closes the
+ * connection with a response while other requests are queued behind it, the endpoint has not processed them, so the
+ * requests that are not chunked are sent again on a new channel, which takes over as the successor of the closed one.
+ * </p>
+ * <p>
+ * The list of channels to an endpoint is guarded by its {@link EndpointChannels}, and the state of a channel by its
+ * {@link PooledChannel}. No channel is locked while holding an endpoint lock, and messages to a channel are only
+ * written while holding the lock of that channel, so that requests are written in the same order as their inbound
+ * channels are queued for responses.
+ * </p>
+ */
+public final class OutboundChannelPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OutboundChannelPool.class);
+
+  private final ClientBootstrap clientBootstrap;
+  private final int maxChannelsPerEndpoint;
+  private final long idleTimeoutMs;
+  private final ConcurrentMap<WrappedDiscoverable, EndpointChannels> endpoints;
+  private final ScheduledExecutorService evictExecutor;
+
+  public OutboundChannelPool(ClientBootstrap clientBootstrap, int maxChannelsPerEndpoint, long idleTimeoutMs) {
+    this.clientBootstrap = clientBootstrap;
+    this.maxChannelsPerEndpoint = maxChannelsPerEndpoint;
+    this.idleTimeoutMs = idleTimeoutMs;
+    this.endpoints = Maps.newConcurrentMap();
+    this.evictExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                                                                      .setDaemon(true)
+                                                                      .setNameFormat("router-channel-evictor")
+                                                                      .build());
+
+    long evictIntervalMs = Math.max(1L, idleTimeoutMs / 2);
+    evictExecutor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        evictIdleChannels();
+      }
+    }, evictIntervalMs, evictIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sends a request to the given endpoint. The response is forwarded to the given inbound channel.
+   *
+   * @param discoverable the endpoint to send the request to.
+   * @param inboundChannel channel to forward the response to.
+   * @param request the request to send.
+   * @param endpointRequest the request in the endpoint strategy, completed when the response is received or the
+   *                        channel is closed.
+   * @param lastChannel the channel that the previous request from the inbound channel was sent on. If it is still
+   *                    waiting for a response to the inbound channel, the request is pipelined onto it so that the
+   *                    responses are forwarded in the order of the requests.
+   * @return the channel that the request is sent on. Chunks of a chunked request must be sent on the same channel.
+   */
+  PooledChannel send(WrappedDiscoverable discoverable, Channel inboundChannel,
+                     HttpRequest request, LoadAwareEndpointStrategy.Request endpointRequest,
+                     @Nullable PooledChannel lastChannel) {
+    Receiver receiver = new Receiver(inboundChannel, request, endpointRequest);
+    if (lastChannel != null) {
+      PooledChannel pipelineChannel = lastChannel.getCurrent();
+      if (pipelineChannel.discoverable.equals(discoverable) && pipelineChannel.offer(receiver, true)) {
+        return pipelineChannel;
+      }
+    }
+
+    while (true) {
+      PooledChannel pooledChannel = getEndpoint(discoverable).select();
+      if (pooledChannel == null) {
+        // The endpoint was removed from the pool concurrently, try again with a new one
+        continue;
+      }
+      boolean accepted = pooledChannel.offer(receiver, false);
+      // Only the first call connects a new channel, so that a connect failure fails the request offered above.
+      boolean created = pooledChannel.connect();
+      if (accepted) {
+        return pooledChannel;
+      }
+      if (created && pooledChannel.closed) {
+        // A new channel that is closed already cannot take the request, e.g. when the pool is closed.
+        receiver.fail();
+        return pooledChannel;
+      }
+      // The channel was taken or closed concurrently, select again
+    }
+  }
+
+  /**
+   * Sends a chunk of a chunked request on the channel returned by {@link #send}.
+   */
+  void sendChunk(PooledChannel pooledChannel, HttpChunk chunk) {
+    pooledChannel.sendChunk(chunk);
+  }
+
+  /**
+   * Returns the inbound channel that the current response on the given channel should be forwarded to, or
+   * {@code null} if there is no outstanding request.
+   */
+  @Nullable
+  Channel getReceiver(PooledChannel pooledChannel) {
+    return pooledChannel.getReceiver();
+  }
+
+  /**
+   * Returns the inbound channel that is sending a chunked request on the given channel, or {@code null} if there is
+   * none.
+   */
+  @Nullable
+  Channel getWritingChannel(PooledChannel pooledChannel) {
+    return pooledChannel.writingChannel;
+  }
+
+  /**
+   * Called when a complete response is received on the given channel. The channel goes back to the pool if the
+   * response allows the connection to be kept alive.
+   */
+  void responseCompleted(PooledChannel pooledChannel, boolean keepAlive) {
+    pooledChannel.responseCompleted(keepAlive);
+  }
+
+  /**
+   * Called when an inbound channel is closed. If the given channel, which the last request of the inbound channel was
+   * sent on, is only busy with responses that nobody reads anymore, it is closed so that the endpoint stops producing
+   * them. Otherwise the responses to the closed inbound channel are discarded when they arrive.
+   */
+  void inboundClosed(PooledChannel lastChannel, Channel inboundChannel) {
+    PooledChannel pooledChannel = lastChannel.getCurrent();
+    List<Receiver> receivers = pooledChannel.closeIfOnlyServes(inboundChannel);
+    if (receivers != null) {
+      LOG.trace("Closing channel {} of closed inbound channel {}",
+                pooledChannel.channel.getId(), inboundChannel.getId());
+      discard(pooledChannel, receivers);
+    }
+  }
+
+  /**
+   * Removes the given channel from the pool and closes all inbound channels that are waiting for responses from it.
+   */
+  void remove(PooledChannel pooledChannel) {
+    List<Receiver> receivers = pooledChannel.markClosed();
+    if (receivers != null) {
+      removeFromEndpoint(pooledChannel);
+      failAll(receivers);
+    }
+  }
+
+  /**
+   * Removes the given channel from the pool and closes it.
+   */
+  void close(PooledChannel pooledChannel) {
+    remove(pooledChannel);
+    HttpRequestHandler.closeOnFlush(pooledChannel.channel);
+  }
+
+  @Override
+  public void close() {
+    evictExecutor.shutdownNow();
+    for (EndpointChannels endpointChannels : ImmutableList.copyOf(endpoints.values())) {
+      for (PooledChannel pooledChannel : endpointChannels.getChannels()) {
+        close(pooledChannel);
+      }
+    }
+  }
+
+  private EndpointChannels getEndpoint(WrappedDiscoverable discoverable) {
+    EndpointChannels endpointChannels = endpoints.get(discoverable);
+    if (endpointChannels == null) {
+      EndpointChannels newChannels = new EndpointChannels(discoverable);
+      endpointChannels = endpoints.putIfAbsent(discoverable, newChannels);
+      if (endpointChannels == null) {
+        endpointChannels = newChannels;
+      }
+    }
+    return endpointChannels;
+  }
+
+  /**
+   * Adds a channel that was not created by {@link EndpointChannels#select()} to the pool.
+   */
+  private void addToEndpoint(PooledChannel pooledChannel) {
+    while (!getEndpoint(pooledChannel.discoverable).add(pooledChannel)) {
+      // The endpoint was removed from the pool concurrently, try again with a new one
+    }
+  }
+
+  private void removeFromEndpoint(PooledChannel pooledChannel) {
+    EndpointChannels endpointChannels = pooledChannel.endpointChannels;
+    if (endpointChannels != null) {
+      endpointChannels.remove(pooledChannel);
+    }
+  }
+
+  /**
+   * Removes a channel that is marked as closed from the pool, fails the given receivers and closes the channel.
+   */
+  private void discard(PooledChannel pooledChannel, List<Receiver> receivers) {
+    removeFromEndpoint(pooledChannel);
+    failAll(receivers);
+    HttpRequestHandler.closeOnFlush(pooledChannel.channel);
+  }
+
+  private void failAll(List<Receiver> receivers) {
+    for (Receiver receiver : receivers) {
+      receiver.fail();
+    }
+  }
+
+  private void evictIdleChannels() {
+    long now = System.currentTimeMillis();
+    for (EndpointChannels endpointChannels : endpoints.values()) {
+      for (PooledChannel pooledChannel : endpointChannels.getChannels()) {
+        if (pooledChannel.evictIfIdle(now)) {
+          LOG.trace("Closing idle channel {}", pooledChannel.channel.getId());
+          discard(pooledChannel, ImmutableList.<Receiver>of());
+        }
+      }
+    }
+  }
+
+  /**
+   * The channels to an endpoint. The list of channels is guarded by this instance.
+   */
+  private final class EndpointChannels {
+    private final WrappedDiscoverable discoverable;
+    private final List<PooledChannel> channels;
+    // Set once the last channel is removed, after which this instance is removed from the pool
+    private boolean removed;
+
+    private EndpointChannels(WrappedDiscoverable discoverable) {
+      this.discoverable = discoverable;
+      this.channels = Lists.newArrayList();
+    }
+
+    /**
+     * Selects a channel for sending a new request to the endpoint, creating a new one if needed. Returns
+     * {@code null} if this instance is removed from the pool.
+     */
+    synchronized PooledChannel select() {
+      if (removed) {
+        return null;
+      }
+
+      // Find the channel with the least number of requests in flight. A channel that is in the middle of sending a
+      // chunked request or that is not kept alive after its last request cannot take new requests.
+      PooledChannel selected = null;
+      for (PooledChannel pooledChannel : channels) {
+        if (!pooledChannel.acceptsRequests()) {
+          continue;
+        }
+        if (selected == null || pooledChannel.inFlight < selected.inFlight) {
+          selected = pooledChannel;
+          if (selected.inFlight == 0) {
+            break;
+          }
+        }
+      }
+      if (selected != null && (selected.inFlight == 0 || channels.size() >= maxChannelsPerEndpoint)) {
+        return selected;
+      }
+
+      PooledChannel pooledChannel = new PooledChannel(discoverable);
+      pooledChannel.endpointChannels = this;
+      channels.add(pooledChannel);
+      return pooledChannel;
+    }
+
+    synchronized boolean add(PooledChannel pooledChannel) {
+      if (removed) {
+        return false;
+      }
+      pooledChannel.endpointChannels = this;
+      channels.add(pooledChannel);
+      return true;
+    }
+
+    synchronized void remove(PooledChannel pooledChannel) {
+      if (channels.remove(pooledChannel) && channels.isEmpty()) {
+        removed = true;
+        endpoints.remove(discoverable, this);
+      }
+    }
+
+    synchronized boolean isOverLimit() {
+      return channels.size() > maxChannelsPerEndpoint;
+    }
+
+    synchronized List<PooledChannel> getChannels() {
+      return ImmutableList.copyOf(channels);
+    }
+  }
+
+  /**
+   * A channel in the pool. The queue of receivers and the pending writes are guarded by this instance. The other
+   * states are only modified while holding the lock too, and are volatile so that they can be read without it when
+   * selecting a channel.
+   */
+  final class PooledChannel {
+    private final WrappedDiscoverable discoverable;
+    private final Channel channel;
+    private final ChannelFuture connectFuture;
+    private final AtomicBoolean connectStarted;
+    // Inbound channels waiting for responses, in the order of the requests sent.
+    private final Queue<Receiver> receivers;
+    // Messages sent before the channel is connected.
+    private final List<Object> pendingWrites;
+
+    private volatile EndpointChannels endpointChannels;
+    // Inbound channel that is sending a chunked request.
+    private volatile Channel writingChannel;
+    private volatile int inFlight;
+    // False once a request that does not keep the connection alive is sent.
+    private volatile boolean keepAlive;
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private volatile long idleSince;
+    // Channel that took over the queued requests when this channel was closed.
+    private volatile PooledChannel successor;
+
+    private PooledChannel(WrappedDiscoverable discoverable) {
+      this.discoverable = discoverable;
+      this.connectFuture = clientBootstrap.connect(discoverable.getSocketAddress());
+      this.channel = connectFuture.getChannel();
+      this.connectStarted = new AtomicBoolean();
+      this.receivers = Lists.newLinkedList();
+      this.pendingWrites = Lists.newArrayList();
+      this.keepAlive = true;
+      this.idleSince = System.currentTimeMillis();
+      channel.getPipeline().addLast("outbound-handler", new OutboundHandler(OutboundChannelPool.this, this));
+    }
+
+    /**
+     * Handles the result of the connect. Returns {@code true} for the first call only.
+     */
+    boolean connect() {
+      if (!connectStarted.compareAndSet(false, true)) {
+        return false;
+      }
+      connectFuture.addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+          connected(future.isSuccess());
+        }
+      });
+      return true;
+    }
+
+    /**
+     * Returns this channel, or the channel that took over its requests if it is closed.
+     */
+    PooledChannel getCurrent() {
+      PooledChannel current = this;
+      while (current.closed && current.successor != null) {
+        current = current.successor;
+      }
+      return current;
+    }
+
+    boolean acceptsRequests() {
+      return !closed && keepAlive && writingChannel == null;
+    }
+
+    /**
+     * Sends the request of the given receiver on this channel if the channel can take it.
+     *
+     * @param pipeline if {@code true}, only send if the inbound channel of the receiver is waiting for a response
+     *                 on this channel.
+     */
+    synchronized boolean offer(Receiver receiver, boolean pipeline) {
+      if (!acceptsRequests() || (pipeline && !hasReceiver(receiver.channel))) {
+        return false;
+      }
+      enqueue(receiver);
+      return true;
+    }
+
+    synchronized void sendChunk(HttpChunk chunk) {
+      if (closed) {
+        return;
+      }
+      write(chunk);
+      if (chunk.isLast()) {
+        writingChannel = null;
+      }
+    }
+
+    @Nullable
+    synchronized Channel getReceiver() {
+      Receiver receiver = receivers.peek();
+      return receiver == null ? null : receiver.channel;
+    }
+
+    void responseCompleted(boolean keepAliveResponse) {
+      Receiver receiver;
+      List<Receiver> failed = ImmutableList.of();
+      PooledChannel takeOver = null;
+      boolean close = false;
+
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        receiver = receivers.poll();
+        inFlight = receivers.size();
+
+        if (!keepAliveResponse) {
+          // The endpoint closes the connection without processing the requests queued behind. Requests that are not
+          // chunked are sent again on a new channel, the others cannot be repeated.
+          List<Receiver> resend = Lists.newArrayList();
+          failed = Lists.newArrayList();
+          for (Receiver queued : receivers) {
+            if (queued.request.isChunked() || (receiver != null && queued.channel == receiver.channel)) {
+              failed.add(queued);
+            } else {
+              resend.add(queued);
+            }
+          }
+          receivers.clear();
+          if (!resend.isEmpty()) {
+            takeOver = new PooledChannel(discoverable);
+            takeOver.takeOver(resend);
+            successor = takeOver;
+          }
+          markClosedLocked();
+          close = true;
+        } else if (receiver != null && receiver.channel == writingChannel) {
+          // The response came before the request is fully sent, the channel cannot be reused.
+          markClosedLocked();
+          close = true;
+        } else if (receivers.isEmpty()) {
+          // Channels created beyond the limit, or that took a request not keeping the connection alive, are not kept
+          EndpointChannels endpointChannels = this.endpointChannels;
+          if (!keepAlive || (endpointChannels != null && endpointChannels.isOverLimit())) {
+            markClosedLocked();
+            close = true;
+          } else {
+            idleSince = System.currentTimeMillis();
+          }
+        }
+      }
+
+      if (receiver != null) {
+        receiver.endpointRequest.complete();
+        if (!keepAliveResponse) {
+          // Close the inbound channel too, as the response tells the client that the connection is closed.
+          HttpRequestHandler.closeOnFlush(receiver.channel);
+        }
+      }
+      if (takeOver != null) {
+        addToEndpoint(takeOver);
+        takeOver.connect();
+      }
+      if (close) {
+        discard(this, failed);
+      }
+    }
+
+    /**
+     * Marks this channel as closed if the given inbound channel is the only one waiting for responses on it.
+     * Returns the receivers that were waiting, or {@code null} if the channel is not closed.
+     */
+    @Nullable
+    synchronized List<Receiver> closeIfOnlyServes(Channel inboundChannel) {
+      if (closed || receivers.isEmpty()) {
+        return null;
+      }
+      for (Receiver receiver : receivers) {
+        if (receiver.channel != inboundChannel) {
+          return null;
+        }
+      }
+      return markClosed();
+    }
+
+    /**
+     * Marks this channel as closed. Returns the receivers that were waiting for responses, or {@code null} if the
+     * channel is closed already.
+     */
+    synchronized List<Receiver> markClosed() {
+      if (closed) {
+        return null;
+      }
+      List<Receiver> waiting = ImmutableList.copyOf(receivers);
+      receivers.clear();
+      markClosedLocked();
+      return waiting;
+    }
+
+    /**
+     * Marks this channel as closed if it has been idle for longer than the idle timeout.
+     */
+    synchronized boolean evictIfIdle(long now) {
+      if (closed || !connected || !receivers.isEmpty() || writingChannel != null || now - idleSince < idleTimeoutMs) {
+        return false;
+      }
+      markClosedLocked();
+      return true;
+    }
+
+    private void markClosedLocked() {
+      closed = true;
+      inFlight = 0;
+      pendingWrites.clear();
+      writingChannel = null;
+    }
+
+    /**
+     * Queues the requests of a closed channel on this new channel, before it is visible to other threads.
+     */
+    private synchronized void takeOver(List<Receiver> resend) {
+      for (Receiver receiver : resend) {
+        enqueue(receiver);
+      }
+    }
+
+    private void enqueue(Receiver receiver) {
+      receivers.add(receiver);
+      inFlight = receivers.size();
+      if (receiver.request.isChunked()) {
+        writingChannel = receiver.channel;
+      }
+      if (!HttpHeaders.isKeepAlive(receiver.request)) {
+        keepAlive = false;
+      }
+      write(receiver.request);
+    }
+
+    /**
+     * Called when the connect completed. Writes all messages sent before the channel is connected.
+     */
+    private void connected(boolean success) {
+      if (!success) {
+        LOG.debug("Failed to connect to {}", discoverable.getSocketAddress());
+        close(this);
+        return;
+      }
+      synchronized (this) {
+        if (!closed) {
+          connected = true;
+          for (Object message : pendingWrites) {
+            channel.write(message);
+          }
+          pendingWrites.clear();
+          return;
+        }
+      }
+      HttpRequestHandler.closeOnFlush(channel);
+    }
+
+    private void write(Object message) {
+      if (connected) {
+        channel.write(message);
+      } else {
+        pendingWrites.add(message);
+      }
+    }
+
+    private boolean hasReceiver(Channel inboundChannel) {
+      for (Receiver receiver : receivers) {
+        if (receiver.channel == inboundChannel) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * An inbound channel waiting for the response of a request.
+   */
+  private static final class Receiver {
+    private final Channel channel;
+    private final HttpRequest request;
+    private final LoadAwareEndpointStrategy.Request endpointRequest;
+
+    private Receiver(Channel channel, HttpRequest request, LoadAwareEndpointStrategy.Request endpointRequest) {
+      this.channel = channel;
+      this.request = request;
+      this.endpointRequest = endpointRequest;
+    }
+
+    void fail() {
+      endpointRequest.complete();
+      HttpRequestHandler.closeOnFlush(channel);
+    }
+  }
+}
@@ -16,36 +16,69 @@
 
 package co.cask.cdap.gateway.router.handlers;
 
-import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Handles requests to and from a discoverable endpoint.
+ * Handles responses from a discoverable endpoint on a channel of the {@link OutboundChannelPool}. Responses are
+ * forwarded to the inbound channels in the order the requests were sent.
  */
 public class OutboundHandler extends SimpleChannelUpstreamHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private final OutboundChannelPool channelPool;
+  private final OutboundChannelPool.PooledChannel pooledChannel;
+  private boolean keepAlive;
 
-  public OutboundHandler(Channel inboundChannel) {
-    this.inboundChannel = inboundChannel;
+  OutboundHandler(OutboundChannelPool channelPool, OutboundChannelPool.PooledChannel pooledChannel) {
+    this.channelPool = channelPool;
+    this.pooledChannel = pooledChannel;
   }
 
   @Override
   public void messageReceived(ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
-    ChannelBuffer msg = (ChannelBuffer) e.getMessage();
+    Object msg = e.getMessage();
+    boolean completed;
+    if (msg instanceof HttpResponse) {
+      HttpResponse response = (HttpResponse) msg;
+      keepAlive = HttpHeaders.isKeepAlive(response);
+      // A 100-continue response is followed by the final response of the same request.
+      completed = !response.isChunked() && !HttpResponseStatus.CONTINUE.equals(response.getStatus());
+    } else if (msg instanceof HttpChunk) {
+      completed = ((HttpChunk) msg).isLast();
+    } else {
+      super.messageReceived(ctx, e);
+      return;
+    }
+
+    Channel inboundChannel = channelPool.getReceiver(pooledChannel);
+    if (inboundChannel == null) {
+      LOG.warn("Response without request received on channel {}", ctx.getChannel().getId());
+      channelPool.close(pooledChannel);
+      return;
+    }
     inboundChannel.write(msg);
+    if (completed) {
+      channelPool.responseCompleted(pooledChannel, keepAlive);
+    }
   }
 
   @Override
   public void channelInterestChanged(ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+    final Channel inboundChannel = channelPool.getWritingChannel(pooledChannel);
+    if (inboundChannel == null) {
+      return;
+    }
     inboundChannel.getPipeline().execute(new Runnable() {
       @Override
       public void run() {
@@ -66,7 +99,7 @@ public class OutboundHandler extends SimpleChannelUpstreamHandler {
   @Override
   public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
     LOG.trace("Channel closed {}", ctx.getChannel().getId());
-    HttpRequestHandler.closeOnFlush(inboundChannel);
+    channelPool.remove(pooledChannel);
   }
 
   @Override
@@ -18,6 +18,7 @@ package co.cask.cdap.gateway;
 
 import co.cask.cdap.common.metrics.MetricsCollectionService;
 import co.cask.cdap.common.metrics.MetricsCollector;
+import co.cask.cdap.common.metrics.MetricsCounter;
 import co.cask.cdap.common.metrics.MetricsScope;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
@@ -91,5 +92,20 @@ public class MockMetricsCollectionService implements MetricsCollectionService {
         metrics.put(context, metricName, v == null ? value : v + value);
       }
     }
+
+    @Override
+    public MetricsCounter counter(final String metricName) {
+      return new MetricsCounter() {
+        @Override
+        public void increment(int value) {
+          MockMetricsCollector.this.increment(metricName, value);
+        }
+      };
+    }
+
+    @Override
+    public void histogram(String metricName, long value) {
+      // no-op
+    }
   }
 }
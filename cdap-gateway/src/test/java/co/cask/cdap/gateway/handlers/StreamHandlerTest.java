@@ -17,21 +17,34 @@
 package co.cask.cdap.gateway.handlers;
 
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.api.stream.StreamEventData;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.io.Encoder;
+import co.cask.cdap.common.stream.DefaultStreamEvent;
+import co.cask.cdap.common.stream.DefaultStreamEventData;
+import co.cask.cdap.common.stream.StreamEventDataCodec;
 import co.cask.cdap.common.stream.StreamEventTypeAdapter;
 import co.cask.cdap.gateway.GatewayTestBase;
 import co.cask.cdap.proto.StreamProperties;
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.io.ByteStreams;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -111,6 +124,205 @@ public class StreamHandlerTest extends GatewayTestBase {
       Assert.assertEquals(Integer.toString(i), event.getHeaders().get("header1"));
     }
     urlConn.disconnect();
+
+    // Fetch 10 entries in Avro binary format, which should be the same as the Json one
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_enqueue/events?limit=10", HOSTNAME, port),
+                      HttpMethod.GET);
+    urlConn.setRequestProperty(HttpHeaders.Names.ACCEPT, "avro/binary");
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    Assert.assertTrue(urlConn.getContentType().startsWith("avro/binary"));
+
+    Decoder decoder = new BinaryDecoder(new ByteArrayInputStream(ByteStreams.toByteArray(urlConn.getInputStream())));
+    List<StreamEvent> avroEvents = Lists.newArrayList();
+    for (int len = decoder.readInt(); len != 0; len = decoder.readInt()) {
+      for (int i = 0; i < len; i++) {
+        StreamEventData data = StreamEventDataCodec.decode(decoder);
+        avroEvents.add(new DefaultStreamEvent(data, decoder.readLong()));
+      }
+    }
+    Assert.assertEquals(events.size(), avroEvents.size());
+    for (int i = 0; i < events.size(); i++) {
+      Assert.assertEquals(events.get(i).getTimestamp(), avroEvents.get(i).getTimestamp());
+      Assert.assertEquals(events.get(i).getBody(), avroEvents.get(i).getBody());
+      Assert.assertEquals(events.get(i).getHeaders(), avroEvents.get(i).getHeaders());
+    }
+    urlConn.disconnect();
+  }
+
+  @Test
+  public void testBatchStreamEnqueue() throws Exception {
+    int port = GatewayTestBase.getPort();
+
+    // Create new stream.
+    HttpURLConnection urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_batch", HOSTNAME, port),
+                                        HttpMethod.PUT);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Enqueue 10 newline delimited entries in one request
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 10; ++i) {
+      body.append(i).append('\n');
+    }
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_batch/batch", HOSTNAME, port),
+                      HttpMethod.POST);
+    urlConn.setDoOutput(true);
+    urlConn.addRequestProperty("test_stream_batch.header1", "batch");
+    urlConn.getOutputStream().write(body.toString().getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Batch enqueue to non-existing stream
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_batch_none/batch", HOSTNAME, port),
+                      HttpMethod.POST);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write("0\n1\n".getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.NOT_FOUND.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Empty batch to non-existing stream
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_batch_none/batch", HOSTNAME, port),
+                      HttpMethod.POST);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write(new byte[0]);
+    Assert.assertEquals(HttpResponseStatus.NOT_FOUND.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Fetch 10 entries
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_batch/events?limit=10", HOSTNAME, port),
+                      HttpMethod.GET);
+    List<StreamEvent> events = GSON.fromJson(new String(ByteStreams.toByteArray(urlConn.getInputStream()),
+                                                        Charsets.UTF_8),
+                                             new TypeToken<List<StreamEvent>>() { }.getType());
+    Assert.assertEquals(10, events.size());
+    for (int i = 0; i < 10; i++) {
+      StreamEvent event = events.get(i);
+      int actual = Integer.parseInt(Charsets.UTF_8.decode(event.getBody()).toString());
+      Assert.assertEquals(i, actual);
+      Assert.assertEquals("batch", event.getHeaders().get("header1"));
+      // All events in a batch are written with the same timestamp
+      Assert.assertEquals(events.get(0).getTimestamp(), event.getTimestamp());
+    }
+    urlConn.disconnect();
+  }
+
+  @Test
+  public void testAvroBatchStreamEnqueue() throws Exception {
+    int port = GatewayTestBase.getPort();
+
+    // Create new stream.
+    HttpURLConnection urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_avro_batch",
+                                                      HOSTNAME, port), HttpMethod.PUT);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Enqueue 10 entries as an Avro array of stream event data, each with its own headers.
+    // The first block has a negative count, followed by the block size in bytes.
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    Encoder blockEncoder = new BinaryEncoder(block);
+    for (int i = 0; i < 5; ++i) {
+      StreamEventDataCodec.encode(new DefaultStreamEventData(ImmutableMap.of("header1", Integer.toString(i)),
+                                                             Charsets.UTF_8.encode(Integer.toString(i))),
+                                  blockEncoder);
+    }
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    Encoder encoder = new BinaryEncoder(os);
+    encoder.writeInt(-5);
+    encoder.writeLong(block.size());
+    os.write(block.toByteArray());
+    encoder.writeInt(5);
+    for (int i = 5; i < 10; ++i) {
+      StreamEventDataCodec.encode(new DefaultStreamEventData(ImmutableMap.of("header1", Integer.toString(i)),
+                                                             Charsets.UTF_8.encode(Integer.toString(i))), encoder);
+    }
+    encoder.writeInt(0);
+
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_avro_batch/batch", HOSTNAME, port),
+                      HttpMethod.POST);
+    urlConn.setDoOutput(true);
+    urlConn.setRequestProperty(HttpHeaders.Names.CONTENT_TYPE, "avro/binary");
+    urlConn.getOutputStream().write(os.toByteArray());
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Invalid Avro body
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_avro_batch/batch", HOSTNAME, port),
+                      HttpMethod.POST);
+    urlConn.setDoOutput(true);
+    urlConn.setRequestProperty(HttpHeaders.Names.CONTENT_TYPE, "avro/binary");
+    urlConn.getOutputStream().write(new byte[] { 2 });
+    Assert.assertEquals(HttpResponseStatus.BAD_REQUEST.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Fetch 10 entries
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_avro_batch/events?limit=100",
+                                    HOSTNAME, port), HttpMethod.GET);
+    List<StreamEvent> events = GSON.fromJson(new String(ByteStreams.toByteArray(urlConn.getInputStream()),
+                                                        Charsets.UTF_8),
+                                             new TypeToken<List<StreamEvent>>() { }.getType());
+    Assert.assertEquals(10, events.size());
+    for (int i = 0; i < 10; i++) {
+      StreamEvent event = events.get(i);
+      Assert.assertEquals(i, Integer.parseInt(Charsets.UTF_8.decode(event.getBody()).toString()));
+      Assert.assertEquals(Integer.toString(i), event.getHeaders().get("header1"));
+    }
+    urlConn.disconnect();
+  }
+
+  @Test
+  public void testStreamTail() throws Exception {
+    int port = GatewayTestBase.getPort();
+
+    // Create new stream.
+    HttpURLConnection urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_tail", HOSTNAME, port),
+                                        HttpMethod.PUT);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Enqueue an event before tailing, which should not be returned
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_tail", HOSTNAME, port), HttpMethod.POST);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write("old".getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Without new event, the tail returns an empty array after the timeout
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_tail/events/tail?timeout=1",
+                                    HOSTNAME, port), HttpMethod.GET);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    List<StreamEvent> events = GSON.fromJson(new String(ByteStreams.toByteArray(urlConn.getInputStream()),
+                                                        Charsets.UTF_8),
+                                             new TypeToken<List<StreamEvent>>() { }.getType());
+    Assert.assertTrue(events.isEmpty());
+    urlConn.disconnect();
+
+    // Start tailing, then enqueue 5 entries
+    HttpURLConnection tailConn = openURL(
+      String.format("http://%s:%d/v2/streams/test_stream_tail/events/tail?limit=5&timeout=30", HOSTNAME, port),
+      HttpMethod.GET);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), tailConn.getResponseCode());
+
+    for (int i = 0; i < 5; ++i) {
+      urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_tail", HOSTNAME, port), HttpMethod.POST);
+      urlConn.setDoOutput(true);
+      urlConn.getOutputStream().write(Integer.toString(i).getBytes(Charsets.UTF_8));
+      Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+      urlConn.disconnect();
+    }
+
+    events = GSON.fromJson(new String(ByteStreams.toByteArray(tailConn.getInputStream()), Charsets.UTF_8),
+                           new TypeToken<List<StreamEvent>>() { }.getType());
+    Assert.assertEquals(5, events.size());
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(i, Integer.parseInt(Charsets.UTF_8.decode(events.get(i).getBody()).toString()));
+    }
+    tailConn.disconnect();
+
+    // Tail on non-existing stream
+    urlConn = openURL(String.format("http://%s:%d/v2/streams/test_stream_tail_none/events/tail", HOSTNAME, port),
+                      HttpMethod.GET);
+    Assert.assertEquals(HttpResponseStatus.NOT_FOUND.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
   }
 
   @Test
@@ -0,0 +1,405 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.common.discovery.LoadAwareEndpointStrategy;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.twill.discovery.Discoverable;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpClientCodec;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for reusing, pipelining and closing channels of the {@link OutboundChannelPool}.
+ */
+public class OutboundChannelPoolTest {
+
+  private static final String HOSTNAME = "127.0.0.1";
+
+  private final AtomicInteger backendConnections = new AtomicInteger();
+  private final AtomicInteger backendClosed = new AtomicInteger();
+  private final List<String> backendRequests = Collections.synchronizedList(Lists.<String>newArrayList());
+  private final BlockingQueue<Channel> inboundChannels = new LinkedBlockingQueue<Channel>();
+
+  private ServerBootstrap backendBootstrap;
+  private ServerBootstrap inboundBootstrap;
+  private ClientBootstrap outboundBootstrap;
+  private ClientBootstrap clientBootstrap;
+  private Discoverable backend;
+  private WrappedDiscoverable discoverable;
+  private InetSocketAddress inboundAddress;
+  private LoadAwareEndpointStrategy strategy;
+
+  @Before
+  public void setUp() {
+    // Backend that responds with the request uri
+    backendBootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
+                                                                             Executors.newCachedThreadPool()));
+    backendBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        return Channels.pipeline(new HttpRequestDecoder(), new HttpResponseEncoder(), new BackendHandler());
+      }
+    });
+    final InetSocketAddress backendAddress =
+      (InetSocketAddress) backendBootstrap.bind(new InetSocketAddress(HOSTNAME, 0)).getLocalAddress();
+    backend = new Discoverable() {
+      @Override
+      public String getName() {
+        return "backend";
+      }
+
+      @Override
+      public InetSocketAddress getSocketAddress() {
+        return backendAddress;
+      }
+    };
+    discoverable = new WrappedDiscoverable(backend);
+    strategy = new LoadAwareEndpointStrategy(ImmutableList.of(backend));
+
+    // Server that accepts the inbound channels that responses are forwarded to
+    inboundBootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
+                                                                             Executors.newCachedThreadPool()));
+    inboundBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        return Channels.pipeline(new HttpResponseEncoder(), new SimpleChannelUpstreamHandler() {
+          @Override
+          public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            inboundChannels.add(e.getChannel());
+          }
+        });
+      }
+    });
+    inboundAddress = (InetSocketAddress) inboundBootstrap.bind(new InetSocketAddress(HOSTNAME, 0)).getLocalAddress();
+
+    outboundBootstrap = new ClientBootstrap(new NioClientSocketChannelFactory(Executors.newCachedThreadPool(),
+                                                                              Executors.newCachedThreadPool()));
+    outboundBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        return Channels.pipeline(new HttpClientCodec());
+      }
+    });
+
+    clientBootstrap = new ClientBootstrap(new NioClientSocketChannelFactory(Executors.newCachedThreadPool(),
+                                                                            Executors.newCachedThreadPool()));
+  }
+
+  @After
+  public void tearDown() {
+    outboundBootstrap.releaseExternalResources();
+    clientBootstrap.releaseExternalResources();
+    inboundBootstrap.releaseExternalResources();
+    backendBootstrap.releaseExternalResources();
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    OutboundChannelPool pool = new OutboundChannelPool(outboundBootstrap, 1, TimeUnit.MINUTES.toMillis(1));
+    try {
+      Inbound inbound1 = connect();
+      Inbound inbound2 = connect();
+
+      OutboundChannelPool.PooledChannel channel = send(pool, inbound1, "/a", null);
+      Assert.assertEquals("/a", inbound1.takeResponse());
+
+      // Requests after the response reuse the idle channel, from the same and from another inbound channel
+      Assert.assertSame(channel, send(pool, inbound1, "/b", channel));
+      Assert.assertEquals("/b", inbound1.takeResponse());
+      Assert.assertSame(channel, send(pool, inbound2, "/c", null));
+      Assert.assertEquals("/c", inbound2.takeResponse());
+
+      Assert.assertEquals(1, backendConnections.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testPipeliningOrder() throws Exception {
+    OutboundChannelPool pool = new OutboundChannelPool(outboundBootstrap, 1, TimeUnit.MINUTES.toMillis(1));
+    try {
+      Inbound inbound1 = connect();
+      Inbound inbound2 = connect();
+
+      // With one channel per endpoint, requests are pipelined behind the slow one
+      OutboundChannelPool.PooledChannel channel = send(pool, inbound1, "/sleep/300", null);
+      Assert.assertSame(channel, send(pool, inbound2, "/b", null));
+      Assert.assertSame(channel, send(pool, inbound1, "/c", channel));
+      Assert.assertSame(channel, send(pool, inbound2, "/d", null));
+
+      Assert.assertEquals("/sleep/300", inbound1.takeResponse());
+      Assert.assertEquals("/c", inbound1.takeResponse());
+      Assert.assertEquals("/b", inbound2.takeResponse());
+      Assert.assertEquals("/d", inbound2.takeResponse());
+      Assert.assertEquals(1, backendConnections.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testIdleEviction() throws Exception {
+    OutboundChannelPool pool = new OutboundChannelPool(outboundBootstrap, 2, 200);
+    try {
+      Inbound inbound = connect();
+
+      OutboundChannelPool.PooledChannel channel = send(pool, inbound, "/a", null);
+      Assert.assertEquals("/a", inbound.takeResponse());
+      waitForBackendClosed(1);
+
+      // A new channel is created after the idle one is closed
+      Assert.assertNotSame(channel, send(pool, inbound, "/b", channel));
+      Assert.assertEquals("/b", inbound.takeResponse());
+      Assert.assertEquals(2, backendConnections.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testNoPipeliningBehindNonKeepAliveRequest() throws Exception {
+    OutboundChannelPool pool = new OutboundChannelPool(outboundBootstrap, 1, TimeUnit.MINUTES.toMillis(1));
+    try {
+      Inbound inbound1 = connect();
+      Inbound inbound2 = connect();
+
+      HttpRequest request = createRequest("/sleep/300");
+      HttpHeaders.setKeepAlive(request, false);
+      OutboundChannelPool.PooledChannel channel = pool.send(discoverable, inbound1.channel, request,
+                                                            strategy.begin(backend), null);
+
+      // The second request goes on a new channel even though the limit is reached
+      Assert.assertNotSame(channel, send(pool, inbound2, "/b", null));
+      Assert.assertEquals("/b", inbound2.takeResponse());
+      Assert.assertEquals("/sleep/300", inbound1.takeResponse());
+      Assert.assertEquals(2, backendConnections.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testResendOnNonKeepAliveResponse() throws Exception {
+    OutboundChannelPool pool = new OutboundChannelPool(outboundBootstrap, 1, TimeUnit.MINUTES.toMillis(1));
+    try {
+      Inbound inbound1 = connect();
+      Inbound inbound2 = connect();
+
+      // The backend closes the connection after responding to the first request, without processing the others
+      OutboundChannelPool.PooledChannel channel = send(pool, inbound1, "/close/300", null);
+      Assert.assertSame(channel, send(pool, inbound2, "/b", null));
+      Assert.assertSame(channel, send(pool, inbound2, "/c", channel));
+
+      Assert.assertEquals("/close/300", inbound1.takeResponse());
+      Assert.assertTrue(inbound1.closed.await(5, TimeUnit.SECONDS));
+
+      // The queued requests are sent again on a new channel, in order
+      Assert.assertEquals("/b", inbound2.takeResponse());
+      Assert.assertEquals("/c", inbound2.takeResponse());
+      Assert.assertEquals(2, backendConnections.get());
+      Assert.assertEquals(ImmutableList.of("/close/300", "/b", "/c"), ImmutableList.copyOf(backendRequests));
+
+      // Requests of the inbound channel follow the channel that took over
+      OutboundChannelPool.PooledChannel successor = send(pool, inbound2, "/d", channel);
+      Assert.assertNotSame(channel, successor);
+      Assert.assertEquals("/d", inbound2.takeResponse());
+      Assert.assertEquals(2, backendConnections.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testInboundClosed() throws Exception {
+    OutboundChannelPool pool = new OutboundChannelPool(outboundBootstrap, 1, TimeUnit.MINUTES.toMillis(1));
+    try {
+      Inbound inbound1 = connect();
+      Inbound inbound2 = connect();
+
+      // The channel is kept while another inbound channel is waiting for a response on it
+      OutboundChannelPool.PooledChannel channel = send(pool, inbound1, "/sleep/300", null);
+      Assert.assertSame(channel, send(pool, inbound2, "/b", null));
+      pool.inboundClosed(channel, inbound2.channel);
+      Assert.assertEquals("/sleep/300", inbound1.takeResponse());
+      Assert.assertEquals("/b", inbound2.takeResponse());
+      Assert.assertEquals(0, backendClosed.get());
+
+      // The channel is closed when the only inbound channel waiting for responses on it is closed. The completion of
+      // the previous response may not be recorded yet when its client receives it, hence retry until closed.
+      Assert.assertSame(channel, send(pool, inbound1, "/sleep/2000", channel));
+      for (int i = 0; i < 20 && backendClosed.get() == 0; i++) {
+        pool.inboundClosed(channel, inbound1.channel);
+        TimeUnit.MILLISECONDS.sleep(50);
+      }
+      waitForBackendClosed(1);
+      Assert.assertEquals(1, backendConnections.get());
+    } finally {
+      pool.close();
+    }
+  }
+
+  private OutboundChannelPool.PooledChannel send(OutboundChannelPool pool, Inbound inbound, String uri,
+                                                 OutboundChannelPool.PooledChannel lastChannel) {
+    return pool.send(discoverable, inbound.channel, createRequest(uri),
+                     strategy.begin(backend), lastChannel);
+  }
+
+  private HttpRequest createRequest(String uri) {
+    HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+    request.setHeader(HttpHeaders.Names.HOST, HOSTNAME);
+    return request;
+  }
+
+  private void waitForBackendClosed(int count) throws InterruptedException {
+    for (int i = 0; i < 100 && backendClosed.get() < count; i++) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+    Assert.assertEquals(count, backendClosed.get());
+  }
+
+  /**
+   * Connects a client to the inbound server and returns the accepted channel, with the responses received by the
+   * client.
+   */
+  private Inbound connect() throws Exception {
+    final Inbound inbound = new Inbound();
+    clientBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        return Channels.pipeline(new HttpResponseDecoder(), new HttpChunkAggregator(1024 * 1024),
+                                 new SimpleChannelUpstreamHandler() {
+          @Override
+          public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            HttpResponse response = (HttpResponse) e.getMessage();
+            inbound.responses.add(response.getContent().toString(Charsets.UTF_8));
+          }
+
+          @Override
+          public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            inbound.closed.countDown();
+          }
+        });
+      }
+    });
+    Assert.assertTrue(clientBootstrap.connect(inboundAddress).await(5, TimeUnit.SECONDS));
+    inbound.channel = inboundChannels.poll(5, TimeUnit.SECONDS);
+    Assert.assertNotNull(inbound.channel);
+    return inbound;
+  }
+
+  /**
+   * An inbound channel and the responses received by its client.
+   */
+  private static final class Inbound {
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<String>();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private Channel channel;
+
+    String takeResponse() throws InterruptedException {
+      String response = responses.poll(5, TimeUnit.SECONDS);
+      Assert.assertNotNull("No response received", response);
+      return response;
+    }
+  }
+
+  /**
+   * Responds with the request uri. Requests to {@code /sleep/<ms>} are delayed, and requests to {@code /close/<ms>}
+   * are delayed and close the connection after the response, without processing pipelined requests, as do requests
+   * that do not keep the connection alive.
+   */
+  private final class BackendHandler extends SimpleChannelUpstreamHandler {
+    private boolean closing;
+
+    @Override
+    public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+      backendConnections.incrementAndGet();
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+      backendClosed.incrementAndGet();
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+      if (closing) {
+        return;
+      }
+      HttpRequest request = (HttpRequest) e.getMessage();
+      String uri = request.getUri();
+      backendRequests.add(uri);
+
+      String[] parts = uri.split("/");
+      if (parts.length == 3) {
+        TimeUnit.MILLISECONDS.sleep(Long.parseLong(parts[2]));
+      }
+      closing = "close".equals(parts[1]) || !HttpHeaders.isKeepAlive(request);
+
+      HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+      response.setContent(ChannelBuffers.copiedBuffer(uri, Charsets.UTF_8));
+      HttpHeaders.setContentLength(response, response.getContent().readableBytes());
+      HttpHeaders.setKeepAlive(response, !closing);
+      ChannelFuture future = e.getChannel().write(response);
+      if (closing) {
+        future.addListener(ChannelFutureListener.CLOSE);
+      }
+    }
+  }
+}
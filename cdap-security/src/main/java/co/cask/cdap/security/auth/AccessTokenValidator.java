@@ -16,7 +16,11 @@
 
 package co.cask.cdap.security.auth;
 
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Codec;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import org.apache.commons.codec.binary.Base64;
@@ -24,30 +28,50 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class validates the accessToken and returns the different states
  * of accessToken validation.
+ *
+ * Valid tokens are cached together with their expiration time, so that a token used repeatedly is not decoded and
+ * verified again until it expires. The cache is cleared whenever the secret keys change.
  */
 public class AccessTokenValidator extends AbstractIdleService implements TokenValidator {
   private static final Logger LOG = LoggerFactory.getLogger(AccessTokenValidator.class);
   private final TokenManager tokenManager;
   private final Codec<AccessToken> accessTokenCodec;
+  // Map from valid token to its expiration timestamp
+  private final Cache<String, Long> validTokens;
+  // Incremented on every key change, to avoid caching a token validated against keys that are no longer current
+  private final AtomicInteger keyGeneration;
 
   @Inject
-  public AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+  public AccessTokenValidator(CConfiguration cConf, TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
     this.tokenManager = tokenManager;
     this.accessTokenCodec = accessTokenCodec;
+    this.validTokens = CacheBuilder.newBuilder()
+      .maximumSize(cConf.getLong(Constants.Security.TOKEN_CACHE_SIZE, 10000L))
+      .build();
+    this.keyGeneration = new AtomicInteger();
   }
 
   @Override
   protected void startUp() throws Exception {
+    tokenManager.addKeyChangeListener(new Runnable() {
+      @Override
+      public void run() {
+        keyGeneration.incrementAndGet();
+        validTokens.invalidateAll();
+      }
+    });
     tokenManager.startAndWait();
   }
 
   @Override
   protected void shutDown() throws Exception {
     tokenManager.stopAndWait();
+    validTokens.invalidateAll();
   }
 
   @Override
@@ -58,11 +82,27 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
       LOG.debug("Token is missing");
       return TokenState.MISSING;
     }
+
+    Long expireTimestamp = validTokens.getIfPresent(token);
+    if (expireTimestamp != null) {
+      if (expireTimestamp >= System.currentTimeMillis()) {
+        return TokenState.VALID;
+      }
+      validTokens.invalidate(token);
+      LOG.debug("Token is expired");
+      return TokenState.EXPIRED;
+    }
+
+    int generation = keyGeneration.get();
     byte[] decodedToken = Base64.decodeBase64(token);
 
     try {
       accessToken = accessTokenCodec.decode(decodedToken);
       tokenManager.validateSecret(accessToken);
+      validTokens.put(token, accessToken.getIdentifier().getExpireTimestamp());
+      if (generation != keyGeneration.get()) {
+        validTokens.invalidate(token);
+      }
     } catch (IOException ioe) {
       state = TokenState.INVALID;
       LOG.debug("Unknown Schema version for Access Token. {}", ioe);
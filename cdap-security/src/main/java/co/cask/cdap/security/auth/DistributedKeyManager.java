@@ -175,6 +175,7 @@ public class DistributedKeyManager extends AbstractKeyManager implements Resourc
         LOG.info("Set current key: leader={}, key={}", leader, currentKey.getKeyId());
       }
     }
+    notifyKeyChange();
   }
 
   @Override
@@ -184,11 +185,13 @@ public class DistributedKeyManager extends AbstractKeyManager implements Resourc
       currentKey = instance;
       LOG.info("Set current key: leader={}, key={}", leader, currentKey.getKeyId());
     }
+    notifyKeyChange();
   }
 
   @Override
   public void onResourceDelete(String name) {
     LOG.info("Removed key: leader={}, key={}", leader, name);
+    notifyKeyChange();
   }
 
   @Override
@@ -64,4 +64,11 @@ public interface KeyManager extends Service {
   <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException;
 
+  /**
+   * Registers a listener to be invoked whenever secret keys are added or removed, so that results derived from the
+   * previous set of keys can be discarded.
+   * @param listener The listener to invoke on key changes.
+   */
+  void addKeyChangeListener(Runnable listener);
+
 }
@@ -64,6 +64,14 @@ public class TokenManager extends AbstractIdleService {
     }
   }
 
+  /**
+   * Registers a listener to be invoked whenever the secret keys used to validate tokens are added or removed.
+   * @see KeyManager#addKeyChangeListener(Runnable)
+   */
+  public void addKeyChangeListener(Runnable listener) {
+    keyManager.addKeyChangeListener(listener);
+  }
+
   /**
    * Given an {@link AccessToken} instance, checks that the token has not yet expired and that the digest matches
    * the expected value. To validate the token digest, we recompute the digest value, based on the asserted identity
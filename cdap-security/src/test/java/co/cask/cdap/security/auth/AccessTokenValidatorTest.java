@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.security.auth;
+
+import co.cask.cdap.common.guice.ConfigModule;
+import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
+import co.cask.cdap.common.guice.IOModule;
+import co.cask.cdap.common.io.Codec;
+import co.cask.cdap.security.guice.InMemorySecurityModule;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link AccessTokenValidator}, including validation of cached tokens.
+ */
+public class AccessTokenValidatorTest {
+
+  @Test
+  public void testCachedValidation() throws Exception {
+    Injector injector = Guice.createInjector(new IOModule(), new InMemorySecurityModule(), new ConfigModule(),
+                                             new DiscoveryRuntimeModule().getInMemoryModules());
+    TokenManager tokenManager = injector.getInstance(TokenManager.class);
+    Codec<AccessToken> tokenCodec = injector.getInstance(AccessTokenCodec.class);
+    TokenValidator tokenValidator = injector.getInstance(TokenValidator.class);
+    tokenValidator.startAndWait();
+    try {
+      long now = System.currentTimeMillis();
+      AccessToken token = tokenManager.signIdentifier(
+        new AccessTokenIdentifier("testuser", ImmutableList.of("users"), now, now + TimeUnit.SECONDS.toMillis(2)));
+      String encodedToken = Base64.encodeBase64String(tokenCodec.encode(token));
+
+      Assert.assertEquals(TokenState.MISSING, tokenValidator.validate(null));
+
+      // Validate twice, the second time is served from the cache
+      Assert.assertEquals(TokenState.VALID, tokenValidator.validate(encodedToken));
+      Assert.assertEquals(TokenState.VALID, tokenValidator.validate(encodedToken));
+
+      // Token with invalid digest is never valid
+      byte[] invalidDigest = token.getDigestBytes().clone();
+      invalidDigest[0]++;
+      AccessToken invalidToken = new AccessToken(token.getIdentifier(), token.getKeyId(), invalidDigest);
+      String encodedInvalidToken = Base64.encodeBase64String(tokenCodec.encode(invalidToken));
+      Assert.assertEquals(TokenState.INVALID, tokenValidator.validate(encodedInvalidToken));
+      Assert.assertEquals(TokenState.INVALID, tokenValidator.validate(encodedInvalidToken));
+
+      // Cached token is expired once passed the expiration time
+      TimeUnit.MILLISECONDS.sleep(token.getIdentifier().getExpireTimestamp() - System.currentTimeMillis() + 100);
+      Assert.assertEquals(TokenState.EXPIRED, tokenValidator.validate(encodedToken));
+      Assert.assertEquals(TokenState.EXPIRED, tokenValidator.validate(encodedToken));
+    } finally {
+      tokenValidator.stopAndWait();
+    }
+  }
+}
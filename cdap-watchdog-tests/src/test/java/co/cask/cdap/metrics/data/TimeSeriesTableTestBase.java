@@ -188,6 +188,66 @@ public abstract class TimeSeriesTableTestBase {
     Assert.assertEquals(value, result.iterator().next().getValue());
   }
 
+  @Test
+  public void testRollup() throws OperationException {
+    TimeSeriesTable secondTable = getTableFactory().createTimeSeries("testRollup", 1);
+    TimeSeriesTable minuteTable = getTableFactory().createTimeSeries("testRollup", 60);
+    TimeSeriesTable hourTable = getTableFactory().createTimeSeries("testRollup", 3600);
+    // 2012-10-01T12:00:00
+    final long time = 1317470400;
+
+    // Two batches, with records spread over three minutes. The second batch is replayed, as it happens
+    // when metrics are consumed again after a restart.
+    List<List<MetricsRecord>> batches = Lists.newArrayList();
+    for (int batch = 0; batch < 2; batch++) {
+      List<MetricsRecord> records = Lists.newArrayList();
+      for (int i = 0; i < 90; i++) {
+        records.add(new MetricsRecord("context", "runId", "metric",
+                                      ImmutableList.of(new TagMetric("tag", 2)), time + batch * 90 + i, 1));
+      }
+      batches.add(records);
+    }
+    batches.add(batches.get(1));
+
+    for (List<MetricsRecord> records : batches) {
+      secondTable.save(records);
+      minuteTable.rollUp(secondTable, records.iterator());
+      hourTable.rollUp(minuteTable, records.iterator());
+    }
+
+    MetricsScanQuery query = new MetricsScanQueryBuilder()
+      .setContext("context").setMetric("metric").build(time, time + 1000);
+    MetricsScanner scanner = minuteTable.scan(query);
+    Assert.assertTrue(scanner.hasNext());
+
+    assertTimeValues(scanner.next(), time, 60, 60, 60, 60);
+    Assert.assertFalse(scanner.hasNext());
+
+    // Query on the tag
+    query = new MetricsScanQueryBuilder()
+      .setContext("context").setMetric("metric").setTag("tag").build(time + 60, time + 1000);
+    scanner = minuteTable.scan(query);
+    Assert.assertTrue(scanner.hasNext());
+    assertTimeValues(scanner.next(), time + 60, 60, 120, 120);
+
+    // The hour table is rolled up from the minute table
+    query = new MetricsScanQueryBuilder()
+      .setContext("context").setMetric("metric").build(time, time + 1000);
+    scanner = hourTable.scan(query);
+    Assert.assertTrue(scanner.hasNext());
+    assertTimeValues(scanner.next(), time, 3600, 180);
+    Assert.assertFalse(scanner.hasNext());
+  }
+
+  private void assertTimeValues(Iterable<TimeValue> timeValues, long startTime, int resolution, long... values) {
+    List<TimeValue> actual = ImmutableList.copyOf(timeValues);
+    Assert.assertEquals(values.length, actual.size());
+    for (int i = 0; i < values.length; i++) {
+      Assert.assertEquals(startTime + i * resolution, actual.get(i).getTime());
+      Assert.assertEquals(values[i], actual.get(i).getValue());
+    }
+  }
+
   @Test
   public void testDelete() throws OperationException {
 
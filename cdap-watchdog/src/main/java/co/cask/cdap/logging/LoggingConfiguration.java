@@ -45,17 +45,27 @@ public final class LoggingConfiguration {
   public static final String LOG_MAX_FILE_SIZE_BYTES = "log.max.file.size.bytes";
   public static final String KAFKA_PRODUCER_TYPE = "kafka.producer.type";
   public static final String KAFKA_PROCUDER_BUFFER_MS = "kafka.producer.buffer.ms";
+  public static final String KAFKA_PRODUCER_COMPRESSION_CODEC = "kafka.producer.compression.codec";
+  public static final String LOG_PUBLISH_QUEUE_SIZE = "log.publish.queue.size";
+  public static final String LOG_PUBLISH_QUEUE_TIMEOUT_MS = "log.publish.queue.timeout.ms";
+  public static final String LOG_PUBLISH_BATCH_SIZE = "log.publish.batch.size";
   public static final String LOG_CLEANUP_RUN_INTERVAL_MINS = "log.cleanup.run.interval.mins";
+  public static final String LOG_READER_FILE_READ_THREADS = "log.reader.file.read.threads";
 
   // Constants
   // Table used to store log metadata
   public static final String LOG_META_DATA_TABLE = "log.meta";
   // Defaults
   public static final String DEFAULT_LOG_PATTERN = "%d{ISO8601} - %-5p [%t:%C{1}@%L] - %m%n";
-  public static final String DEFAULT_KAFKA_PRODUCER_TYPE = "async";
+  public static final String DEFAULT_KAFKA_PRODUCER_TYPE = "sync";
   public static final long DEFAULT_KAFKA_PROCUDER_BUFFER_MS = 1000;
+  public static final String DEFAULT_KAFKA_PRODUCER_COMPRESSION_CODEC = "gzip";
+  public static final int DEFAULT_LOG_PUBLISH_QUEUE_SIZE = 10000;
+  public static final long DEFAULT_LOG_PUBLISH_QUEUE_TIMEOUT_MS = 10;
+  public static final int DEFAULT_LOG_PUBLISH_BATCH_SIZE = 500;
   public static final String DEFAULT_NUM_PARTITIONS = "10";
   public static final int DEFAULT_LOG_CLEANUP_RUN_INTERVAL_MINS = 24 * 60;
+  public static final int DEFAULT_LOG_READER_FILE_READ_THREADS = 8;
 
   public static final long DEFAULT_LOG_SAVER_EVENT_BUCKET_INTERVAL_MS = 4 * 1000;
   public static final long DEFAULT_LOG_SAVER_EVENT_PROCESSING_DELAY_MS = 8 * 1000;
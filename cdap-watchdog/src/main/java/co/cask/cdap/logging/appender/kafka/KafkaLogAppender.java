@@ -17,34 +17,87 @@
 package co.cask.cdap.logging.appender.kafka;
 
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.metrics.MetricsCollectionService;
+import co.cask.cdap.common.metrics.MetricsCollector;
+import co.cask.cdap.common.metrics.MetricsScope;
+import co.cask.cdap.logging.LoggingConfiguration;
 import co.cask.cdap.logging.appender.LogAppender;
 import co.cask.cdap.logging.appender.LogMessage;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Log appender that publishes log messages to Kafka.
+ * <p>
+ * Log messages are serialized on the logging thread and put into a bounded queue. A publisher thread takes messages
+ * from the queue and publishes them in batches, when either the batch size is reached or the oldest message in the
+ * batch has waited for the buffer time. When the queue is full, the logging thread waits for a short time for space,
+ * and drops the message if the queue is still full. The number of times logging threads had to wait and the number
+ * of dropped messages are reported as metrics.
+ * </p>
  */
 public final class KafkaLogAppender extends LogAppender {
   private static final Logger LOG = LoggerFactory.getLogger(KafkaLogAppender.class);
 
   public static final String APPENDER_NAME = "KafkaLogAppender";
+
+  private static final String METRICS_CONTEXT = "-.logging";
+  private static final long STOP_TIMEOUT_MS = TimeUnit.MILLISECONDS.convert(5, TimeUnit.SECONDS);
+  // Maximum time the publisher thread waits on the queue before checking whether the appender is stopped
+  private static final long POLL_INTERVAL_MS = 100;
+
   private final SimpleKafkaProducer producer;
   private final LoggingEventSerializer loggingEventSerializer;
+  private final BlockingQueue<Map.Entry<String, byte[]>> messageQueue;
+  private final long queueTimeoutMs;
+  private final int batchSize;
+  private final long bufferMs;
+  private final AtomicLong blockedCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
 
   private final AtomicBoolean stopped = new AtomicBoolean(false);
+  private volatile boolean running;
+  private volatile MetricsCollector metricsCollector;
+  private Thread publisherThread;
 
   @Inject
   public KafkaLogAppender(CConfiguration configuration) {
+    this(configuration, new SimpleKafkaProducer(configuration));
+  }
+
+  KafkaLogAppender(CConfiguration configuration, SimpleKafkaProducer producer) {
     setName(APPENDER_NAME);
     addInfo("Initializing KafkaLogAppender...");
 
-    this.producer = new SimpleKafkaProducer(configuration);
+    int queueSize = configuration.getInt(LoggingConfiguration.LOG_PUBLISH_QUEUE_SIZE,
+                                         LoggingConfiguration.DEFAULT_LOG_PUBLISH_QUEUE_SIZE);
+    Preconditions.checkArgument(queueSize > 0, "%s should be greater than 0. Got %s",
+                                LoggingConfiguration.LOG_PUBLISH_QUEUE_SIZE, queueSize);
+    this.batchSize = configuration.getInt(LoggingConfiguration.LOG_PUBLISH_BATCH_SIZE,
+                                          LoggingConfiguration.DEFAULT_LOG_PUBLISH_BATCH_SIZE);
+    Preconditions.checkArgument(batchSize > 0, "%s should be greater than 0. Got %s",
+                                LoggingConfiguration.LOG_PUBLISH_BATCH_SIZE, batchSize);
+    this.queueTimeoutMs = configuration.getLong(LoggingConfiguration.LOG_PUBLISH_QUEUE_TIMEOUT_MS,
+                                                LoggingConfiguration.DEFAULT_LOG_PUBLISH_QUEUE_TIMEOUT_MS);
+    this.bufferMs = configuration.getLong(LoggingConfiguration.KAFKA_PROCUDER_BUFFER_MS,
+                                          LoggingConfiguration.DEFAULT_KAFKA_PROCUDER_BUFFER_MS);
+    this.messageQueue = new ArrayBlockingQueue<Map.Entry<String, byte[]>>(queueSize);
+
+    this.producer = producer;
     try {
       this.loggingEventSerializer = new LoggingEventSerializer();
     } catch (IOException e) {
@@ -54,11 +107,39 @@ public final class KafkaLogAppender extends LogAppender {
     addInfo("Successfully initialized KafkaLogAppender.");
   }
 
+  /**
+   * Sets the {@link MetricsCollectionService} for reporting the blocked and dropped counts. If it is not set, the
+   * counts are not reported.
+   */
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsCollector = metricsCollectionService.getCollector(MetricsScope.SYSTEM, METRICS_CONTEXT, "0");
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    publisherThread = new Thread(new Publisher(), "kafka-log-publisher");
+    publisherThread.setDaemon(true);
+    publisherThread.start();
+    super.start();
+  }
+
   @Override
   protected void append(LogMessage logMessage) {
     try {
       byte [] bytes = loggingEventSerializer.toBytes(logMessage.getLoggingEvent(), logMessage.getLoggingContext());
-      producer.publish(logMessage.getLoggingContext().getLogPartition(), bytes);
+      Map.Entry<String, byte[]> message = Maps.immutableEntry(logMessage.getLoggingContext().getLogPartition(), bytes);
+      if (messageQueue.offer(message)) {
+        return;
+      }
+      blockedCount.incrementAndGet();
+      if (!messageQueue.offer(message, queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+        droppedCount.incrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      droppedCount.incrementAndGet();
+      Thread.currentThread().interrupt();
     } catch (Throwable t) {
       LOG.error("Got exception while serializing log event {}.", logMessage.getLoggingEvent(), t);
     }
@@ -71,6 +152,103 @@ public final class KafkaLogAppender extends LogAppender {
     }
 
     super.stop();
+
+    // Let the publisher thread publish the remaining messages
+    running = false;
+    if (publisherThread != null) {
+      try {
+        publisherThread.join(STOP_TIMEOUT_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      publisherThread.interrupt();
+    }
     producer.stop();
   }
+
+  /**
+   * Returns the number of log messages dropped because the queue was full.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Returns the number of times a logging thread had to wait because the queue was full.
+   */
+  public long getBlockedCount() {
+    return blockedCount.get();
+  }
+
+  /**
+   * Publishes messages from the queue in batches until the appender is stopped and the queue is drained.
+   */
+  private final class Publisher implements Runnable {
+
+    private long reportedBlockedCount;
+    private long reportedDroppedCount;
+
+    @Override
+    public void run() {
+      List<Map.Entry<String, byte[]>> batch = Lists.newArrayListWithCapacity(batchSize);
+      while (running || !messageQueue.isEmpty()) {
+        try {
+          // Always wait for the first message, even if buffering is disabled, so that an idle publisher
+          // doesn't spin. The buffer time only applies to the messages that follow in the same batch.
+          Map.Entry<String, byte[]> message = messageQueue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+          if (message != null) {
+            batch.add(message);
+            fillBatch(batch);
+            producer.publish(batch);
+            batch.clear();
+          }
+          reportMetrics();
+        } catch (InterruptedException e) {
+          break;
+        } catch (Throwable t) {
+          LOG.error("Got exception while publishing log messages.", t);
+          batch.clear();
+        }
+      }
+    }
+
+    /**
+     * Adds messages from the queue to the batch until the batch is full or the buffer time has passed. While
+     * stopping, only messages that are already in the queue are added.
+     */
+    private void fillBatch(List<Map.Entry<String, byte[]>> batch) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + bufferMs;
+      messageQueue.drainTo(batch, batchSize - batch.size());
+      while (running && batch.size() < batchSize) {
+        long waitMs = deadline - System.currentTimeMillis();
+        if (waitMs <= 0) {
+          break;
+        }
+        // Wait in short intervals, so that stop() doesn't wait for the whole buffer time
+        Map.Entry<String, byte[]> message = messageQueue.poll(Math.min(waitMs, POLL_INTERVAL_MS),
+                                                              TimeUnit.MILLISECONDS);
+        if (message != null) {
+          batch.add(message);
+          messageQueue.drainTo(batch, batchSize - batch.size());
+        }
+      }
+    }
+
+    private void reportMetrics() {
+      MetricsCollector collector = metricsCollector;
+      if (collector == null) {
+        return;
+      }
+      long blocked = blockedCount.get();
+      long dropped = droppedCount.get();
+      if (blocked != reportedBlockedCount) {
+        collector.increment("log.publish.blocked", (int) (blocked - reportedBlockedCount));
+        reportedBlockedCount = blocked;
+      }
+      if (dropped != reportedDroppedCount) {
+        collector.increment("log.publish.dropped", (int) (dropped - reportedDroppedCount));
+        reportedDroppedCount = dropped;
+      }
+    }
+  }
 }
@@ -19,6 +19,7 @@ package co.cask.cdap.logging.appender.kafka;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.logging.LoggingConfiguration;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import kafka.javaapi.producer.Producer;
 import kafka.producer.KeyedMessage;
 import kafka.producer.ProducerConfig;
@@ -26,12 +27,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
  * A Kafka producer that publishes log messages to Kafka brokers.
  */
-public final class SimpleKafkaProducer {
+public class SimpleKafkaProducer {
   private static final Logger LOG = LoggerFactory.getLogger(SimpleKafkaProducer.class);
 
   private final String kafkaTopic;
@@ -39,6 +42,18 @@ public final class SimpleKafkaProducer {
   private final Producer<String, byte[]> producer;
 
   public SimpleKafkaProducer(CConfiguration configuration) {
+    this(getTopic(), new Producer<String, byte[]>(createProducerConfig(configuration)));
+  }
+
+  /**
+   * Creates a producer that publishes to the given topic with the given Kafka producer.
+   */
+  SimpleKafkaProducer(String kafkaTopic, Producer<String, byte[]> producer) {
+    this.kafkaTopic = kafkaTopic;
+    this.producer = producer;
+  }
+
+  private static ProducerConfig createProducerConfig(CConfiguration configuration) {
     Properties props = new Properties();
     props.setProperty("metadata.broker.list", configuration.get(LoggingConfiguration.KAFKA_SEED_BROKERS));
     props.setProperty("serializer.class", "kafka.serializer.DefaultEncoder");
@@ -47,6 +62,9 @@ public final class SimpleKafkaProducer {
     props.setProperty("request.required.acks", "1");
     props.setProperty("producer.type", configuration.get(LoggingConfiguration.KAFKA_PRODUCER_TYPE,
                                                          LoggingConfiguration.DEFAULT_KAFKA_PRODUCER_TYPE));
+    props.setProperty("compression.codec",
+                      configuration.get(LoggingConfiguration.KAFKA_PRODUCER_COMPRESSION_CODEC,
+                                        LoggingConfiguration.DEFAULT_KAFKA_PRODUCER_COMPRESSION_CODEC));
     props.setProperty("queue.buffering.max.ms",
                       configuration.get(LoggingConfiguration.KAFKA_PROCUDER_BUFFER_MS,
                                         Long.toString(LoggingConfiguration.DEFAULT_KAFKA_PROCUDER_BUFFER_MS)));
@@ -54,14 +72,15 @@ public final class SimpleKafkaProducer {
                       configuration.get(LoggingConfiguration.NUM_PARTITIONS,
                                         LoggingConfiguration.DEFAULT_NUM_PARTITIONS));
 
-    ProducerConfig config = new ProducerConfig(props);
+    return new ProducerConfig(props);
+  }
 
+  private static String getTopic() {
     try {
-      kafkaTopic = KafkaTopic.getTopic();
+      return KafkaTopic.getTopic();
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
-    producer = new Producer<String, byte[]>(config);
   }
 
   public void publish(String key, byte[] bytes) {
@@ -73,6 +92,25 @@ public final class SimpleKafkaProducer {
     }
   }
 
+  /**
+   * Publishes a batch of log messages. The Kafka producer groups the messages by partition and sends each group as
+   * one compressed message set.
+   *
+   * @param messages list of key and message payload pairs.
+   */
+  public void publish(List<Map.Entry<String, byte[]>> messages) {
+    try {
+      List<KeyedMessage<String, byte[]>> data = Lists.newArrayListWithCapacity(messages.size());
+      for (Map.Entry<String, byte[]> message : messages) {
+        data.add(new KeyedMessage<String, byte[]>(kafkaTopic, message.getKey(), message.getValue()));
+      }
+      producer.send(data);
+    } catch (Throwable t) {
+      LOG.error("Exception when trying to publish {} log messages to kafka with topic {}",
+                messages.size(), kafkaTopic, t);
+    }
+  }
+
   public void stop() {
     producer.close();
   }
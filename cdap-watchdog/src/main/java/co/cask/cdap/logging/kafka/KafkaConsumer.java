@@ -109,6 +109,10 @@ public final class KafkaConsumer implements Closeable {
     ByteBufferMessageSet messageSet = fetchMessageSet(offset);
     int msgCount = 0;
     for (MessageAndOffset msg : messageSet) {
+      // A compressed message set is returned as a whole, hence can contain messages before the requested offset
+      if (msg.offset() < offset) {
+        continue;
+      }
       ++msgCount;
       callback.handle(msg.offset(), msg.message().payload());
     }
@@ -20,9 +20,13 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import co.cask.cdap.common.io.SeekableInputStream;
 import co.cask.cdap.logging.filter.Filter;
 import co.cask.cdap.logging.serialize.LoggingEvent;
+import co.cask.cdap.logging.write.LogFileIndex;
+import com.google.common.base.Function;
 import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileReader;
@@ -35,10 +39,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 /**
- * Reads log events from an Avro file.
+ * Reads log events from an Avro file. If the file has a {@link LogFileIndex}, only the segments of the file that may
+ * contain matching events are read.
  */
 public class AvroFileLogReader {
   private static final Logger LOG = LoggerFactory.getLogger(AvroFileLogReader.class);
@@ -53,45 +59,34 @@ public class AvroFileLogReader {
   public void readLog(Location file, Filter logFilter, long fromTimeMs, long toTimeMs,
                       int maxEvents, Callback callback) {
     try {
-      DataFileReader<GenericRecord> dataFileReader = createReader(file);
+      long fileLength = file.length();
+      DataFileReader<GenericRecord> dataFileReader = createReader(file, fileLength);
       try {
-        ILoggingEvent loggingEvent;
-        GenericRecord datum;
-        if (dataFileReader.hasNext()) {
-          datum = dataFileReader.next();
-          loggingEvent = LoggingEvent.decode(datum);
-          long prevPrevSyncPos = 0;
-          long prevSyncPos = 0;
-          // Seek to time fromTimeMs
-          while (loggingEvent.getTimeStamp() < fromTimeMs && dataFileReader.hasNext()) {
-            // Seek to the next sync point
-            long curPos = dataFileReader.tell();
-            prevPrevSyncPos = prevSyncPos;
-            prevSyncPos = dataFileReader.previousSync();
-            dataFileReader.sync(curPos);
-            if (dataFileReader.hasNext()) {
-              loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
-            }
-          }
-
-          // We're now likely past the record with fromTimeMs, rewind to the previous sync point
-          dataFileReader.sync(prevPrevSyncPos);
+        Iterator<ILoggingEvent> events;
+        LogFileIndex index = LogFileIndex.read(file, fileLength);
+        if (index != null) {
+          List<LogFileIndex.Entry> segments = index.getSegments(fromTimeMs, Long.MAX_VALUE,
+                                                                LogFileIndex.getLevelMask(logFilter));
+          events = Iterators.concat(Iterators.transform(segments.iterator(), readSegmentFunction(dataFileReader)));
+        } else {
+          seekToTime(dataFileReader, fromTimeMs);
+          events = readEvents(dataFileReader, Long.MAX_VALUE);
+        }
 
-          // Start reading events from file
-          int count = 0;
-          long prevTimestamp = -1;
-          while (dataFileReader.hasNext()) {
-            loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
-            if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
-              ++count;
-              if ((count > maxEvents || loggingEvent.getTimeStamp() >= toTimeMs)
-                && loggingEvent.getTimeStamp() != prevTimestamp) {
-                break;
-              }
-              callback.handle(new LogEvent(loggingEvent, loggingEvent.getTimeStamp()));
+        // Start reading events from file
+        int count = 0;
+        long prevTimestamp = -1;
+        while (events.hasNext()) {
+          ILoggingEvent loggingEvent = events.next();
+          if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
+            ++count;
+            if ((count > maxEvents || loggingEvent.getTimeStamp() >= toTimeMs)
+              && loggingEvent.getTimeStamp() != prevTimestamp) {
+              break;
             }
-            prevTimestamp = loggingEvent.getTimeStamp();
+            callback.handle(new LogEvent(loggingEvent, loggingEvent.getTimeStamp()));
           }
+          prevTimestamp = loggingEvent.getTimeStamp();
         }
       } finally {
         try {
@@ -108,9 +103,17 @@ public class AvroFileLogReader {
 
   public Collection<LogEvent> readLogPrev(Location file, Filter logFilter, long fromTimeMs, final int maxEvents) {
     try {
-      DataFileReader<GenericRecord> dataFileReader = createReader(file);
+      long fileLength = file.length();
+      DataFileReader<GenericRecord> dataFileReader = createReader(file, fileLength);
 
       try {
+        LogFileIndex index = LogFileIndex.read(file, fileLength);
+        if (index != null) {
+          List<LogFileIndex.Entry> segments = index.getSegments(Long.MIN_VALUE, fromTimeMs,
+                                                                LogFileIndex.getLevelMask(logFilter));
+          return readLogPrev(dataFileReader, segments, logFilter, fromTimeMs, maxEvents);
+        }
+
         if (!dataFileReader.hasNext()) {
           return ImmutableList.of();
         }
@@ -183,8 +186,112 @@ public class AvroFileLogReader {
     }
   }
 
-  private DataFileReader<GenericRecord> createReader(Location location) throws IOException {
-    return new DataFileReader<GenericRecord>(new LocationSeekableInput(location),
+  /**
+   * Reads events before fromTimeMs from the given index segments, starting from the last segment.
+   */
+  private Collection<LogEvent> readLogPrev(DataFileReader<GenericRecord> dataFileReader,
+                                           List<LogFileIndex.Entry> segments, Filter logFilter,
+                                           long fromTimeMs, int maxEvents) throws IOException {
+    List<List<LogEvent>> logSegments = Lists.newArrayList();
+    int count = 0;
+
+    for (LogFileIndex.Entry segment : Lists.reverse(segments)) {
+      List<LogEvent> logSegment = Lists.newArrayList();
+      Iterator<ILoggingEvent> events = readSegment(dataFileReader, segment);
+      while (events.hasNext()) {
+        ILoggingEvent loggingEvent = events.next();
+        if (loggingEvent.getTimeStamp() <= fromTimeMs && logFilter.match(loggingEvent)) {
+          ++count;
+          logSegment.add(new LogEvent(loggingEvent, loggingEvent.getTimeStamp()));
+        }
+      }
+
+      if (!logSegment.isEmpty()) {
+        logSegments.add(logSegment);
+      }
+
+      if (count >= maxEvents) {
+        break;
+      }
+    }
+
+    int skip = count >= maxEvents ? count - maxEvents : 0;
+    return Lists.newArrayList(Iterables.skip(Iterables.concat(Lists.reverse(logSegments)), skip));
+  }
+
+  /**
+   * Moves the reader to a sync point before the first event with timestamp fromTimeMs by scanning through the file.
+   */
+  private void seekToTime(DataFileReader<GenericRecord> dataFileReader, long fromTimeMs) throws IOException {
+    if (!dataFileReader.hasNext()) {
+      return;
+    }
+
+    GenericRecord datum = dataFileReader.next();
+    ILoggingEvent loggingEvent = LoggingEvent.decode(datum);
+    long prevPrevSyncPos = 0;
+    long prevSyncPos = 0;
+    // Seek to time fromTimeMs
+    while (loggingEvent.getTimeStamp() < fromTimeMs && dataFileReader.hasNext()) {
+      // Seek to the next sync point
+      long curPos = dataFileReader.tell();
+      prevPrevSyncPos = prevSyncPos;
+      prevSyncPos = dataFileReader.previousSync();
+      dataFileReader.sync(curPos);
+      if (dataFileReader.hasNext()) {
+        loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
+      }
+    }
+
+    // We're now likely past the record with fromTimeMs, rewind to the previous sync point
+    dataFileReader.sync(prevPrevSyncPos);
+  }
+
+  private Function<LogFileIndex.Entry, Iterator<ILoggingEvent>> readSegmentFunction(
+    final DataFileReader<GenericRecord> dataFileReader) {
+    return new Function<LogFileIndex.Entry, Iterator<ILoggingEvent>>() {
+      @Override
+      public Iterator<ILoggingEvent> apply(LogFileIndex.Entry segment) {
+        try {
+          return readSegment(dataFileReader, segment);
+        } catch (IOException e) {
+          throw Throwables.propagate(e);
+        }
+      }
+    };
+  }
+
+  private Iterator<ILoggingEvent> readSegment(DataFileReader<GenericRecord> dataFileReader,
+                                              LogFileIndex.Entry segment) throws IOException {
+    dataFileReader.seek(segment.getStart());
+    return readEvents(dataFileReader, segment.getEnd());
+  }
+
+  /**
+   * Returns an {@link Iterator} that decodes events from the current position of the reader, until it reaches the
+   * block that starts at or after the given sync position.
+   */
+  private Iterator<ILoggingEvent> readEvents(final DataFileReader<GenericRecord> dataFileReader, final long end) {
+    return new AbstractIterator<ILoggingEvent>() {
+      private GenericRecord datum;
+
+      @Override
+      protected ILoggingEvent computeNext() {
+        try {
+          if (dataFileReader.previousSync() >= end || !dataFileReader.hasNext()) {
+            return endOfData();
+          }
+          datum = dataFileReader.next(datum);
+          return LoggingEvent.decode(datum);
+        } catch (IOException e) {
+          throw Throwables.propagate(e);
+        }
+      }
+    };
+  }
+
+  private DataFileReader<GenericRecord> createReader(Location location, long length) throws IOException {
+    return new DataFileReader<GenericRecord>(new LocationSeekableInput(location, length),
                                              new GenericDatumReader<GenericRecord>(schema));
 
   }
@@ -197,9 +304,9 @@ public class AvroFileLogReader {
     private final SeekableInputStream is;
     private final long len;
 
-    LocationSeekableInput(Location location) throws IOException {
+    LocationSeekableInput(Location location, long len) throws IOException {
       this.is = SeekableInputStream.create(location.getInputStream());
-      this.len = location.length();
+      this.len = len;
     }
 
     @Override
@@ -50,6 +50,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -63,6 +64,11 @@ public final class DistributedLogReader implements LogReader {
 
   private static final int MAX_THREAD_POOL_SIZE = 20;
 
+  // Maximum number of events of a log file buffered while reading files in parallel
+  private static final int FILE_READ_QUEUE_SIZE = 1000;
+  // Time to wait for events of a log file, or for room to queue them, before failing the read
+  private static final long FILE_READ_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
   private final List<LoggingConfiguration.KafkaHost> seedBrokers;
   private final String topic;
   private final int numPartitions;
@@ -70,6 +76,8 @@ public final class DistributedLogReader implements LogReader {
   private final FileMetaDataManager fileMetaDataManager;
   private final Schema schema;
   private final ExecutorService executor;
+  private final ExecutorService fileReadExecutor;
+  private final ParallelLogFileReader fileLogReader;
   private final StringPartitioner partitioner;
 
   private final int kafkaTailFetchTimeoutMs = 300;
@@ -116,6 +124,24 @@ public final class DistributedLogReader implements LogReader {
                              new SynchronousQueue<Runnable>(),
                              Threads.createDaemonThreadFactory("dist-log-reader-%d"),
                              new ThreadPoolExecutor.DiscardPolicy());
+
+    // Thread pool shared by all requests for reading log files in parallel, with twice the threads of a request so that
+    // a request can read the next files ahead. Requests wait for threads when all are busy, idle threads are killed
+    // after 60 seconds.
+    int fileReadThreads = cConfig.getInt(LoggingConfiguration.LOG_READER_FILE_READ_THREADS,
+                                         LoggingConfiguration.DEFAULT_LOG_READER_FILE_READ_THREADS);
+    Preconditions.checkArgument(fileReadThreads > 0,
+                                "%s should be greater than 0. Got %s",
+                                LoggingConfiguration.LOG_READER_FILE_READ_THREADS, fileReadThreads);
+    ThreadPoolExecutor fileReadPool =
+      new ThreadPoolExecutor(2 * fileReadThreads, 2 * fileReadThreads,
+                             60L, TimeUnit.SECONDS,
+                             new LinkedBlockingQueue<Runnable>(),
+                             Threads.createDaemonThreadFactory("dist-log-file-reader-%d"));
+    fileReadPool.allowCoreThreadTimeOut(true);
+    fileReadExecutor = fileReadPool;
+    fileLogReader = new ParallelLogFileReader(new AvroFileLogReader(schema), fileReadExecutor, 2 * fileReadThreads,
+                                              fileReadThreads, FILE_READ_QUEUE_SIZE, FILE_READ_TIMEOUT_MS);
   }
 
   @Override
@@ -271,11 +297,7 @@ public final class DistributedLogReader implements LogReader {
               files.add(prevFile);
             }
 
-            AvroFileLogReader avroFileLogReader = new AvroFileLogReader(schema);
-            for (Location file : files) {
-              avroFileLogReader.readLog(file, logFilter, fromTimeMs, toTimeMs,
-                                        Integer.MAX_VALUE, callback);
-            }
+            fileLogReader.readLog(files, logFilter, fromTimeMs, toTimeMs, callback);
           } catch (Throwable e) {
             LOG.error("Got exception: ", e);
             throw  Throwables.propagate(e);
@@ -292,6 +314,9 @@ public final class DistributedLogReader implements LogReader {
     if (executor != null) {
       executor.shutdownNow();
     }
+    if (fileReadExecutor != null) {
+      fileReadExecutor.shutdownNow();
+    }
   }
 
   private int fetchLogEvents(KafkaConsumer kafkaConsumer, Filter logFilter, long startOffset, long stopOffset,
@@ -0,0 +1,271 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.read;
+
+import co.cask.cdap.logging.filter.Filter;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.primitives.Longs;
+import org.apache.twill.filesystem.Location;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * Reads log files in parallel and passes their events to a {@link Callback} ordered by timestamp.
+ * <p>
+ * Files are read in groups of at most {@code parallelism} files. Each file is read by a task of the given executor,
+ * which pushes the events of the file through a bounded queue. Events of the files in a group are merged by timestamp
+ * as they arrive, so at most {@code 2 * parallelism * queueSize} events are held in memory for a read.
+ * </p>
+ * <p>
+ * The merge needs all files of a group to be read at the same time. Concurrent reads share the executor, hence a
+ * group is only submitted once one of the {@code threads} threads of the executor is reserved for each of its files.
+ * A read only waits for threads while it holds none, and the next group is read ahead only if threads are free right
+ * away. Waiting for events, or for room in a queue, fails the read after the given timeout.
+ * </p>
+ */
+final class ParallelLogFileReader {
+
+  private static final Comparator<LogEvent> LOG_EVENT_COMPARATOR = new Comparator<LogEvent>() {
+    @Override
+    public int compare(LogEvent o1, LogEvent o2) {
+      return Longs.compare(o1.getLoggingEvent().getTimeStamp(), o2.getLoggingEvent().getTimeStamp());
+    }
+  };
+
+  // Marks the end of the events of a file in its queue
+  private static final LogEvent END_OF_FILE = new LogEvent(null, -1);
+
+  private final AvroFileLogReader avroFileLogReader;
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final int queueSize;
+  private final long timeoutMs;
+  // Threads of the executor that are reserved for reading files
+  private final Semaphore threads;
+
+  /**
+   * Creates a reader that reads files with the given executor, which must have the given number of threads and must
+   * not be used for anything else. Files are read in groups of {@code parallelism} files.
+   */
+  ParallelLogFileReader(AvroFileLogReader avroFileLogReader, ExecutorService executor, int threads,
+                        int parallelism, int queueSize, long timeoutMs) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism should be greater than 0. Got %s", parallelism);
+    Preconditions.checkArgument(threads >= parallelism, "threads should be at least %s. Got %s", parallelism, threads);
+    Preconditions.checkArgument(queueSize > 0, "queueSize should be greater than 0. Got %s", queueSize);
+    Preconditions.checkArgument(timeoutMs > 0, "timeoutMs should be greater than 0. Got %s", timeoutMs);
+    this.avroFileLogReader = avroFileLogReader;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.queueSize = queueSize;
+    this.timeoutMs = timeoutMs;
+    this.threads = new Semaphore(threads, true);
+  }
+
+  /**
+   * Reads the events of the given files between fromTimeMs and toTimeMs. If the callback throws an exception, the
+   * reads that are still running are cancelled and the exception is propagated.
+   */
+  void readLog(List<Location> files, Filter logFilter, long fromTimeMs, long toTimeMs, Callback callback) {
+    PeekingIterator<List<Location>> groups = Iterators.peekingIterator(Lists.partition(files, parallelism).iterator());
+    List<LogFileEvents> current = ImmutableList.of();
+    List<LogFileEvents> next = ImmutableList.of();
+    try {
+      while (!next.isEmpty() || groups.hasNext()) {
+        // All files of the previous group are read, so no thread is held while waiting for the threads of this group
+        current = next.isEmpty() ? readLog(groups.next(), logFilter, fromTimeMs, toTimeMs, true) : next;
+        next = ImmutableList.of();
+        if (groups.hasNext()) {
+          List<LogFileEvents> readAhead = readLog(groups.peek(), logFilter, fromTimeMs, toTimeMs, false);
+          if (readAhead != null) {
+            groups.next();
+            next = readAhead;
+          }
+        }
+
+        Iterator<LogEvent> mergedEvents = Iterators.mergeSorted(current, LOG_EVENT_COMPARATOR);
+        while (mergedEvents.hasNext()) {
+          callback.handle(mergedEvents.next());
+        }
+      }
+    } finally {
+      // Cancel reads that are not needed anymore because of failure or early termination. Cancelling interrupts
+      // the reading threads that are blocked on a full queue.
+      for (LogFileEvents events : Iterables.concat(current, next)) {
+        events.cancel();
+      }
+    }
+  }
+
+  /**
+   * Submits the reads of the given files, once a thread is reserved for each of them.
+   *
+   * @param wait if {@code false}, returns {@code null} instead of waiting if not enough threads are free.
+   */
+  @Nullable
+  private List<LogFileEvents> readLog(List<Location> files, Filter logFilter, long fromTimeMs, long toTimeMs,
+                                      boolean wait) {
+    if (wait) {
+      try {
+        threads.acquire(files.size());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw Throwables.propagate(e);
+      }
+    } else if (!threads.tryAcquire(files.size())) {
+      return null;
+    }
+
+    List<LogFileEvents> fileEvents = Lists.newArrayListWithCapacity(files.size());
+    for (Location file : files) {
+      fileEvents.add(new LogFileEvents(file, logFilter, fromTimeMs, toTimeMs));
+    }
+    try {
+      for (LogFileEvents events : fileEvents) {
+        events.future = executor.submit(events);
+      }
+    } catch (RuntimeException e) {
+      for (LogFileEvents events : fileEvents) {
+        events.cancel();
+      }
+      throw e;
+    }
+    return fileEvents;
+  }
+
+  /**
+   * Reads the events of a log file into a bounded queue, and iterates over the events in the queue. Holds one of
+   * the reserved threads until the read is done or cancelled.
+   */
+  private final class LogFileEvents extends AbstractIterator<LogEvent> implements Runnable, Callback {
+    private final BlockingQueue<LogEvent> queue = new ArrayBlockingQueue<LogEvent>(queueSize);
+    private final Location file;
+    private final Filter logFilter;
+    private final long fromTimeMs;
+    private final long toTimeMs;
+    private final AtomicBoolean threadReserved = new AtomicBoolean(true);
+    private volatile Throwable failure;
+    private volatile Future<?> future;
+
+    LogFileEvents(Location file, Filter logFilter, long fromTimeMs, long toTimeMs) {
+      this.file = file;
+      this.logFilter = logFilter;
+      this.fromTimeMs = fromTimeMs;
+      this.toTimeMs = toTimeMs;
+    }
+
+    @Override
+    public void run() {
+      try {
+        avroFileLogReader.readLog(file, logFilter, fromTimeMs, toTimeMs, Integer.MAX_VALUE, this);
+      } catch (Throwable t) {
+        failure = t;
+      }
+      try {
+        // Mark the end, so that the reader of the queue does not wait until the timeout
+        put(END_OF_FILE);
+      } catch (Throwable t) {
+        // The read is cancelled or timed out, nobody reads the queue anymore
+      } finally {
+        releaseThread();
+      }
+    }
+
+    @Override
+    public void init() {
+      // No-op
+    }
+
+    @Override
+    public void handle(LogEvent event) {
+      put(event);
+    }
+
+    @Override
+    public void close() {
+      // No-op
+    }
+
+    @Override
+    protected LogEvent computeNext() {
+      LogEvent event;
+      try {
+        event = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw Throwables.propagate(e);
+      }
+      if (event == null) {
+        throw new IllegalStateException(String.format("Timeout after %d ms waiting for events of log file %s",
+                                                      timeoutMs, file.toURI()));
+      }
+      if (event != END_OF_FILE) {
+        return event;
+      }
+      if (failure != null) {
+        throw Throwables.propagate(failure);
+      }
+      return endOfData();
+    }
+
+    void cancel() {
+      Future<?> future = this.future;
+      if (future != null) {
+        future.cancel(true);
+      }
+      // A task that never started does not release its thread, and a running one stops soon once interrupted
+      releaseThread();
+    }
+
+    private void releaseThread() {
+      if (threadReserved.compareAndSet(true, false)) {
+        threads.release();
+      }
+    }
+
+    private void put(LogEvent event) {
+      boolean added;
+      try {
+        added = queue.offer(event, timeoutMs, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        // The read is cancelled, nobody reads the queue anymore
+        Thread.currentThread().interrupt();
+        throw Throwables.propagate(e);
+      }
+      if (!added) {
+        throw new IllegalStateException(String.format("Timeout after %d ms waiting to queue events of log file %s",
+                                                      timeoutMs, file.toURI()));
+      }
+    }
+  }
+}
@@ -16,7 +16,9 @@
 
 package co.cask.cdap.logging.write;
 
+import ch.qos.logback.classic.spi.ILoggingEvent;
 import co.cask.cdap.common.logging.LoggingContext;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileWriter;
@@ -39,11 +41,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Helper class that manages writing of KafkaLogEvent to Avro files. The events are written into appropriate files
- * based on the LoggingContext of the event. The files are also rotated based on size. This class is not thread-safe.
+ * based on the LoggingContext of the event. The files are also rotated based on size. Each file is written along
+ * with a {@link LogFileIndex}. This class is not thread-safe.
  */
 public final class AvroFileWriter implements Closeable, Flushable {
   private static final Logger LOG = LoggerFactory.getLogger(AvroFileWriter.class);
 
+  // Maximum number of events in a segment of the log file index
+  private static final int MAX_INDEX_SEGMENT_EVENTS = 1000;
+
   private final FileMetaDataManager fileMetaDataManager;
   private final Location baseDir;
   private final Schema schema;
@@ -195,6 +201,10 @@ public final class AvroFileWriter implements Closeable, Flushable {
       if (avroFile.getLocation().exists()) {
         avroFile.getLocation().delete();
       }
+      Location indexLocation = LogFileIndex.getIndexLocation(avroFile.getLocation());
+      if (indexLocation.exists()) {
+        indexLocation.delete();
+      }
     } catch (IOException e) {
       LOG.error("Error while closing and deleting file {}", avroFile.getLocation(), e);
     }
@@ -207,6 +217,13 @@ public final class AvroFileWriter implements Closeable, Flushable {
     private final Location location;
     private FSDataOutputStream outputStream;
     private DataFileWriter<GenericRecord> dataFileWriter;
+    private FSDataOutputStream indexOutputStream;
+    private final List<LogFileIndex.Entry> pendingIndexEntries = Lists.newArrayList();
+    private long segmentStart;
+    private long segmentMinTs;
+    private long segmentMaxTs;
+    private int segmentLevels;
+    private int segmentEvents;
     private long lastModifiedTs;
     private boolean isOpen = false;
 
@@ -224,6 +241,9 @@ public final class AvroFileWriter implements Closeable, Flushable {
       this.dataFileWriter = new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(schema));
       this.dataFileWriter.create(schema, this.outputStream);
       this.dataFileWriter.setSyncInterval(syncIntervalBytes);
+      this.segmentStart = this.dataFileWriter.sync();
+      this.indexOutputStream = new FSDataOutputStream(LogFileIndex.getIndexLocation(location).getOutputStream(), null);
+      LogFileIndex.writeHeader(this.indexOutputStream, segmentStart);
       this.lastModifiedTs = System.currentTimeMillis();
       this.isOpen = true;
     }
@@ -233,7 +253,22 @@ public final class AvroFileWriter implements Closeable, Flushable {
     }
 
     public void append(LogWriteEvent event) throws IOException {
+      if (segmentEvents >= MAX_INDEX_SEGMENT_EVENTS) {
+        endSegment();
+      }
       dataFileWriter.append(event.getGenericRecord());
+
+      ILoggingEvent logEvent = event.getLogEvent();
+      long timestamp = logEvent.getTimeStamp();
+      if (segmentEvents == 0) {
+        segmentMinTs = timestamp;
+        segmentMaxTs = timestamp;
+      } else {
+        segmentMinTs = Math.min(segmentMinTs, timestamp);
+        segmentMaxTs = Math.max(segmentMaxTs, timestamp);
+      }
+      segmentLevels |= LogFileIndex.getLevelMask(logEvent.getLevel());
+      segmentEvents++;
       lastModifiedTs = System.currentTimeMillis();
     }
 
@@ -246,13 +281,42 @@ public final class AvroFileWriter implements Closeable, Flushable {
     }
 
     public void flush() throws IOException {
+      endSegment();
       dataFileWriter.flush();
       outputStream.hflush();
+      writeIndexEntries();
+      indexOutputStream.hflush();
     }
 
     public void sync() throws IOException {
+      endSegment();
       dataFileWriter.flush();
       outputStream.hsync();
+      writeIndexEntries();
+      indexOutputStream.hsync();
+    }
+
+    /**
+     * Ends the current index segment by ending the current Avro block. The index entry of the segment is written
+     * after the data of the segment is flushed, so that the index never points beyond the data in the log file.
+     */
+    private void endSegment() throws IOException {
+      if (segmentEvents == 0) {
+        return;
+      }
+      long segmentEnd = dataFileWriter.sync();
+      pendingIndexEntries.add(new LogFileIndex.Entry(segmentStart, segmentEnd, segmentMinTs, segmentMaxTs,
+                                                     segmentLevels));
+      segmentStart = segmentEnd;
+      segmentLevels = 0;
+      segmentEvents = 0;
+    }
+
+    private void writeIndexEntries() throws IOException {
+      for (LogFileIndex.Entry entry : pendingIndexEntries) {
+        entry.write(indexOutputStream);
+      }
+      pendingIndexEntries.clear();
     }
 
     @Override
@@ -263,11 +327,19 @@ public final class AvroFileWriter implements Closeable, Flushable {
 
       try {
         if (dataFileWriter != null) {
+          endSegment();
           dataFileWriter.close();
         }
       } finally {
-        if (outputStream != null) {
-          outputStream.close();
+        try {
+          if (outputStream != null) {
+            outputStream.close();
+          }
+        } finally {
+          if (indexOutputStream != null) {
+            writeIndexEntries();
+            indexOutputStream.close();
+          }
         }
       }
 
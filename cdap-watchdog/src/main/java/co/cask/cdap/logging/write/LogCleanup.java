@@ -60,6 +60,10 @@ public final class LogCleanup implements Runnable {
                                                 LOG.info(String.format("Deleting log file %s", location.toURI()));
                                                 location.delete();
                                               }
+                                              Location indexLocation = LogFileIndex.getIndexLocation(location);
+                                              if (indexLocation.exists()) {
+                                                indexLocation.delete();
+                                              }
                                               parentDirs.add(getParent(location));
                                             } catch (IOException e) {
                                               LOG.error(
@@ -0,0 +1,301 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.logging.filter.AndFilter;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.filter.LogLevelExpression;
+import co.cask.cdap.logging.filter.OrFilter;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Sparse index of an Avro log file written by {@link AvroFileWriter}. The index is stored in a sidecar file next to
+ * the log file, and contains one {@link Entry} per segment of consecutive Avro blocks. Each entry records the sync
+ * positions of the segment, the time range and a bitmap of the log levels of the events in the segment. It allows
+ * readers to seek directly to the segments of interest and to skip segments that cannot match a log level filter.
+ * <p>
+ * The index file format is a header of version and the position of the first data block, followed by fixed size
+ * entries. Entries are appended after the log data they describe is flushed, hence an index may lag behind the log
+ * file, and the part of the log file not covered by the index is returned as an unindexed segment.
+ * </p>
+ */
+public final class LogFileIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(LogFileIndex.class);
+
+  public static final String INDEX_FILE_SUFFIX = ".idx";
+
+  /**
+   * Mask that matches events of all log levels.
+   */
+  public static final int ALL_LEVELS = 0x3f;
+
+  static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 4 + 8;
+  private static final int ENTRY_SIZE = 8 + 8 + 8 + 8 + 4;
+
+  // Standard log levels, each has a bit in the level mask. All other levels share the bit after them.
+  private static final Level[] LEVELS = { Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR };
+  private static final int OTHER_LEVELS = 1 << LEVELS.length;
+
+  private final List<Entry> entries;
+  private final long indexedLength;
+  private final long fileLength;
+
+  private LogFileIndex(List<Entry> entries, long indexedLength, long fileLength) {
+    this.entries = entries;
+    this.indexedLength = indexedLength;
+    this.fileLength = fileLength;
+  }
+
+  /**
+   * Returns the location of the index file of the given log file.
+   */
+  public static Location getIndexLocation(Location logFile) throws IOException {
+    Location parent = Locations.getParent(logFile);
+    Preconditions.checkArgument(parent != null, "Log file %s has no parent.", logFile.toURI());
+    return parent.append(logFile.getName() + INDEX_FILE_SUFFIX);
+  }
+
+  /**
+   * Reads the index of the given log file.
+   *
+   * @param logFile location of the log file.
+   * @param fileLength length of the log file as seen by the reader of the log file.
+   * @return the index or {@code null} if the log file does not have a readable index.
+   */
+  @Nullable
+  public static LogFileIndex read(Location logFile, long fileLength) {
+    try {
+      Location indexLocation = getIndexLocation(logFile);
+      if (!indexLocation.exists()) {
+        return null;
+      }
+      long indexLength = indexLocation.length();
+      if (indexLength < HEADER_SIZE) {
+        return null;
+      }
+
+      DataInputStream input = new DataInputStream(new BufferedInputStream(indexLocation.getInputStream()));
+      try {
+        int version = input.readInt();
+        if (version != VERSION) {
+          LOG.warn("Ignoring index {} with unsupported version {}", indexLocation.toURI(), version);
+          return null;
+        }
+        long indexedLength = input.readLong();
+        long entryCount = (indexLength - HEADER_SIZE) / ENTRY_SIZE;
+        List<Entry> entries = Lists.newArrayList();
+        for (long i = 0; i < entryCount; i++) {
+          Entry entry = Entry.read(input);
+          // Entries that go beyond what the log file reader can see are ignored
+          if (entry.getEnd() > fileLength) {
+            break;
+          }
+          entries.add(entry);
+          indexedLength = entry.getEnd();
+        }
+        return new LogFileIndex(entries, indexedLength, fileLength);
+      } finally {
+        input.close();
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to read index of log file {}. Reading without index.", logFile.toURI(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the index file header.
+   *
+   * @param output output of the index file.
+   * @param dataStart position of the first data block in the log file.
+   */
+  static void writeHeader(DataOutput output, long dataStart) throws IOException {
+    output.writeInt(VERSION);
+    output.writeLong(dataStart);
+  }
+
+  /**
+   * Returns the bit of the given log level in a level mask.
+   */
+  public static int getLevelMask(Level level) {
+    switch (level.toInt()) {
+      case Level.TRACE_INT:
+        return 1;
+      case Level.DEBUG_INT:
+        return 1 << 1;
+      case Level.INFO_INT:
+        return 1 << 2;
+      case Level.WARN_INT:
+        return 1 << 3;
+      case Level.ERROR_INT:
+        return 1 << 4;
+      default:
+        return OTHER_LEVELS;
+    }
+  }
+
+  /**
+   * Returns a level mask that contains the levels of all events that the given filter may match. Filters that do not
+   * restrict log level match events of all levels.
+   */
+  public static int getLevelMask(Filter filter) {
+    if (filter instanceof LogLevelExpression) {
+      Level minLevel = ((LogLevelExpression) filter).getLevel();
+      int mask = OTHER_LEVELS;
+      for (Level level : LEVELS) {
+        if (level.isGreaterOrEqual(minLevel)) {
+          mask |= getLevelMask(level);
+        }
+      }
+      return mask;
+    }
+    if (filter instanceof AndFilter) {
+      int mask = ALL_LEVELS;
+      for (Filter expression : ((AndFilter) filter).getExpressions()) {
+        mask &= getLevelMask(expression);
+      }
+      return mask;
+    }
+    if (filter instanceof OrFilter) {
+      int mask = 0;
+      for (Filter expression : ((OrFilter) filter).getExpressions()) {
+        mask |= getLevelMask(expression);
+      }
+      return mask;
+    }
+    return ALL_LEVELS;
+  }
+
+  /**
+   * Returns all entries in the index.
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the segments of the log file that may contain events in the given time range with any of the given
+   * levels, in the order of their positions in the log file. The part of the log file that is not covered by the
+   * index is returned as the last segment, which ends at {@link Long#MAX_VALUE}.
+   *
+   * @param minTimeMs minimum event timestamp, inclusive.
+   * @param maxTimeMs maximum event timestamp, inclusive.
+   * @param levelMask mask of the log levels as returned by {@link #getLevelMask(Filter)}.
+   */
+  public List<Entry> getSegments(long minTimeMs, long maxTimeMs, int levelMask) {
+    ImmutableList.Builder<Entry> segments = ImmutableList.builder();
+    for (Entry entry : entries) {
+      if (entry.getMaxTimestamp() >= minTimeMs && entry.getMinTimestamp() <= maxTimeMs
+        && (entry.getLevels() & levelMask) != 0) {
+        segments.add(entry);
+      }
+    }
+    if (indexedLength < fileLength) {
+      segments.add(new Entry(indexedLength, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, ALL_LEVELS));
+    }
+    return segments.build();
+  }
+
+  /**
+   * An index entry that describes a segment of consecutive blocks in the log file.
+   */
+  public static final class Entry {
+    private final long start;
+    private final long end;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int levels;
+
+    Entry(long start, long end, long minTimestamp, long maxTimestamp, int levels) {
+      this.start = start;
+      this.end = end;
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+      this.levels = levels;
+    }
+
+    static Entry read(DataInput input) throws IOException {
+      return new Entry(input.readLong(), input.readLong(), input.readLong(), input.readLong(), input.readInt());
+    }
+
+    void write(DataOutput output) throws IOException {
+      output.writeLong(start);
+      output.writeLong(end);
+      output.writeLong(minTimestamp);
+      output.writeLong(maxTimestamp);
+      output.writeInt(levels);
+    }
+
+    /**
+     * Returns the sync position of the first block in the segment.
+     */
+    public long getStart() {
+      return start;
+    }
+
+    /**
+     * Returns the sync position of the first block after the segment.
+     */
+    public long getEnd() {
+      return end;
+    }
+
+    public long getMinTimestamp() {
+      return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+      return maxTimestamp;
+    }
+
+    /**
+     * Returns the level mask of the events in the segment.
+     */
+    public int getLevels() {
+      return levels;
+    }
+
+    @Override
+    public String toString() {
+      return Objects.toStringHelper(this)
+        .add("start", start)
+        .add("end", end)
+        .add("minTimestamp", minTimestamp)
+        .add("maxTimestamp", maxTimestamp)
+        .add("levels", Integer.toBinaryString(levels))
+        .toString();
+    }
+  }
+}
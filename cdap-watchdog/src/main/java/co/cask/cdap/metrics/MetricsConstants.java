@@ -16,6 +16,10 @@
 
 package co.cask.cdap.metrics;
 
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
 /**
  * Define constants for byte[] that are needed in multiple classes.
  */
@@ -52,6 +56,10 @@ public final class MetricsConstants {
   public static final String DEFAULT_ENTITY_TABLE_NAME = "metrics.entity";
   public static final String DEFAULT_METRIC_TABLE_PREFIX = "metrics.table";
   public static final int DEFAULT_TIME_SERIES_TABLE_ROLL_TIME = 3600;
+
+  // Resolutions in seconds of the time series tables, from the finest to the coarsest.
+  // Metrics are written to the finest one as is and rolled up into the coarser ones.
+  public static final List<Integer> TIME_SERIES_RESOLUTIONS = ImmutableList.of(1, 60, 3600);
   public static final long DEFAULT_RETENTION_HOURS = 2;
 
   public static final String DEFAULT_KAFKA_META_TABLE = "metrics.kafka.meta";
@@ -17,20 +17,30 @@ package co.cask.cdap.metrics.collect;
 
 import co.cask.cdap.common.metrics.MetricsCollectionService;
 import co.cask.cdap.common.metrics.MetricsCollector;
+import co.cask.cdap.common.metrics.MetricsCounter;
 import co.cask.cdap.common.metrics.MetricsScope;
 import co.cask.cdap.metrics.transport.MetricsRecord;
 import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -48,6 +58,12 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
 
   private final LoadingCache<CollectorKey, MetricsCollector> collectors;
   private final LoadingCache<EmitterKey, AggregatedMetricsEmitter> emitters;
+  // Emitters of MetricsCounter, kept as long as the MetricsCounter is reachable.
+  private final Cache<MetricsCounter, Map.Entry<EmitterKey, AggregatedMetricsEmitter>> counterEmitters;
+  // Emitters of MetricsCounter that were garbage collected. They are emitted once more, so that increments done
+  // since the last emit are not lost.
+  private final Queue<Map.Entry<EmitterKey, AggregatedMetricsEmitter>> collectedCounterEmitters;
+  private final LoadingCache<EmitterKey, HistogramMetricsEmitter> histogramEmitters;
 
   public AggregatedMetricsCollectionService() {
     this.collectors = CacheBuilder.newBuilder()
@@ -64,6 +80,31 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
                                               key.getMetric());
         }
       });
+
+    this.collectedCounterEmitters = Queues.newConcurrentLinkedQueue();
+    this.counterEmitters = CacheBuilder.newBuilder()
+      .weakKeys()
+      .removalListener(new RemovalListener<MetricsCounter, Map.Entry<EmitterKey, AggregatedMetricsEmitter>>() {
+        @Override
+        public void onRemoval(RemovalNotification<MetricsCounter,
+                                                  Map.Entry<EmitterKey, AggregatedMetricsEmitter>> notification) {
+          if (notification.getValue() != null) {
+            collectedCounterEmitters.add(notification.getValue());
+          }
+        }
+      })
+      .build();
+
+    this.histogramEmitters = CacheBuilder.newBuilder()
+      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build(new CacheLoader<EmitterKey, HistogramMetricsEmitter>() {
+        @Override
+        public HistogramMetricsEmitter load(EmitterKey key) throws Exception {
+          return new HistogramMetricsEmitter(key.getCollectorKey().getContext(),
+                                             key.getCollectorKey().getRunId(),
+                                             key.getMetric());
+        }
+      });
   }
 
   /**
@@ -82,8 +123,18 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
   protected final void runOneIteration() throws Exception {
     final long timestamp = TimeUnit.SECONDS.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
     LOG.trace("Start log collection for timestamp {}", timestamp);
+
+    // Process garbage collected counters, so that their remaining increments are emitted below
+    counterEmitters.cleanUp();
+    List<Map.Entry<EmitterKey, AggregatedMetricsEmitter>> collected = Lists.newArrayList();
+    Map.Entry<EmitterKey, AggregatedMetricsEmitter> collectedEmitter = collectedCounterEmitters.poll();
+    while (collectedEmitter != null) {
+      collected.add(collectedEmitter);
+      collectedEmitter = collectedCounterEmitters.poll();
+    }
+
     for (MetricsScope scope : MetricsScope.values()) {
-      Iterator<MetricsRecord> metricsItor = getMetrics(scope, timestamp);
+      Iterator<MetricsRecord> metricsItor = getMetrics(scope, timestamp, collected);
 
       try {
         publish(scope, metricsItor);
@@ -120,13 +171,22 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
     runOneIteration();
   }
 
-  private Iterator<MetricsRecord> getMetrics(final MetricsScope scope, final long timestamp) {
-    final Iterator<Map.Entry<EmitterKey, AggregatedMetricsEmitter>> iterator = emitters.asMap().entrySet().iterator();
+  private Iterator<MetricsRecord> getMetrics(MetricsScope scope, long timestamp,
+                                             List<Map.Entry<EmitterKey, AggregatedMetricsEmitter>> collected) {
+    return Iterators.concat(getMetrics(emitters.asMap().entrySet().iterator(), scope, timestamp),
+                            getMetrics(counterEmitters.asMap().values().iterator(), scope, timestamp),
+                            getMetrics(collected.iterator(), scope, timestamp),
+                            getMetrics(histogramEmitters.asMap().entrySet().iterator(), scope, timestamp));
+  }
+
+  private Iterator<MetricsRecord> getMetrics(
+    final Iterator<? extends Map.Entry<EmitterKey, ? extends MetricsEmitter>> iterator,
+    final MetricsScope scope, final long timestamp) {
     return new AbstractIterator<MetricsRecord>() {
       @Override
       protected MetricsRecord computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<EmitterKey, AggregatedMetricsEmitter> entry = iterator.next();
+          Map.Entry<EmitterKey, ? extends MetricsEmitter> entry = iterator.next();
           if (entry.getKey().getCollectorKey().getScope() != scope) {
             continue;
           }
@@ -163,6 +223,27 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
           public void increment(String metricName, int value, String... tags) {
             emitters.getUnchecked(keys.getUnchecked(metricName)).increment(value, tags);
           }
+
+          @Override
+          public MetricsCounter counter(String metricName) {
+            final AggregatedMetricsEmitter emitter = new AggregatedMetricsEmitter(collectorKey.getContext(),
+                                                                                  collectorKey.getRunId(),
+                                                                                  metricName);
+            MetricsCounter counter = new MetricsCounter() {
+              @Override
+              public void increment(int value) {
+                emitter.increment(value);
+              }
+            };
+            // The emitter must not reference the counter, otherwise the counter is never garbage collected
+            counterEmitters.put(counter, Maps.immutableEntry(new EmitterKey(collectorKey, metricName), emitter));
+            return counter;
+          }
+
+          @Override
+          public void histogram(String metricName, long value) {
+            histogramEmitters.getUnchecked(keys.getUnchecked(metricName)).histogram(value);
+          }
         };
       }
     };
@@ -40,14 +40,14 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
   private final String context;
   private final String runId;
   private final String name;
-  private final AtomicLong value;
+  private final StripedCounter value;
   private final LoadingCache<String, AtomicLong> tagValues;
 
   AggregatedMetricsEmitter(String context, String runId, String name) {
     this.context = context;
     this.runId = runId;
     this.name = name;
-    this.value = new AtomicLong();
+    this.value = new StripedCounter();
     this.tagValues = CacheBuilder.newBuilder()
                                  .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
                                  .build(new CacheLoader<String, AtomicLong>() {
@@ -62,8 +62,12 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
     }
   }
 
+  void increment(int value) {
+    this.value.add(value);
+  }
+
   void increment(int value, String... tags) {
-    this.value.addAndGet(value);
+    this.value.add(value);
     for (String tag : tags) {
       tagValues.getUnchecked(tag).addAndGet(value);
     }
@@ -72,7 +76,7 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
   @Override
   public MetricsRecord emit(long timestamp) {
     ImmutableList.Builder<TagMetric> builder = ImmutableList.builder();
-    long value = this.value.getAndSet(0);
+    long value = this.value.drain();
     for (Map.Entry<String, AtomicLong> entry : tagValues.asMap().entrySet()) {
       builder.add(new TagMetric(entry.getKey(), entry.getValue().getAndSet(0)));
     }
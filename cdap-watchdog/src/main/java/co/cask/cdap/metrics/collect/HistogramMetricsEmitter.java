@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.metrics.transport.Histograms;
+import co.cask.cdap.metrics.transport.MetricsRecord;
+import co.cask.cdap.metrics.transport.TagMetric;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link MetricsEmitter} that aggregates values recorded during collection into a histogram and emit the
+ * bucket counts when emit. See {@link Histograms} for how the histogram is carried by {@link MetricsRecord}.
+ */
+final class HistogramMetricsEmitter implements MetricsEmitter {
+
+  private final String context;
+  private final String runId;
+  private final String name;
+  private final ConcurrentMap<Integer, AtomicLong> buckets;
+
+  HistogramMetricsEmitter(String context, String runId, String name) {
+    this.context = context;
+    this.runId = runId;
+    this.name = name;
+    this.buckets = Maps.newConcurrentMap();
+  }
+
+  void histogram(long value) {
+    int bucket = Histograms.getBucket(value);
+    AtomicLong count = buckets.get(bucket);
+    if (count == null) {
+      AtomicLong newCount = new AtomicLong();
+      count = buckets.putIfAbsent(bucket, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    count.incrementAndGet();
+  }
+
+  @Override
+  public MetricsRecord emit(long timestamp) {
+    ImmutableList.Builder<TagMetric> builder = ImmutableList.builder();
+    long total = 0;
+    for (Map.Entry<Integer, AtomicLong> entry : buckets.entrySet()) {
+      long count = entry.getValue().getAndSet(0);
+      if (count != 0) {
+        builder.add(new TagMetric(Histograms.getBucketTag(entry.getKey()), count));
+        total += count;
+      }
+    }
+    return new MetricsRecord(context, runId, name, builder.build(), timestamp, total);
+  }
+}
@@ -24,6 +24,7 @@ import co.cask.cdap.metrics.data.TimeSeriesTable;
 import co.cask.cdap.metrics.process.MetricsProcessor;
 import co.cask.cdap.metrics.transport.MetricsRecord;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.twill.common.Threads;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -73,11 +75,14 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
 
     // It will only do cleanup if the underlying table doesn't supports TTL.
     scheduler = Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("metrics-cleanup"));
-    long retention = cConf.getLong(MetricsConstants.ConfigKeys.RETENTION_SECONDS + ".1.seconds",
-                                   MetricsConstants.DEFAULT_RETENTION_HOURS);
+    ImmutableMap.Builder<Integer, Long> retentions = ImmutableMap.builder();
+    for (int resolution : MetricsConstants.TIME_SERIES_RESOLUTIONS) {
+      retentions.put(resolution, cConf.getLong(MetricsConstants.ConfigKeys.RETENTION_SECONDS + "." + resolution
+                                                 + ".seconds", MetricsConstants.DEFAULT_RETENTION_HOURS));
+    }
 
     // Try right away if there's anything to cleanup, then we'll schedule to do that periodically
-    scheduler.schedule(createCleanupTask(retention), 1, TimeUnit.SECONDS);
+    scheduler.schedule(createCleanupTask(retentions.build()), 1, TimeUnit.SECONDS);
   }
 
   @Override
@@ -90,9 +95,9 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
 
   /**
    * Creates a task for cleanup.
-   * @param retention Retention in seconds.
+   * @param retentions Map from time series table resolution to retention in seconds.
    */
-  private Runnable createCleanupTask(final long retention) {
+  private Runnable createCleanupTask(final Map<Integer, Long> retentions) {
     return new Runnable() {
       @Override
       public void run() {
@@ -108,14 +113,17 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
         }
 
         long currentTime = TimeUnit.SECONDS.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-        long deleteBefore = currentTime - retention;
-
-        for (MetricsScope scope : MetricsScope.values()) {
-          TimeSeriesTable timeSeriesTable = tableFactory.createTimeSeries(scope.name(), 1);
-          try {
-            timeSeriesTable.deleteBefore(deleteBefore);
-          } catch (OperationException e) {
-            LOG.error("Failed in cleaning up metrics table: {}", e.getMessage(), e);
+
+        for (Map.Entry<Integer, Long> entry : retentions.entrySet()) {
+          long deleteBefore = currentTime - entry.getValue();
+
+          for (MetricsScope scope : MetricsScope.values()) {
+            TimeSeriesTable timeSeriesTable = tableFactory.createTimeSeries(scope.name(), entry.getKey());
+            try {
+              timeSeriesTable.deleteBefore(deleteBefore);
+            } catch (OperationException e) {
+              LOG.error("Failed in cleaning up metrics table: {}", e.getMessage(), e);
+            }
           }
         }
 
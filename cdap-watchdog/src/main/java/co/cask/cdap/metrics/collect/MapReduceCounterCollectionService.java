@@ -17,6 +17,7 @@ package co.cask.cdap.metrics.collect;
 
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.metrics.MetricsScope;
+import co.cask.cdap.metrics.transport.Histograms;
 import co.cask.cdap.metrics.transport.MetricsRecord;
 import co.cask.cdap.metrics.transport.TagMetric;
 import com.google.inject.Inject;
@@ -75,6 +76,10 @@ public final class MapReduceCounterCollectionService extends AggregatedMetricsCo
       String counterName = getCounterName(record.getName());
       taskContext.getCounter(counterGroup, counterName).increment(record.getValue());
       for (TagMetric tag : record.getTags()) {
+        // Histogram buckets are not published as counters, to not exceed the limit on number of counters.
+        if (Histograms.isBucketTag(tag.getTag())) {
+          continue;
+        }
         counterName = getCounterName(record.getName(), tag.getTag());
         if (counterName != null) {
           taskContext.getCounter(counterGroup, counterName).increment(tag.getValue());
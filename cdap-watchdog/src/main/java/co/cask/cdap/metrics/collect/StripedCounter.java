@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that spreads increments from different threads over multiple cells, so that concurrent increments
+ * rarely contend on the same memory location. Cells are padded to separated cache lines. The total is
+ * collected by {@link #drain()}, which atomically takes and resets the value of each cell, hence no increment is
+ * lost or double counted even if increments happen while draining.
+ */
+final class StripedCounter {
+
+  // Number of longs in a 64 bytes cache line
+  private static final int PADDING = 8;
+  private static final int MAX_STRIPES = 64;
+
+  private final AtomicLongArray cells;
+  private final int mask;
+
+  StripedCounter() {
+    int stripes = 1;
+    while (stripes < Runtime.getRuntime().availableProcessors() && stripes < MAX_STRIPES) {
+      stripes <<= 1;
+    }
+    this.cells = new AtomicLongArray(stripes * PADDING);
+    this.mask = stripes - 1;
+  }
+
+  void add(long delta) {
+    cells.addAndGet(index(), delta);
+  }
+
+  /**
+   * Returns the sum of all increments since last call and resets the counter.
+   */
+  long drain() {
+    long sum = 0;
+    for (int i = 0; i < cells.length(); i += PADDING) {
+      sum += cells.getAndSet(i, 0L);
+    }
+    return sum;
+  }
+
+  private int index() {
+    long id = Thread.currentThread().getId();
+    return (int) ((id ^ (id >>> 16)) & mask) * PADDING;
+  }
+}
@@ -34,6 +34,7 @@ import com.google.common.collect.Maps;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableMap;
 
 /**
@@ -119,6 +120,41 @@ public final class TimeSeriesTable {
     }
   }
 
+  /**
+   * Rolls up the values of a collection of {@link MetricsRecord} from a table of finer resolution into this table.
+   * Records of the same time bucket in this table come in different batches. Instead of adding each batch to the
+   * stored value, every bucket touched by the records is recomputed from the cells of the source table and written
+   * with a put, hence rolling up the same records again, e.g. when they are replayed after a restart, is idempotent.
+   *
+   * @param source The table of finer resolution, which must already contain the records.
+   * @param records The records that were saved to the source table.
+   */
+  public void rollUp(TimeSeriesTable source, Iterator<MetricsRecord> records) throws OperationException {
+    Preconditions.checkArgument(resolution > source.resolution && resolution % source.resolution == 0,
+                                "Resolution %s cannot be rolled up from resolution %s.",
+                                resolution, source.resolution);
+    if (!records.hasNext()) {
+      return;
+    }
+
+    // Recompute each cell only once, even if multiple records fall into the same time bucket.
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> table = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+
+    try {
+      while (records.hasNext()) {
+        MetricsRecord record = records.next();
+        long timestamp = record.getTimestamp() / resolution * resolution;
+        rollUp(source, record.getContext(), record.getRunId(), record.getName(), null, timestamp, table);
+        for (TagMetric tag : record.getTags()) {
+          rollUp(source, record.getContext(), record.getRunId(), record.getName(), tag.getTag(), timestamp, table);
+        }
+      }
+      timeSeriesTable.put(table);
+    } catch (Exception e) {
+      throw new OperationException(StatusCode.INTERNAL_ERROR, e.getMessage(), e);
+    }
+  }
+
   public MetricsScanner scan(MetricsScanQuery query) throws OperationException {
     return scanFor(query, false);
   }
@@ -271,7 +307,7 @@ public final class TimeSeriesTable {
     byte[] rowKey = getKey(record.getContext(), record.getRunId(), record.getName(), null, timeBase);
 
     // delta is guaranteed to be 2 bytes.
-    byte[] column = deltaCache[(int) (timestamp - timeBase)];
+    byte[] column = deltaCache[(int) ((timestamp - timeBase) / resolution)];
 
     addValue(rowKey, column, table, record.getValue());
 
@@ -283,26 +319,78 @@ public final class TimeSeriesTable {
   }
 
 
+  /**
+   * Sets the cell of the time bucket starting at the given timestamp to the sum of the source table cells within it.
+   */
+  private void rollUp(TimeSeriesTable source, String context, String runId, String metric, String tag,
+                      long timestamp, NavigableMap<byte[], NavigableMap<byte[], byte[]>> table) throws Exception {
+    int timeBase = getTimeBase(timestamp);
+    byte[] rowKey = getKey(context, runId, metric, tag, timeBase);
+    byte[] column = deltaCache[(int) ((timestamp - timeBase) / resolution)];
+
+    if (get(table, rowKey, column) == null) {
+      put(table, rowKey, column, Bytes.toBytes(source.sum(context, runId, metric, tag, timestamp,
+                                                           timestamp + resolution)));
+    }
+  }
+
+  /**
+   * Returns the sum of the cells for the given context, metric, tag and runId in the time range [start, end).
+   */
+  private long sum(String context, String runId, String metric, String tag, long start, long end) throws Exception {
+    long sum = 0;
+    for (long timeBase = getTimeBase(start); timeBase < end; timeBase += rollTimebaseInterval) {
+      byte[] rowKey = getKey(context, runId, metric, tag, (int) timeBase);
+
+      // Only read the columns within the time range
+      long from = Math.max(start, timeBase);
+      long to = Math.min(end, timeBase + rollTimebaseInterval);
+      int firstDelta = (int) ((from - timeBase) / resolution);
+      byte[][] columns = new byte[(int) ((to - from) / resolution)][];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = deltaCache[firstDelta + i];
+      }
+
+      Scanner scanner = timeSeriesTable.scan(rowKey, Bytes.stopKeyForPrefix(rowKey), columns, null);
+      try {
+        Row row;
+        // The stop key is null if the row key cannot be incremented, hence also check for the end of the row
+        while ((row = scanner.next()) != null && Bytes.equals(rowKey, row.getRow())) {
+          for (Map.Entry<byte[], byte[]> cell : row.getColumns().entrySet()) {
+            sum += toLong(rowKey, cell.getKey(), cell.getValue());
+          }
+        }
+      } finally {
+        scanner.close();
+      }
+    }
+    return sum;
+  }
+
   private void addValue(byte[] rowKey, byte[] column,
                         NavigableMap<byte[], NavigableMap<byte[], byte[]>> table, long value) {
     byte[] oldValue = get(table, rowKey, column);
     long newValue = value;
     if (oldValue != null) {
-      if (Bytes.SIZEOF_LONG == oldValue.length) {
-        newValue = Bytes.toLong(oldValue) + value;
-      } else if (Bytes.SIZEOF_INT == oldValue.length) {
-        // In 2.4 and older versions we stored it as int
-        newValue = Bytes.toInt(oldValue) + value;
-      } else {
-        // should NEVER happen, unless the table is screwed up manually
-        throw new IllegalStateException(
-          String.format("Could not parse metric @row %s @column %s value %s as int or long",
-                        Bytes.toStringBinary(rowKey), Bytes.toStringBinary(column), Bytes.toStringBinary(oldValue)));
-      }
+      newValue = toLong(rowKey, column, oldValue) + value;
     }
     put(table, rowKey, column, Bytes.toBytes(newValue));
   }
 
+  private static long toLong(byte[] rowKey, byte[] column, byte[] value) {
+    if (Bytes.SIZEOF_LONG == value.length) {
+      return Bytes.toLong(value);
+    }
+    if (Bytes.SIZEOF_INT == value.length) {
+      // In 2.4 and older versions we stored it as int
+      return Bytes.toInt(value);
+    }
+    // should NEVER happen, unless the table is screwed up manually
+    throw new IllegalStateException(
+      String.format("Could not parse metric @row %s @column %s value %s as int or long",
+                    Bytes.toStringBinary(rowKey), Bytes.toStringBinary(column), Bytes.toStringBinary(value)));
+  }
+
   private static byte[] get(NavigableMap<byte[], NavigableMap<byte[], byte[]>> table, byte[] row, byte[] column) {
     NavigableMap<byte[], byte[]> rowMap = table.get(row);
     return rowMap == null ? null : rowMap.get(column);
@@ -18,45 +18,70 @@ package co.cask.cdap.metrics.process;
 
 import co.cask.cdap.common.metrics.MetricsScope;
 import co.cask.cdap.data2.OperationException;
+import co.cask.cdap.metrics.MetricsConstants;
 import co.cask.cdap.metrics.data.MetricsTableFactory;
 import co.cask.cdap.metrics.data.TimeSeriesTable;
 import co.cask.cdap.metrics.transport.MetricsRecord;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
+import java.util.List;
 
 /**
- * A {@link MetricsProcessor} that writes metrics into time series table. It ignore write errors by simply
- * logging the error and proceed.
+ * A {@link MetricsProcessor} that writes metrics into time series tables. Metrics are saved to the table of the
+ * finest resolution and rolled up into tables of coarser resolutions, as defined by
+ * {@link MetricsConstants#TIME_SERIES_RESOLUTIONS}. It ignore write errors by simply logging the error and proceed.
  */
 public final class TimeSeriesMetricsProcessor implements MetricsProcessor {
 
   private static final Logger LOG = LoggerFactory.getLogger(TimeSeriesMetricsProcessor.class);
 
-  private final LoadingCache<String, TimeSeriesTable> timeSeriesTables;
+  // Cache from scope name to time series tables, ordered from the finest resolution to the coarsest.
+  private final LoadingCache<String, List<TimeSeriesTable>> timeSeriesTables;
 
   @Inject
   public TimeSeriesMetricsProcessor(final MetricsTableFactory tableFactory) {
     timeSeriesTables = CacheBuilder.newBuilder()
-                                   .build(new CacheLoader<String, TimeSeriesTable>() {
+                                   .build(new CacheLoader<String, List<TimeSeriesTable>>() {
       @Override
-      public TimeSeriesTable load(String key) throws Exception {
-        return tableFactory.createTimeSeries(key, 1);
+      public List<TimeSeriesTable> load(String key) throws Exception {
+        ImmutableList.Builder<TimeSeriesTable> tables = ImmutableList.builder();
+        for (int resolution : MetricsConstants.TIME_SERIES_RESOLUTIONS) {
+          tables.add(tableFactory.createTimeSeries(key, resolution));
+        }
+        return tables.build();
       }
     });
   }
 
   @Override
   public void process(MetricsScope scope, Iterator<MetricsRecord> records) {
+    List<MetricsRecord> recordList = ImmutableList.copyOf(records);
+    Iterator<TimeSeriesTable> tables = timeSeriesTables.getUnchecked(scope.name()).iterator();
+
+    TimeSeriesTable source = tables.next();
     try {
-      timeSeriesTables.getUnchecked(scope.name()).save(records);
+      source.save(recordList);
     } catch (OperationException e) {
       LOG.error("Failed to write to time series table: {}", e.getMessage(), e);
     }
+
+    // Records of the same time bucket in coarser tables come in different batches. Each coarser table recomputes
+    // the buckets from the table of the next finer resolution, so that replaying records doesn't count them twice.
+    while (tables.hasNext()) {
+      TimeSeriesTable table = tables.next();
+      try {
+        table.rollUp(source, recordList.iterator());
+      } catch (OperationException e) {
+        LOG.error("Failed to roll up to time series table: {}", e.getMessage(), e);
+      }
+      source = table;
+    }
   }
 }
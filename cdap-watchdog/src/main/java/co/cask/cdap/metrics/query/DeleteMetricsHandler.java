@@ -34,6 +34,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import org.jboss.netty.handler.codec.http.HttpRequest;
@@ -62,7 +63,8 @@ public class DeleteMetricsHandler extends BaseMetricsHandler {
 
   private final Map<MetricsScope, LoadingCache<Integer, TimeSeriesTable>> metricsTableCaches;
   private final Supplier<Map<MetricsScope, AggregatesTable>> aggregatesTables;
-  private final int tsRetentionSeconds;
+  // Map from time series table resolution to retention in seconds
+  private final Map<Integer, Integer> tsRetentionSeconds;
 
   @Inject
   public DeleteMetricsHandler(Authenticator authenticator,
@@ -92,9 +94,16 @@ public class DeleteMetricsHandler extends BaseMetricsHandler {
     });
 
     String retentionStr = cConf.get(MetricsConstants.ConfigKeys.RETENTION_SECONDS);
-    this.tsRetentionSeconds = (retentionStr == null) ?
+    int defaultRetention = (retentionStr == null) ?
       (int) TimeUnit.SECONDS.convert(MetricsConstants.DEFAULT_RETENTION_HOURS, TimeUnit.HOURS) :
       Integer.parseInt(retentionStr);
+
+    ImmutableMap.Builder<Integer, Integer> retentions = ImmutableMap.builder();
+    for (int resolution : MetricsConstants.TIME_SERIES_RESOLUTIONS) {
+      retentions.put(resolution, cConf.getInt(MetricsConstants.ConfigKeys.RETENTION_SECONDS + "." + resolution
+                                                + ".seconds", defaultRetention));
+    }
+    this.tsRetentionSeconds = retentions.build();
   }
 
   @Override
@@ -231,25 +240,30 @@ public class DeleteMetricsHandler extends BaseMetricsHandler {
 
   private void deleteTableEntries(MetricsScope scope, String contextPrefix,
                                   String metricPrefix, String tag) throws OperationException {
-    TimeSeriesTable ts1Table = metricsTableCaches.get(scope).getUnchecked(1);
     AggregatesTable aggTable = aggregatesTables.get().get(scope);
 
     if (contextPrefix == null && tag == null && metricPrefix == null) {
-      ts1Table.clear();
+      for (int resolution : MetricsConstants.TIME_SERIES_RESOLUTIONS) {
+        metricsTableCaches.get(scope).getUnchecked(resolution).clear();
+      }
       aggTable.clear();
     } else if (tag == null) {
-      ts1Table.delete(contextPrefix, metricPrefix);
+      for (int resolution : MetricsConstants.TIME_SERIES_RESOLUTIONS) {
+        metricsTableCaches.get(scope).getUnchecked(resolution).delete(contextPrefix, metricPrefix);
+      }
       aggTable.delete(contextPrefix, metricPrefix);
     } else {
       long now = TimeUnit.SECONDS.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-      MetricsScanQuery scanQuery = new MetricsScanQueryBuilder()
-        .setContext(contextPrefix)
-        .setMetric(metricPrefix)
-        .allowEmptyMetric()
-        .setRunId("0")
-        .setTag(tag)
-        .build(now - tsRetentionSeconds, now + 10);
-      ts1Table.delete(scanQuery);
+      for (int resolution : MetricsConstants.TIME_SERIES_RESOLUTIONS) {
+        MetricsScanQuery scanQuery = new MetricsScanQueryBuilder()
+          .setContext(contextPrefix)
+          .setMetric(metricPrefix)
+          .allowEmptyMetric()
+          .setRunId("0")
+          .setTag(tag)
+          .build(now - tsRetentionSeconds.get(resolution), now + 10);
+        metricsTableCaches.get(scope).getUnchecked(resolution).delete(scanQuery);
+      }
       aggTable.delete(contextPrefix, metricPrefix, "0", tag);
     }
   }
@@ -19,6 +19,7 @@ import co.cask.cdap.common.metrics.MetricsScope;
 import co.cask.cdap.metrics.data.Interpolator;
 
 import java.net.URI;
+import javax.annotation.Nullable;
 
 /**
  * Representing a metric query request.
@@ -54,5 +55,11 @@ interface MetricsRequest {
 
   Interpolator getInterpolator();
 
+  /**
+   * Returns the percentile to compute if the metric is a histogram, or {@code null} for the sum of values.
+   */
+  @Nullable
+  Double getPercentile();
+
   MetricsScope getScope();
 }
@@ -36,6 +36,7 @@ final class MetricsRequestBuilder {
   private int count;
   private MetricsScope scope;
   private Interpolator interpolator;
+  private Double percentile;
 
   MetricsRequestBuilder(URI requestURI) {
     this.requestURI = requestURI;
@@ -91,9 +92,14 @@ final class MetricsRequestBuilder {
     return this;
   }
 
+  MetricsRequestBuilder setPercentile(Double percentile) {
+    this.percentile = percentile;
+    return this;
+  }
+
   MetricsRequest build() {
     return new MetricsRequestImpl(requestURI, contextPrefix, runId, metricPrefix,
-                                  tagPrefix, startTime, endTime, type, count, scope, interpolator);
+                                  tagPrefix, startTime, endTime, type, count, scope, interpolator, percentile);
   }
 
   private static class MetricsRequestImpl implements MetricsRequest {
@@ -108,10 +114,11 @@ final class MetricsRequestBuilder {
     private final int count;
     private MetricsScope scope;
     private Interpolator interpolator;
+    private final Double percentile;
 
     public MetricsRequestImpl(URI requestURI, String contextPrefix, String runId, String metricPrefix, String tagPrefix,
                               long startTime, long endTime, Type type, int count, MetricsScope scope,
-                              Interpolator interpolator) {
+                              Interpolator interpolator, Double percentile) {
       Preconditions.checkNotNull(scope);
       this.contextPrefix = contextPrefix;
       this.requestURI = requestURI;
@@ -124,6 +131,7 @@ final class MetricsRequestBuilder {
       this.count = count;
       this.scope = scope;
       this.interpolator = interpolator;
+      this.percentile = percentile;
     }
 
     @Override
@@ -180,5 +188,10 @@ final class MetricsRequestBuilder {
     public MetricsScope getScope() {
       return scope;
     }
+
+    @Override
+    public Double getPercentile() {
+      return percentile;
+    }
   }
 }
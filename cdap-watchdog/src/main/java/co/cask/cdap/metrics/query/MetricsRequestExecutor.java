@@ -21,6 +21,7 @@ import co.cask.cdap.common.metrics.MetricsScope;
 import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.OperationException;
+import co.cask.cdap.metrics.MetricsConstants;
 import co.cask.cdap.metrics.data.AggregatesScanResult;
 import co.cask.cdap.metrics.data.AggregatesScanner;
 import co.cask.cdap.metrics.data.AggregatesTable;
@@ -34,6 +35,7 @@ import co.cask.cdap.metrics.data.MetricsTableFactory;
 import co.cask.cdap.metrics.data.TimeSeriesTable;
 import co.cask.cdap.metrics.data.TimeValue;
 import co.cask.cdap.metrics.data.TimeValueAggregator;
+import co.cask.cdap.metrics.transport.Histograms;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.cache.CacheBuilder;
@@ -41,6 +43,7 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
@@ -54,6 +57,7 @@ import java.net.URI;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -97,27 +101,29 @@ public class MetricsRequestExecutor {
     // Pretty ugly logic now. Need to refactor
     Object resultObj = null;
     if (metricsRequest.getType() == MetricsRequest.Type.TIME_SERIES) {
+      int resolution = getResolution(metricsRequest);
       TimeSeriesResponse.Builder builder = TimeSeriesResponse.builder(metricsRequest.getStartTime(),
-                                                                      metricsRequest.getEndTime());
+                                                                      metricsRequest.getEndTime(), resolution);
       // Special metrics handle that requires computation from multiple time series.
       if ("process.busyness".equals(metricsRequest.getMetricPrefix())) {
-        computeProcessBusyness(metricsRequest, builder);
+        computeProcessBusyness(metricsRequest, resolution, builder);
+      } else if (metricsRequest.getPercentile() != null) {
+        computePercentiles(metricsRequest, resolution, builder);
       } else {
-        MetricsScanQuery scanQuery = createScanQuery(metricsRequest);
+        MetricsScanQuery scanQuery = createScanQuery(metricsRequest, resolution);
 
-        PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(queryTimeSeries(metricsRequest.getScope(),
-                                                                                     scanQuery,
-                                                                                     metricsRequest.getInterpolator()));
+        Interpolator interpolator = getInterpolator(metricsRequest, resolution);
+        PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
+          queryTimeSeries(metricsRequest.getScope(), resolution, scanQuery, interpolator));
 
         // if this is an interpolated timeseries, we might have extended the "start" in order to interpolate.
         // so fast forward the iterator until we we're inside the actual query time window.
-        while (timeValueItor.hasNext() && (timeValueItor.peek().getTime() < metricsRequest.getStartTime())) {
+        long startTime = getBucketTime(metricsRequest.getStartTime(), resolution);
+        while (timeValueItor.hasNext() && (timeValueItor.peek().getTime() < startTime)) {
           timeValueItor.next();
         }
 
-        for (int i = 0; i < metricsRequest.getCount(); i++) {
-          long resultTime = metricsRequest.getStartTime() + i;
-
+        for (long resultTime = startTime; resultTime <= metricsRequest.getEndTime(); resultTime += resolution) {
           if (timeValueItor.hasNext() && timeValueItor.peek().getTime() == resultTime) {
             builder.addData(resultTime, timeValueItor.next().getValue());
             continue;
@@ -131,6 +137,8 @@ public class MetricsRequestExecutor {
       // Special metrics handle that requires computation from multiple aggregates results.
       if ("process.events.pending".equals(metricsRequest.getMetricPrefix())) {
         resultObj = computeQueueLength(metricsRequest);
+      } else if (metricsRequest.getPercentile() != null) {
+        resultObj = getAggregatePercentile(metricsRequest);
       } else {
         resultObj = getAggregates(metricsRequest);
       }
@@ -139,27 +147,28 @@ public class MetricsRequestExecutor {
     return GSON.toJsonTree(resultObj);
   }
 
-  private void computeProcessBusyness(MetricsRequest metricsRequest, TimeSeriesResponse.Builder builder)
-    throws OperationException {
+  private void computeProcessBusyness(MetricsRequest metricsRequest, int resolution,
+                                     TimeSeriesResponse.Builder builder) throws OperationException {
+    long startTime = getBucketTime(metricsRequest.getStartTime(), resolution);
+    Interpolator interpolator = getInterpolator(metricsRequest, resolution);
     MetricsScanQuery scanQuery = new MetricsScanQueryBuilder()
       .setContext(metricsRequest.getContextPrefix())
       .setMetric("process.tuples.read")
-      .build(metricsRequest.getStartTime(), metricsRequest.getEndTime());
+      .build(startTime, metricsRequest.getEndTime());
     MetricsScope scope = metricsRequest.getScope();
 
     PeekingIterator<TimeValue> tuplesReadItor =
-      Iterators.peekingIterator(queryTimeSeries(scope, scanQuery, metricsRequest.getInterpolator()));
+      Iterators.peekingIterator(queryTimeSeries(scope, resolution, scanQuery, interpolator));
 
     scanQuery = new MetricsScanQueryBuilder()
       .setContext(metricsRequest.getContextPrefix())
       .setMetric("process.events.processed")
-      .build(metricsRequest.getStartTime(), metricsRequest.getEndTime());
+      .build(startTime, metricsRequest.getEndTime());
 
     PeekingIterator<TimeValue> eventsProcessedItor =
-      Iterators.peekingIterator(queryTimeSeries(scope, scanQuery, metricsRequest.getInterpolator()));
+      Iterators.peekingIterator(queryTimeSeries(scope, resolution, scanQuery, interpolator));
 
-    for (int i = 0; i < metricsRequest.getCount(); i++) {
-      long resultTime = metricsRequest.getStartTime() + i;
+    for (long resultTime = startTime; resultTime <= metricsRequest.getEndTime(); resultTime += resolution) {
       long tupleRead = 0;
       long eventProcessed = 0;
       if (tuplesReadItor.hasNext() && tuplesReadItor.peek().getTime() == resultTime) {
@@ -177,6 +186,63 @@ public class MetricsRequestExecutor {
     }
   }
 
+  /**
+   * Computes the percentile of a histogram metric at each time bucket, with histograms of all matching time series
+   * merged together.
+   */
+  private void computePercentiles(MetricsRequest metricsRequest, int resolution,
+                                  TimeSeriesResponse.Builder builder) throws OperationException {
+    long startTime = getBucketTime(metricsRequest.getStartTime(), resolution);
+    MetricsScanQuery scanQuery = new MetricsScanQueryBuilder()
+      .setContext(metricsRequest.getContextPrefix())
+      .setMetric(metricsRequest.getMetricPrefix())
+      .setTag(Histograms.BUCKET_TAG_PREFIX)
+      .build(startTime, metricsRequest.getEndTime());
+
+    Map<Long, SortedMap<Integer, Long>> histograms = Maps.newHashMap();
+    MetricsScanner scanner = metricsTableCaches.get(metricsRequest.getScope()).getUnchecked(resolution).scan(scanQuery);
+    while (scanner.hasNext()) {
+      MetricsScanResult res = scanner.next();
+      if (!Histograms.isBucketTag(res.getTag())) {
+        continue;
+      }
+      int bucket = Histograms.getBucket(res.getTag());
+      for (TimeValue timeValue : res) {
+        SortedMap<Integer, Long> histogram = histograms.get(timeValue.getTime());
+        if (histogram == null) {
+          histogram = Maps.newTreeMap();
+          histograms.put(timeValue.getTime(), histogram);
+        }
+        addCount(histogram, bucket, timeValue.getValue());
+      }
+    }
+
+    for (long resultTime = startTime; resultTime <= metricsRequest.getEndTime(); resultTime += resolution) {
+      SortedMap<Integer, Long> histogram = histograms.get(resultTime);
+      builder.addData(resultTime,
+                      histogram == null ? 0L : Histograms.getPercentile(histogram, metricsRequest.getPercentile()));
+    }
+  }
+
+  private AggregateResponse getAggregatePercentile(MetricsRequest request) {
+    AggregatesTable aggregatesTable = aggregatesTables.get().get(request.getScope());
+    AggregatesScanner scanner = aggregatesTable.scan(request.getContextPrefix(), request.getMetricPrefix(),
+                                                     request.getRunId(), Histograms.BUCKET_TAG_PREFIX);
+    SortedMap<Integer, Long> histogram = Maps.newTreeMap();
+    while (scanner.hasNext()) {
+      AggregatesScanResult scanResult = scanner.next();
+      if (Histograms.isBucketTag(scanResult.getTag())) {
+        addCount(histogram, Histograms.getBucket(scanResult.getTag()), scanResult.getValue());
+      }
+    }
+    return new AggregateResponse(Histograms.getPercentile(histogram, request.getPercentile()));
+  }
+
+  private void addCount(SortedMap<Integer, Long> histogram, int bucket, long count) {
+    Long oldCount = histogram.get(bucket);
+    histogram.put(bucket, oldCount == null ? count : oldCount + count);
+  }
+
   private Object computeQueueLength(MetricsRequest metricsRequest) {
     AggregatesTable aggregatesTable = aggregatesTables.get().get(metricsRequest.getScope());
 
@@ -226,10 +292,10 @@ public class MetricsRequestExecutor {
     return new AggregateResponse(len >= 0 ? len : 0);
   }
 
-  private Iterator<TimeValue> queryTimeSeries(MetricsScope scope, MetricsScanQuery scanQuery,
+  private Iterator<TimeValue> queryTimeSeries(MetricsScope scope, int resolution, MetricsScanQuery scanQuery,
                                               Interpolator interpolator) throws OperationException {
     Map<TimeseriesId, Iterable<TimeValue>> timeValues = Maps.newHashMap();
-    MetricsScanner scanner = metricsTableCaches.get(scope).getUnchecked(1).scan(scanQuery);
+    MetricsScanner scanner = metricsTableCaches.get(scope).getUnchecked(resolution).scan(scanQuery);
     while (scanner.hasNext()) {
       MetricsScanResult res = scanner.next();
       // if we get multiple scan results for the same logical timeseries, concatenate them together.
@@ -261,13 +327,44 @@ public class MetricsRequestExecutor {
     return value;
   }
 
-  private MetricsScanQuery createScanQuery(MetricsRequest request) {
-    long start = request.getStartTime();
+  /**
+   * Returns the coarsest time series resolution that still gives at least the requested number of data points
+   * over the requested time range.
+   */
+  private int getResolution(MetricsRequest request) {
+    long range = request.getEndTime() - request.getStartTime() + 1;
+    int count = Math.max(1, request.getCount());
+    for (int resolution : Lists.reverse(MetricsConstants.TIME_SERIES_RESOLUTIONS)) {
+      if (range / resolution >= count) {
+        return resolution;
+      }
+    }
+    return MetricsConstants.TIME_SERIES_RESOLUTIONS.get(0);
+  }
+
+  /**
+   * Returns the start time of the time bucket of the given resolution that contains the given time.
+   */
+  private long getBucketTime(long time, int resolution) {
+    return time / resolution * resolution;
+  }
+
+  /**
+   * Returns the {@link Interpolator} for the request. Interpolation only applies to the finest resolution,
+   * as it fills in missing points between data points written per second, while values in coarser resolutions are
+   * rolled up sums over complete time buckets.
+   */
+  private Interpolator getInterpolator(MetricsRequest request, int resolution) {
+    return resolution == MetricsConstants.TIME_SERIES_RESOLUTIONS.get(0) ? request.getInterpolator() : null;
+  }
+
+  private MetricsScanQuery createScanQuery(MetricsRequest request, int resolution) {
+    long start = getBucketTime(request.getStartTime(), resolution);
     long end = request.getEndTime();
 
     // if we're interpolating, expand the time window a little to allow interpolation at the start and end.
     // Before returning the results, we'll make sure to only return what the client requested.
-    Interpolator interpolator = request.getInterpolator();
+    Interpolator interpolator = getInterpolator(request, resolution);
     if (interpolator != null) {
       // try and expand the window by the max allowed gap for interpolation, but cap it so we dont have
       // super big windows.  The worry being that somebody sets the max allowed gap to Long.MAX_VALUE
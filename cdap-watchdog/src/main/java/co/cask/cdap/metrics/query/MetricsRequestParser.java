@@ -46,6 +46,7 @@ final class MetricsRequestParser {
   private static final String STEP_INTERPOLATOR = "step";
   private static final String LINEAR_INTERPOLATOR = "linear";
   private static final String MAX_INTERPOLATE_GAP = "maxInterpolateGap";
+  private static final String PERCENTILE = "percentile";
   private static final String CLUSTER_METRICS_CONTEXT = "-.cluster";
   private static final String TRANSACTION_METRICS_CONTEXT = "transactions";
 
@@ -336,6 +337,7 @@ final class MetricsRequestParser {
   private static void parseQueryString(URI requestURI, MetricsRequestBuilder builder) {
 
     Map<String, List<String>> queryParams = new QueryStringDecoder(requestURI).getParameters();
+    setPercentile(queryParams, builder);
 
     // Extracts the query type.
     if (isTimeseriesRequest(queryParams)) {
@@ -370,6 +372,10 @@ final class MetricsRequestParser {
       startTime = TimeMathParser.parseTime(now, queryParams.get(START_TIME).get(0));
       endTime = TimeMathParser.parseTime(now, queryParams.get(END_TIME).get(0));
       count = (int) (endTime - startTime) + 1;
+      // A smaller count asks for fewer data points over the range, which is served by a coarser resolution.
+      if (queryParams.containsKey(COUNT)) {
+        count = Math.min(count, Integer.parseInt(queryParams.get(COUNT).get(0)));
+      }
     } else if (queryParams.containsKey(COUNT)) {
       count = Integer.parseInt(queryParams.get(COUNT).get(0));
       // both start and end times are inclusive, which is the reason for the +-1.
@@ -415,6 +421,18 @@ final class MetricsRequestParser {
     builder.setInterpolator(interpolator);
   }
 
+  private static void setPercentile(Map<String, List<String>> queryParams, MetricsRequestBuilder builder) {
+    String percentileStr = getQueryParam(queryParams, PERCENTILE, null);
+    if (percentileStr == null) {
+      return;
+    }
+    double percentile = Double.parseDouble(percentileStr);
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be in the range of (0, 100]");
+    }
+    builder.setPercentile(percentile);
+  }
+
   /**
    * Gets a query string parameter by the given key. It will returns the first value if available or the default value
    * if it is absent.
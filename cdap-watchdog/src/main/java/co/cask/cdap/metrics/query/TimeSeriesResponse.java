@@ -21,16 +21,17 @@ import com.google.common.collect.ImmutableList;
 import java.util.List;
 
 /**
- * Represents timeseries data response to REST calls. Use {@link #builder(long, long)}
+ * Represents timeseries data response to REST calls. Use {@link #builder(long, long, int)}
  * to construct and GSON to serialize.
  */
 final class TimeSeriesResponse {
 
   private final long start;
   private final long end;
+  private final int resolution;
   private final List<TimeValue> data;
 
-  public static Builder builder(final long start, final long end) {
+  public static Builder builder(final long start, final long end, final int resolution) {
     final ImmutableList.Builder<TimeValue> timeValues = ImmutableList.builder();
 
     return new Builder() {
@@ -47,14 +48,15 @@ final class TimeSeriesResponse {
 
       @Override
       public TimeSeriesResponse build() {
-        return new TimeSeriesResponse(start, end, timeValues.build());
+        return new TimeSeriesResponse(start, end, resolution, timeValues.build());
       }
     };
   }
 
-  private TimeSeriesResponse(long start, long end, List<TimeValue> data) {
+  private TimeSeriesResponse(long start, long end, int resolution, List<TimeValue> data) {
     this.start = start;
     this.end = end;
+    this.resolution = resolution;
     this.data = data;
   }
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.transport;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Helper methods for histogram metrics.
+ * <p>
+ * A histogram is carried by a {@link MetricsRecord} with the value being the number of recorded values, and with one
+ * {@link TagMetric} per non-empty bucket, tagged by {@link #getBucketTag(int)} and valued by the number of recorded
+ * values in the bucket. Since bucket counts are summed just like counters, histograms from different sources and
+ * time intervals merge without loss.
+ * </p>
+ * <p>
+ * Buckets are fixed and log-linear. Values smaller than {@code 2^SUB_BUCKET_BITS} have a bucket of their own, while
+ * each power of two above that is divided into {@code 2^SUB_BUCKET_BITS} buckets of equal width. It bounds the
+ * relative error of percentiles to {@code 1 / 2^SUB_BUCKET_BITS} with less than 500 buckets for all long values.
+ * </p>
+ */
+public final class Histograms {
+
+  public static final String BUCKET_TAG_PREFIX = "hist";
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Returns the bucket of the given value. Negative value falls into the bucket of zero.
+   */
+  public static int getBucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return value < 0 ? 0 : (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Returns the largest value that falls into the given bucket.
+   */
+  public static long getBucketUpperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowerBound = ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << shift;
+    return lowerBound + ((1L << shift) - 1);
+  }
+
+  /**
+   * Returns the tag for carrying the count of the given bucket.
+   */
+  public static String getBucketTag(int bucket) {
+    return BUCKET_TAG_PREFIX + "." + bucket;
+  }
+
+  /**
+   * Returns {@code true} if the given tag is a histogram bucket tag.
+   */
+  public static boolean isBucketTag(String tag) {
+    return tag != null && tag.startsWith(BUCKET_TAG_PREFIX + ".");
+  }
+
+  /**
+   * Returns the bucket represented by the given histogram bucket tag.
+   */
+  public static int getBucket(String bucketTag) {
+    return Integer.parseInt(bucketTag.substring(BUCKET_TAG_PREFIX.length() + 1));
+  }
+
+  /**
+   * Returns the value at the given percentile of a histogram.
+   *
+   * @param buckets Map from bucket to number of values in the bucket, sorted by bucket.
+   * @param percentile The percentile, in the range of (0, 100].
+   * @return The largest value of the bucket that contains the percentile, or {@code 0} if the histogram is empty.
+   */
+  public static long getPercentile(SortedMap<Integer, Long> buckets, double percentile) {
+    long total = 0;
+    for (long count : buckets.values()) {
+      total += count;
+    }
+    if (total <= 0) {
+      return 0L;
+    }
+
+    long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100));
+    long count = 0;
+    for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+      count += entry.getValue();
+      if (count >= rank) {
+        return getBucketUpperBound(entry.getKey());
+      }
+    }
+    return getBucketUpperBound(buckets.lastKey());
+  }
+
+  private Histograms() {
+  }
+}
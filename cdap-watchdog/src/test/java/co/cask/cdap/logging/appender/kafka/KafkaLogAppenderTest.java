@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.logging.LoggingConfiguration;
+import co.cask.cdap.logging.appender.LogMessage;
+import co.cask.cdap.logging.context.FlowletLoggingContext;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for batching, dropping and flushing of log messages by {@link KafkaLogAppender}.
+ */
+public class KafkaLogAppenderTest {
+
+  private static final LoggingContext LOGGING_CONTEXT = new FlowletLoggingContext("acct", "app", "flow", "flowlet");
+
+  @Test
+  public void testBatching() throws Exception {
+    CConfiguration cConf = createConf(100, 10, 1000);
+    RecordingProducer producer = new RecordingProducer();
+    KafkaLogAppender appender = new KafkaLogAppender(cConf, producer);
+    appender.start();
+
+    for (int i = 0; i < 25; i++) {
+      appender.doAppend(createLogMessage(i));
+    }
+
+    // Full batches are published without waiting for the buffer time
+    Assert.assertTrue(producer.awaitMessages(20, 5, TimeUnit.SECONDS));
+    appender.stop();
+
+    List<List<Map.Entry<String, byte[]>>> batches = producer.getBatches();
+    Assert.assertEquals(10, batches.get(0).size());
+    Assert.assertEquals(10, batches.get(1).size());
+    for (List<Map.Entry<String, byte[]>> batch : batches) {
+      Assert.assertTrue(batch.size() <= 10);
+    }
+    assertMessages(25, producer.getMessages());
+    Assert.assertEquals(0, appender.getDroppedCount());
+  }
+
+  @Test
+  public void testDropWhenFull() throws Exception {
+    CConfiguration cConf = createConf(5, 1, 10);
+    cConf.setLong(LoggingConfiguration.LOG_PUBLISH_QUEUE_TIMEOUT_MS, 1);
+    RecordingProducer producer = new RecordingProducer();
+    KafkaLogAppender appender = new KafkaLogAppender(cConf, producer);
+    appender.start();
+
+    // Block the publisher thread in publishing the first message
+    producer.block();
+    appender.doAppend(createLogMessage(0));
+    Assert.assertTrue(producer.awaitBlocked(5, TimeUnit.SECONDS));
+
+    // Fill up the queue, then the next messages are dropped
+    for (int i = 1; i <= 5; i++) {
+      appender.doAppend(createLogMessage(i));
+    }
+    Assert.assertEquals(0, appender.getDroppedCount());
+    for (int i = 6; i < 9; i++) {
+      appender.doAppend(createLogMessage(i));
+    }
+    Assert.assertEquals(3, appender.getDroppedCount());
+    Assert.assertEquals(3, appender.getBlockedCount());
+
+    producer.unblock();
+    appender.stop();
+    assertMessages(6, producer.getMessages());
+  }
+
+  @Test
+  public void testFlushOnStop() throws Exception {
+    // With large batch size and buffer time, messages are only published when the appender stops
+    CConfiguration cConf = createConf(1000, 1000, TimeUnit.MINUTES.toMillis(10));
+    RecordingProducer producer = new RecordingProducer();
+    KafkaLogAppender appender = new KafkaLogAppender(cConf, producer);
+    appender.start();
+
+    for (int i = 0; i < 50; i++) {
+      appender.doAppend(createLogMessage(i));
+    }
+
+    long startTime = System.currentTimeMillis();
+    appender.stop();
+    Assert.assertTrue(System.currentTimeMillis() - startTime < TimeUnit.SECONDS.toMillis(5));
+
+    assertMessages(50, producer.getMessages());
+    Assert.assertTrue(producer.isStopped());
+  }
+
+  @Test
+  public void testNoBuffering() throws Exception {
+    // With buffering disabled, the publisher waits for messages and publishes whatever is in the queue
+    CConfiguration cConf = createConf(100, 10, 0);
+    RecordingProducer producer = new RecordingProducer();
+    KafkaLogAppender appender = new KafkaLogAppender(cConf, producer);
+    appender.start();
+
+    for (int i = 0; i < 5; i++) {
+      appender.doAppend(createLogMessage(i));
+      Assert.assertTrue(producer.awaitMessages(i + 1, 5, TimeUnit.SECONDS));
+    }
+
+    appender.stop();
+    assertMessages(5, producer.getMessages());
+  }
+
+  private CConfiguration createConf(int queueSize, int batchSize, long bufferMs) {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(LoggingConfiguration.LOG_PUBLISH_QUEUE_SIZE, queueSize);
+    cConf.setInt(LoggingConfiguration.LOG_PUBLISH_BATCH_SIZE, batchSize);
+    cConf.setLong(LoggingConfiguration.KAFKA_PROCUDER_BUFFER_MS, bufferMs);
+    return cConf;
+  }
+
+  private LogMessage createLogMessage(int i) {
+    LoggingEvent event = new LoggingEvent();
+    event.setLevel(Level.INFO);
+    event.setLoggerName("logger");
+    event.setMessage("Test log message " + i);
+    event.setThreadName("thread");
+    event.setTimeStamp(i);
+    return new LogMessage(event, LOGGING_CONTEXT);
+  }
+
+  /**
+   * Asserts that the given messages are the log messages with timestamps 0 to count - 1 in order.
+   */
+  private void assertMessages(int count, List<Map.Entry<String, byte[]>> messages) throws Exception {
+    Assert.assertEquals(count, messages.size());
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    for (int i = 0; i < count; i++) {
+      Map.Entry<String, byte[]> message = messages.get(i);
+      Assert.assertEquals(LOGGING_CONTEXT.getLogPartition(), message.getKey());
+      Assert.assertEquals(i, serializer.fromBytes(ByteBuffer.wrap(message.getValue())).getTimeStamp());
+    }
+  }
+
+  /**
+   * A {@link SimpleKafkaProducer} that records the published batches instead of publishing to Kafka.
+   */
+  private static final class RecordingProducer extends SimpleKafkaProducer {
+
+    private final List<List<Map.Entry<String, byte[]>>> batches = Lists.newArrayList();
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private volatile CountDownLatch unblock = new CountDownLatch(0);
+    private boolean stopped;
+
+    RecordingProducer() {
+      super("test", null);
+    }
+
+    @Override
+    public void publish(List<Map.Entry<String, byte[]>> messages) {
+      synchronized (this) {
+        batches.add(ImmutableList.copyOf(messages));
+        notifyAll();
+      }
+      blocked.countDown();
+      try {
+        unblock.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public synchronized void stop() {
+      stopped = true;
+    }
+
+    void block() {
+      unblock = new CountDownLatch(1);
+    }
+
+    void unblock() {
+      unblock.countDown();
+    }
+
+    boolean awaitBlocked(long timeout, TimeUnit unit) throws InterruptedException {
+      return blocked.await(timeout, unit);
+    }
+
+    synchronized boolean awaitMessages(int count, long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+      while (getMessages().size() < count) {
+        long waitMs = deadline - System.currentTimeMillis();
+        if (waitMs <= 0) {
+          return false;
+        }
+        wait(waitMs);
+      }
+      return true;
+    }
+
+    synchronized List<List<Map.Entry<String, byte[]>>> getBatches() {
+      return ImmutableList.copyOf(batches);
+    }
+
+    synchronized List<Map.Entry<String, byte[]>> getMessages() {
+      List<Map.Entry<String, byte[]>> messages = Lists.newArrayList();
+      for (List<Map.Entry<String, byte[]>> batch : batches) {
+        messages.addAll(batch);
+      }
+      return messages;
+    }
+
+    synchronized boolean isStopped() {
+      return stopped;
+    }
+  }
+}
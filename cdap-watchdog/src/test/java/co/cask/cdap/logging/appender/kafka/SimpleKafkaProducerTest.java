@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.logging.KafkaTestBase;
+import co.cask.cdap.logging.LoggingConfiguration;
+import co.cask.cdap.logging.kafka.Callback;
+import co.cask.cdap.logging.kafka.KafkaConsumer;
+import co.cask.cdap.test.SlowTests;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for publishing batches of log messages with {@link SimpleKafkaProducer}.
+ */
+@Category(SlowTests.class)
+public class SimpleKafkaProducerTest extends KafkaTestBase {
+
+  private static final int NUM_PARTITIONS = 2;
+
+  @Test
+  public void testPublishBatch() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(LoggingConfiguration.KAFKA_SEED_BROKERS, "localhost:" + getKafkaPort());
+    cConf.set(LoggingConfiguration.NUM_PARTITIONS, Integer.toString(NUM_PARTITIONS));
+
+    // Find two keys that are published to different partitions
+    StringPartitioner partitioner = new StringPartitioner(NUM_PARTITIONS);
+    String[] keys = new String[NUM_PARTITIONS];
+    for (int i = 0; keys[0] == null || keys[1] == null; i++) {
+      String key = "key" + i;
+      keys[partitioner.partition(key, NUM_PARTITIONS)] = key;
+    }
+
+    // Publish one batch with messages of both keys interleaved
+    List<Map.Entry<String, byte[]>> messages = Lists.newArrayList();
+    ListMultimap<Integer, String> expected = ArrayListMultimap.create();
+    for (int i = 0; i < 20; i++) {
+      int partition = i % NUM_PARTITIONS;
+      String payload = keys[partition] + ":" + i;
+      messages.add(Maps.immutableEntry(keys[partition], payload.getBytes(Charsets.UTF_8)));
+      expected.put(partition, payload);
+    }
+
+    SimpleKafkaProducer producer = new SimpleKafkaProducer(cConf);
+    try {
+      producer.publish(messages);
+    } finally {
+      producer.stop();
+    }
+
+    // Each partition has the messages of its key in publishing order
+    for (int partition = 0; partition < NUM_PARTITIONS; partition++) {
+      KafkaConsumer consumer = new KafkaConsumer(
+        LoggingConfiguration.getKafkaSeedBrokers(cConf.get(LoggingConfiguration.KAFKA_SEED_BROKERS)),
+        KafkaTopic.getTopic(), partition, KafkaConsumer.TIMEOUT_MS);
+      try {
+        Assert.assertEquals(expected.get(partition), fetchMessages(consumer, 0));
+
+        // The batch is one compressed message set, only messages from the requested offset should be returned
+        Assert.assertEquals(expected.get(partition).subList(3, 10), fetchMessages(consumer, 3));
+      } finally {
+        consumer.close();
+      }
+    }
+  }
+
+  private List<String> fetchMessages(KafkaConsumer consumer, long offset) throws Exception {
+    final List<String> messages = Lists.newArrayList();
+    consumer.fetchMessages(offset, new Callback() {
+      @Override
+      public void handle(long messageOffset, ByteBuffer msgBuffer) {
+        messages.add(Charsets.UTF_8.decode(msgBuffer).toString());
+      }
+    });
+    return messages;
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.read;
+
+import ch.qos.logback.classic.Level;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.logging.context.FlowletLoggingContext;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.serialize.LogSchema;
+import co.cask.cdap.logging.serialize.LoggingEvent;
+import co.cask.cdap.logging.write.AvroFileWriter;
+import co.cask.cdap.logging.write.LogWriteEvent;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.avro.Schema;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link ParallelLogFileReader}.
+ */
+public class ParallelLogFileReaderTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final int EVENTS_PER_FILE = 100;
+  private static final int QUEUE_SIZE = 10;
+  private static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
+  private static Schema schema;
+  private static List<Location> files;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    schema = new LogSchema().getAvroSchema();
+    Location baseDir = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("logs");
+    baseDir.mkdirs();
+
+    // Files of the same group overlap in time: the first two files have the even and odd timestamps of [0, 200),
+    // the last two files have the even and odd timestamps of [200, 400)
+    files = ImmutableList.of(writeLogFile(baseDir, "0.avro", 0),
+                             writeLogFile(baseDir, "1.avro", 1),
+                             writeLogFile(baseDir, "2.avro", 2 * EVENTS_PER_FILE),
+                             writeLogFile(baseDir, "3.avro", 2 * EVENTS_PER_FILE + 1));
+  }
+
+  @Test
+  public void testOrderAcrossFiles() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ParallelLogFileReader reader = new ParallelLogFileReader(new AvroFileLogReader(schema), executor, 2, 2,
+                                                               QUEUE_SIZE, TIMEOUT_MS);
+
+      EventCollector callback = new EventCollector(Integer.MAX_VALUE);
+      reader.readLog(files, Filter.EMPTY_FILTER, 0, Long.MAX_VALUE, callback);
+      List<LogEvent> events = callback.getEvents();
+      Assert.assertEquals(4 * EVENTS_PER_FILE, events.size());
+      for (int i = 0; i < events.size(); i++) {
+        Assert.assertEquals(i, events.get(i).getLoggingEvent().getTimeStamp());
+      }
+
+      // Only read part of the time range
+      callback = new EventCollector(Integer.MAX_VALUE);
+      reader.readLog(files, Filter.EMPTY_FILTER, 150, 250, callback);
+      events = callback.getEvents();
+      Assert.assertEquals(100, events.size());
+      for (int i = 0; i < events.size(); i++) {
+        Assert.assertEquals(150 + i, events.get(i).getLoggingEvent().getTimeStamp());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCallbackTermination() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    ParallelLogFileReader reader = new ParallelLogFileReader(new AvroFileLogReader(schema), executor, 2, 2,
+                                                             QUEUE_SIZE, TIMEOUT_MS);
+
+    int maxEvents = 15;
+    EventCollector callback = new EventCollector(maxEvents);
+
+    try {
+      reader.readLog(files, Filter.EMPTY_FILTER, 0, Long.MAX_VALUE, callback);
+      Assert.fail("Expected exception from callback");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+    Assert.assertEquals(maxEvents, callback.getEvents().size());
+    for (int i = 0; i < maxEvents; i++) {
+      Assert.assertEquals(i, callback.getEvents().get(i).getLoggingEvent().getTimeStamp());
+    }
+
+    // Reads blocked on a full queue must have been cancelled, so the executor terminates without interrupting them
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    // More files than threads, shared by concurrent reads that read ahead and block on full queues
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    ExecutorService readExecutor = Executors.newFixedThreadPool(4);
+    try {
+      final ParallelLogFileReader reader = new ParallelLogFileReader(new AvroFileLogReader(schema), executor, 3, 2,
+                                                                     QUEUE_SIZE, TIMEOUT_MS);
+      List<Future<List<LogEvent>>> futures = Lists.newArrayList();
+      for (int i = 0; i < 8; i++) {
+        futures.add(readExecutor.submit(new Callable<List<LogEvent>>() {
+          @Override
+          public List<LogEvent> call() throws Exception {
+            EventCollector callback = new EventCollector(Integer.MAX_VALUE);
+            reader.readLog(files, Filter.EMPTY_FILTER, 0, Long.MAX_VALUE, callback);
+            return callback.getEvents();
+          }
+        }));
+      }
+
+      for (Future<List<LogEvent>> future : futures) {
+        List<LogEvent> events = future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(4 * EVENTS_PER_FILE, events.size());
+        for (int i = 0; i < events.size(); i++) {
+          Assert.assertEquals(i, events.get(i).getLoggingEvent().getTimeStamp());
+        }
+      }
+    } finally {
+      readExecutor.shutdownNow();
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Collects log events, and throws an exception when more than maxEvents events are received.
+   */
+  private static final class EventCollector implements Callback {
+    private final List<LogEvent> events = Lists.newArrayList();
+    private final int maxEvents;
+
+    EventCollector(int maxEvents) {
+      this.maxEvents = maxEvents;
+    }
+
+    @Override
+    public void init() {
+      // No-op
+    }
+
+    @Override
+    public void handle(LogEvent event) {
+      if (events.size() == maxEvents) {
+        throw new IllegalStateException("Stop");
+      }
+      events.add(event);
+    }
+
+    @Override
+    public void close() {
+      // No-op
+    }
+
+    List<LogEvent> getEvents() {
+      return events;
+    }
+  }
+
+  /**
+   * Writes a log file with {@link #EVENTS_PER_FILE} events with timestamps start, start + 2, start + 4, ...
+   */
+  private static Location writeLogFile(Location baseDir, String name, long start) throws Exception {
+    Location file = baseDir.append(name);
+
+    AvroFileWriter writer = new AvroFileWriter(null, baseDir, schema, Long.MAX_VALUE, 1024, Long.MAX_VALUE);
+    AvroFileWriter.AvroFile avroFile = writer.new AvroFile(file);
+    avroFile.open();
+    try {
+      LoggingContext loggingContext = new FlowletLoggingContext("acct", "app", "flow", "flowlet");
+      for (int i = 0; i < EVENTS_PER_FILE; i++) {
+        long timestamp = start + 2 * i;
+        ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent();
+        event.setLevel(Level.INFO);
+        event.setLoggerName("logger");
+        event.setMessage("Test log message " + timestamp);
+        event.setThreadName("thread");
+        event.setTimeStamp(timestamp);
+        avroFile.append(new LogWriteEvent(LoggingEvent.encode(schema, event, loggingContext), event, loggingContext));
+      }
+      avroFile.flush();
+    } finally {
+      avroFile.close();
+    }
+    return file;
+  }
+}
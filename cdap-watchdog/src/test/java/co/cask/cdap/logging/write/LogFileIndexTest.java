@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.logging.appender.LoggingTester;
+import co.cask.cdap.logging.context.FlowletLoggingContext;
+import co.cask.cdap.logging.filter.AndFilter;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.filter.LogLevelExpression;
+import co.cask.cdap.logging.filter.MdcExpression;
+import co.cask.cdap.logging.filter.OrFilter;
+import co.cask.cdap.logging.read.AvroFileLogReader;
+import co.cask.cdap.logging.read.LogEvent;
+import co.cask.cdap.logging.serialize.LogSchema;
+import co.cask.cdap.logging.serialize.LoggingEvent;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.apache.avro.Schema;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tests for {@link LogFileIndex} written by {@link AvroFileWriter} and used by {@link AvroFileLogReader}.
+ */
+public class LogFileIndexTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final int BATCHES = 10;
+  private static final int EVENTS_PER_BATCH = 100;
+
+  @Test
+  public void testLevelMask() {
+    int errorMask = LogFileIndex.getLevelMask(Level.ERROR);
+    int warnMask = LogFileIndex.getLevelMask(Level.WARN);
+    int infoMask = LogFileIndex.getLevelMask(Level.INFO);
+
+    int mask = LogFileIndex.getLevelMask(new LogLevelExpression("WARN"));
+    Assert.assertTrue((mask & errorMask) != 0);
+    Assert.assertTrue((mask & warnMask) != 0);
+    Assert.assertEquals(0, mask & infoMask);
+
+    Assert.assertEquals(LogFileIndex.ALL_LEVELS, LogFileIndex.getLevelMask(Filter.EMPTY_FILTER));
+    Assert.assertEquals(LogFileIndex.ALL_LEVELS, LogFileIndex.getLevelMask(new MdcExpression("k", "v")));
+
+    mask = LogFileIndex.getLevelMask(new AndFilter(ImmutableList.of(new MdcExpression("k", "v"),
+                                                                    new LogLevelExpression("ERROR"))));
+    Assert.assertTrue((mask & errorMask) != 0);
+    Assert.assertEquals(0, mask & warnMask);
+
+    mask = LogFileIndex.getLevelMask(new OrFilter(ImmutableList.of(new MdcExpression("k", "v"),
+                                                                   new LogLevelExpression("ERROR"))));
+    Assert.assertEquals(LogFileIndex.ALL_LEVELS, mask);
+  }
+
+  @Test
+  public void testIndexedRead() throws Exception {
+    Schema schema = new LogSchema().getAvroSchema();
+    Location file = writeLogFile(schema);
+
+    LogFileIndex index = LogFileIndex.read(file, file.length());
+    Assert.assertNotNull(index);
+    Assert.assertEquals(BATCHES, index.getEntries().size());
+
+    int errorMask = LogFileIndex.getLevelMask(new LogLevelExpression("ERROR"));
+    List<LogFileIndex.Entry> segments = index.getSegments(Long.MIN_VALUE, Long.MAX_VALUE, errorMask);
+    Assert.assertEquals(1, segments.size());
+    Assert.assertEquals(300L, segments.get(0).getMinTimestamp());
+    Assert.assertEquals(399L, segments.get(0).getMaxTimestamp());
+
+    Assert.assertEquals(3, index.getSegments(250, 550, LogFileIndex.ALL_LEVELS).size());
+    assertRead(schema, file);
+
+    // Truncate the index to simulate an index that lags behind the log file
+    Location indexLocation = LogFileIndex.getIndexLocation(file);
+    InputStream input = indexLocation.getInputStream();
+    byte[] indexBytes;
+    try {
+      indexBytes = ByteStreams.toByteArray(input);
+    } finally {
+      input.close();
+    }
+    OutputStream output = indexLocation.getOutputStream();
+    try {
+      output.write(indexBytes, 0, indexBytes.length - (BATCHES / 2) * (indexBytes.length - 12) / BATCHES);
+    } finally {
+      output.close();
+    }
+    index = LogFileIndex.read(file, file.length());
+    Assert.assertNotNull(index);
+    Assert.assertEquals(BATCHES / 2, index.getEntries().size());
+    Assert.assertEquals(2, index.getSegments(Long.MIN_VALUE, Long.MAX_VALUE, errorMask).size());
+    assertRead(schema, file);
+
+    // Without the index, the file is scanned
+    Assert.assertTrue(indexLocation.delete());
+    Assert.assertNull(LogFileIndex.read(file, file.length()));
+    assertRead(schema, file);
+  }
+
+  private void assertRead(Schema schema, Location file) throws Exception {
+    AvroFileLogReader reader = new AvroFileLogReader(schema);
+
+    // Only one ERROR event
+    List<LogEvent> events = readLog(reader, file, new LogLevelExpression("ERROR"), 0, Long.MAX_VALUE, 10);
+    Assert.assertEquals(1, events.size());
+    Assert.assertEquals(350L, events.get(0).getLoggingEvent().getTimeStamp());
+
+    // WARN and above
+    events = readLog(reader, file, new LogLevelExpression("WARN"), 360, Long.MAX_VALUE, 10);
+    Assert.assertEquals(1, events.size());
+    Assert.assertEquals(750L, events.get(0).getLoggingEvent().getTimeStamp());
+
+    events = readLog(reader, file, Filter.EMPTY_FILTER, 250, Long.MAX_VALUE, 10);
+    assertTimestamps(250, 10, events);
+
+    events = readLog(reader, file, Filter.EMPTY_FILTER, 995, Long.MAX_VALUE, 10);
+    assertTimestamps(995, 5, events);
+
+    events = Lists.newArrayList(reader.readLogPrev(file, new LogLevelExpression("ERROR"), Long.MAX_VALUE, 10));
+    Assert.assertEquals(1, events.size());
+    Assert.assertEquals(350L, events.get(0).getLoggingEvent().getTimeStamp());
+
+    events = Lists.newArrayList(reader.readLogPrev(file, new LogLevelExpression("WARN"), 700, 10));
+    Assert.assertEquals(1, events.size());
+    Assert.assertEquals(350L, events.get(0).getLoggingEvent().getTimeStamp());
+
+    Collection<LogEvent> prevEvents = reader.readLogPrev(file, Filter.EMPTY_FILTER, 555, 10);
+    assertTimestamps(546, 10, prevEvents);
+
+    prevEvents = reader.readLogPrev(file, Filter.EMPTY_FILTER, 5, 10);
+    assertTimestamps(0, 6, prevEvents);
+  }
+
+  private List<LogEvent> readLog(AvroFileLogReader reader, Location file, Filter filter,
+                                 long fromTimeMs, long toTimeMs, int maxEvents) throws Exception {
+    LoggingTester.LogCallback callback = new LoggingTester.LogCallback();
+    callback.init();
+    reader.readLog(file, filter, fromTimeMs, toTimeMs, maxEvents, callback);
+    callback.close();
+    return callback.getEvents();
+  }
+
+  private void assertTimestamps(long startTimestamp, int count, Collection<LogEvent> events) {
+    Assert.assertEquals(count, events.size());
+    long timestamp = startTimestamp;
+    for (LogEvent event : events) {
+      Assert.assertEquals(timestamp++, event.getLoggingEvent().getTimeStamp());
+    }
+  }
+
+  /**
+   * Writes a log file with one flush per batch. All events are INFO, except an ERROR event at timestamp 350 and a
+   * WARN event at timestamp 750.
+   */
+  private Location writeLogFile(Schema schema) throws Exception {
+    Location baseDir = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("logs");
+    baseDir.mkdirs();
+    Location file = baseDir.append("test.avro");
+
+    AvroFileWriter writer = new AvroFileWriter(null, baseDir, schema, Long.MAX_VALUE, 1024, Long.MAX_VALUE);
+    AvroFileWriter.AvroFile avroFile = writer.new AvroFile(file);
+    avroFile.open();
+    try {
+      LoggingContext loggingContext = new FlowletLoggingContext("acct", "app", "flow", "flowlet");
+      for (int batch = 0; batch < BATCHES; batch++) {
+        for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+          long timestamp = batch * EVENTS_PER_BATCH + i;
+          Level level = Level.INFO;
+          if (timestamp == 350) {
+            level = Level.ERROR;
+          } else if (timestamp == 750) {
+            level = Level.WARN;
+          }
+          ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent();
+          event.setLevel(level);
+          event.setLoggerName("logger");
+          event.setMessage("Test log message " + timestamp);
+          event.setThreadName("thread");
+          event.setTimeStamp(timestamp);
+          avroFile.append(new LogWriteEvent(LoggingEvent.encode(schema, event, loggingContext), event, loggingContext));
+        }
+        avroFile.flush();
+      }
+    } finally {
+      avroFile.close();
+    }
+    return file;
+  }
+}
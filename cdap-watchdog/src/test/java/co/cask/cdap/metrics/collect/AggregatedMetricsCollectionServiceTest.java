@@ -15,10 +15,12 @@
  */
 package co.cask.cdap.metrics.collect;
 
+import co.cask.cdap.common.metrics.MetricsCounter;
 import co.cask.cdap.common.metrics.MetricsScope;
 import co.cask.cdap.metrics.transport.MetricsRecord;
 import co.cask.cdap.metrics.transport.TagMetric;
 import co.cask.cdap.test.SlowTests;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
@@ -26,9 +28,11 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.lang.ref.WeakReference;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -92,4 +96,99 @@ public class AggregatedMetricsCollectionServiceTest {
       service.stopAndWait();
     }
   }
+
+  @Test
+  public void testCounter() throws InterruptedException {
+    final BlockingQueue<MetricsRecord> published = new LinkedBlockingQueue<MetricsRecord>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService() {
+      @Override
+      protected void publish(MetricsScope scope, Iterator<MetricsRecord> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    service.startAndWait();
+    try {
+      final MetricsCounter counter = service.getCollector(MetricsScope.SYSTEM, "context", "runId").counter("metric");
+
+      // Increment concurrently from multiple threads
+      int threadCount = 4;
+      final int increments = 100000;
+      final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+      Thread[] threads = new Thread[threadCount];
+      for (int i = 0; i < threadCount; i++) {
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              barrier.await();
+            } catch (Exception e) {
+              throw Throwables.propagate(e);
+            }
+            for (int j = 0; j < increments; j++) {
+              counter.increment(1);
+            }
+          }
+        };
+        threads[i].start();
+      }
+      for (Thread t : threads) {
+        t.join();
+      }
+
+      // All increments are published, possibly across multiple emit intervals.
+      long total = 0;
+      while (total < threadCount * increments) {
+        MetricsRecord record = published.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(record);
+        Assert.assertEquals("metric", record.getName());
+        total += record.getValue();
+      }
+      Assert.assertEquals(threadCount * increments, total);
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  @Category(SlowTests.class)
+  @Test
+  public void testCollectedCounter() throws InterruptedException {
+    final BlockingQueue<MetricsRecord> published = new LinkedBlockingQueue<MetricsRecord>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService() {
+      @Override
+      protected void publish(MetricsScope scope, Iterator<MetricsRecord> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+
+      @Override
+      protected Scheduler scheduler() {
+        return Scheduler.newFixedRateSchedule(5, 1, TimeUnit.SECONDS);
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsCounter counter = service.getCollector(MetricsScope.SYSTEM, "context", "runId").counter("metric");
+      counter.increment(5);
+
+      // Let the counter be garbage collected before the first emit
+      WeakReference<MetricsCounter> counterRef = new WeakReference<MetricsCounter>(counter);
+      counter = null;
+      for (int i = 0; i < 10 && counterRef.get() != null; i++) {
+        System.gc();
+        TimeUnit.MILLISECONDS.sleep(100);
+      }
+      Assert.assertNull(counterRef.get());
+
+      // Increments of the collected counter are still published
+      MetricsRecord record = published.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(record);
+      Assert.assertEquals("metric", record.getName());
+      Assert.assertEquals(5, record.getValue());
+    } finally {
+      service.stopAndWait();
+    }
+  }
 }
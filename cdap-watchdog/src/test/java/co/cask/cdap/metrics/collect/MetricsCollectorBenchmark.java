@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.common.metrics.MetricsCollector;
+import co.cask.cdap.common.metrics.MetricsCounter;
+import co.cask.cdap.common.metrics.MetricsScope;
+import co.cask.cdap.metrics.transport.MetricsRecord;
+import com.google.common.base.Throwables;
+
+import java.util.Iterator;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for comparing incrementing metrics by name through {@link MetricsCollector#increment} with
+ * incrementing through a {@link MetricsCounter}. It is not run as part of the unit tests.
+ * <p>
+ * Usage: {@code MetricsCollectorBenchmark [threads] [seconds]}
+ * </p>
+ */
+public final class MetricsCollectorBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    final AtomicLong published = new AtomicLong();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService() {
+      @Override
+      protected void publish(MetricsScope scope, Iterator<MetricsRecord> metrics) throws Exception {
+        while (metrics.hasNext()) {
+          published.addAndGet(metrics.next().getValue());
+        }
+      }
+    };
+    service.startAndWait();
+    try {
+      final MetricsCollector collector = service.getCollector(MetricsScope.SYSTEM, "app.f.flow.flowlet", "0");
+      final MetricsCounter counter = collector.counter("counter");
+
+      // Run each twice, the first round is for warm up.
+      for (int round = 0; round < 2; round++) {
+        run("increment", threads, seconds, new Runnable() {
+          @Override
+          public void run() {
+            collector.increment("increment", 1);
+          }
+        });
+        run("counter", threads, seconds, new Runnable() {
+          @Override
+          public void run() {
+            counter.increment(1);
+          }
+        });
+      }
+    } finally {
+      service.stopAndWait();
+    }
+    System.out.printf("Total published: %d%n", published.get());
+  }
+
+  private static void run(String name, int threadCount, int seconds, final Runnable op) throws Exception {
+    final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+    final long duration = TimeUnit.SECONDS.toNanos(seconds);
+    final AtomicLong totalOps = new AtomicLong();
+
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            barrier.await();
+          } catch (Exception e) {
+            throw Throwables.propagate(e);
+          }
+          long ops = 0;
+          long startTime = System.nanoTime();
+          // Check the time once every 1024 operations to keep the timing overhead small.
+          while ((ops & 0x3ff) != 0 || System.nanoTime() - startTime < duration) {
+            op.run();
+            ops++;
+          }
+          totalOps.addAndGet(ops);
+        }
+      };
+      threads[i].start();
+    }
+
+    barrier.await();
+    for (Thread t : threads) {
+      t.join();
+    }
+    System.out.printf("%s: %d threads, %.0f ops/sec%n", name, threadCount, (double) totalOps.get() / seconds);
+  }
+
+  private MetricsCollectorBenchmark() {
+  }
+}
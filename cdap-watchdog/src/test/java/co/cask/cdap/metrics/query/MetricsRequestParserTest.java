@@ -53,6 +53,19 @@ public class MetricsRequestParserTest {
     Assert.assertEquals(1, request.getStartTime());
     Assert.assertEquals(61, request.getEndTime());
     Assert.assertEquals(MetricsRequest.Type.TIME_SERIES, request.getType());
+    Assert.assertEquals(60, request.getCount());
+
+    request = MetricsRequestParser.parse(URI.create("/system/apps/app1/reads?count=100&start=1&end=61"));
+    Assert.assertEquals(61, request.getCount());
+    Assert.assertNull(request.getPercentile());
+
+    request = MetricsRequestParser.parse(URI.create("/system/apps/app1/reads?count=60&percentile=99.9"));
+    Assert.assertEquals(MetricsRequest.Type.TIME_SERIES, request.getType());
+    Assert.assertEquals(99.9d, request.getPercentile(), 0.0d);
+
+    request = MetricsRequestParser.parse(URI.create("/system/apps/app1/reads?aggregate=true&percentile=50"));
+    Assert.assertEquals(MetricsRequest.Type.AGGREGATE, request.getType());
+    Assert.assertEquals(50d, request.getPercentile(), 0.0d);
 
     request = MetricsRequestParser.parse(
       URI.create("/system/apps/app1/reads?count=60&start=1&end=61"));
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.transport;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SortedMap;
+
+/**
+ * Tests for {@link Histograms}.
+ */
+public class HistogramsTest {
+
+  @Test
+  public void testBuckets() {
+    // Small values have their own buckets
+    for (int i = 0; i < 8; i++) {
+      Assert.assertEquals(i, Histograms.getBucket(i));
+      Assert.assertEquals(i, Histograms.getBucketUpperBound(i));
+    }
+    Assert.assertEquals(0, Histograms.getBucket(-10L));
+
+    // Buckets are continuous, and each value is within its bucket bounds with bounded error.
+    int lastBucket = Histograms.getBucket(0L);
+    for (long value = 1; value < 100000; value++) {
+      int bucket = Histograms.getBucket(value);
+      Assert.assertTrue(bucket == lastBucket || bucket == lastBucket + 1);
+      long upperBound = Histograms.getBucketUpperBound(bucket);
+      Assert.assertTrue(value <= upperBound);
+      Assert.assertTrue(upperBound - value <= value / 8);
+      if (bucket > 0) {
+        Assert.assertTrue(value > Histograms.getBucketUpperBound(bucket - 1));
+      }
+      lastBucket = bucket;
+    }
+
+    int maxBucket = Histograms.getBucket(Long.MAX_VALUE);
+    Assert.assertTrue(maxBucket < 500);
+    Assert.assertEquals(Long.MAX_VALUE, Histograms.getBucketUpperBound(maxBucket));
+  }
+
+  @Test
+  public void testBucketTag() {
+    String tag = Histograms.getBucketTag(123);
+    Assert.assertTrue(Histograms.isBucketTag(tag));
+    Assert.assertEquals(123, Histograms.getBucket(tag));
+
+    Assert.assertFalse(Histograms.isBucketTag(null));
+    Assert.assertFalse(Histograms.isBucketTag("input.queue"));
+  }
+
+  @Test
+  public void testPercentile() {
+    SortedMap<Integer, Long> histogram = Maps.newTreeMap();
+    Assert.assertEquals(0L, Histograms.getPercentile(histogram, 50));
+
+    // 100 values, 1 to 100
+    for (long value = 1; value <= 100; value++) {
+      int bucket = Histograms.getBucket(value);
+      Long count = histogram.get(bucket);
+      histogram.put(bucket, count == null ? 1L : count + 1L);
+    }
+
+    Assert.assertEquals(1L, Histograms.getPercentile(histogram, 1));
+    assertApproximate(50L, Histograms.getPercentile(histogram, 50));
+    assertApproximate(95L, Histograms.getPercentile(histogram, 95));
+    assertApproximate(99L, Histograms.getPercentile(histogram, 99));
+    Assert.assertEquals(Histograms.getBucketUpperBound(Histograms.getBucket(100L)),
+                        Histograms.getPercentile(histogram, 100));
+
+    // Single bucket
+    Assert.assertEquals(7L, Histograms.getPercentile(ImmutableSortedMap.of(7, 10L), 99.9));
+  }
+
+  private void assertApproximate(long expected, long actual) {
+    Assert.assertTrue("Expected " + expected + " but got " + actual,
+                      actual >= expected && actual - expected <= expected / 8);
+  }
+}